@@ -47,4 +47,21 @@ class BuildScriptExecutionIntegrationTest extends AbstractIntegrationTest {
         assertThat(result.error, containsString('error message'))
         assertThat(result.error, not(containsString('quiet message')))
     }
+
+    @Test
+    public void reusesBuildScriptClassInLaterBuildInSameProcess() {
+        testFile('build.gradle') << '''
+            System.setProperty('test.buildScriptClass', System.identityHashCode(getClass()).toString())
+            task doStuff
+'''
+
+        try {
+            inTestDirectory().withTasks('doStuff').run()
+            String firstBuildScriptClass = System.getProperty('test.buildScriptClass')
+            inTestDirectory().withTasks('doStuff').run()
+            assertThat(System.getProperty('test.buildScriptClass'), equalTo(firstBuildScriptClass))
+        } finally {
+            System.clearProperty('test.buildScriptClass')
+        }
+    }
 }
\ No newline at end of file
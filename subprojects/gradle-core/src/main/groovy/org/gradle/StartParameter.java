@@ -77,6 +77,14 @@ public class StartParameter {
     private boolean launchGUI;
     private boolean dryRun;
     private boolean noOpt;
+    private int parallelThreadCount;
+    private boolean watchFileSystem;
+    private boolean configureInParallel;
+    private boolean configureOnDemand;
+    private boolean cacheTaskGraph;
+    private boolean useDaemon;
+    private boolean stopDaemon;
+    private boolean foregroundDaemon;
 
     /**
      * Creates a {@code StartParameter} with default values. This is roughly equivalent to running Gradle on the
@@ -115,6 +123,11 @@ public class StartParameter {
         startParameter.showVersion = showVersion;
         startParameter.dryRun = dryRun;
         startParameter.noOpt = noOpt;
+        startParameter.parallelThreadCount = parallelThreadCount;
+        startParameter.watchFileSystem = watchFileSystem;
+        startParameter.configureInParallel = configureInParallel;
+        startParameter.configureOnDemand = configureOnDemand;
+        startParameter.cacheTaskGraph = cacheTaskGraph;
         return startParameter;
     }
 
@@ -132,6 +145,11 @@ public class StartParameter {
         startParameter.defaultImportsFile = defaultImportsFile;
         startParameter.cacheUsage = cacheUsage;
         startParameter.logLevel = logLevel;
+        startParameter.parallelThreadCount = parallelThreadCount;
+        startParameter.watchFileSystem = watchFileSystem;
+        startParameter.configureInParallel = configureInParallel;
+        startParameter.configureOnDemand = configureOnDemand;
+        startParameter.cacheTaskGraph = cacheTaskGraph;
         return startParameter;
     }
 
@@ -417,6 +435,112 @@ public class StartParameter {
         this.noOpt = noOpt;
     }
 
+    /**
+     * Returns the number of threads to use to execute the tasks of this build. A value of 0 or 1 means the tasks are
+     * executed one at a time, on the build thread.
+     *
+     * @return The number of threads.
+     */
+    public int getParallelThreadCount() {
+        return parallelThreadCount;
+    }
+
+    /**
+     * Sets the number of threads to use to execute the tasks of this build. When greater than 1, a task is executed
+     * as soon as all of the tasks it depends on have completed, concurrently with other tasks.
+     *
+     * @param parallelThreadCount The number of threads. Use 0 to execute tasks sequentially.
+     */
+    public void setParallelThreadCount(int parallelThreadCount) {
+        this.parallelThreadCount = parallelThreadCount;
+    }
+
+    /**
+     * Returns true if the projects of this build should be configured in parallel.
+     *
+     * @return true if projects should be configured in parallel.
+     */
+    public boolean isConfigureInParallel() {
+        return configureInParallel;
+    }
+
+    /**
+     * Specifies whether the projects of this build should be configured in parallel. When true, a project is
+     * configured as soon as its parent project has been configured, concurrently with other projects. This is only safe
+     * for builds whose projects do not change each other's configuration, other than through the parent project and
+     * through {@code evaluationDependsOn()}.
+     *
+     * @param configureInParallel true to configure projects in parallel.
+     */
+    public void setConfigureInParallel(boolean configureInParallel) {
+        this.configureInParallel = configureInParallel;
+    }
+
+    /**
+     * Returns true if only the projects required by the requested tasks should be configured.
+     *
+     * @return true if projects should be configured on demand.
+     */
+    public boolean isConfigureOnDemand() {
+        return configureOnDemand;
+    }
+
+    /**
+     * Specifies whether only the projects required by the requested tasks should be configured. When true, the
+     * projects which contain the requested tasks are configured, along with their ancestors, and other projects are
+     * configured only when a task or project dependency refers to them. This is only safe for builds whose projects do
+     * not change each other's configuration, other than through the parent project.
+     *
+     * @param configureOnDemand true to configure projects on demand.
+     */
+    public void setConfigureOnDemand(boolean configureOnDemand) {
+        this.configureOnDemand = configureOnDemand;
+    }
+
+    /**
+     * Returns true if the task execution graph of this build should be cached between builds.
+     *
+     * @return true if the task execution graph should be cached.
+     */
+    public boolean isCacheTaskGraph() {
+        return cacheTaskGraph;
+    }
+
+    /**
+     * Specifies whether the task execution graph of this build should be cached between builds. When true, the
+     * execution plan for the requested tasks is reused from an earlier build, rather than calculated from the task
+     * dependencies, provided the scripts, script classpath, {@code gradle.properties} files and command-line parameters
+     * of the build are unchanged. This is only safe for builds whose task dependencies are determined by these inputs,
+     * and only saves time for builds with many thousands of tasks.
+     *
+     * @param cacheTaskGraph true to cache the task execution graph.
+     */
+    public void setCacheTaskGraph(boolean cacheTaskGraph) {
+        this.cacheTaskGraph = cacheTaskGraph;
+    }
+
+    /**
+     * Returns true if the file system should be watched for changes, so that the files of unchanged directories need
+     * not be inspected again by later builds run in the same JVM.
+     *
+     * @return true if the file system should be watched.
+     */
+    public boolean isWatchFileSystem() {
+        return watchFileSystem;
+    }
+
+    /**
+     * Specifies whether the file system should be watched for changes. When true, snapshots of task input and output
+     * files are retained between builds run in the same JVM, and are discarded when the file system reports that a
+     * file has changed. This has no effect when the JVM cannot watch the file system, which is currently the case for
+     * JVMs other than Java 7 or later on Linux.
+     *
+     * @param watchFileSystem true to watch the file system.
+     */
+    public void setWatchFileSystem(boolean watchFileSystem) {
+        this.watchFileSystem = watchFileSystem;
+    }
+
     /**
      * Sets the settings file to use for the build. Use null to use the default settings file.
      *
@@ -518,6 +642,43 @@ public class StartParameter {
         this.launchGUI = launchGUI;
     }
 
+    /**
+     * Returns true if the build should be run using the build daemon, rather than in this process.
+     */
+    public boolean isUseDaemon() {
+        return useDaemon;
+    }
+
+    /**
+     * Specifies whether the build should be run using the build daemon. The daemon is started if it is not already
+     * running.
+     */
+    public void setUseDaemon(boolean useDaemon) {
+        this.useDaemon = useDaemon;
+    }
+
+    /**
+     * Returns true if the build daemon should be stopped, rather than running a build.
+     */
+    public boolean isStopDaemon() {
+        return stopDaemon;
+    }
+
+    public void setStopDaemon(boolean stopDaemon) {
+        this.stopDaemon = stopDaemon;
+    }
+
+    /**
+     * Returns true if this process should run as the build daemon, rather than running a build.
+     */
+    public boolean isForegroundDaemon() {
+        return foregroundDaemon;
+    }
+
+    public void setForegroundDaemon(boolean foregroundDaemon) {
+        this.foregroundDaemon = foregroundDaemon;
+    }
+
     @Override
     public String toString() {
         return "StartParameter{" +
@@ -544,6 +705,14 @@ public class StartParameter {
                 ", launchGUI=" + launchGUI +
                 ", dryRun=" + dryRun +
                 ", noOpt=" + noOpt +
+                ", parallelThreadCount=" + parallelThreadCount +
+                ", watchFileSystem=" + watchFileSystem +
+                ", configureInParallel=" + configureInParallel +
+                ", configureOnDemand=" + configureOnDemand +
+                ", cacheTaskGraph=" + cacheTaskGraph +
+                ", useDaemon=" + useDaemon +
+                ", stopDaemon=" + stopDaemon +
+                ", foregroundDaemon=" + foregroundDaemon +
                 '}';
     }
 }
\ No newline at end of file
@@ -34,7 +34,18 @@ public abstract class AbstractClassGenerator implements ClassGenerator {
         return type.cast(ReflectionUtil.newInstance(generate(type), parameters));
     }
 
+    /**
+     * Generates the subclass of the given type, or returns the subclass previously generated for it. Classes are
+     * generated one at a time, as the cache is shared by all generators of the same kind, and the generated class is
+     * defined using a fixed name in the class loader of the type.
+     */
     public <T> Class<? extends T> generate(Class<T> type) {
+        synchronized (GENERATED_CLASSES) {
+            return doGenerate(type);
+        }
+    }
+
+    private <T> Class<? extends T> doGenerate(Class<T> type) {
         Map<Class, Class> cache = GENERATED_CLASSES.get(getClass());
         if (cache == null) {
             cache = new HashMap<Class, Class>();
@@ -18,6 +18,7 @@ package org.gradle.api.internal.artifacts;
 import org.gradle.api.artifacts.ResolvedArtifact;
 import org.gradle.api.artifacts.ResolvedDependency;
 import org.apache.ivy.core.module.descriptor.Artifact;
+import org.apache.ivy.core.module.id.ArtifactRevisionId;
 import org.apache.ivy.core.resolve.ResolveEngine;
 import org.apache.ivy.core.resolve.DownloadOptions;
 
@@ -30,11 +31,20 @@ public class DefaultResolvedArtifact implements ResolvedArtifact {
     private ResolvedDependency resolvedDependency;
     private Artifact artifact;
     private ResolveEngine resolvedEngine;
+    private String repositoryName;
     private File file;
 
     public DefaultResolvedArtifact(Artifact artifact, ResolveEngine resolvedEngine) {
+        this(artifact, resolvedEngine, null);
+    }
+
+    /**
+     * @param repositoryName The name of the resolver which resolved the module of the artifact, or null if not known.
+     */
+    public DefaultResolvedArtifact(Artifact artifact, ResolveEngine resolvedEngine, String repositoryName) {
         this.artifact = artifact;
         this.resolvedEngine = resolvedEngine;
+        this.repositoryName = repositoryName;
     }
 
     public ResolvedDependency getResolvedDependency() {
@@ -65,10 +75,32 @@ public class DefaultResolvedArtifact implements ResolvedArtifact {
         return getResolvedDependency() == null ? null : getResolvedDependency().getModuleName();
     }
 
-    public File getFile() {
+    public synchronized File getFile() {
         if (file == null) {
             file = resolvedEngine.download(artifact, new DownloadOptions()).getLocalFile();
         }
         return file;
     }
+
+    /**
+     * Returns true if the file of this artifact has already been located.
+     */
+    public synchronized boolean isFileLocated() {
+        return file != null;
+    }
+
+    public ArtifactRevisionId getArtifactId() {
+        return artifact.getId();
+    }
+
+    /**
+     * Returns the name of the repository which this artifact is downloaded from. This is the resolver which resolved
+     * the module of the artifact, when known, or else the resolver configured for the module.
+     */
+    public String getRepositoryName() {
+        if (repositoryName != null) {
+            return repositoryName;
+        }
+        return resolvedEngine.getSettings().getResolverName(artifact.getModuleRevisionId());
+    }
 }
@@ -30,6 +30,7 @@ import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.artifacts.DefaultExcludeRule;
 import org.gradle.api.internal.artifacts.IvyService;
 import org.gradle.api.internal.file.AbstractFileCollection;
+import org.gradle.api.internal.tasks.CachingTaskDependency;
 import org.gradle.api.internal.tasks.DefaultTaskDependency;
 import org.gradle.api.specs.Spec;
 import org.gradle.api.specs.Specs;
@@ -201,14 +202,14 @@ public class DefaultConfiguration extends AbstractFileCollection implements Conf
     }
 
     public TaskDependency getBuildDependencies() {
-        return new TaskDependency() {
+        return new CachingTaskDependency(this, "buildDependencies", new TaskDependency() {
             public Set<? extends Task> getDependencies(Task task) {
                 DefaultTaskDependency taskDependency = new DefaultTaskDependency();
                 addBuildDependenciesFromExtendedConfigurations(taskDependency);
                 addSelfResolvingDependencies(taskDependency);
                 return taskDependency.getDependencies(task);
             }
-        };
+        });
     }
 
     private void addSelfResolvingDependencies(DefaultTaskDependency taskDependency) {
@@ -227,16 +228,27 @@ public class DefaultConfiguration extends AbstractFileCollection implements Conf
      * {@inheritDoc}
      */
     public TaskDependency getTaskDependencyFromProjectDependency(final boolean useDependedOn, final String taskName) {
-        return new TaskDependency() {
-            public Set<? extends Task> getDependencies(Task task) {
-                DefaultTaskDependency taskDependency = new DefaultTaskDependency();
-                if (useDependedOn) {
+        if (useDependedOn) {
+            return new CachingTaskDependency(this, Arrays.asList("dependedOn", taskName), new TaskDependency() {
+                public Set<? extends Task> getDependencies(Task task) {
+                    DefaultTaskDependency taskDependency = new DefaultTaskDependency();
                     addTaskDependenciesFromProjectsIDependOn(taskName, taskDependency);
-                } else {
-                    Project thisProject = task.getProject();
-                    addTaskDependenciesFromProjectsDependingOnMe(thisProject, taskName, taskDependency);
+                    return taskDependency.getDependencies(task);
                 }
-                return taskDependency.getDependencies(task);
+            });
+        }
+        return new TaskDependency() {
+            public Set<? extends Task> getDependencies(Task task) {
+                final Project thisProject = task.getProject();
+                // The result depends on the project of the requesting task, so is cached for each project
+                return new CachingTaskDependency(DefaultConfiguration.this, Arrays.asList("dependents", taskName,
+                        thisProject), new TaskDependency() {
+                    public Set<? extends Task> getDependencies(Task task) {
+                        DefaultTaskDependency taskDependency = new DefaultTaskDependency();
+                        addTaskDependenciesFromProjectsDependingOnMe(thisProject, taskName, taskDependency);
+                        return taskDependency.getDependencies(task);
+                    }
+                }).getDependencies(task);
             }
         };
     }
@@ -468,14 +480,14 @@ public class DefaultConfiguration extends AbstractFileCollection implements Conf
 
         @Override
         public TaskDependency getBuildDependencies() {
-            return new TaskDependency() {
+            return new CachingTaskDependency(DefaultConfiguration.this, "buildArtifacts", new TaskDependency() {
                 public Set<? extends Task> getDependencies(Task task) {
                     DefaultTaskDependency taskDependency = new DefaultTaskDependency();
                     addBuildArtifactsFromExtendedConfigurations(taskDependency);
                     addTasksForBuildingArtifacts(taskDependency);
                     return taskDependency.getDependencies(task);
                 }
-            };
+            });
         }
 
         public Set<File> getFiles() {
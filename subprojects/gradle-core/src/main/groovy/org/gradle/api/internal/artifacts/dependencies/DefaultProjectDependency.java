@@ -18,6 +18,8 @@ package org.gradle.api.internal.artifacts.dependencies;
 
 import org.gradle.api.Project;
 import org.gradle.api.Task;
+import org.gradle.api.internal.project.ProjectAccessListener;
+import org.gradle.api.internal.tasks.CachingTaskDependency;
 import org.gradle.api.internal.tasks.DefaultTaskDependency;
 import org.gradle.api.specs.Spec;
 import org.gradle.api.tasks.TaskDependency;
@@ -33,6 +35,7 @@ import java.util.Set;
 public class DefaultProjectDependency extends AbstractModuleDependency implements ProjectDependency {
     private Project dependencyProject;
     private final ProjectDependenciesBuildInstruction instruction;
+    private final ProjectAccessListener projectAccessListener;
     private Set<File> transitiveCache;
     private Set<File> nonTransitiveCache;
 
@@ -42,17 +45,32 @@ public class DefaultProjectDependency extends AbstractModuleDependency implement
 
     public DefaultProjectDependency(Project dependencyProject, String configuration,
                                     ProjectDependenciesBuildInstruction instruction) {
+        this(dependencyProject, configuration, instruction, null);
+    }
+
+    public DefaultProjectDependency(Project dependencyProject, ProjectDependenciesBuildInstruction instruction,
+                                    ProjectAccessListener projectAccessListener) {
+        this(dependencyProject, null, instruction, projectAccessListener);
+    }
+
+    public DefaultProjectDependency(Project dependencyProject, String configuration,
+                                    ProjectDependenciesBuildInstruction instruction,
+                                    ProjectAccessListener projectAccessListener) {
         super(configuration);
         this.dependencyProject = dependencyProject;
         this.instruction = instruction;
+        this.projectAccessListener = projectAccessListener;
     }
 
     public Project getDependencyProject() {
+        if (projectAccessListener != null) {
+            projectAccessListener.beforeAccess(dependencyProject);
+        }
         return dependencyProject;
     }
 
     public String getGroup() {
-        return dependencyProject.getGroup().toString();
+        return getDependencyProject().getGroup().toString();
     }
 
     public String getName() {
@@ -60,16 +78,16 @@ public class DefaultProjectDependency extends AbstractModuleDependency implement
     }
 
     public String getVersion() {
-        return dependencyProject.getVersion().toString();
+        return getDependencyProject().getVersion().toString();
     }
 
     public Configuration getProjectConfiguration() {
-        return dependencyProject.getConfigurations().getByName(getConfiguration());
+        return getDependencyProject().getConfigurations().getByName(getConfiguration());
     }
 
     public ProjectDependency copy() {
         DefaultProjectDependency copiedProjectDependency = new DefaultProjectDependency(dependencyProject,
-                getConfiguration(), instruction);
+                getConfiguration(), instruction, projectAccessListener);
         copyTo(copiedProjectDependency);
         return copiedProjectDependency;
     }
@@ -107,18 +125,18 @@ public class DefaultProjectDependency extends AbstractModuleDependency implement
         if (!instruction.isRebuild()) {
             return new DefaultTaskDependency();
         }
-        return new TaskDependency() {
+        return new CachingTaskDependency(this, "buildDependencies", new TaskDependency() {
             public Set<? extends Task> getDependencies(Task task) {
                 DefaultTaskDependency taskDependency = new DefaultTaskDependency();
                 Configuration configuration = getProjectConfiguration();
                 taskDependency.add(configuration);
                 taskDependency.add(configuration.getBuildArtifacts());
                 for (String taskName : instruction.getTaskNames()) {
-                    taskDependency.add(dependencyProject.getTasks().getByName(taskName));
+                    taskDependency.add(getDependencyProject().getTasks().getByName(taskName));
                 }
                 return taskDependency.getDependencies(task);
             }
-        };
+        });
     }
 
     public boolean contentEquals(Dependency dependency) {
@@ -134,7 +152,7 @@ public class DefaultProjectDependency extends AbstractModuleDependency implement
             return false;
         }
 
-        return dependencyProject.equals(that.getDependencyProject());
+        return dependencyProject.equals(((DefaultProjectDependency) that).dependencyProject);
     }
 
     @Override
@@ -147,7 +165,7 @@ public class DefaultProjectDependency extends AbstractModuleDependency implement
         }
 
         DefaultProjectDependency that = (DefaultProjectDependency) o;
-        if (!this.getDependencyProject().equals(that.getDependencyProject())) {
+        if (!this.dependencyProject.equals(that.dependencyProject)) {
             return false;
         }
         if (!this.getConfiguration().equals(that.getConfiguration())) {
@@ -161,7 +179,7 @@ public class DefaultProjectDependency extends AbstractModuleDependency implement
 
     @Override
     public int hashCode() {
-        return getDependencyProject().hashCode() ^ getConfiguration().hashCode() ^ instruction.hashCode();
+        return dependencyProject.hashCode() ^ getConfiguration().hashCode() ^ instruction.hashCode();
     }
 
     @Override
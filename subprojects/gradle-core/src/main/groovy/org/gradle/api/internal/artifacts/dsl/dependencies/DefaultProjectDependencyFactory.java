@@ -21,6 +21,7 @@ import org.gradle.api.artifacts.ProjectDependenciesBuildInstruction;
 import org.gradle.api.artifacts.ProjectDependency;
 import org.gradle.api.internal.ClassGenerator;
 import org.gradle.api.internal.artifacts.dependencies.DefaultProjectDependency;
+import org.gradle.api.internal.project.ProjectAccessListener;
 import org.gradle.util.ConfigureUtil;
 
 import java.util.HashMap;
@@ -32,17 +33,20 @@ import java.util.Map;
 public class DefaultProjectDependencyFactory implements ProjectDependencyFactory {
     private final ProjectDependenciesBuildInstruction instruction;
     private final ClassGenerator classGenerator;
+    private final ProjectAccessListener projectAccessListener;
 
-    public DefaultProjectDependencyFactory(ProjectDependenciesBuildInstruction instruction, ClassGenerator classGenerator) {
+    public DefaultProjectDependencyFactory(ProjectDependenciesBuildInstruction instruction, ClassGenerator classGenerator,
+                                           ProjectAccessListener projectAccessListener) {
         this.instruction = instruction;
         this.classGenerator = classGenerator;
+        this.projectAccessListener = projectAccessListener;
     }
 
     public ProjectDependency createProject(ProjectFinder projectFinder, Object notation) {
         assert notation != null;
         if (notation instanceof String || notation instanceof GString) {
             return classGenerator.newInstance(DefaultProjectDependency.class, projectFinder.getProject(
-                    notation.toString()), instruction);
+                    notation.toString()), instruction, projectAccessListener);
         } else if (notation instanceof Map) {
             return createProjectFromMap(projectFinder, (Map<? extends String, ? extends Object>) notation);
         }
@@ -54,7 +58,8 @@ public class DefaultProjectDependencyFactory implements ProjectDependencyFactory
         Map<String, Object> args = new HashMap<String, Object>(map);
         String path = getAndRemove(args, "path");
         String configuration = getAndRemove(args, "configuration");
-        ProjectDependency dependency = classGenerator.newInstance(DefaultProjectDependency.class, projectFinder.getProject(path), configuration, instruction);
+        ProjectDependency dependency = classGenerator.newInstance(DefaultProjectDependency.class, projectFinder.getProject(path), configuration, instruction,
+                projectAccessListener);
         ConfigureUtil.configureByMap(args, dependency);
         return dependency;
     }
@@ -0,0 +1,469 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.plugins.resolver.AbstractPatternsBasedResolver;
+import org.apache.ivy.plugins.resolver.ChainResolver;
+import org.apache.ivy.plugins.resolver.DependencyResolver;
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.*;
+import org.gradle.api.internal.artifacts.DefaultResolvedDependency;
+import org.gradle.cache.CacheRepository;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.util.HashUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * An {@link IvyDependencyResolver} which stores the resolved dependency graph of a configuration in a persistent cache,
+ * and reuses it in later builds instead of resolving the configuration again. A result is keyed by the dependencies,
+ * exclude rules and artifacts of the configuration hierarchy, the configurations of any projects it depends on, and
+ * the resolvers used. Configurations which depend, directly or transitively, on a changing module, or on a module with
+ * a dynamic or snapshot version, are always resolved. A cached result is discarded if any of its artifact files no
+ * longer exists.
+ */
+public class CachingIvyDependencyResolver implements IvyDependencyResolver {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CachingIvyDependencyResolver.class);
+    private final IvyDependencyResolver resolver;
+    private final CacheRepository cacheRepository;
+    private final ParallelArtifactDownloader artifactDownloader;
+    private PersistentIndexedCache<String, ResolvedConfigurationSnapshot> cache;
+
+    public CachingIvyDependencyResolver(IvyDependencyResolver resolver, CacheRepository cacheRepository,
+                                        ParallelArtifactDownloader artifactDownloader) {
+        this.resolver = resolver;
+        this.cacheRepository = cacheRepository;
+        this.artifactDownloader = artifactDownloader;
+    }
+
+    public IvyDependencyResolver getResolver() {
+        return resolver;
+    }
+
+    public ResolvedConfiguration resolve(Configuration configuration, Ivy ivy, ModuleDescriptor moduleDescriptor) {
+        String key = new KeyBuilder(ivy.getSettings()).createKey(configuration, moduleDescriptor);
+        if (key == null) {
+            return resolver.resolve(configuration, ivy, moduleDescriptor);
+        }
+
+        List<ModuleDependency> dependencies = new ArrayList<ModuleDependency>(configuration.getAllDependencies(
+                ModuleDependency.class));
+        ResolvedConfigurationSnapshot snapshot = get(key);
+        if (snapshot != null) {
+            IvyConversionResult conversionResult = snapshot.restore(dependencies);
+            if (conversionResult != null) {
+                return new DefaultIvyDependencyResolver.ResolvedConfigurationImpl(configuration, conversionResult,
+                        ivy, artifactDownloader);
+            }
+            LOGGER.debug("Not using cached result for {}, as some of its files no longer exist.", configuration);
+        }
+
+        ResolvedConfiguration resolvedConfiguration = resolver.resolve(configuration, ivy, moduleDescriptor);
+        if (resolvedConfiguration instanceof DefaultIvyDependencyResolver.ResolvedConfigurationImpl
+                && !resolvedConfiguration.hasError()) {
+            DefaultIvyDependencyResolver.ResolvedConfigurationImpl result
+                    = (DefaultIvyDependencyResolver.ResolvedConfigurationImpl) resolvedConfiguration;
+            if (result.isChanging()) {
+                LOGGER.debug("Not caching result for {}, as it includes a changing module.", configuration);
+                return resolvedConfiguration;
+            }
+            IvyConversionResult conversionResult = result.getConversionResult();
+            try {
+                artifactDownloader.download(conversionResult.getResolvedArtifacts(), ivy);
+                put(key, ResolvedConfigurationSnapshot.create(conversionResult, dependencies));
+            } catch (Exception e) {
+                LOGGER.debug(String.format("Not caching result for %s.", configuration), e);
+            }
+        }
+        return resolvedConfiguration;
+    }
+
+    private synchronized ResolvedConfigurationSnapshot get(String key) {
+        return getCache().get(key);
+    }
+
+    private synchronized void put(String key, ResolvedConfigurationSnapshot snapshot) {
+        if (snapshot != null) {
+            getCache().put(key, snapshot);
+        }
+    }
+
+    private PersistentIndexedCache<String, ResolvedConfigurationSnapshot> getCache() {
+        if (cache == null) {
+            cache = cacheRepository.cache("resolvedConfigurations").open().openIndexedCache();
+        }
+        return cache;
+    }
+
+    /**
+     * Builds the cache key of a configuration. Returns null when the configuration should not be cached. Only the
+     * declared dependencies are checked here, changing modules deeper in the graph are detected by the resolve.
+     */
+    private static class KeyBuilder {
+        private final IvySettings settings;
+        private final StringBuilder key = new StringBuilder();
+        private final Set<Project> visitedProjects = new HashSet<Project>();
+
+        private KeyBuilder(IvySettings settings) {
+            this.settings = settings;
+        }
+
+        public String createKey(Configuration configuration, ModuleDescriptor moduleDescriptor) {
+            key.append(configuration.getName()).append(';');
+            key.append(moduleDescriptor.getModuleRevisionId()).append(',').append(moduleDescriptor.getStatus()).append(';');
+            key.append(settings.getDefaultCache().getAbsolutePath()).append(';');
+            List<String> resolverNames = new ArrayList<String>(settings.getResolverNames());
+            Collections.sort(resolverNames);
+            for (String resolverName : resolverNames) {
+                appendResolver(settings.getResolver(resolverName));
+            }
+            key.append("default=").append(settings.getDefaultResolver().getName()).append(';');
+            for (Configuration hierarchyConfiguration : configuration.getHierarchy()) {
+                if (!appendConfiguration(hierarchyConfiguration)) {
+                    return null;
+                }
+            }
+            return HashUtil.createHash(key.toString());
+        }
+
+        private void appendResolver(DependencyResolver resolver) {
+            key.append('{').append(resolver.getClass().getName()).append(',').append(resolver.getName());
+            if (resolver instanceof AbstractPatternsBasedResolver) {
+                AbstractPatternsBasedResolver patternsBasedResolver = (AbstractPatternsBasedResolver) resolver;
+                key.append(',').append(patternsBasedResolver.getIvyPatterns());
+                key.append(',').append(patternsBasedResolver.getArtifactPatterns());
+                key.append(',').append(patternsBasedResolver.isM2compatible());
+            }
+            if (resolver instanceof ChainResolver) {
+                for (Object childResolver : ((ChainResolver) resolver).getResolvers()) {
+                    appendResolver((DependencyResolver) childResolver);
+                }
+            }
+            key.append('}');
+        }
+
+        private boolean appendConfiguration(Configuration configuration) {
+            key.append("configuration=").append(configuration.getName()).append(',');
+            key.append(configuration.isTransitive()).append(',').append(configuration.isVisible()).append(',');
+            for (Configuration superConfiguration : configuration.getExtendsFrom()) {
+                key.append(superConfiguration.getName()).append(',');
+            }
+            appendExcludeRules(configuration.getExcludeRules());
+            for (Dependency dependency : configuration.getDependencies()) {
+                if (dependency instanceof ModuleDependency && !appendDependency((ModuleDependency) dependency)) {
+                    return false;
+                }
+            }
+            key.append(';');
+            return true;
+        }
+
+        private boolean appendDependency(ModuleDependency dependency) {
+            key.append("dependency=").append(dependency.getClass().getName()).append(',');
+            key.append(dependency.getGroup()).append(':').append(dependency.getName()).append(':');
+            key.append(dependency.getVersion()).append(',').append(dependency.getConfiguration()).append(',');
+            key.append(dependency.isTransitive()).append(',');
+            appendExcludeRules(dependency.getExcludeRules());
+            for (DependencyArtifact artifact : dependency.getArtifacts()) {
+                key.append(artifact.getName()).append(',').append(artifact.getType()).append(',');
+                key.append(artifact.getExtension()).append(',').append(artifact.getClassifier()).append(',');
+                key.append(artifact.getUrl()).append(',');
+            }
+            if (dependency instanceof ProjectDependency) {
+                return appendProject(((ProjectDependency) dependency).getDependencyProject());
+            }
+            if (isDynamic(dependency)) {
+                return false;
+            }
+            if (dependency instanceof ExternalDependency) {
+                key.append(((ExternalDependency) dependency).isForce()).append(',');
+            }
+            if (dependency instanceof ExternalModuleDependency && ((ExternalModuleDependency) dependency).isChanging()) {
+                return false;
+            }
+            if (dependency instanceof ClientModule) {
+                for (ModuleDependency moduleDependency : ((ClientModule) dependency).getDependencies()) {
+                    if (!appendDependency(moduleDependency)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private boolean isDynamic(Dependency dependency) {
+            String version = dependency.getVersion();
+            if (version == null || version.endsWith("SNAPSHOT")) {
+                return true;
+            }
+            return settings.getVersionMatcher().isDynamic(ModuleRevisionId.newInstance(dependency.getGroup(),
+                    dependency.getName(), version));
+        }
+
+        private boolean appendProject(Project project) {
+            key.append("project=").append(project.getPath()).append(';');
+            if (!visitedProjects.add(project)) {
+                return true;
+            }
+            key.append(project.getGroup()).append(':').append(project.getName()).append(':');
+            key.append(project.getVersion()).append(',').append(project.getStatus()).append(';');
+            for (Configuration configuration : project.getConfigurations().getAll()) {
+                if (!appendConfiguration(configuration)) {
+                    return false;
+                }
+                for (PublishArtifact artifact : configuration.getArtifacts()) {
+                    key.append(artifact.getName()).append(',').append(artifact.getType()).append(',');
+                    key.append(artifact.getExtension()).append(',').append(artifact.getClassifier()).append(',');
+                    key.append(artifact.getFile().getAbsolutePath()).append(';');
+                }
+            }
+            return true;
+        }
+
+        private void appendExcludeRules(Set<ExcludeRule> excludeRules) {
+            for (ExcludeRule excludeRule : excludeRules) {
+                key.append(new TreeMap<String, String>(excludeRule.getExcludeArgs())).append(',');
+            }
+        }
+    }
+
+    /**
+     * The resolved dependency graph of a configuration, with dependencies and artifacts referenced by their index.
+     */
+    private static class ResolvedConfigurationSnapshot implements Serializable {
+        private final ArrayList<ArtifactSnapshot> artifacts = new ArrayList<ArtifactSnapshot>();
+        private final ArrayList<DependencySnapshot> dependencies = new ArrayList<DependencySnapshot>();
+        private final LinkedHashMap<Integer, ArrayList<Integer>> firstLevelDependencies
+                = new LinkedHashMap<Integer, ArrayList<Integer>>();
+        private final ArrayList<Integer> resolvedArtifacts = new ArrayList<Integer>();
+        private transient Map<ResolvedArtifact, Integer> artifactIndexes;
+        private transient Map<ResolvedDependency, Integer> dependencyIndexes;
+
+        /**
+         * Creates a snapshot of the given result. Returns null if the result cannot be stored. Note that this locates
+         * the file of each resolved artifact.
+         */
+        public static ResolvedConfigurationSnapshot create(IvyConversionResult conversionResult,
+                                                           List<ModuleDependency> declaredDependencies) {
+            ResolvedConfigurationSnapshot snapshot = new ResolvedConfigurationSnapshot();
+            snapshot.artifactIndexes = new IdentityHashMap<ResolvedArtifact, Integer>();
+            snapshot.dependencyIndexes = new IdentityHashMap<ResolvedDependency, Integer>();
+            for (Map.Entry<Dependency, Set<ResolvedDependency>> entry
+                    : conversionResult.getFirstLevelResolvedDependencies().entrySet()) {
+                int index = declaredDependencies.indexOf(entry.getKey());
+                if (index < 0) {
+                    return null;
+                }
+                snapshot.firstLevelDependencies.put(index, snapshot.addDependencies(entry.getValue()));
+            }
+            snapshot.resolvedArtifacts.addAll(snapshot.addArtifacts(conversionResult.getResolvedArtifacts()));
+            return snapshot;
+        }
+
+        private ArrayList<Integer> addDependencies(Collection<ResolvedDependency> resolvedDependencies) {
+            ArrayList<Integer> indexes = new ArrayList<Integer>();
+            for (ResolvedDependency resolvedDependency : resolvedDependencies) {
+                indexes.add(addDependency(resolvedDependency));
+            }
+            return indexes;
+        }
+
+        private int addDependency(ResolvedDependency resolvedDependency) {
+            if (resolvedDependency == null) {
+                return -1;
+            }
+            Integer index = dependencyIndexes.get(resolvedDependency);
+            if (index != null) {
+                return index;
+            }
+            index = dependencies.size();
+            dependencyIndexes.put(resolvedDependency, index);
+            DependencySnapshot snapshot = new DependencySnapshot((DefaultResolvedDependency) resolvedDependency);
+            dependencies.add(snapshot);
+            snapshot.moduleArtifacts = addArtifacts(resolvedDependency.getModuleArtifacts());
+            snapshot.children = addDependencies(resolvedDependency.getChildren());
+            snapshot.parents = addDependencies(resolvedDependency.getParents());
+            for (ResolvedDependency parent : resolvedDependency.getParents()) {
+                snapshot.parentArtifacts.add(addArtifacts(resolvedDependency.getParentArtifacts(parent)));
+            }
+            return index;
+        }
+
+        private ArrayList<Integer> addArtifacts(Collection<ResolvedArtifact> resolvedArtifacts) {
+            ArrayList<Integer> indexes = new ArrayList<Integer>();
+            for (ResolvedArtifact resolvedArtifact : resolvedArtifacts) {
+                Integer index = artifactIndexes.get(resolvedArtifact);
+                if (index == null) {
+                    index = artifacts.size();
+                    artifactIndexes.put(resolvedArtifact, index);
+                    ArtifactSnapshot snapshot = new ArtifactSnapshot(resolvedArtifact);
+                    artifacts.add(snapshot);
+                    snapshot.dependency = addDependency(resolvedArtifact.getResolvedDependency());
+                }
+                indexes.add(index);
+            }
+            return indexes;
+        }
+
+        /**
+         * Recreates the result for the given dependencies. Returns null if any of the artifact files no longer exist.
+         */
+        public IvyConversionResult restore(List<ModuleDependency> declaredDependencies) {
+            List<CachedResolvedArtifact> restoredArtifacts = new ArrayList<CachedResolvedArtifact>();
+            for (ArtifactSnapshot artifact : artifacts) {
+                if (artifact.file == null || !artifact.file.exists()) {
+                    return null;
+                }
+                restoredArtifacts.add(new CachedResolvedArtifact(artifact.name, artifact.type, artifact.extension,
+                        artifact.file));
+            }
+
+            List<DefaultResolvedDependency> restoredDependencies = new ArrayList<DefaultResolvedDependency>();
+            for (DependencySnapshot dependency : dependencies) {
+                restoredDependencies.add(new DefaultResolvedDependency(dependency.name, dependency.moduleGroup,
+                        dependency.moduleName, dependency.moduleVersion, dependency.configuration,
+                        new LinkedHashSet<String>(dependency.configurationHierarchy),
+                        selectArtifacts(restoredArtifacts, dependency.moduleArtifacts)));
+            }
+            for (int i = 0; i < dependencies.size(); i++) {
+                DependencySnapshot dependency = dependencies.get(i);
+                DefaultResolvedDependency restoredDependency = restoredDependencies.get(i);
+                restoredDependency.getChildren().addAll(selectDependencies(restoredDependencies, dependency.children));
+                for (int j = 0; j < dependency.parents.size(); j++) {
+                    ResolvedDependency parent = selectDependency(restoredDependencies, dependency.parents.get(j));
+                    restoredDependency.getParents().add(parent);
+                    restoredDependency.addParentSpecificArtifacts(parent, selectArtifacts(restoredArtifacts,
+                            dependency.parentArtifacts.get(j)));
+                }
+            }
+            for (int i = 0; i < artifacts.size(); i++) {
+                restoredArtifacts.get(i).resolvedDependency = selectDependency(restoredDependencies,
+                        artifacts.get(i).dependency);
+            }
+
+            Map<Dependency, Set<ResolvedDependency>> restoredFirstLevelDependencies
+                    = new LinkedHashMap<Dependency, Set<ResolvedDependency>>();
+            for (Map.Entry<Integer, ArrayList<Integer>> entry : firstLevelDependencies.entrySet()) {
+                restoredFirstLevelDependencies.put(declaredDependencies.get(entry.getKey()), selectDependencies(
+                        restoredDependencies, entry.getValue()));
+            }
+            return new DefaultIvyConversionResult(restoredFirstLevelDependencies, selectArtifacts(restoredArtifacts,
+                    resolvedArtifacts));
+        }
+
+        private static ResolvedDependency selectDependency(List<DefaultResolvedDependency> dependencies, int index) {
+            return index < 0 ? null : dependencies.get(index);
+        }
+
+        private static Set<ResolvedDependency> selectDependencies(List<DefaultResolvedDependency> dependencies,
+                                                                  List<Integer> indexes) {
+            Set<ResolvedDependency> selected = new LinkedHashSet<ResolvedDependency>();
+            for (Integer index : indexes) {
+                selected.add(selectDependency(dependencies, index));
+            }
+            return selected;
+        }
+
+        private static Set<ResolvedArtifact> selectArtifacts(List<CachedResolvedArtifact> artifacts,
+                                                             List<Integer> indexes) {
+            Set<ResolvedArtifact> selected = new LinkedHashSet<ResolvedArtifact>();
+            for (Integer index : indexes) {
+                selected.add(artifacts.get(index));
+            }
+            return selected;
+        }
+    }
+
+    private static class DependencySnapshot implements Serializable {
+        private final String name;
+        private final String moduleGroup;
+        private final String moduleName;
+        private final String moduleVersion;
+        private final String configuration;
+        private final ArrayList<String> configurationHierarchy;
+        private final ArrayList<ArrayList<Integer>> parentArtifacts = new ArrayList<ArrayList<Integer>>();
+        private ArrayList<Integer> moduleArtifacts;
+        private ArrayList<Integer> children;
+        private ArrayList<Integer> parents;
+
+        private DependencySnapshot(DefaultResolvedDependency dependency) {
+            name = dependency.getName();
+            moduleGroup = dependency.getModuleGroup();
+            moduleName = dependency.getModuleName();
+            moduleVersion = dependency.getModuleVersion();
+            configuration = dependency.getConfiguration();
+            configurationHierarchy = new ArrayList<String>(dependency.getConfigurationHierarchy());
+        }
+    }
+
+    private static class ArtifactSnapshot implements Serializable {
+        private final String name;
+        private final String type;
+        private final String extension;
+        private final File file;
+        private int dependency;
+
+        private ArtifactSnapshot(ResolvedArtifact artifact) {
+            name = artifact.getName();
+            type = artifact.getType();
+            extension = artifact.getExtension();
+            file = artifact.getFile();
+        }
+    }
+
+    private static class CachedResolvedArtifact implements ResolvedArtifact {
+        private final String name;
+        private final String type;
+        private final String extension;
+        private final File file;
+        private ResolvedDependency resolvedDependency;
+
+        private CachedResolvedArtifact(String name, String type, String extension, File file) {
+            this.name = name;
+            this.type = type;
+            this.extension = extension;
+            this.file = file;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public ResolvedDependency getResolvedDependency() {
+            return resolvedDependency;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+}
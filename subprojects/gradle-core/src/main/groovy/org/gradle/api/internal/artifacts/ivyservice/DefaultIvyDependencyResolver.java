@@ -16,12 +16,18 @@
 package org.gradle.api.internal.artifacts.ivyservice;
 
 import org.apache.ivy.Ivy;
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
 import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.core.report.ResolveReport;
+import org.apache.ivy.core.resolve.IvyNode;
+import org.apache.ivy.core.resolve.IvyNodeCallers;
 import org.apache.ivy.core.resolve.ResolveOptions;
+import org.apache.ivy.core.settings.IvySettings;
 import org.apache.ivy.util.Message;
 import org.gradle.api.GradleException;
 import org.gradle.api.artifacts.*;
+import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.dependencies.DependencyDescriptorFactory;
 import org.gradle.api.specs.Spec;
 import org.gradle.api.specs.Specs;
 import org.gradle.logging.IvyLoggingAdaper;
@@ -31,6 +37,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Formatter;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -43,9 +50,12 @@ public class DefaultIvyDependencyResolver implements IvyDependencyResolver {
     private static Logger logger = LoggerFactory.getLogger(DefaultIvyDependencyResolver.class);
 
     private IvyReportConverter ivyReportTranslator;
+    private final ParallelArtifactDownloader artifactDownloader;
 
-    public DefaultIvyDependencyResolver(IvyReportConverter ivyReportTranslator) {
+    public DefaultIvyDependencyResolver(IvyReportConverter ivyReportTranslator,
+                                        ParallelArtifactDownloader artifactDownloader) {
         this.ivyReportTranslator = ivyReportTranslator;
+        this.artifactDownloader = artifactDownloader;
         Message.setDefaultLogger(new IvyLoggingAdaper());
     }
 
@@ -59,7 +69,47 @@ public class DefaultIvyDependencyResolver implements IvyDependencyResolver {
             throw new RuntimeException(e);
         }
         logger.debug("Timing: Ivy resolve took {}", clock.getTime());
-        return new ResolvedConfigurationImpl(resolveReport, configuration);
+        if (resolveReport.hasError()) {
+            return new ResolvedConfigurationImpl(configuration, resolveReport.getAllProblemMessages());
+        }
+        return new ResolvedConfigurationImpl(configuration, ivyReportTranslator.convertReport(resolveReport,
+                configuration), ivy, artifactDownloader, isChanging(resolveReport, ivy));
+    }
+
+    /**
+     * Returns true if any module in the resolved graph, at any depth, is changing or was requested using a dynamic or
+     * snapshot version. Modules of projects in the build are ignored.
+     */
+    private boolean isChanging(ResolveReport resolveReport, Ivy ivy) {
+        for (Object dependency : resolveReport.getDependencies()) {
+            IvyNode node = (IvyNode) dependency;
+            if (node.getId().getAttribute(DependencyDescriptorFactory.PROJECT_PATH_KEY) != null) {
+                continue;
+            }
+            if (isSnapshot(node.getId()) || node.getResolvedId() != null && isSnapshot(node.getResolvedId())) {
+                return true;
+            }
+            for (IvyNodeCallers.Caller caller : node.getAllCallers()) {
+                DependencyDescriptor dependencyDescriptor = caller.getDependencyDescriptor();
+                if (dependencyDescriptor == null) {
+                    continue;
+                }
+                if (dependencyDescriptor.isChanging()
+                        || isDynamic(dependencyDescriptor.getDependencyRevisionId(), ivy.getSettings())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isSnapshot(ModuleRevisionId moduleRevisionId) {
+        String revision = moduleRevisionId.getRevision();
+        return revision == null || revision.endsWith("SNAPSHOT");
+    }
+
+    private boolean isDynamic(ModuleRevisionId moduleRevisionId, IvySettings settings) {
+        return isSnapshot(moduleRevisionId) || settings.getVersionMatcher().isDynamic(moduleRevisionId);
     }
 
     private ResolveOptions createResolveOptions(Configuration configuration) {
@@ -69,22 +119,46 @@ public class DefaultIvyDependencyResolver implements IvyDependencyResolver {
         return resolveOptions;
     }
 
-    class ResolvedConfigurationImpl implements ResolvedConfiguration {
+    static class ResolvedConfigurationImpl implements ResolvedConfiguration {
         private final Configuration configuration;
-        private boolean hasError;
+        private final boolean hasError;
         private List<String> problemMessages;
         private IvyConversionResult conversionResult;
+        private Ivy ivy;
+        private ParallelArtifactDownloader artifactDownloader;
+        private boolean changing;
 
-        public ResolvedConfigurationImpl(ResolveReport resolveReport, Configuration configuration) {
-            this.hasError = resolveReport.hasError();
-            if (this.hasError) {
-                this.problemMessages = resolveReport.getAllProblemMessages();
-            } else {
-                 this.conversionResult = ivyReportTranslator.convertReport(
-                    resolveReport,
-                    configuration);
-            }
+        public ResolvedConfigurationImpl(Configuration configuration, List<String> problemMessages) {
             this.configuration = configuration;
+            this.hasError = true;
+            this.problemMessages = problemMessages;
+        }
+
+        public ResolvedConfigurationImpl(Configuration configuration, IvyConversionResult conversionResult, Ivy ivy,
+                                         ParallelArtifactDownloader artifactDownloader) {
+            this(configuration, conversionResult, ivy, artifactDownloader, false);
+        }
+
+        public ResolvedConfigurationImpl(Configuration configuration, IvyConversionResult conversionResult, Ivy ivy,
+                                         ParallelArtifactDownloader artifactDownloader, boolean changing) {
+            this.configuration = configuration;
+            this.hasError = false;
+            this.conversionResult = conversionResult;
+            this.ivy = ivy;
+            this.artifactDownloader = artifactDownloader;
+            this.changing = changing;
+        }
+
+        public IvyConversionResult getConversionResult() {
+            return conversionResult;
+        }
+
+        /**
+         * Returns true if this result may be different when the configuration is resolved again, as it includes a
+         * changing module, or a module with a dynamic or snapshot version.
+         */
+        public boolean isChanging() {
+            return changing;
         }
 
         public boolean hasError() {
@@ -104,18 +178,26 @@ public class DefaultIvyDependencyResolver implements IvyDependencyResolver {
         public Set<File> getFiles(Spec<Dependency> dependencySpec) {
             rethrowFailure();
             Set<ModuleDependency> allModuleDependencies = Specs.filterIterable(configuration.getAllDependencies(ModuleDependency.class), dependencySpec);
-            Set<File> files = new LinkedHashSet<File>();
+            List<ResolvedDependency> resolvedDependencies = new ArrayList<ResolvedDependency>();
+            Set<ResolvedArtifact> artifacts = new LinkedHashSet<ResolvedArtifact>();
             for (ModuleDependency moduleDependency : allModuleDependencies) {
-                Set<ResolvedDependency> resolvedDependencies = conversionResult.getFirstLevelResolvedDependencies().get(moduleDependency);
-                if (resolvedDependencies != null) {
-                    for (ResolvedDependency resolvedDependency : resolvedDependencies) {
-                        for (File depFile : ResolvedDependencies.getFilesFromArtifacts(resolvedDependency.getAllArtifacts(null))) {
-                            if (depFile == null) {
-                                throw new GradleException(String.format("Resolved files for %s contains a null value.", resolvedDependency));
-                            }
-                            files.add(depFile);
-                        }
+                Set<ResolvedDependency> resolvedDependenciesForDependency = conversionResult.getFirstLevelResolvedDependencies().get(moduleDependency);
+                if (resolvedDependenciesForDependency != null) {
+                    for (ResolvedDependency resolvedDependency : resolvedDependenciesForDependency) {
+                        resolvedDependencies.add(resolvedDependency);
+                        artifacts.addAll(resolvedDependency.getAllArtifacts(null));
+                    }
+                }
+            }
+            artifactDownloader.download(artifacts, ivy);
+
+            Set<File> files = new LinkedHashSet<File>();
+            for (ResolvedDependency resolvedDependency : resolvedDependencies) {
+                for (File depFile : ResolvedDependencies.getFilesFromArtifacts(resolvedDependency.getAllArtifacts(null))) {
+                    if (depFile == null) {
+                        throw new GradleException(String.format("Resolved files for %s contains a null value.", resolvedDependency));
                     }
+                    files.add(depFile);
                 }
             }
             return files;
@@ -18,11 +18,32 @@ package org.gradle.api.internal.artifacts.ivyservice;
 import org.apache.ivy.Ivy;
 import org.apache.ivy.core.settings.IvySettings;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * @author Hans Dockter
  */
 public class DefaultIvyFactory implements IvyFactory {
-    public Ivy createIvy(IvySettings ivySettings) {
-        return Ivy.newInstance(ivySettings);
+    static final int MAX_CACHED_INSTANCES = 50;
+
+    private final Map<IvySettings, Ivy> instances = new LinkedHashMap<IvySettings, Ivy>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<IvySettings, Ivy> eldest) {
+            return size() > MAX_CACHED_INSTANCES;
+        }
+    };
+
+    /**
+     * Returns an Ivy instance for the given settings. Instances are reused for the same settings object, so that
+     * settings which are shared between resolves are bound only once.
+     */
+    public synchronized Ivy createIvy(IvySettings ivySettings) {
+        Ivy ivy = instances.get(ivySettings);
+        if (ivy == null) {
+            ivy = Ivy.newInstance(ivySettings);
+            instances.put(ivySettings, ivy);
+        }
+        return ivy;
     }
 }
@@ -24,6 +24,7 @@ import org.apache.ivy.core.report.ConfigurationResolveReport;
 import org.apache.ivy.core.report.ResolveReport;
 import org.apache.ivy.core.resolve.IvyNode;
 import org.apache.ivy.core.resolve.IvyNodeCallers;
+import org.apache.ivy.core.resolve.ResolvedModuleRevision;
 import org.gradle.api.GradleException;
 import org.gradle.api.artifacts.*;
 import org.gradle.api.internal.artifacts.DefaultResolvedArtifact;
@@ -71,122 +72,24 @@ public class DefaultIvyReportConverter implements IvyReportConverter {
 
     public IvyConversionResult convertReport(ResolveReport resolveReport, Configuration configuration) {
         Clock clock = new Clock();
-        Map<Dependency, Set<ResolvedDependency>> firstLevelResolvedDependencies = new LinkedHashMap<Dependency, Set<ResolvedDependency>>();
-        Set<ResolvedArtifact> resolvedArtifacts = new LinkedHashSet<ResolvedArtifact>();
-        ConfigurationResolveReport configurationResolveReport = resolveReport.getConfigurationReport(configuration.getName());
-        LinkedHashMap<ModuleRevisionId, Map<String, DefaultResolvedDependency>> handledNodes = new LinkedHashMap<ModuleRevisionId, Map<String, DefaultResolvedDependency>>();
-        Map<DefaultResolvedDependency, IvyNode> resolvedDependencies2Nodes = new HashMap<DefaultResolvedDependency, IvyNode>();
-        Map<ModuleRevisionId, Map<String, ModuleDependency>> firstLevelDependenciesModuleRevisionIds = createFirstLevelDependenciesModuleRevisionIds(configuration.getAllDependencies(ModuleDependency.class));
+        ReportConversion conversion = new ReportConversion(resolveReport, configuration.getName(),
+                createFirstLevelDependenciesModuleRevisionIds(configuration.getAllDependencies(ModuleDependency.class)));
         List nodes = resolveReport.getDependencies();
         for (Iterator iterator = nodes.iterator(); iterator.hasNext();) {
             IvyNode node = (IvyNode) iterator.next();
             if (!isResolvedNode(node, configuration)) {
                 continue;
             }
-            getResolvedDependenciesForNode(node,
-                    handledNodes,
-                    resolvedDependencies2Nodes,
-                    firstLevelResolvedDependencies,
-                    resolvedArtifacts,
-                    configuration.getName(),
-                    configurationResolveReport,
-                    firstLevelDependenciesModuleRevisionIds,
-                    resolveReport);
+            conversion.convert(node);
         }
         logger.debug("Timing: Translating report for configuration {} took {}", configuration, clock.getTime());
-        return new DefaultIvyConversionResult(firstLevelResolvedDependencies, resolvedArtifacts);
+        return new DefaultIvyConversionResult(conversion.firstLevelResolvedDependencies, conversion.resolvedArtifacts);
     }
 
     private boolean isResolvedNode(IvyNode node, Configuration configuration) {
         return node.isLoaded() && !node.isEvicted(configuration.getName());
     }
 
-    private Map<String, DefaultResolvedDependency> getResolvedDependenciesForNode(IvyNode ivyNode,
-                                                                                  Map<ModuleRevisionId, Map<String, DefaultResolvedDependency>> handledNodes,
-                                                                                  Map<DefaultResolvedDependency, IvyNode> resolvedDependencies2Nodes,
-                                                                                  Map<Dependency, Set<ResolvedDependency>> firstLevelResolvedDependencies, Set<ResolvedArtifact> resolvedArtifacts, String conf,
-                                                                                  ConfigurationResolveReport configurationResolveReport,
-                                                                                  Map<ModuleRevisionId, Map<String, ModuleDependency>> firstLevelDependenciesModuleRevisionIds, ResolveReport resolveReport) {
-        ModuleRevisionId nodeId = ivyNode.getId();
-        if (handledNodes.containsKey(nodeId)) {
-            return handledNodes.get(nodeId);
-        }
-        Map<String, DefaultResolvedDependency> resolvedDependencies = new LinkedHashMap<String, DefaultResolvedDependency>();
-        for (IvyNodeCallers.Caller caller : ivyNode.getCallers(conf)) {
-            Set<String> dependencyConfigurationsForNode = getDependencyConfigurationsByCaller(ivyNode, caller);
-            for (String dependencyConfiguration : dependencyConfigurationsForNode) {
-                DefaultResolvedDependency resolvedDependencyForDependencyConfiguration = resolvedDependencies.get(dependencyConfiguration);
-                if (resolvedDependencyForDependencyConfiguration == null) {
-                    resolvedDependencyForDependencyConfiguration = createResolvedDependency(ivyNode, resolveReport, dependencyConfiguration);
-                    resolvedArtifacts.addAll(resolvedDependencyForDependencyConfiguration.getModuleArtifacts());
-                    resolvedDependencies.put(dependencyConfiguration, resolvedDependencyForDependencyConfiguration);
-                    resolvedDependencies2Nodes.put(resolvedDependencyForDependencyConfiguration, ivyNode);
-                    addNodeIfFirstLevelDependency(ivyNode, resolvedDependencyForDependencyConfiguration, firstLevelDependenciesModuleRevisionIds, firstLevelResolvedDependencies);
-                }
-            }
-            if (isRootCaller(configurationResolveReport, caller)) {
-                for (DefaultResolvedDependency resolvedDependency : resolvedDependencies.values()) {
-                    resolvedDependency.getParents().add(null);
-                    resolvedDependency.addParentSpecificArtifacts(null, getParentSpecificArtifacts(resolvedDependency, conf, ivyNode.getRoot(), caller, ivyNode, resolveReport));
-                }
-                continue;
-            }
-            IvyNode parentNode = configurationResolveReport.getDependency(caller.getModuleRevisionId());
-            Map<String, DefaultResolvedDependency> parentResolvedDependencies = getResolvedDependenciesForNode(parentNode, handledNodes, resolvedDependencies2Nodes,
-                    firstLevelResolvedDependencies, resolvedArtifacts, conf, configurationResolveReport,
-                    firstLevelDependenciesModuleRevisionIds, resolveReport);
-            createAssociationsBetweenChildAndParentResolvedDependencies(ivyNode, resolvedDependencies, resolvedArtifacts, parentNode, caller,
-                    dependencyConfigurationsForNode, parentResolvedDependencies, resolveReport);
-        }
-        handledNodes.put(nodeId, resolvedDependencies);
-        return resolvedDependencies;
-    }
-
-    private void createAssociationsBetweenChildAndParentResolvedDependencies(IvyNode ivyNode, Map<String, DefaultResolvedDependency> resolvedDependencies,
-                                                                             Set<ResolvedArtifact> resolvedArtifacts, IvyNode callerNode, IvyNodeCallers.Caller caller, Set<String> dependencyConfigurationsForNode, Map<String, DefaultResolvedDependency> parentResolvedDependencies, ResolveReport resolveReport) {
-        for (String dependencyConfiguration : dependencyConfigurationsForNode) {
-            Set<String> callerConfigurations = getCallerConfigurationsByDependencyConfiguration(caller, ivyNode, dependencyConfiguration);
-            Set<DefaultResolvedDependency> parentResolvedDependenciesForCallerConfigurations = getParentResolvedDependenciesByConfigurations(
-                    parentResolvedDependencies,
-                    callerConfigurations);
-            for (DefaultResolvedDependency parentResolvedDependency : parentResolvedDependenciesForCallerConfigurations) {
-                DefaultResolvedDependency resolvedDependency = resolvedDependencies.get(dependencyConfiguration);
-                parentResolvedDependency.getChildren().add(resolvedDependency);
-                resolvedDependency.getParents().add(parentResolvedDependency);
-                Set<ResolvedArtifact> parentSpecificResolvedArtifacts = getParentSpecificArtifacts(resolvedDependency, parentResolvedDependency.getConfiguration(),
-                        callerNode, caller, ivyNode, resolveReport);
-                resolvedDependency.addParentSpecificArtifacts(parentResolvedDependency, parentSpecificResolvedArtifacts);
-                resolvedArtifacts.addAll(parentSpecificResolvedArtifacts);
-            }
-        }
-    }
-
-    private Set<ResolvedArtifact> getParentSpecificArtifacts(DefaultResolvedDependency resolvedDependency, String parentConfiguration, IvyNode callerNode, IvyNodeCallers.Caller caller, IvyNode childNode, ResolveReport resolveReport) {
-        Set<String> parentConfigurations = getConfigurationHierarchy(callerNode, parentConfiguration);
-        Set<DependencyArtifactDescriptor> parentArtifacts = new LinkedHashSet<DependencyArtifactDescriptor>();
-        for (String configuration : parentConfigurations) {
-            parentArtifacts.addAll(WrapUtil.toSet(caller.getDependencyDescriptor().getDependencyArtifacts(configuration)));
-        }
-
-        Artifact[] allArtifacts = childNode.getSelectedArtifacts(null);
-        Set<ResolvedArtifact> artifacts = new LinkedHashSet<ResolvedArtifact>();
-        for (Artifact artifact : allArtifacts) {
-            for (DependencyArtifactDescriptor parentArtifact : parentArtifacts) {
-                if (isEquals(parentArtifact, artifact)) {
-                    DefaultResolvedArtifact resolvedArtifact = createResolvedArtifact(artifact, childNode);
-                    resolvedArtifact.setResolvedDependency(resolvedDependency);
-                    artifacts.add(resolvedArtifact);
-                    break;
-                }
-            }
-        }
-        return artifacts;
-    }
-
-    private DefaultResolvedArtifact createResolvedArtifact(Artifact artifact, IvyNode ivyNode) {
-        return new DefaultResolvedArtifact(artifact, ivyNode.getData().getEngine());
-    }
-
     private boolean isEquals(DependencyArtifactDescriptor parentArtifact, Artifact artifact) {
         return parentArtifact.getName().equals(artifact.getName())
                 && parentArtifact.getExt().equals(artifact.getExt())
@@ -211,78 +114,6 @@ public class DefaultIvyReportConverter implements IvyReportConverter {
         return parentResolvedDependenciesSubSet;
     }
 
-    private Set<String> getConfigurationHierarchy(IvyNode node, String configurationName) {
-        Set<String> configurations = new LinkedHashSet<String>();
-        configurations.add(configurationName);
-        org.apache.ivy.core.module.descriptor.Configuration configuration = node.getConfiguration(configurationName);
-        for (String extendedConfigurationNames : configuration.getExtends()) {
-            configurations.addAll(getConfigurationHierarchy(node, extendedConfigurationNames));
-        }
-        return configurations;
-    }
-
-    private Set<String> getCallerConfigurationsByDependencyConfiguration(IvyNodeCallers.Caller caller, IvyNode dependencyNode, String dependencyConfiguration) {
-        Map<String, Set<String>> dependency2CallerConfs = new LinkedHashMap<String, Set<String>>();
-        for (String callerConf : caller.getCallerConfigurations()) {
-            Set<String> dependencyConfs = getRealConfigurations(dependencyNode
-                    , caller.getDependencyDescriptor().getDependencyConfigurations(callerConf));
-            for (String dependencyConf : dependencyConfs) {
-                if (!dependency2CallerConfs.containsKey(dependencyConf)) {
-                    dependency2CallerConfs.put(dependencyConf, new LinkedHashSet<String>());
-                }
-                dependency2CallerConfs.get(dependencyConf).add(callerConf.toString());
-            }
-        }
-        return dependency2CallerConfs.get(dependencyConfiguration);
-    }
-
-    private Set<String> getDependencyConfigurationsByCaller(IvyNode dependencyNode, IvyNodeCallers.Caller caller) {
-        String[] dependencyConfigurations = caller.getDependencyDescriptor().getDependencyConfigurations(caller.getCallerConfigurations());
-        Set<String> realDependencyConfigurations = getRealConfigurations(dependencyNode, dependencyConfigurations);
-        return realDependencyConfigurations;
-    }
-
-    private Set<String> getRealConfigurations(IvyNode dependencyNode, String[] dependencyConfigurations) {
-        Set<String> realDependencyConfigurations = new LinkedHashSet<String>();
-        for (String dependencyConfiguration : dependencyConfigurations) {
-            realDependencyConfigurations.addAll(WrapUtil.toSet(dependencyNode.getRealConfs(dependencyConfiguration)));
-        }
-        return realDependencyConfigurations;
-    }
-
-    private DefaultResolvedDependency createResolvedDependency(IvyNode ivyNode, ResolveReport resolveReport, String configuration) {
-        ModuleRevisionId moduleRevisionId = ivyNode.getId();
-        Set<String> configurations = getConfigurationHierarchy(ivyNode, configuration);
-        DefaultResolvedDependency resolvedDependency;
-        if (moduleRevisionId.getAttribute(DependencyDescriptorFactory.PROJECT_PATH_KEY) != null) {
-            resolvedDependency = new DefaultResolvedDependency(
-                    moduleRevisionId.getAttribute(DependencyDescriptorFactory.PROJECT_PATH_KEY),
-                    moduleRevisionId.getOrganisation(), moduleRevisionId.getName(), moduleRevisionId.getRevision(),
-                    configuration,
-                    configurations,
-                    getArtifacts(ivyNode));
-        } else {
-            resolvedDependency = new DefaultResolvedDependency(
-                    moduleRevisionId.getOrganisation(), moduleRevisionId.getName(), moduleRevisionId.getRevision(),
-                    configuration,
-                    configurations,
-                    getArtifacts(ivyNode));
-        }
-        for (ResolvedArtifact resolvedArtifact : resolvedDependency.getModuleArtifacts()) {
-            ((DefaultResolvedArtifact) resolvedArtifact).setResolvedDependency(resolvedDependency);
-        }
-        return resolvedDependency;
-    }
-
-    private Set<ResolvedArtifact> getArtifacts(IvyNode dependencyNode) {
-        Set<ResolvedArtifact> resolvedArtifacts = new LinkedHashSet<ResolvedArtifact>();
-        Artifact[] artifacts = dependencyNode.getSelectedArtifacts(null);
-        for (Artifact artifact : artifacts) {
-            resolvedArtifacts.add(createResolvedArtifact(artifact, dependencyNode));
-        }
-        return resolvedArtifacts;
-    }
-
     private Map<ModuleRevisionId, Map<String, ModuleDependency>> createFirstLevelDependenciesModuleRevisionIds(Set<ModuleDependency> firstLevelDependencies) {
         Map<ModuleRevisionId, Map<String, ModuleDependency>> firstLevelDependenciesModuleRevisionIds =
                 new LinkedHashMap<ModuleRevisionId, Map<String, ModuleDependency>>();
@@ -322,4 +153,294 @@ public class DefaultIvyReportConverter implements IvyReportConverter {
                 moduleRevisionId.getName(),
                 moduleRevisionId.getRevision());
     }
+
+    /**
+     * Converts the nodes of a single resolve report. A node is converted after the nodes of its callers, so that
+     * the resolved dependencies of a parent exist when the node is attached to them. The nodes are walked with an
+     * explicit stack rather than by recursion, so deep graphs do not exhaust the call stack. In a cycle the caller
+     * may itself still be converting, and may not yet have all the resolved dependencies the node is attached to. Such
+     * associations are deferred until the walk is finished. The result for each node, and the artifacts, configuration
+     * hierarchies and real configurations looked up for each node, are computed only once.
+     */
+    private class ReportConversion {
+        private final String conf;
+        private final ConfigurationResolveReport configurationResolveReport;
+        private final Map<ModuleRevisionId, Map<String, ModuleDependency>> firstLevelDependenciesModuleRevisionIds;
+        private final Map<Dependency, Set<ResolvedDependency>> firstLevelResolvedDependencies = new LinkedHashMap<Dependency, Set<ResolvedDependency>>();
+        private final Set<ResolvedArtifact> resolvedArtifacts = new LinkedHashSet<ResolvedArtifact>();
+        private final Map<ModuleRevisionId, Map<String, DefaultResolvedDependency>> handledNodes = new HashMap<ModuleRevisionId, Map<String, DefaultResolvedDependency>>();
+        private final Set<ModuleRevisionId> nodesInProgress = new HashSet<ModuleRevisionId>();
+        private final Map<IvyNode, Artifact[]> selectedArtifacts = new IdentityHashMap<IvyNode, Artifact[]>();
+        private final Map<IvyNode, Map<String, Set<String>>> configurationHierarchies = new IdentityHashMap<IvyNode, Map<String, Set<String>>>();
+        private final Map<IvyNode, Map<String, String[]>> realConfigurations = new IdentityHashMap<IvyNode, Map<String, String[]>>();
+
+        private ReportConversion(ResolveReport resolveReport, String conf,
+                                 Map<ModuleRevisionId, Map<String, ModuleDependency>> firstLevelDependenciesModuleRevisionIds) {
+            this.conf = conf;
+            this.configurationResolveReport = resolveReport.getConfigurationReport(conf);
+            this.firstLevelDependenciesModuleRevisionIds = firstLevelDependenciesModuleRevisionIds;
+        }
+
+        public void convert(IvyNode ivyNode) {
+            if (handledNodes.containsKey(ivyNode.getId())) {
+                return;
+            }
+            LinkedList<NodeConversion> stack = new LinkedList<NodeConversion>();
+            List<Association> deferredAssociations = new ArrayList<Association>();
+            stack.addFirst(startConversion(ivyNode));
+            while (!stack.isEmpty()) {
+                NodeConversion current = stack.getFirst();
+                if (current.pendingAssociation != null) {
+                    createAssociationsBetweenChildAndParentResolvedDependencies(current.pendingAssociation);
+                    current.pendingAssociation = null;
+                }
+                if (current.nextCaller == current.callers.length) {
+                    stack.removeFirst();
+                    nodesInProgress.remove(current.ivyNode.getId());
+                    continue;
+                }
+                IvyNodeCallers.Caller caller = current.callers[current.nextCaller++];
+                Map<String, Set<String>> callerConfigurationsByDependencyConfiguration = new HashMap<String, Set<String>>();
+                Set<String> dependencyConfigurationsForNode = getDependencyConfigurationsByCaller(current.ivyNode, caller,
+                        callerConfigurationsByDependencyConfiguration);
+                for (String dependencyConfiguration : dependencyConfigurationsForNode) {
+                    if (!current.resolvedDependencies.containsKey(dependencyConfiguration)) {
+                        DefaultResolvedDependency resolvedDependency = createResolvedDependency(current.ivyNode, dependencyConfiguration);
+                        resolvedArtifacts.addAll(resolvedDependency.getModuleArtifacts());
+                        current.resolvedDependencies.put(dependencyConfiguration, resolvedDependency);
+                        addNodeIfFirstLevelDependency(current.ivyNode, resolvedDependency, firstLevelDependenciesModuleRevisionIds, firstLevelResolvedDependencies);
+                    }
+                }
+                if (isRootCaller(configurationResolveReport, caller)) {
+                    for (DefaultResolvedDependency resolvedDependency : current.resolvedDependencies.values()) {
+                        resolvedDependency.getParents().add(null);
+                        resolvedDependency.addParentSpecificArtifacts(null, getParentSpecificArtifacts(resolvedDependency, conf, current.ivyNode.getRoot(), caller, current.ivyNode));
+                    }
+                    continue;
+                }
+                IvyNode parentNode = configurationResolveReport.getDependency(caller.getModuleRevisionId());
+                Map<String, DefaultResolvedDependency> parentResolvedDependencies = handledNodes.get(parentNode.getId());
+                boolean parentInProgress = parentResolvedDependencies != null && nodesInProgress.contains(parentNode.getId());
+                if (parentResolvedDependencies == null) {
+                    NodeConversion parentConversion = startConversion(parentNode);
+                    stack.addFirst(parentConversion);
+                    parentResolvedDependencies = parentConversion.resolvedDependencies;
+                }
+                Association association = new Association(current, parentNode, parentResolvedDependencies, caller,
+                        dependencyConfigurationsForNode, callerConfigurationsByDependencyConfiguration);
+                if (parentInProgress) {
+                    deferredAssociations.add(association);
+                } else {
+                    current.pendingAssociation = association;
+                }
+            }
+            for (Association association : deferredAssociations) {
+                createAssociationsBetweenChildAndParentResolvedDependencies(association);
+            }
+        }
+
+        private NodeConversion startConversion(IvyNode ivyNode) {
+            NodeConversion conversion = new NodeConversion(ivyNode, ivyNode.getCallers(conf));
+            handledNodes.put(ivyNode.getId(), conversion.resolvedDependencies);
+            nodesInProgress.add(ivyNode.getId());
+            return conversion;
+        }
+
+        private void createAssociationsBetweenChildAndParentResolvedDependencies(Association association) {
+            NodeConversion child = association.child;
+            for (String dependencyConfiguration : association.dependencyConfigurations) {
+                Set<String> callerConfigurations = association.callerConfigurationsByDependencyConfiguration.get(dependencyConfiguration);
+                Set<DefaultResolvedDependency> parentResolvedDependenciesForCallerConfigurations = getParentResolvedDependenciesByConfigurations(
+                        association.parentResolvedDependencies,
+                        callerConfigurations);
+                for (DefaultResolvedDependency parentResolvedDependency : parentResolvedDependenciesForCallerConfigurations) {
+                    DefaultResolvedDependency resolvedDependency = child.resolvedDependencies.get(dependencyConfiguration);
+                    parentResolvedDependency.getChildren().add(resolvedDependency);
+                    resolvedDependency.getParents().add(parentResolvedDependency);
+                    Set<ResolvedArtifact> parentSpecificResolvedArtifacts = getParentSpecificArtifacts(resolvedDependency, parentResolvedDependency.getConfiguration(),
+                            association.parentNode, association.caller, child.ivyNode);
+                    resolvedDependency.addParentSpecificArtifacts(parentResolvedDependency, parentSpecificResolvedArtifacts);
+                    resolvedArtifacts.addAll(parentSpecificResolvedArtifacts);
+                }
+            }
+        }
+
+        /**
+         * Returns the configurations of the given node which the given caller depends on, and collects the caller
+         * configurations which lead to each of them. The dependency descriptor maps each caller configuration only
+         * once, as this mapping is expensive.
+         */
+        private Set<String> getDependencyConfigurationsByCaller(IvyNode dependencyNode, IvyNodeCallers.Caller caller,
+                                                                Map<String, Set<String>> callerConfigurationsByDependencyConfiguration) {
+            Set<String> dependencyConfigurations = new LinkedHashSet<String>();
+            for (String callerConf : caller.getCallerConfigurations()) {
+                String[] dependencyConfs = caller.getDependencyDescriptor().getDependencyConfigurations(callerConf);
+                dependencyConfigurations.addAll(Arrays.asList(dependencyConfs));
+                for (String dependencyConf : getRealConfigurations(dependencyNode, dependencyConfs)) {
+                    Set<String> callerConfs = callerConfigurationsByDependencyConfiguration.get(dependencyConf);
+                    if (callerConfs == null) {
+                        callerConfs = new LinkedHashSet<String>();
+                        callerConfigurationsByDependencyConfiguration.put(dependencyConf, callerConfs);
+                    }
+                    callerConfs.add(callerConf);
+                }
+            }
+            // Same as DependencyDescriptor.getDependencyConfigurations(String[])
+            if (dependencyConfigurations.contains("*")) {
+                return getRealConfigurations(dependencyNode, new String[]{"*"});
+            }
+            return getRealConfigurations(dependencyNode, dependencyConfigurations.toArray(new String[dependencyConfigurations.size()]));
+        }
+
+        private Set<String> getRealConfigurations(IvyNode dependencyNode, String[] dependencyConfigurations) {
+            Map<String, String[]> realConfigurationsForNode = realConfigurations.get(dependencyNode);
+            if (realConfigurationsForNode == null) {
+                realConfigurationsForNode = new HashMap<String, String[]>();
+                realConfigurations.put(dependencyNode, realConfigurationsForNode);
+            }
+            Set<String> realDependencyConfigurations = new LinkedHashSet<String>();
+            for (String dependencyConfiguration : dependencyConfigurations) {
+                String[] realConfs = realConfigurationsForNode.get(dependencyConfiguration);
+                if (realConfs == null) {
+                    realConfs = dependencyNode.getRealConfs(dependencyConfiguration);
+                    realConfigurationsForNode.put(dependencyConfiguration, realConfs);
+                }
+                realDependencyConfigurations.addAll(Arrays.asList(realConfs));
+            }
+            return realDependencyConfigurations;
+        }
+
+        private Set<ResolvedArtifact> getParentSpecificArtifacts(DefaultResolvedDependency resolvedDependency, String parentConfiguration, IvyNode callerNode, IvyNodeCallers.Caller caller, IvyNode childNode) {
+            Set<ResolvedArtifact> artifacts = new LinkedHashSet<ResolvedArtifact>();
+            Set<DependencyArtifactDescriptor> parentArtifacts = new LinkedHashSet<DependencyArtifactDescriptor>();
+            for (String configuration : getConfigurationHierarchy(callerNode, parentConfiguration)) {
+                parentArtifacts.addAll(WrapUtil.toSet(caller.getDependencyDescriptor().getDependencyArtifacts(configuration)));
+            }
+            if (parentArtifacts.isEmpty()) {
+                return artifacts;
+            }
+
+            for (Artifact artifact : getSelectedArtifacts(childNode)) {
+                for (DependencyArtifactDescriptor parentArtifact : parentArtifacts) {
+                    if (isEquals(parentArtifact, artifact)) {
+                        DefaultResolvedArtifact resolvedArtifact = createResolvedArtifact(artifact, childNode);
+                        resolvedArtifact.setResolvedDependency(resolvedDependency);
+                        artifacts.add(resolvedArtifact);
+                        break;
+                    }
+                }
+            }
+            return artifacts;
+        }
+
+        private Artifact[] getSelectedArtifacts(IvyNode ivyNode) {
+            Artifact[] artifacts = selectedArtifacts.get(ivyNode);
+            if (artifacts == null) {
+                artifacts = ivyNode.getSelectedArtifacts(null);
+                selectedArtifacts.put(ivyNode, artifacts);
+            }
+            return artifacts;
+        }
+
+        private DefaultResolvedArtifact createResolvedArtifact(Artifact artifact, IvyNode ivyNode) {
+            ResolvedModuleRevision moduleRevision = ivyNode.getModuleRevision();
+            String repositoryName = null;
+            if (moduleRevision != null && moduleRevision.getArtifactResolver() != null) {
+                repositoryName = moduleRevision.getArtifactResolver().getName();
+            }
+            return new DefaultResolvedArtifact(artifact, ivyNode.getData().getEngine(), repositoryName);
+        }
+
+        private Set<String> getConfigurationHierarchy(IvyNode node, String configurationName) {
+            Map<String, Set<String>> hierarchies = configurationHierarchies.get(node);
+            if (hierarchies == null) {
+                hierarchies = new HashMap<String, Set<String>>();
+                configurationHierarchies.put(node, hierarchies);
+            }
+            Set<String> configurations = hierarchies.get(configurationName);
+            if (configurations == null) {
+                configurations = new LinkedHashSet<String>();
+                configurations.add(configurationName);
+                org.apache.ivy.core.module.descriptor.Configuration configuration = node.getConfiguration(configurationName);
+                for (String extendedConfigurationNames : configuration.getExtends()) {
+                    configurations.addAll(getConfigurationHierarchy(node, extendedConfigurationNames));
+                }
+                hierarchies.put(configurationName, configurations);
+            }
+            return configurations;
+        }
+
+        private DefaultResolvedDependency createResolvedDependency(IvyNode ivyNode, String configuration) {
+            ModuleRevisionId moduleRevisionId = ivyNode.getId();
+            Set<String> configurations = getConfigurationHierarchy(ivyNode, configuration);
+            DefaultResolvedDependency resolvedDependency;
+            if (moduleRevisionId.getAttribute(DependencyDescriptorFactory.PROJECT_PATH_KEY) != null) {
+                resolvedDependency = new DefaultResolvedDependency(
+                        moduleRevisionId.getAttribute(DependencyDescriptorFactory.PROJECT_PATH_KEY),
+                        moduleRevisionId.getOrganisation(), moduleRevisionId.getName(), moduleRevisionId.getRevision(),
+                        configuration,
+                        configurations,
+                        getArtifacts(ivyNode));
+            } else {
+                resolvedDependency = new DefaultResolvedDependency(
+                        moduleRevisionId.getOrganisation(), moduleRevisionId.getName(), moduleRevisionId.getRevision(),
+                        configuration,
+                        configurations,
+                        getArtifacts(ivyNode));
+            }
+            for (ResolvedArtifact resolvedArtifact : resolvedDependency.getModuleArtifacts()) {
+                ((DefaultResolvedArtifact) resolvedArtifact).setResolvedDependency(resolvedDependency);
+            }
+            return resolvedDependency;
+        }
+
+        private Set<ResolvedArtifact> getArtifacts(IvyNode dependencyNode) {
+            Set<ResolvedArtifact> resolvedArtifacts = new LinkedHashSet<ResolvedArtifact>();
+            for (Artifact artifact : getSelectedArtifacts(dependencyNode)) {
+                resolvedArtifacts.add(createResolvedArtifact(artifact, dependencyNode));
+            }
+            return resolvedArtifacts;
+        }
+    }
+
+    /**
+     * The conversion state of a single node: the resolved dependencies created for it so far, the next caller to
+     * visit, and the association with the caller whose node must be converted before the node can be attached to it.
+     */
+    private static class NodeConversion {
+        private final IvyNode ivyNode;
+        private final IvyNodeCallers.Caller[] callers;
+        private final Map<String, DefaultResolvedDependency> resolvedDependencies = new LinkedHashMap<String, DefaultResolvedDependency>();
+        private int nextCaller;
+        private Association pendingAssociation;
+
+        private NodeConversion(IvyNode ivyNode, IvyNodeCallers.Caller[] callers) {
+            this.ivyNode = ivyNode;
+            this.callers = callers;
+        }
+    }
+
+    /**
+     * The resolved dependencies of a node which are to be attached to the resolved dependencies of one of its callers.
+     */
+    private static class Association {
+        private final NodeConversion child;
+        private final IvyNode parentNode;
+        private final Map<String, DefaultResolvedDependency> parentResolvedDependencies;
+        private final IvyNodeCallers.Caller caller;
+        private final Set<String> dependencyConfigurations;
+        private final Map<String, Set<String>> callerConfigurationsByDependencyConfiguration;
+
+        private Association(NodeConversion child, IvyNode parentNode,
+                            Map<String, DefaultResolvedDependency> parentResolvedDependencies,
+                            IvyNodeCallers.Caller caller, Set<String> dependencyConfigurations,
+                            Map<String, Set<String>> callerConfigurationsByDependencyConfiguration) {
+            this.child = child;
+            this.parentNode = parentNode;
+            this.parentResolvedDependencies = parentResolvedDependencies;
+            this.caller = caller;
+            this.dependencyConfigurations = dependencyConfigurations;
+            this.callerConfigurationsByDependencyConfiguration = callerConfigurationsByDependencyConfiguration;
+        }
+    }
 }
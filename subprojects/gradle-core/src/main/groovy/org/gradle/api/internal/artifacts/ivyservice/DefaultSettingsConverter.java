@@ -42,8 +42,23 @@ import java.util.*;
 public class DefaultSettingsConverter implements SettingsConverter {
     private static Logger logger = Logging.getLogger(DefaultSettingsConverter.class);
 
+    /**
+     * The number of parsed module descriptors kept in memory by the repository cache manager. As the cache manager
+     * is shared by all resolves of the build, this should be large enough to hold the module graph of every project.
+     */
+    static final int MODULE_DESCRIPTOR_MEMORY_CACHE_SIZE = 2000;
+
+    static final int MAX_CACHED_RESOLVE_SETTINGS = 50;
+
     private RepositoryCacheManager repositoryCacheManager;
 
+    private final Map<ResolveSettingsKey, IvySettings> resolveSettings = new LinkedHashMap<ResolveSettingsKey, IvySettings>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ResolveSettingsKey, IvySettings> eldest) {
+            return size() > MAX_CACHED_RESOLVE_SETTINGS;
+        }
+    };
+
     private static final TransferListener TRANSFER_LISTENER = new ProgressLoggingTransferListener();
 
     private static String getLengthText(TransferEvent evt) {
@@ -81,11 +96,16 @@ public class DefaultSettingsConverter implements SettingsConverter {
         return ivySettings;
     }
 
-    public IvySettings convertForResolve(List<DependencyResolver> dependencyResolvers,
+    public synchronized IvySettings convertForResolve(List<DependencyResolver> dependencyResolvers,
                                File gradleUserHome, DependencyResolver internalRepository, Map clientModuleRegistry) {
         if (ivySettings != null) {
             return ivySettings;
         }
+        ResolveSettingsKey key = new ResolveSettingsKey(dependencyResolvers, gradleUserHome, internalRepository, clientModuleRegistry);
+        IvySettings cachedSettings = resolveSettings.get(key);
+        if (cachedSettings != null) {
+            return cachedSettings;
+        }
         Clock clock = new Clock();
         ChainResolver userResolverChain = createUserResolverChain(dependencyResolvers, internalRepository);
         ClientModuleResolver clientModuleResolver = createClientModuleResolver(clientModuleRegistry, userResolverChain);
@@ -95,6 +115,7 @@ public class DefaultSettingsConverter implements SettingsConverter {
         initializeResolvers(ivySettings, getAllResolvers(dependencyResolvers, Collections.<DependencyResolver>emptyList(), internalRepository, userResolverChain, clientModuleResolver, outerChain));
         ivySettings.setDefaultResolver(CLIENT_MODULE_CHAIN_NAME);
         logger.debug("Timing: Ivy convert for resolve took {}", clock.getTime());
+        resolveSettings.put(key, ivySettings);
         return ivySettings;
     }
 
@@ -148,6 +169,7 @@ public class DefaultSettingsConverter implements SettingsConverter {
     private void setRepositoryCacheManager(IvySettings ivySettings) {
         if (repositoryCacheManager == null) {
             repositoryCacheManager = ivySettings.getDefaultRepositoryCacheManager();
+            ((DefaultRepositoryCacheManager) repositoryCacheManager).setMemorySize(MODULE_DESCRIPTOR_MEMORY_CACHE_SIZE);
         } else {
             ivySettings.setDefaultRepositoryCacheManager(repositoryCacheManager);
         }
@@ -174,6 +196,62 @@ public class DefaultSettingsConverter implements SettingsConverter {
         this.ivySettings = ivySettings;
     }
 
+    /**
+     * Identifies the inputs of a resolve settings conversion. The resolvers, the internal repository and the client
+     * module registry are mutable, so they are compared by identity.
+     */
+    private static class ResolveSettingsKey {
+        private final List<DependencyResolver> dependencyResolvers;
+        private final File gradleUserHome;
+        private final DependencyResolver internalRepository;
+        private final Map clientModuleRegistry;
+
+        private ResolveSettingsKey(List<DependencyResolver> dependencyResolvers, File gradleUserHome,
+                                   DependencyResolver internalRepository, Map clientModuleRegistry) {
+            this.dependencyResolvers = new ArrayList<DependencyResolver>(dependencyResolvers);
+            this.gradleUserHome = gradleUserHome;
+            this.internalRepository = internalRepository;
+            this.clientModuleRegistry = clientModuleRegistry;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ResolveSettingsKey other = (ResolveSettingsKey) o;
+            if (internalRepository != other.internalRepository || clientModuleRegistry != other.clientModuleRegistry) {
+                return false;
+            }
+            if (gradleUserHome == null ? other.gradleUserHome != null : !gradleUserHome.equals(other.gradleUserHome)) {
+                return false;
+            }
+            if (dependencyResolvers.size() != other.dependencyResolvers.size()) {
+                return false;
+            }
+            for (int i = 0; i < dependencyResolvers.size(); i++) {
+                if (dependencyResolvers.get(i) != other.dependencyResolvers.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(internalRepository);
+            result = 31 * result + System.identityHashCode(clientModuleRegistry);
+            result = 31 * result + (gradleUserHome != null ? gradleUserHome.hashCode() : 0);
+            for (DependencyResolver dependencyResolver : dependencyResolvers) {
+                result = 31 * result + System.identityHashCode(dependencyResolver);
+            }
+            return result;
+        }
+    }
+
     private static class ProgressLoggingTransferListener implements TransferListener {
         private ProgressLogger logger;
         private long total;
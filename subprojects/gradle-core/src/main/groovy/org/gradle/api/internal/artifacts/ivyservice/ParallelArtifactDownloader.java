@@ -0,0 +1,198 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.IvyContext;
+import org.apache.ivy.core.module.id.ArtifactRevisionId;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.internal.artifacts.DefaultResolvedArtifact;
+import org.gradle.util.BoundedExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Locates the files of a set of resolved artifacts concurrently, so that artifacts which need to be downloaded are
+ * downloaded in parallel rather than one at a time as their files are requested. At most the given number of
+ * artifacts are downloaded at once, and at most the given number from any one repository. Failures are ignored, so
+ * that they are reported in the usual order when the file of the failed artifact is requested. An instance can be used
+ * by several threads, which share its worker threads. An artifact which is already being downloaded for another thread
+ * is not downloaded again; the thread waits for that download instead. Each artifact is downloaded in the context of
+ * the {@link Ivy} instance which resolved it.
+ */
+public class ParallelArtifactDownloader {
+    public static final int DEFAULT_THREAD_COUNT = 8;
+    public static final int DEFAULT_CONNECTIONS_PER_REPOSITORY = 4;
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelArtifactDownloader.class);
+    private final int connectionsPerRepository;
+    private final Map<String, Semaphore> repositoryConnections = new HashMap<String, Semaphore>();
+    private final Map<ArtifactRevisionId, CountDownLatch> inProgress = new HashMap<ArtifactRevisionId, CountDownLatch>();
+    private final BoundedExecutor executor;
+
+    public ParallelArtifactDownloader() {
+        this(DEFAULT_THREAD_COUNT, DEFAULT_CONNECTIONS_PER_REPOSITORY);
+    }
+
+    public ParallelArtifactDownloader(int threadCount, int connectionsPerRepository) {
+        this.connectionsPerRepository = connectionsPerRepository;
+        executor = threadCount < 2 ? null : new BoundedExecutor("Artifact Download", threadCount);
+    }
+
+    /**
+     * Stops the worker threads of this downloader. Blocks until any downloads in progress have completed.
+     */
+    public void stop() {
+        if (executor != null) {
+            executor.stop();
+        }
+    }
+
+    /**
+     * Locates the files of the given artifacts, blocking until all of them have been located or have failed.
+     *
+     * @param artifacts The artifacts to download.
+     * @param ivy The Ivy instance which resolved the artifacts.
+     */
+    public void download(Collection<? extends ResolvedArtifact> artifacts, final Ivy ivy) {
+        if (executor == null) {
+            return;
+        }
+        Map<ArtifactRevisionId, DefaultResolvedArtifact> pending
+                = new LinkedHashMap<ArtifactRevisionId, DefaultResolvedArtifact>();
+        for (ResolvedArtifact artifact : artifacts) {
+            if (artifact instanceof DefaultResolvedArtifact) {
+                DefaultResolvedArtifact defaultArtifact = (DefaultResolvedArtifact) artifact;
+                if (!defaultArtifact.isFileLocated() && !pending.containsKey(defaultArtifact.getArtifactId())) {
+                    pending.put(defaultArtifact.getArtifactId(), defaultArtifact);
+                }
+            }
+        }
+        if (pending.size() < 2) {
+            return;
+        }
+
+        List<DefaultResolvedArtifact> toDownload = new ArrayList<DefaultResolvedArtifact>();
+        List<CountDownLatch> completions = new ArrayList<CountDownLatch>();
+        synchronized (inProgress) {
+            for (DefaultResolvedArtifact artifact : pending.values()) {
+                CountDownLatch completed = inProgress.get(artifact.getArtifactId());
+                if (completed == null) {
+                    completed = new CountDownLatch(1);
+                    inProgress.put(artifact.getArtifactId(), completed);
+                    toDownload.add(artifact);
+                }
+                completions.add(completed);
+            }
+        }
+
+        for (final DefaultResolvedArtifact artifact : interleaveByRepository(toDownload)) {
+            final Semaphore connections = getConnections(artifact.getRepositoryName());
+            executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        IvyContext.pushNewContext().setIvy(ivy);
+                        try {
+                            download(artifact, connections);
+                        } finally {
+                            IvyContext.popContext();
+                        }
+                    } finally {
+                        completed(artifact.getArtifactId());
+                    }
+                }
+            });
+        }
+        for (CountDownLatch completed : completions) {
+            awaitCompletion(completed);
+        }
+    }
+
+    private void completed(ArtifactRevisionId artifactId) {
+        CountDownLatch completed;
+        synchronized (inProgress) {
+            completed = inProgress.remove(artifactId);
+        }
+        completed.countDown();
+    }
+
+    private void download(DefaultResolvedArtifact artifact, Semaphore connections) {
+        connections.acquireUninterruptibly();
+        try {
+            artifact.getFile();
+        } catch (Throwable t) {
+            LOGGER.debug(String.format("Could not download %s.", artifact.getArtifactId()), t);
+        } finally {
+            connections.release();
+        }
+    }
+
+    private void awaitCompletion(CountDownLatch completed) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                completed.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Semaphore getConnections(String repositoryName) {
+        synchronized (repositoryConnections) {
+            Semaphore connections = repositoryConnections.get(repositoryName);
+            if (connections == null) {
+                connections = new Semaphore(connectionsPerRepository);
+                repositoryConnections.put(repositoryName, connections);
+            }
+            return connections;
+        }
+    }
+
+    /**
+     * Orders the artifacts so that consecutive artifacts come from different repositories where possible, so that
+     * worker threads are not all waiting for a connection to the same repository.
+     */
+    private List<DefaultResolvedArtifact> interleaveByRepository(Collection<DefaultResolvedArtifact> artifacts) {
+        Map<String, LinkedList<DefaultResolvedArtifact>> byRepository
+                = new LinkedHashMap<String, LinkedList<DefaultResolvedArtifact>>();
+        for (DefaultResolvedArtifact artifact : artifacts) {
+            String repositoryName = artifact.getRepositoryName();
+            LinkedList<DefaultResolvedArtifact> repositoryArtifacts = byRepository.get(repositoryName);
+            if (repositoryArtifacts == null) {
+                repositoryArtifacts = new LinkedList<DefaultResolvedArtifact>();
+                byRepository.put(repositoryName, repositoryArtifacts);
+            }
+            repositoryArtifacts.add(artifact);
+        }
+        List<DefaultResolvedArtifact> ordered = new ArrayList<DefaultResolvedArtifact>(artifacts.size());
+        while (ordered.size() < artifacts.size()) {
+            for (LinkedList<DefaultResolvedArtifact> repositoryArtifacts : byRepository.values()) {
+                if (!repositoryArtifacts.isEmpty()) {
+                    ordered.add(repositoryArtifacts.removeFirst());
+                }
+            }
+        }
+        return ordered;
+    }
+}
@@ -20,22 +20,33 @@ import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.Serializer;
 
 import java.io.*;
+import java.util.Collections;
 
+/**
+ * A {@link Hasher} which caches the hash of each file, keyed by file, and reuses the cached hash while the length and
+ * timestamp of the file are unchanged. The cache is discarded when the algorithm of the target hasher changes. An
+ * instance can be used from multiple threads concurrently, provided the target hasher can. Only the cache lookups are
+ * serialised, so files are hashed concurrently.
+ */
 public class CachingHasher implements Hasher {
     private final PersistentIndexedCache<File, FileInfo> cache;
     private final Hasher hasher;
-    private long timestamp;
 
     public CachingHasher(Hasher hasher, CacheRepository cacheRepository) {
         this.hasher = hasher;
-        cache = cacheRepository.cache("fileHashes").open().openIndexedCache(new FileInfoSerializer());
+        cache = cacheRepository.cache("fileHashes").withProperties(Collections.singletonMap("algorithm",
+                hasher.getAlgorithm())).withMemoryMappedIndex().open().openIndexedCache(new FileInfoSerializer());
+    }
+
+    public String getAlgorithm() {
+        return hasher.getAlgorithm();
     }
 
     public byte[] hash(File file) {
         FileInfo info = cache.get(file);
 
         long length = file.length();
-        timestamp = file.lastModified();
+        long timestamp = file.lastModified();
         if (info != null && length == info.length && timestamp == info.timestamp) {
             return info.hash;
         }
@@ -15,41 +15,315 @@
  */
 package org.gradle.api.internal.changedetection;
 
+import org.gradle.api.GradleException;
 import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.file.FileVisitor;
+import org.gradle.cache.Serializer;
+import org.gradle.util.BoundedExecutor;
 import org.gradle.util.ChangeListener;
+import org.gradle.util.EncodingUtil;
 
-import java.io.File;
-import java.io.Serializable;
+import java.io.*;
 import java.math.BigInteger;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 
+/**
+ * A {@link FileSnapshotter} which snapshots the type and hash of each file. When an executor with more than one thread
+ * is provided, large collections of files are hashed using the threads of that executor. The executor is shared with
+ * the rest of the build, and each worker hashes a single file at a time, so the number of files being read at once is
+ * bounded by the number of threads of the executor, however many snapshots are taken at once.
+ *
+ * <p>When a {@link WatchedFileCache} is provided, the snapshot of each file is retained in the cache, and reused by
+ * later snapshots until the file changes. This avoids inspecting and hashing files which have not changed since the
+ * previous build run in this JVM.</p>
+ */
 public class DefaultFileSnapshotter implements FileSnapshotter {
+    static final int MIN_FILES_PER_THREAD = 16;
     private final Hasher hasher;
+    private final BoundedExecutor executor;
+    private final WatchedFileCache<Object> retainedSnapshots;
 
     public DefaultFileSnapshotter(Hasher hasher) {
+        this(hasher, null);
+    }
+
+    public DefaultFileSnapshotter(Hasher hasher, BoundedExecutor executor) {
+        this(hasher, executor, null);
+    }
+
+    /**
+     * @param hasher The hasher to use. Must be safe to use from multiple threads when an executor is provided.
+     * @param executor The executor to use to hash files, or null to hash files in the calling thread.
+     * @param retainedSnapshots The cache to retain file snapshots in, or null to not retain snapshots. Must only be
+     * used with a single hash algorithm.
+     */
+    public DefaultFileSnapshotter(Hasher hasher, BoundedExecutor executor, WatchedFileCache<Object> retainedSnapshots) {
         this.hasher = hasher;
+        this.executor = executor;
+        this.retainedSnapshots = retainedSnapshots;
     }
 
     public FileCollectionSnapshot snapshot() {
         return new FileCollectionSnapshotImpl(new HashMap<String, FileSnapshot>());
     }
 
+    public Serializer<FileCollectionSnapshot> getSerializer() {
+        return new SnapshotSerializer();
+    }
+
     public FileCollectionSnapshot snapshot(FileCollection sourceFiles) {
         Map<String, FileSnapshot> snapshots = new HashMap<String, FileSnapshot>();
+        List<File> filesToHash = new ArrayList<File>();
+        List<File> filesToRetain = new ArrayList<File>();
+        long token = retainedSnapshots == null ? 0 : retainedSnapshots.refresh();
         for (File file : sourceFiles) {
+            if (retainedSnapshots != null) {
+                FileSnapshot snapshot = (FileSnapshot) retainedSnapshots.get(file);
+                if (snapshot != null) {
+                    snapshots.put(file.getAbsolutePath(), snapshot);
+                    continue;
+                }
+                if (retainedSnapshots.watch(file)) {
+                    filesToRetain.add(file);
+                }
+            }
             if (file.isFile()) {
-                snapshots.put(file.getAbsolutePath(), new FileHashSnapshot(hasher.hash(file)));
+                filesToHash.add(file);
             } else if (file.isDirectory()) {
                 snapshots.put(file.getAbsolutePath(), new DirSnapshot());
             } else {
                 snapshots.put(file.getAbsolutePath(), new MissingFileSnapshot());
             }
         }
+
+        int threadCount = executor == null ? 1 : executor.getMaxThreads();
+        int workerCount = Math.min(threadCount, filesToHash.size() / MIN_FILES_PER_THREAD);
+        if (workerCount > 1) {
+            new ParallelHasher(filesToHash).hash(workerCount, snapshots);
+        } else {
+            for (File file : filesToHash) {
+                snapshots.put(file.getAbsolutePath(), new FileHashSnapshot(hasher.hash(file)));
+            }
+        }
+        for (File file : filesToRetain) {
+            retainedSnapshots.put(file, snapshots.get(file.getAbsolutePath()), token);
+        }
         return new FileCollectionSnapshotImpl(snapshots);
     }
 
+    public boolean isUpToDate(FileTree files, FileCollectionSnapshot snapshot) {
+        final Map<String, FileSnapshot> previousSnapshots = ((FileCollectionSnapshotImpl) snapshot).snapshots;
+        final long token = retainedSnapshots == null ? 0 : retainedSnapshots.refresh();
+        final boolean[] upToDate = {true};
+        final int[] fileCount = {0};
+        files.visit(new FileVisitor() {
+            public void visitDir(FileVisitDetails dirDetails) {
+            }
+
+            public void visitFile(FileVisitDetails fileDetails) {
+                File file = fileDetails.getFile();
+                FileSnapshot previous = previousSnapshots.get(file.getAbsolutePath());
+                fileCount[0]++;
+                if (previous == null || !snapshotFile(file, token).isUpToDate(previous)) {
+                    upToDate[0] = false;
+                    fileDetails.stopVisiting();
+                }
+            }
+        });
+        return upToDate[0] && fileCount[0] == previousSnapshots.size();
+    }
+
+    private FileSnapshot snapshotFile(File file, long token) {
+        if (retainedSnapshots == null) {
+            return new FileHashSnapshot(hasher.hash(file));
+        }
+        FileSnapshot snapshot = (FileSnapshot) retainedSnapshots.get(file);
+        if (snapshot == null) {
+            boolean retain = retainedSnapshots.watch(file);
+            snapshot = new FileHashSnapshot(hasher.hash(file));
+            if (retain) {
+                retainedSnapshots.put(file, snapshot, token);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Hashes a list of files using workers run by the shared executor. Each worker takes the next file from the list
+     * once it has finished with its current file. No further files are hashed once a file has failed, and the first
+     * failure is rethrown once the workers have stopped.
+     */
+    private class ParallelHasher {
+        private final List<File> files;
+        private final byte[][] hashes;
+        private int next;
+        private int running;
+        private Throwable failure;
+
+        private ParallelHasher(List<File> files) {
+            this.files = files;
+            hashes = new byte[files.size()][];
+        }
+
+        public void hash(int workerCount, Map<String, FileSnapshot> snapshots) {
+            try {
+                for (int i = 0; i < workerCount; i++) {
+                    synchronized (this) {
+                        running++;
+                    }
+                    executor.execute(new Runnable() {
+                        public void run() {
+                            try {
+                                hashFiles();
+                            } finally {
+                                workerFinished();
+                            }
+                        }
+                    });
+                }
+            } catch (RuntimeException e) {
+                workerFinished();
+                throw e;
+            } finally {
+                waitForWorkers();
+            }
+
+            if (failure != null) {
+                rethrow(failure);
+            }
+            for (int i = 0; i < hashes.length; i++) {
+                snapshots.put(files.get(i).getAbsolutePath(), new FileHashSnapshot(hashes[i]));
+            }
+        }
+
+        private void hashFiles() {
+            while (true) {
+                int index = nextFile();
+                if (index < 0) {
+                    return;
+                }
+                try {
+                    byte[] hash = hasher.hash(files.get(index));
+                    synchronized (this) {
+                        hashes[index] = hash;
+                    }
+                } catch (Throwable t) {
+                    synchronized (this) {
+                        if (failure == null) {
+                            failure = t;
+                        }
+                    }
+                    return;
+                }
+            }
+        }
+
+        private synchronized void workerFinished() {
+            running--;
+            notifyAll();
+        }
+
+        private synchronized void waitForWorkers() {
+            boolean interrupted = false;
+            while (running > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private synchronized int nextFile() {
+            if (failure != null || next == files.size()) {
+                return -1;
+            }
+            return next++;
+        }
+
+        private void rethrow(Throwable failure) {
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            throw new GradleException(failure);
+        }
+    }
+
+    /**
+     * Writes a snapshot as its number of files, followed by the files sorted by path. Each path is written as the
+     * length of the prefix it shares with the previous path, followed by the remainder of the path. Each path is
+     * followed by the type of the file and, for a regular file, its hash.
+     */
+    private static class SnapshotSerializer implements Serializer<FileCollectionSnapshot> {
+        private static final byte HASHED_FILE = 1;
+        private static final byte HASHED_FILE_16 = 2;
+        private static final byte DIR = 3;
+        private static final byte MISSING = 4;
+
+        public FileCollectionSnapshot read(InputStream instr) throws Exception {
+            DataInputStream input = new DataInputStream(instr);
+            int count = EncodingUtil.readVarInt(input);
+            Map<String, FileSnapshot> snapshots = new HashMap<String, FileSnapshot>(count * 4 / 3 + 1);
+            String path = "";
+            for (int i = 0; i < count; i++) {
+                path = EncodingUtil.readString(input, path);
+                byte type = input.readByte();
+                switch (type) {
+                    case HASHED_FILE:
+                    case HASHED_FILE_16:
+                        byte[] hash = new byte[type == HASHED_FILE_16 ? 16 : EncodingUtil.readVarInt(input)];
+                        input.readFully(hash);
+                        snapshots.put(path, new FileHashSnapshot(hash));
+                        break;
+                    case DIR:
+                        snapshots.put(path, new DirSnapshot());
+                        break;
+                    case MISSING:
+                        snapshots.put(path, new MissingFileSnapshot());
+                        break;
+                    default:
+                        throw new StreamCorruptedException(String.format("Unexpected file type %d.", type));
+                }
+            }
+            return new FileCollectionSnapshotImpl(snapshots);
+        }
+
+        public void write(OutputStream outstr, FileCollectionSnapshot value) throws Exception {
+            Map<String, FileSnapshot> snapshots = ((FileCollectionSnapshotImpl) value).snapshots;
+            DataOutputStream output = new DataOutputStream(outstr);
+            EncodingUtil.writeVarInt(output, snapshots.size());
+            String previous = "";
+            for (Map.Entry<String, FileSnapshot> entry : new TreeMap<String, FileSnapshot>(snapshots).entrySet()) {
+                EncodingUtil.writeString(output, previous, entry.getKey());
+                previous = entry.getKey();
+                FileSnapshot snapshot = entry.getValue();
+                if (snapshot instanceof FileHashSnapshot) {
+                    byte[] hash = ((FileHashSnapshot) snapshot).hash;
+                    if (hash.length == 16) {
+                        output.writeByte(HASHED_FILE_16);
+                    } else {
+                        output.writeByte(HASHED_FILE);
+                        EncodingUtil.writeVarInt(output, hash.length);
+                    }
+                    output.write(hash);
+                } else if (snapshot instanceof DirSnapshot) {
+                    output.writeByte(DIR);
+                } else {
+                    output.writeByte(MISSING);
+                }
+            }
+            output.flush();
+        }
+    }
+
     private interface FileSnapshot extends Serializable {
         boolean isUpToDate(FileSnapshot snapshot);
     }
@@ -23,4 +23,8 @@ public class DefaultHasher implements Hasher {
     public byte[] hash(File file) {
         return HashUtil.createHash(file);
     }
+
+    public String getAlgorithm() {
+        return "MD5";
+    }
 }
\ No newline at end of file
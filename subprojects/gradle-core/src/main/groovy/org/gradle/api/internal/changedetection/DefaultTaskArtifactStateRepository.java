@@ -22,11 +22,12 @@ import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.cache.Serializer;
 import org.gradle.util.ChangeListener;
 import org.gradle.util.DiffUtil;
+import org.gradle.util.EncodingUtil;
 
-import java.io.File;
-import java.io.Serializable;
+import java.io.*;
 import java.util.*;
 
 import static java.util.Collections.*;
@@ -44,15 +45,18 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
     }
 
     public TaskArtifactState getStateFor(final TaskInternal task) {
-        if (cache == null) {
-            loadTasks(task);
+        synchronized (this) {
+            if (cache == null) {
+                loadTasks(task);
+            }
         }
 
         return new TaskArtifactStateImpl(task);
     }
 
     private void loadTasks(TaskInternal task) {
-        cache = repository.cache("taskArtifacts").forObject(task.getProject().getGradle()).open().openIndexedCache();
+        cache = repository.cache("taskArtifacts").forObject(task.getProject().getGradle()).withMemoryMappedIndex().open()
+                .openIndexedCache(new TaskHistorySerializer(fileSnapshotter.getSerializer()));
     }
 
     private static Set<String> outputFiles(TaskInternal task) {
@@ -264,6 +268,10 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
         private FileCollectionSnapshot inputFilesSnapshot;
         private FileCollectionSnapshot outputFilesSnapshot;
 
+        private TaskConfiguration(String taskClass) {
+            this.taskClass = taskClass;
+        }
+
         private TaskConfiguration(TaskInternal task, FileSnapshotter fileSnapshotter) {
             this.taskClass = task.getClass().getName();
             this.outputFiles = outputFiles(task);
@@ -272,6 +280,155 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
         }
     }
 
+    /**
+     * Writes the history of a task in a compact binary form. Output file paths are written in sorted order, each as the
+     * prefix it shares with the previous path plus the remainder of the path. Input property values of common types are
+     * written directly, and other values using Java serialization. A history written in some other format is read as
+     * null, so that the task is treated as having no history.
+     */
+    private static class TaskHistorySerializer implements Serializer<TaskHistory> {
+        private static final byte FORMAT_VERSION = 1;
+        private static final byte NULL = 0;
+        private static final byte STRING = 1;
+        private static final byte BOOLEAN = 2;
+        private static final byte INTEGER = 3;
+        private static final byte LONG = 4;
+        private static final byte SERIALIZED = 5;
+        private final Serializer<FileCollectionSnapshot> snapshotSerializer;
+
+        private TaskHistorySerializer(Serializer<FileCollectionSnapshot> snapshotSerializer) {
+            this.snapshotSerializer = snapshotSerializer;
+        }
+
+        public TaskHistory read(InputStream instr) throws Exception {
+            DataInputStream input = new DataInputStream(instr);
+            if (input.readByte() != FORMAT_VERSION) {
+                return null;
+            }
+            TaskHistory history = new TaskHistory();
+            int count = EncodingUtil.readVarInt(input);
+            for (int i = 0; i < count; i++) {
+                history.configurations.add(readConfiguration(input));
+            }
+            return history;
+        }
+
+        public void write(OutputStream outstr, TaskHistory value) throws Exception {
+            DataOutputStream output = new DataOutputStream(outstr);
+            output.writeByte(FORMAT_VERSION);
+            EncodingUtil.writeVarInt(output, value.configurations.size());
+            for (TaskConfiguration configuration : value.configurations) {
+                writeConfiguration(output, configuration);
+            }
+            output.flush();
+        }
+
+        private TaskConfiguration readConfiguration(DataInputStream input) throws Exception {
+            TaskConfiguration configuration = new TaskConfiguration(EncodingUtil.readString(input));
+
+            int count = EncodingUtil.readVarInt(input);
+            configuration.outputFiles = new HashSet<String>();
+            String path = "";
+            for (int i = 0; i < count; i++) {
+                path = EncodingUtil.readString(input, path);
+                configuration.outputFiles.add(path);
+            }
+
+            count = EncodingUtil.readVarInt(input);
+            configuration.inputProperties = new HashMap<String, Object>();
+            for (int i = 0; i < count; i++) {
+                String name = EncodingUtil.readString(input);
+                configuration.inputProperties.put(name, readValue(input));
+            }
+
+            configuration.inputFilesSnapshot = readSnapshot(input);
+            configuration.outputFilesSnapshot = readSnapshot(input);
+            return configuration;
+        }
+
+        private void writeConfiguration(DataOutputStream output, TaskConfiguration configuration) throws Exception {
+            EncodingUtil.writeString(output, configuration.taskClass);
+
+            EncodingUtil.writeVarInt(output, configuration.outputFiles.size());
+            String previous = "";
+            for (String path : new TreeSet<String>(configuration.outputFiles)) {
+                EncodingUtil.writeString(output, previous, path);
+                previous = path;
+            }
+
+            EncodingUtil.writeVarInt(output, configuration.inputProperties.size());
+            for (Map.Entry<String, Object> entry : configuration.inputProperties.entrySet()) {
+                EncodingUtil.writeString(output, entry.getKey());
+                writeValue(output, entry.getValue());
+            }
+
+            writeSnapshot(output, configuration.inputFilesSnapshot);
+            writeSnapshot(output, configuration.outputFilesSnapshot);
+        }
+
+        private FileCollectionSnapshot readSnapshot(DataInputStream input) throws Exception {
+            if (!input.readBoolean()) {
+                return null;
+            }
+            return snapshotSerializer.read(input);
+        }
+
+        private void writeSnapshot(DataOutputStream output, FileCollectionSnapshot snapshot) throws Exception {
+            output.writeBoolean(snapshot != null);
+            if (snapshot != null) {
+                snapshotSerializer.write(output, snapshot);
+            }
+        }
+
+        private Object readValue(DataInputStream input) throws Exception {
+            byte type = input.readByte();
+            switch (type) {
+                case NULL:
+                    return null;
+                case STRING:
+                    return EncodingUtil.readString(input);
+                case BOOLEAN:
+                    return input.readBoolean();
+                case INTEGER:
+                    return input.readInt();
+                case LONG:
+                    return input.readLong();
+                case SERIALIZED:
+                    byte[] bytes = new byte[EncodingUtil.readVarInt(input)];
+                    input.readFully(bytes);
+                    return new ObjectInputStream(new ByteArrayInputStream(bytes)).readObject();
+                default:
+                    throw new StreamCorruptedException(String.format("Unexpected value type %d.", type));
+            }
+        }
+
+        private void writeValue(DataOutputStream output, Object value) throws Exception {
+            if (value == null) {
+                output.writeByte(NULL);
+            } else if (value instanceof String) {
+                output.writeByte(STRING);
+                EncodingUtil.writeString(output, (String) value);
+            } else if (value instanceof Boolean) {
+                output.writeByte(BOOLEAN);
+                output.writeBoolean((Boolean) value);
+            } else if (value instanceof Integer) {
+                output.writeByte(INTEGER);
+                output.writeInt((Integer) value);
+            } else if (value instanceof Long) {
+                output.writeByte(LONG);
+                output.writeLong((Long) value);
+            } else {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                ObjectOutputStream objectStr = new ObjectOutputStream(bytes);
+                objectStr.writeObject(value);
+                objectStr.close();
+                output.writeByte(SERIALIZED);
+                EncodingUtil.writeVarInt(output, bytes.size());
+                bytes.writeTo(output);
+            }
+        }
+    }
+
     private class TaskArtifactStateImpl implements TaskArtifactState {
         private final TaskInternal task;
         private final TaskHistory history;
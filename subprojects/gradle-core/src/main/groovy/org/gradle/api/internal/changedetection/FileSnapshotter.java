@@ -16,6 +16,8 @@
 package org.gradle.api.internal.changedetection;
 
 import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.FileTree;
+import org.gradle.cache.Serializer;
 
 public interface FileSnapshotter {
     /**
@@ -32,4 +34,21 @@ public interface FileSnapshotter {
      * @return The snapshot.
      */
     FileCollectionSnapshot snapshot(FileCollection files);
+
+    /**
+     * Determines whether the contents of the given tree are the same as the given snapshot. Stops inspecting the files
+     * of the tree at the first file which differs from the snapshot.
+     *
+     * @param files The files to compare
+     * @param snapshot The snapshot to compare against
+     * @return true if the files have not changed since the snapshot was taken.
+     */
+    boolean isUpToDate(FileTree files, FileCollectionSnapshot snapshot);
+
+    /**
+     * Returns a serializer which can read and write the snapshots created by this snapshotter.
+     *
+     * @return The serializer.
+     */
+    Serializer<FileCollectionSnapshot> getSerializer();
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.api.Action;
+
+import java.io.File;
+
+/**
+ * Watches a set of directories for changes to their entries.
+ */
+public interface FileWatcher {
+    /**
+     * Starts watching the given directory, if not already watched. Changes to the entries of the directory made after
+     * this method returns are reported by {@link #processChanges(org.gradle.api.Action)}. A directory should be watched
+     * before its entries are inspected.
+     *
+     * @param dir The directory.
+     * @return true if the directory is being watched, false if it cannot be watched.
+     */
+    boolean watch(File dir);
+
+    /**
+     * Reports the changes to watched directories made before this method was called. Each changed entry is reported
+     * as its file. When the changes to the entries of a directory are not known, the directory itself is reported,
+     * and should be taken to mean that any of its entries may have changed. Such a directory is no longer watched.
+     *
+     * @param handler The action to notify of each change.
+     */
+    void processChanges(Action<File> handler);
+
+    /**
+     * Stops watching all directories.
+     */
+    void stop();
+}
@@ -19,4 +19,10 @@ import java.io.File;
 
 public interface Hasher {
     byte[] hash(File file);
+
+    /**
+     * Returns the name of the algorithm which this hasher uses. Hashes created using different algorithms cannot be
+     * compared.
+     */
+    String getAlgorithm();
 }
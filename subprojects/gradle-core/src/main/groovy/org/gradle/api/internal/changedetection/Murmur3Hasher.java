@@ -0,0 +1,169 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.api.UncheckedIOException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * A {@link Hasher} which uses the 128-bit x64 variant of MurmurHash3. This is a non-cryptographic hash, which is much
+ * cheaper to calculate than MD5 but still very unlikely to produce the same hash for different file contents.
+ *
+ * <p>Files are read through a large direct buffer, which is reused by each thread. Files are not memory mapped, as a
+ * mapped file cannot be deleted or replaced on some platforms until the mapping is garbage collected.</p>
+ */
+public class Murmur3Hasher implements Hasher {
+    static final int BUFFER_SIZE = 256 * 1024;
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+    private static final ThreadLocal<ByteBuffer> BUFFER = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    };
+
+    public byte[] hash(File file) {
+        try {
+            FileInputStream instr = new FileInputStream(file);
+            try {
+                return hash(instr.getChannel());
+            } finally {
+                instr.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public String getAlgorithm() {
+        return "MurmurHash3_x64_128";
+    }
+
+    private byte[] hash(FileChannel channel) throws IOException {
+        ByteBuffer buffer = BUFFER.get();
+        buffer.clear();
+        Murmur3 hash = new Murmur3();
+        while (channel.read(buffer) >= 0) {
+            buffer.flip();
+            hash.update(buffer);
+            buffer.compact();
+        }
+        buffer.flip();
+        return hash.finish(buffer);
+    }
+
+    /**
+     * Incremental MurmurHash3_x64_128, with a seed of 0.
+     */
+    static class Murmur3 {
+        private long h1;
+        private long h2;
+        private long length;
+
+        /**
+         * Hashes as many 16 byte blocks from the given buffer as are available. Leaves the remaining bytes in the
+         * buffer.
+         */
+        public void update(ByteBuffer buffer) {
+            while (buffer.remaining() >= 16) {
+                long k1 = buffer.getLong();
+                long k2 = buffer.getLong();
+
+                h1 ^= mixK1(k1);
+                h1 = Long.rotateLeft(h1, 27);
+                h1 += h2;
+                h1 = h1 * 5 + 0x52dce729;
+
+                h2 ^= mixK2(k2);
+                h2 = Long.rotateLeft(h2, 31);
+                h2 += h1;
+                h2 = h2 * 5 + 0x38495ab5;
+
+                length += 16;
+            }
+        }
+
+        /**
+         * Hashes the remaining bytes in the given buffer, which must contain fewer than 16 bytes, and returns the
+         * hash.
+         */
+        public byte[] finish(ByteBuffer tail) {
+            int remaining = tail.remaining();
+            assert remaining < 16;
+            long k1 = 0;
+            long k2 = 0;
+            for (int i = 0; i < remaining; i++) {
+                long value = tail.get() & 0xFFL;
+                if (i < 8) {
+                    k1 ^= value << (i * 8);
+                } else {
+                    k2 ^= value << ((i - 8) * 8);
+                }
+            }
+            if (remaining > 8) {
+                h2 ^= mixK2(k2);
+            }
+            if (remaining > 0) {
+                h1 ^= mixK1(k1);
+            }
+            length += remaining;
+
+            h1 ^= length;
+            h2 ^= length;
+            h1 += h2;
+            h2 += h1;
+            h1 = fmix(h1);
+            h2 = fmix(h2);
+            h1 += h2;
+            h2 += h1;
+
+            ByteBuffer result = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+            result.putLong(h1);
+            result.putLong(h2);
+            return result.array();
+        }
+
+        private static long mixK1(long k1) {
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            return k1;
+        }
+
+        private static long mixK2(long k2) {
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            return k2;
+        }
+
+        private static long fmix(long k) {
+            k ^= k >>> 33;
+            k *= 0xff51afd7ed558ccdL;
+            k ^= k >>> 33;
+            k *= 0xc4ceb9fe1a85ec53L;
+            k ^= k >>> 33;
+            return k;
+        }
+    }
+}
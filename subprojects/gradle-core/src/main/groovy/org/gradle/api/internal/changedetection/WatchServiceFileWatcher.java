@@ -0,0 +1,393 @@
+/*
+ * Copyright 2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.api.Action;
+import org.gradle.api.GradleException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link FileWatcher} which uses the {@code java.nio.file.WatchService} provided by Java 7 and later. The API is
+ * accessed reflectively, so that this class can be loaded by earlier JVMs. Only the Linux implementation of the API
+ * is used. Where it is not available, no directories are watched.
+ *
+ * <p>Events are delivered asynchronously by the watch service. To make sure that every change made before {@link
+ * #processChanges(org.gradle.api.Action)} is called has been reported, this method creates a marker file in a private
+ * directory which is also watched, and then processes events until the event for the marker file is received. The
+ * Linux implementation reads the events for all watched directories from a single inotify queue, in order, and
+ * signals the key of each directory as it goes. So once the marker event has been received, the key of every directory
+ * with an earlier change has been signalled, and all signalled keys are processed before returning. Other
+ * implementations watch each directory separately and make no such ordering guarantee. If the marker event is not
+ * received in time, or events have been lost, every watched directory is reported as changed.</p>
+ */
+public class WatchServiceFileWatcher implements FileWatcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WatchServiceFileWatcher.class);
+    static final long SYNC_TIMEOUT_MILLIS = 10000;
+    private final Map<File, Object> keysByDir = new HashMap<File, Object>();
+    private final Map<Object, File> dirsByKey = new HashMap<Object, File>();
+    private final long syncTimeout;
+    private boolean unavailable;
+    private Nio nio;
+    private Object watchService;
+    private File syncDir;
+    private Object syncKey;
+    private int syncCount;
+
+    public WatchServiceFileWatcher() {
+        this(SYNC_TIMEOUT_MILLIS);
+    }
+
+    WatchServiceFileWatcher(long syncTimeout) {
+        this.syncTimeout = syncTimeout;
+    }
+
+    /**
+     * Returns true if this watcher is able to watch directories. Starts the watch service if required.
+     */
+    public synchronized boolean isAvailable() {
+        if (unavailable) {
+            return false;
+        }
+        if (watchService != null) {
+            return true;
+        }
+
+        nio = Nio.load();
+        if (nio == null) {
+            LOGGER.debug("File system watch service is not available in this JVM.");
+            unavailable = true;
+            return false;
+        }
+        try {
+            watchService = nio.newWatchService();
+            if (!watchService.getClass().getName().contains("Linux")) {
+                LOGGER.debug("File system watch service {} does not order events across directories. Not using it.",
+                        watchService.getClass().getName());
+                nio.close(watchService);
+                watchService = null;
+                unavailable = true;
+                return false;
+            }
+            syncDir = File.createTempFile("gradle", "watch");
+            if (!syncDir.delete() || !syncDir.mkdir()) {
+                throw new IOException(String.format("Could not create directory %s.", syncDir));
+            }
+            syncKey = nio.register(syncDir, watchService);
+            return true;
+        } catch (IOException e) {
+            LOGGER.debug("Could not start file system watch service.", e);
+            stop();
+            unavailable = true;
+            return false;
+        }
+    }
+
+    public synchronized boolean watch(File dir) {
+        if (keysByDir.containsKey(dir)) {
+            return true;
+        }
+        if (!isAvailable()) {
+            return false;
+        }
+        try {
+            Object key = nio.register(dir, watchService);
+            if (dirsByKey.containsKey(key)) {
+                // The same directory under a different path. Don't watch it, as it can't be unwatched independently
+                return false;
+            }
+            keysByDir.put(dir, key);
+            dirsByKey.put(key, dir);
+            return true;
+        } catch (IOException e) {
+            LOGGER.debug(String.format("Could not watch directory %s.", dir), e);
+            return false;
+        }
+    }
+
+    public synchronized void processChanges(Action<File> handler) {
+        if (keysByDir.isEmpty()) {
+            return;
+        }
+        boolean synced;
+        try {
+            synced = sync(handler);
+        } catch (IOException e) {
+            LOGGER.debug("Could not process file system changes.", e);
+            synced = false;
+        }
+        if (!synced) {
+            LOGGER.debug("Could not determine file system changes. Assuming all watched directories have changed.");
+            for (File dir : new ArrayList<File>(keysByDir.keySet())) {
+                unwatch(dir, handler);
+            }
+        }
+    }
+
+    private boolean sync(Action<File> handler) throws IOException {
+        File marker = new File(syncDir, String.valueOf(++syncCount));
+        if (!marker.createNewFile()) {
+            return false;
+        }
+        try {
+            long deadline = System.currentTimeMillis() + syncTimeout;
+            while (true) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                Object key = nio.poll(watchService, remaining);
+                if (key == null) {
+                    return false;
+                }
+                if (key == syncKey) {
+                    boolean found = false;
+                    for (Object event : nio.pollEvents(key)) {
+                        Object kind = nio.kind(event);
+                        if (kind == nio.overflow) {
+                            return false;
+                        }
+                        if (kind == nio.entryCreate && marker.getName().equals(nio.context(event).toString())) {
+                            found = true;
+                        }
+                    }
+                    if (!nio.reset(key)) {
+                        return false;
+                    }
+                    if (found) {
+                        return processSignalledKeys(handler, deadline);
+                    }
+                } else {
+                    processEvents(key, handler);
+                }
+            }
+        } finally {
+            marker.delete();
+        }
+    }
+
+    /**
+     * Processes the keys which have already been signalled, without waiting for more.
+     */
+    private boolean processSignalledKeys(Action<File> handler, long deadline) throws IOException {
+        for (Object key = nio.poll(watchService, 0); key != null; key = nio.poll(watchService, 0)) {
+            if (System.currentTimeMillis() > deadline) {
+                // Directories are changing faster than the changes can be processed
+                return false;
+            }
+            if (key == syncKey) {
+                // Only events for earlier markers
+                for (Object event : nio.pollEvents(key)) {
+                    if (nio.kind(event) == nio.overflow) {
+                        return false;
+                    }
+                }
+                if (!nio.reset(key)) {
+                    return false;
+                }
+            } else {
+                processEvents(key, handler);
+            }
+        }
+        return true;
+    }
+
+    private void processEvents(Object key, Action<File> handler) {
+        File dir = dirsByKey.get(key);
+        if (dir == null) {
+            // No longer watched
+            nio.pollEvents(key);
+            return;
+        }
+        for (Object event : nio.pollEvents(key)) {
+            if (nio.kind(event) == nio.overflow) {
+                unwatch(dir, handler);
+                return;
+            }
+            handler.execute(new File(dir, nio.context(event).toString()));
+        }
+        if (!nio.reset(key)) {
+            unwatch(dir, handler);
+        }
+    }
+
+    private void unwatch(File dir, Action<File> handler) {
+        Object key = keysByDir.remove(dir);
+        dirsByKey.remove(key);
+        nio.cancel(key);
+        handler.execute(dir);
+    }
+
+    public synchronized void stop() {
+        try {
+            for (Object key : dirsByKey.keySet()) {
+                nio.cancel(key);
+            }
+            if (watchService != null) {
+                nio.close(watchService);
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Could not stop file system watch service.", e);
+        } finally {
+            keysByDir.clear();
+            dirsByKey.clear();
+            watchService = null;
+            syncKey = null;
+            if (syncDir != null) {
+                File[] files = syncDir.listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        file.delete();
+                    }
+                }
+                syncDir.delete();
+                syncDir = null;
+            }
+        }
+    }
+
+    /**
+     * Reflective access to the parts of the {@code java.nio.file} API used by this watcher.
+     */
+    private static class Nio {
+        private Method getDefaultFileSystem;
+        private Method newWatchService;
+        private Method toPath;
+        private Method register;
+        private Method poll;
+        private Method close;
+        private Method pollEvents;
+        private Method reset;
+        private Method cancel;
+        private Method kind;
+        private Method context;
+        private Object kinds;
+        private Object entryCreate;
+        private Object overflow;
+
+        static Nio load() {
+            try {
+                Nio nio = new Nio();
+                Class<?> fileSystemsClass = Class.forName("java.nio.file.FileSystems");
+                Class<?> fileSystemClass = Class.forName("java.nio.file.FileSystem");
+                Class<?> pathClass = Class.forName("java.nio.file.Path");
+                Class<?> watchServiceClass = Class.forName("java.nio.file.WatchService");
+                Class<?> watchKeyClass = Class.forName("java.nio.file.WatchKey");
+                Class<?> watchEventClass = Class.forName("java.nio.file.WatchEvent");
+                Class<?> kindClass = Class.forName("java.nio.file.WatchEvent$Kind");
+                Class<?> kindsClass = Class.forName("java.nio.file.StandardWatchEventKinds");
+
+                nio.getDefaultFileSystem = fileSystemsClass.getMethod("getDefault");
+                nio.newWatchService = fileSystemClass.getMethod("newWatchService");
+                nio.toPath = File.class.getMethod("toPath");
+                nio.register = pathClass.getMethod("register", watchServiceClass, Array.newInstance(kindClass, 0).getClass());
+                nio.poll = watchServiceClass.getMethod("poll", long.class, TimeUnit.class);
+                nio.close = watchServiceClass.getMethod("close");
+                nio.pollEvents = watchKeyClass.getMethod("pollEvents");
+                nio.reset = watchKeyClass.getMethod("reset");
+                nio.cancel = watchKeyClass.getMethod("cancel");
+                nio.kind = watchEventClass.getMethod("kind");
+                nio.context = watchEventClass.getMethod("context");
+
+                nio.entryCreate = kindsClass.getField("ENTRY_CREATE").get(null);
+                nio.overflow = kindsClass.getField("OVERFLOW").get(null);
+                nio.kinds = Array.newInstance(kindClass, 3);
+                Array.set(nio.kinds, 0, nio.entryCreate);
+                Array.set(nio.kinds, 1, kindsClass.getField("ENTRY_DELETE").get(null));
+                Array.set(nio.kinds, 2, kindsClass.getField("ENTRY_MODIFY").get(null));
+                return nio;
+            } catch (Exception e) {
+                return null;
+            }
+        }
+
+        Object newWatchService() throws IOException {
+            return invoke(newWatchService, invoke(getDefaultFileSystem, null));
+        }
+
+        Object register(File dir, Object watchService) throws IOException {
+            return invoke(register, invoke(toPath, dir), watchService, kinds);
+        }
+
+        Object poll(Object watchService, long timeoutMillis) throws IOException {
+            return invoke(poll, watchService, timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+
+        void close(Object watchService) throws IOException {
+            invoke(close, watchService);
+        }
+
+        List<?> pollEvents(Object key) {
+            return (List<?>) invokeUnchecked(pollEvents, key);
+        }
+
+        boolean reset(Object key) {
+            return (Boolean) invokeUnchecked(reset, key);
+        }
+
+        void cancel(Object key) {
+            invokeUnchecked(cancel, key);
+        }
+
+        Object kind(Object event) {
+            return invokeUnchecked(kind, event);
+        }
+
+        Object context(Object event) {
+            return invokeUnchecked(context, event);
+        }
+
+        private static Object invokeUnchecked(Method method, Object target, Object... args) {
+            try {
+                return invoke(method, target, args);
+            } catch (IOException e) {
+                throw new GradleException(e);
+            }
+        }
+
+        private static Object invoke(Method method, Object target, Object... args) throws IOException {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for file system changes.");
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new GradleException(cause);
+            } catch (IllegalAccessException e) {
+                throw new GradleException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.api.Action;
+
+import java.io.File;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * An in-memory cache of values calculated from files, which uses a {@link FileWatcher} to discard the value for a
+ * file when the file changes. A value is only retained for a file whose parent directory is being watched.
+ *
+ * <p>A value may only be added when no changes have been processed since the value was calculated. To calculate a
+ * value, first call {@link #refresh()} to process pending changes, then call {@link #watch(java.io.File)} for the
+ * file before inspecting it, and finally add the value using {@link #put(java.io.File, Object, long)}, passing in the
+ * token returned by {@code refresh()}.</p>
+ *
+ * <p>This class is intended to be shared by all builds which run in the same JVM.</p>
+ */
+public class WatchedFileCache<T> {
+    private final FileWatcher watcher;
+    private final TreeMap<String, T> values = new TreeMap<String, T>();
+    private long changeCount;
+
+    public WatchedFileCache(FileWatcher watcher) {
+        this.watcher = watcher;
+    }
+
+    /**
+     * Discards the values for files which have changed.
+     *
+     * @return A token to pass to {@link #put(java.io.File, Object, long)}.
+     */
+    public synchronized long refresh() {
+        watcher.processChanges(new Action<File>() {
+            public void execute(File file) {
+                discard(file);
+            }
+        });
+        return changeCount;
+    }
+
+    /**
+     * Starts watching the given file.
+     *
+     * @return true if a value may be retained for the file.
+     */
+    public synchronized boolean watch(File file) {
+        File parent = file.getAbsoluteFile().getParentFile();
+        return parent != null && watcher.watch(parent);
+    }
+
+    /**
+     * Returns the value for the given file, or null if there is no value for the file.
+     */
+    public synchronized T get(File file) {
+        return values.get(file.getAbsolutePath());
+    }
+
+    /**
+     * Adds the value for the given file. Does nothing if changes have been processed since the given token was
+     * returned by {@link #refresh()}.
+     */
+    public synchronized void put(File file, T value, long token) {
+        if (token == changeCount) {
+            values.put(file.getAbsolutePath(), value);
+        }
+    }
+
+    /**
+     * Discards all values and stops watching for changes.
+     */
+    public synchronized void stop() {
+        try {
+            watcher.stop();
+        } finally {
+            values.clear();
+        }
+    }
+
+    private void discard(File file) {
+        changeCount++;
+        String path = file.getAbsolutePath();
+        values.remove(path);
+        SortedMap<String, T> children = values.subMap(path + File.separatorChar, path + (char) (File.separatorChar + 1));
+        children.clear();
+    }
+}
@@ -21,6 +21,8 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A hierarchical {@link ServiceRegistry} implementation. Subclasses can register services by:
@@ -39,11 +41,21 @@ import java.util.ArrayList;
  *
  * <p>Service instances are created on demand. If a service of a given type cannot be located, the registry uses its
  * parent registry, if any, to locate the service.</p>
+ *
+ * <p>The service which provides a given type is located once, and is then remembered for later lookups of that type.
+ * Services may be located from multiple threads.</p>
  */
 public class DefaultServiceRegistry implements ServiceRegistry {
+    private static final Service NO_SERVICE = new Service(Void.class) {
+        @Override
+        protected Object create() {
+            throw new UnsupportedOperationException();
+        }
+    };
     private final List<Service> services = new ArrayList<Service>();
+    private final Map<Class<?>, Service> servicesByType = new ConcurrentHashMap<Class<?>, Service>();
     private final ServiceRegistry parent;
-    private boolean closed;
+    private volatile boolean closed;
 
     public DefaultServiceRegistry() {
         this(null);
@@ -82,7 +94,10 @@ public class DefaultServiceRegistry implements ServiceRegistry {
     }
 
     protected void add(Service service) {
-        services.add(0, service);
+        synchronized (services) {
+            services.add(0, service);
+            servicesByType.clear();
+        }
     }
 
     public <T> void add(Class<T> serviceType, final T serviceInstance) {
@@ -94,29 +109,47 @@ public class DefaultServiceRegistry implements ServiceRegistry {
      * method is called to close the service.
      */
     public void close() {
-        try {
-            for (Service service : services) {
-                service.close();
+        synchronized (services) {
+            try {
+                for (Service service : services) {
+                    service.close();
+                }
+            } finally {
+                closed = true;
+                services.clear();
+                servicesByType.clear();
             }
-        } finally {
-            closed = true;
-            services.clear();
         }
     }
 
     public <T> T get(Class<T> serviceType) throws IllegalArgumentException {
+        T t = find(serviceType);
+        if (t == null) {
+            throw new UnknownServiceException(serviceType, String.format("No service of type %s available in %s.",
+                    serviceType.getSimpleName(), this));
+        }
+        return t;
+    }
+
+    /**
+     * Locates the service of the given type in this registry or its parents.
+     *
+     * @return The service, or null if no service of the given type is available.
+     */
+    private <T> T find(Class<T> serviceType) {
         if (closed) {
             throw new IllegalStateException(String.format("Cannot locate service of type %s, as %s has been closed.",
                     serviceType.getSimpleName(), this));
         }
 
-        for (Service service : services) {
-            T t = service.getService(serviceType);
-            if (t != null) {
-                return t;
-            }
+        Service service = getServiceFor(serviceType);
+        if (service != null) {
+            return service.getService(serviceType);
         }
 
+        if (parent instanceof DefaultServiceRegistry) {
+            return ((DefaultServiceRegistry) parent).find(serviceType);
+        }
         if (parent != null) {
             try {
                 return parent.get(serviceType);
@@ -127,9 +160,24 @@ public class DefaultServiceRegistry implements ServiceRegistry {
                 // Ignore
             }
         }
+        return null;
+    }
 
-        throw new UnknownServiceException(serviceType, String.format("No service of type %s available in %s.",
-                serviceType.getSimpleName(), this));
+    private Service getServiceFor(Class<?> serviceType) {
+        Service service = servicesByType.get(serviceType);
+        if (service == null) {
+            synchronized (services) {
+                service = NO_SERVICE;
+                for (Service candidate : services) {
+                    if (candidate.creates(serviceType)) {
+                        service = candidate;
+                        break;
+                    }
+                }
+                servicesByType.put(serviceType, service);
+            }
+        }
+        return service == NO_SERVICE ? null : service;
     }
 
     private static Object invoke(Method method, Object target, Object... args) {
@@ -147,7 +195,7 @@ public class DefaultServiceRegistry implements ServiceRegistry {
 
     protected static abstract class Service {
         final Class<?> serviceType;
-        Object service;
+        volatile Object service;
 
         Service(Class<?> serviceType) {
             this.serviceType = serviceType;
@@ -162,8 +210,12 @@ public class DefaultServiceRegistry implements ServiceRegistry {
                 return null;
             }
             if (service == null) {
-                service = create();
-                assert service != null;
+                synchronized (this) {
+                    if (service == null) {
+                        service = create();
+                        assert service != null;
+                    }
+                }
             }
             return serviceType.cast(service);
         }
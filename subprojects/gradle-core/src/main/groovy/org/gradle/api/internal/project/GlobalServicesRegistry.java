@@ -17,8 +17,11 @@ package org.gradle.api.internal.project;
 
 import org.gradle.api.internal.ClassPathRegistry;
 import org.gradle.api.internal.DefaultClassPathRegistry;
+import org.gradle.api.internal.changedetection.WatchServiceFileWatcher;
+import org.gradle.api.internal.changedetection.WatchedFileCache;
 import org.gradle.cache.CacheFactory;
 import org.gradle.cache.DefaultCacheFactory;
+import org.gradle.groovy.scripts.ScriptClassCache;
 import org.gradle.initialization.*;
 
 /**
@@ -31,4 +34,12 @@ public class GlobalServicesRegistry extends DefaultServiceRegistry {
         add(ClassPathRegistry.class, new DefaultClassPathRegistry());
         add(ClassLoaderFactory.class, new DefaultClassLoaderFactory(get(ClassPathRegistry.class)));
     }
+
+    protected WatchedFileCache<Object> createWatchedFileCache() {
+        return new WatchedFileCache<Object>(new WatchServiceFileWatcher());
+    }
+
+    protected ScriptClassCache createScriptClassCache() {
+        return new ScriptClassCache(get(ClassLoaderFactory.class).getRootClassLoader());
+    }
 }
@@ -23,8 +23,12 @@ import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.PublishModul
 import org.gradle.api.internal.artifacts.repositories.DefaultInternalRepository;
 import org.gradle.api.internal.plugins.DefaultPluginRegistry;
 import org.gradle.api.internal.plugins.PluginRegistry;
+import org.gradle.cache.CacheRepository;
 import org.gradle.execution.DefaultTaskGraphExecuter;
+import org.gradle.execution.ExecutionPlanCache;
+import org.gradle.execution.PersistentExecutionPlanCache;
 import org.gradle.execution.TaskGraphExecuter;
+import org.gradle.initialization.ClassLoaderFactory;
 import org.gradle.listener.ListenerManager;
 
 /**
@@ -51,7 +55,16 @@ public class GradleInternalServiceRegistry extends DefaultServiceRegistry implem
     }
 
     protected TaskGraphExecuter createTaskGraphExecuter() {
-        return new DefaultTaskGraphExecuter(get(ListenerManager.class));
+        ExecutionPlanCache planCache = null;
+        if (gradle.getStartParameter().isCacheTaskGraph()) {
+            PersistentExecutionPlanCache persistentPlanCache = new PersistentExecutionPlanCache(gradle,
+                    get(CacheRepository.class), get(ClassLoaderFactory.class).getRootClassLoader());
+            // Collects the scripts executed by the build, so must be registered before any script runs
+            get(ListenerManager.class).addListener(persistentPlanCache);
+            planCache = persistentPlanCache;
+        }
+        return new DefaultTaskGraphExecuter(get(ListenerManager.class),
+                gradle.getStartParameter().getParallelThreadCount(), planCache);
     }
 
     protected PluginRegistry createPluginRegistry() {
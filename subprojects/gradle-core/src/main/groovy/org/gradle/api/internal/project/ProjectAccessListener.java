@@ -0,0 +1,29 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.project;
+
+import org.gradle.api.Project;
+
+/**
+ * Receives notification before the model of a project is accessed from outside that project, for example when a task
+ * path or a project dependency is resolved. This allows a project to be configured lazily.
+ */
+public interface ProjectAccessListener {
+    /**
+     * Called before the model of the given project is accessed.
+     */
+    void beforeAccess(Project project);
+}
@@ -92,7 +92,7 @@ public class ProjectInternalServiceRegistry extends DefaultServiceRegistry imple
     }
 
     protected TaskContainerInternal createTaskContainerInternal() {
-        return new DefaultTaskContainer(project, get(ITaskFactory.class));
+        return new DefaultTaskContainer(project, get(ITaskFactory.class), get(ProjectAccessListener.class));
     }
 
     protected Convention createConvention() {
@@ -19,6 +19,7 @@ package org.gradle.api.internal.project;
 import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
 import org.apache.ivy.plugins.resolver.ChainResolver;
 import org.gradle.StartParameter;
+import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.Project;
 import org.gradle.api.artifacts.Module;
 import org.gradle.api.artifacts.dsl.RepositoryHandlerFactory;
@@ -69,6 +70,11 @@ import java.util.Map;
  * invocation.
  */
 public class TopLevelBuildServiceRegistry extends DefaultServiceRegistry implements ServiceRegistryFactory {
+    /**
+     * The system property which selects the algorithm used to hash files, either {@code murmur3} (the default) or
+     * {@code md5}.
+     */
+    public static final String HASH_ALGORITHM_PROPERTY = "org.gradle.hashAlgorithm";
     private final StartParameter startParameter;
     private final Map<String, ModuleDescriptor> clientModuleRegistry = new HashMap<String, ModuleDescriptor>();
 
@@ -166,6 +172,10 @@ public class TopLevelBuildServiceRegistry extends DefaultServiceRegistry impleme
                 new DefaultArtifactsToModuleDescriptorConverter(DefaultArtifactsToModuleDescriptorConverter.RESOLVE_STRATEGY));
     }
 
+    protected ParallelArtifactDownloader createParallelArtifactDownloader() {
+        return new ParallelArtifactDownloader();
+    }
+
     protected ConfigurationContainerFactory createConfigurationContainerFactory() {
         // todo this creation is duplicate. When we improve our service registry to allow multiple instances for same type
         // we should consolidate.
@@ -178,6 +188,7 @@ public class TopLevelBuildServiceRegistry extends DefaultServiceRegistry impleme
                         ProjectDependencyDescriptorFactory.RESOLVE_MODULE_REVISION_ID_STRATEGY),
                 get(ExternalModuleDependencyDescriptorFactory.class));
         clientModuleDescriptorFactory.setDependencyDescriptorFactory(dependencyDescriptorFactoryDelegate);
+        ParallelArtifactDownloader artifactDownloader = get(ParallelArtifactDownloader.class);
 
         return new DefaultConfigurationContainerFactory(clientModuleRegistry,
                 new DefaultSettingsConverter(),
@@ -186,8 +197,12 @@ public class TopLevelBuildServiceRegistry extends DefaultServiceRegistry impleme
                 get(IvyFileConverter.class),
                 new DefaultIvyFactory(),
                 new SelfResolvingDependencyResolver(
-                        new DefaultIvyDependencyResolver(
-                                new DefaultIvyReportConverter(dependencyDescriptorFactoryDelegate))),
+                        new CachingIvyDependencyResolver(
+                                new DefaultIvyDependencyResolver(
+                                        new DefaultIvyReportConverter(dependencyDescriptorFactoryDelegate),
+                                        artifactDownloader),
+                                get(CacheRepository.class),
+                                artifactDownloader)),
                 new DefaultIvyDependencyPublisher(new DefaultPublishOptionsFactory()),
                 get(ClassGenerator.class));
     }
@@ -208,13 +223,22 @@ public class TopLevelBuildServiceRegistry extends DefaultServiceRegistry impleme
                         classGenerator),
                 new DefaultProjectDependencyFactory(
                         startParameter.getProjectDependenciesBuildInstruction(),
-                        classGenerator));
+                        classGenerator,
+                        get(ProjectAccessListener.class)));
+    }
+
+    protected ProjectAccessListener createProjectAccessListener() {
+        return new ProjectAccessListener() {
+            public void beforeAccess(Project project) {
+            }
+        };
     }
 
     protected ProjectEvaluator createProjectEvaluator() {
         return new DefaultProjectEvaluator(
                 new BuildScriptProcessor(
-                        get(ScriptPluginFactory.class)));
+                        get(ScriptPluginFactory.class),
+                        Runtime.getRuntime().availableProcessors()));
     }
 
     protected ITaskFactory createITaskFactory() {
@@ -224,15 +248,43 @@ public class TopLevelBuildServiceRegistry extends DefaultServiceRegistry impleme
                                 get(ClassGenerator.class))));
     }
 
+    protected Hasher createHasher() {
+        return new CachingHasher(
+                createFileHasher(System.getProperty(HASH_ALGORITHM_PROPERTY, "murmur3")),
+                get(CacheRepository.class));
+    }
+
+    private Hasher createFileHasher(String algorithm) {
+        if (algorithm.equalsIgnoreCase("murmur3")) {
+            return new Murmur3Hasher();
+        }
+        if (algorithm.equalsIgnoreCase("md5")) {
+            return new DefaultHasher();
+        }
+        throw new InvalidUserDataException(String.format(
+                "Unknown file hash algorithm '%s' specified by system property '%s'. Use 'murmur3' or 'md5'.",
+                algorithm, HASH_ALGORITHM_PROPERTY));
+    }
+
+    protected BoundedExecutor createBoundedExecutor() {
+        return new BoundedExecutor("Build Worker", Runtime.getRuntime().availableProcessors());
+    }
+
+    @SuppressWarnings("unchecked")
+    protected FileSnapshotter createFileSnapshotter() {
+        WatchedFileCache<Object> retainedSnapshots = startParameter.isWatchFileSystem() ? get(WatchedFileCache.class) : null;
+        return new DefaultFileSnapshotter(
+                get(Hasher.class),
+                get(BoundedExecutor.class),
+                retainedSnapshots);
+    }
+
     protected TaskArtifactStateRepository createTaskArtifactStateRepository() {
         return new ShortCircuitTaskArtifactStateRepository(
                 startParameter,
                 new DefaultTaskArtifactStateRepository(
                         get(CacheRepository.class),
-                        new DefaultFileSnapshotter(
-                                new CachingHasher(
-                                    new DefaultHasher(),
-                                    get(CacheRepository.class)))));
+                        get(FileSnapshotter.class)));
     }
 
     protected ScriptCompilerFactory createScriptCompileFactory() {
@@ -240,7 +292,8 @@ public class TopLevelBuildServiceRegistry extends DefaultServiceRegistry impleme
         return new DefaultScriptCompilerFactory(
                 new DefaultScriptCompilationHandler(), new DefaultScriptRunnerFactory(
                         scriptExecutionListener),
-                get(CacheRepository.class));
+                get(CacheRepository.class),
+                get(ScriptClassCache.class));
     }
 
     protected ScriptPluginFactory createScriptObjectConfigurerFactory() {
@@ -306,8 +359,10 @@ public class TopLevelBuildServiceRegistry extends DefaultServiceRegistry impleme
     }
 
     private class DependencyMetaDataProviderImpl implements DependencyMetaDataProvider {
+        private final InternalRepository internalRepository = new EmptyInternalRepository();
+
         public InternalRepository getInternalRepository() {
-            return new EmptyInternalRepository();
+            return internalRepository;
         }
 
         public File getGradleUserHomeDir() {
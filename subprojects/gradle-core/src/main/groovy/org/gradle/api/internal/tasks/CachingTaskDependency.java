@@ -0,0 +1,155 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks;
+
+import org.gradle.api.Task;
+import org.gradle.api.tasks.TaskDependency;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link TaskDependency} which resolves its delegate at most once within a call to {@link #cacheDuring(Runnable)}.
+ * This is used while the task graph is built, when the model is not expected to change, so that the dependencies of a
+ * configuration which many tasks depend on are resolved once rather than once for each task. Outside of {@link
+ * #cacheDuring(Runnable)}, the delegate is resolved each time.
+ *
+ * <p>The result is shared by all requesting tasks only if the requesting task was not handed to anything which could
+ * use it while the delegate was resolved, such as a closure. Otherwise the result is cached for the requesting task
+ * only. See {@link #requestingTaskUsed()}.</p>
+ */
+public class CachingTaskDependency implements TaskDependency {
+    private static final ThreadLocal<Cache> CACHE = new ThreadLocal<Cache>();
+    private final Object owner;
+    private final Object kind;
+    private final TaskDependency delegate;
+
+    /**
+     * Creates a dependency whose result is cached for the given owner object and kind of dependency. The owner is
+     * compared by identity, the kind by equality.
+     */
+    public CachingTaskDependency(Object owner, Object kind, TaskDependency delegate) {
+        this.owner = owner;
+        this.kind = kind;
+        this.delegate = delegate;
+    }
+
+    public Set<? extends Task> getDependencies(Task task) {
+        Cache cache = CACHE.get();
+        if (cache == null) {
+            return delegate.getDependencies(task);
+        }
+        Set<? extends Task> dependencies = cache.results.get(new Key(owner, kind, null));
+        if (dependencies != null) {
+            return dependencies;
+        }
+        Key taskKey = new Key(owner, kind, task);
+        dependencies = cache.results.get(taskKey);
+        if (dependencies != null) {
+            cache.requestingTaskUsed();
+            return dependencies;
+        }
+
+        Resolution resolution = new Resolution();
+        cache.resolutions.addFirst(resolution);
+        try {
+            dependencies = Collections.unmodifiableSet(new HashSet<Task>(delegate.getDependencies(task)));
+        } finally {
+            cache.resolutions.removeFirst();
+        }
+        if (resolution.usesRequestingTask) {
+            cache.results.put(taskKey, dependencies);
+            cache.requestingTaskUsed();
+        } else {
+            cache.results.put(new Key(owner, kind, null), dependencies);
+        }
+        return dependencies;
+    }
+
+    /**
+     * Records that the dependencies currently being resolved may depend on the requesting task, so must not be shared
+     * with other tasks. Does nothing when caching is not enabled.
+     */
+    public static void requestingTaskUsed() {
+        Cache cache = CACHE.get();
+        if (cache != null) {
+            cache.requestingTaskUsed();
+        }
+    }
+
+    /**
+     * Runs the given action with caching enabled for the current thread. Nested calls share the cache of the outermost
+     * call.
+     */
+    public static void cacheDuring(Runnable action) {
+        if (CACHE.get() != null) {
+            action.run();
+            return;
+        }
+        CACHE.set(new Cache());
+        try {
+            action.run();
+        } finally {
+            CACHE.remove();
+        }
+    }
+
+    private static class Cache {
+        private final Map<Key, Set<? extends Task>> results = new HashMap<Key, Set<? extends Task>>();
+        private final LinkedList<Resolution> resolutions = new LinkedList<Resolution>();
+
+        private void requestingTaskUsed() {
+            // The enclosing resolutions are marked when the current one completes
+            if (!resolutions.isEmpty()) {
+                resolutions.getFirst().usesRequestingTask = true;
+            }
+        }
+    }
+
+    private static class Resolution {
+        private boolean usesRequestingTask;
+    }
+
+    private static class Key {
+        private final Object owner;
+        private final Object kind;
+        private final Task task;
+
+        private Key(Object owner, Object kind, Task task) {
+            this.owner = owner;
+            this.kind = kind;
+            this.task = task;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return owner == other.owner && kind.equals(other.kind) && task == other.task;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(owner) ^ kind.hashCode() ^ System.identityHashCode(task);
+        }
+    }
+}
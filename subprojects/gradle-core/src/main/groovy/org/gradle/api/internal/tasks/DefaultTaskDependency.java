@@ -49,14 +49,15 @@ public class DefaultTaskDependency implements TaskDependency {
             Object dependency = queue.removeFirst();
             if (dependency instanceof Buildable) {
                 Buildable buildable = (Buildable) dependency;
-                result.addAll(buildable.getBuildDependencies().getDependencies(task));
+                result.addAll(getDependencies(buildable.getBuildDependencies(), task));
             }
             else if (dependency instanceof Task) {
                 result.add((Task) dependency);
             } else if (dependency instanceof TaskDependency) {
-                result.addAll(((TaskDependency) dependency).getDependencies(task));
+                result.addAll(getDependencies((TaskDependency) dependency, task));
             } else if (dependency instanceof Closure) {
                 Closure closure = (Closure) dependency;
+                CachingTaskDependency.requestingTaskUsed();
                 Object closureResult = closure.call(task);
                 if (closureResult != null) {
                     queue.add(0, closureResult);
@@ -88,6 +89,14 @@ public class DefaultTaskDependency implements TaskDependency {
         return result;
     }
 
+    private Set<? extends Task> getDependencies(TaskDependency dependency, Task task) {
+        if (!(dependency instanceof DefaultTaskDependency) && !(dependency instanceof CachingTaskDependency)) {
+            // Other implementations may use the requesting task
+            CachingTaskDependency.requestingTaskUsed();
+        }
+        return dependency.getDependencies(task);
+    }
+
     public Set<Object> getValues() {
         return values;
     }
@@ -30,8 +30,8 @@ public class AutoCloseCacheFactory implements CacheFactory {
         this.cacheFactory = cacheFactory;
     }
 
-    public PersistentCache open(File cacheDir, CacheUsage usage, Map<String, ?> properties) {
-        PersistentCache cache = cacheFactory.open(cacheDir, usage, properties);
+    public synchronized PersistentCache open(File cacheDir, CacheUsage usage, Map<String, ?> properties, boolean memoryMappedIndex) {
+        PersistentCache cache = cacheFactory.open(cacheDir, usage, properties, memoryMappedIndex);
         openCaches.add(cache);
         return cache;
     }
@@ -40,7 +40,7 @@ public class AutoCloseCacheFactory implements CacheFactory {
         throw new UnsupportedOperationException();
     }
 
-    public void close() {
+    public synchronized void close() {
         try {
             for (PersistentCache cache : openCaches) {
                 cacheFactory.close(cache);
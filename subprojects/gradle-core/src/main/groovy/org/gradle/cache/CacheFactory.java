@@ -21,7 +21,7 @@ import java.io.File;
 import java.util.Map;
 
 public interface CacheFactory {
-    PersistentCache open(File cacheDir, CacheUsage usage, Map<String, ?> properties);
+    PersistentCache open(File cacheDir, CacheUsage usage, Map<String, ?> properties, boolean memoryMappedIndex);
 
     void close(PersistentCache cache);
 }
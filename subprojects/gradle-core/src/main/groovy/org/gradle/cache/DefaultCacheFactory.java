@@ -26,15 +26,15 @@ public class DefaultCacheFactory implements CacheFactory {
     private final Map<File, DefaultPersistentDirectoryCache> openCaches
             = new HashMap<File, DefaultPersistentDirectoryCache>();
     
-    public PersistentCache open(File cacheDir, CacheUsage usage, Map<String, ?> properties) {
+    public synchronized PersistentCache open(File cacheDir, CacheUsage usage, Map<String, ?> properties, boolean memoryMappedIndex) {
         File canonicalDir = GFileUtils.canonicalise(cacheDir);
         DefaultPersistentDirectoryCache cache = openCaches.get(canonicalDir);
         if (cache == null) {
-            cache = new DefaultPersistentDirectoryCache(canonicalDir, usage, properties);
+            cache = new DefaultPersistentDirectoryCache(canonicalDir, usage, properties, memoryMappedIndex);
             openCaches.put(canonicalDir, cache);
         }
         else {
-            if (!properties.equals(cache.getProperties())) {
+            if (!properties.equals(cache.getProperties()) || memoryMappedIndex != cache.isMemoryMappedIndex()) {
                 throw new UnsupportedOperationException(String.format(
                         "Cache '%s' is already open with different state.", cacheDir));
             }
@@ -42,7 +42,7 @@ public class DefaultCacheFactory implements CacheFactory {
         return cache;
     }
 
-    public void close(PersistentCache cache) {
+    public synchronized void close(PersistentCache cache) {
         openCaches.values().remove(cache);
         ((DefaultPersistentDirectoryCache) cache).close();
     }
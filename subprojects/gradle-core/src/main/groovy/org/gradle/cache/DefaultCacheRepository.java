@@ -46,6 +46,7 @@ public class DefaultCacheRepository implements CacheRepository {
         private Map<String, ?> properties = Collections.emptyMap();
         private Object target;
         private boolean invalidateOnVersionChange;
+        private boolean memoryMappedIndex;
 
         private PersistentCacheBuilder(String key) {
             this.key = key;
@@ -66,6 +67,11 @@ public class DefaultCacheRepository implements CacheRepository {
             return this;
         }
 
+        public CacheBuilder withMemoryMappedIndex() {
+            memoryMappedIndex = true;
+            return this;
+        }
+
         public PersistentCache open() {
             File cacheBaseDir;
             Map<String, Object> properties = new HashMap<String, Object>(this.properties);
@@ -86,7 +92,7 @@ public class DefaultCacheRepository implements CacheRepository {
             } else {
                 cacheBaseDir = new File(cacheBaseDir, version.getVersion());
             }
-            return factory.open(new File(cacheBaseDir, key), cacheUsage, properties);
+            return factory.open(new File(cacheBaseDir, key), cacheUsage, properties, memoryMappedIndex);
         }
     }
 }
@@ -28,12 +28,19 @@ public class DefaultPersistentDirectoryCache implements PersistentCache {
     private final File dir;
     private final File propertiesFile;
     private final Properties properties = new Properties();
+    private final boolean memoryMappedIndex;
     private boolean valid;
     private BTreePersistentIndexedCache indexedCache;
     private SimpleStateCache stateCache;
 
     public DefaultPersistentDirectoryCache(File dir, CacheUsage cacheUsage, Map<String, ?> properties) {
+        this(dir, cacheUsage, properties, false);
+    }
+
+    public DefaultPersistentDirectoryCache(File dir, CacheUsage cacheUsage, Map<String, ?> properties,
+                                           boolean memoryMappedIndex) {
         this.dir = dir;
+        this.memoryMappedIndex = memoryMappedIndex;
         propertiesFile = new File(dir, "cache.properties");
         this.properties.putAll(properties);
         determineIfCacheIsValid(cacheUsage, properties);
@@ -76,7 +83,7 @@ public class DefaultPersistentDirectoryCache implements PersistentCache {
 
     public <K, V> BTreePersistentIndexedCache<K, V> openIndexedCache(Serializer<V> serializer) {
         if (indexedCache == null) {
-            indexedCache = new BTreePersistentIndexedCache<K,V>(this, serializer);
+            indexedCache = new BTreePersistentIndexedCache<K,V>(this, serializer, true, memoryMappedIndex);
         }
         return indexedCache;
     }
@@ -85,17 +92,25 @@ public class DefaultPersistentDirectoryCache implements PersistentCache {
         return openIndexedCache(new DefaultSerializer<V>());
     }
 
-    public <T> SimpleStateCache<T> openStateCache() {
+    public <T> SimpleStateCache<T> openStateCache(Serializer<T> serializer) {
         if (stateCache == null) {
-            stateCache = new SimpleStateCache<T>(this, new DefaultSerializer<T>());
+            stateCache = new SimpleStateCache<T>(this, serializer);
         }
         return stateCache;
     }
 
+    public <T> SimpleStateCache<T> openStateCache() {
+        return openStateCache(new DefaultSerializer<T>());
+    }
+
     public Properties getProperties() {
         return properties;
     }
 
+    public boolean isMemoryMappedIndex() {
+        return memoryMappedIndex;
+    }
+
     public File getBaseDir() {
         return dir;
     }
@@ -53,6 +53,14 @@ public interface PersistentCache {
      */
     <K, V> PersistentIndexedCache<K, V> openIndexedCache();
 
+    /**
+     * Opens a state cache backed by this cache.
+     *
+     * @param serializer The serializer to use to serialise the state.
+     * @return The cache.
+     */
+    <T> PersistentStateCache<T> openStateCache(Serializer<T> serializer);
+
     /**
      * Opens a state cache backed by this cache.
      *
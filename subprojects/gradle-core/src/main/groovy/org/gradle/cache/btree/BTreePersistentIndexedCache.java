@@ -23,13 +23,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 
 // todo - stream serialised value to file
-// todo - handle hash collisions
 // todo - don't store null links to child blocks in leaf index blocks
 // todo - align block boundaries
-// todo - concurrency control
 // todo - remove the check-sum from each block
 // todo - merge small values into a single data block
 // todo - discard when file corrupt
@@ -37,28 +37,63 @@ import java.util.*;
 // todo - free list leaks disk space
 // todo - merge adjacent free blocks
 // todo - use more efficient lookup for free block with nearest size
+/**
+ * A {@link PersistentIndexedCache} backed by a b-tree stored in a single file. Access to the cache is serialised, so an
+ * instance can be shared by multiple threads.
+ *
+ * <p>The b-tree is indexed by a 128-bit MD5 digest of the string representation of each key. The key itself is stored
+ * with the value, and is checked when the entry is read, so that a digest collision cannot cause the wrong value to be
+ * returned. As the leaves are ordered by digest rather than by key, the cache does not offer a traversal of its entries
+ * in key order or bounded by a key prefix.</p>
+ *
+ * <p>By default, each update is written to the file immediately. In write-back mode, updates are held in memory and
+ * written to the file in a single batch when the cache is flushed or closed, or when too many updates are pending. Each
+ * batch is written via a write-ahead journal, so that the file is not left in an inconsistent state if the process
+ * dies during a write.</p>
+ *
+ * <p>The file can either be accessed using a {@link FileBackedBlockStore}, or using a {@link MemoryMappedBlockStore}.
+ * Both use the same file format.</p>
+ */
 public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache<K, V> {
     private static final Logger LOGGER = LoggerFactory.getLogger(BTreePersistentIndexedCache.class);
+    private static final int MAX_PENDING_UPDATES = 1000;
+    private static final int DATA_ALIGNMENT = 16;
     private final File cacheFile;
     private final PersistentCache backingCache;
     private final Serializer<V> serializer;
     private final short maxChildIndexEntries;
     private final int minIndexChildNodes;
     private final StateCheckBlockStore store;
+    private final boolean writeBack;
     private HeaderBlock header;
+    private int pendingUpdates;
 
     public BTreePersistentIndexedCache(PersistentCache backingCache, Serializer<V> serializer) {
-        this(backingCache, serializer, (short) 512, 512);
+        this(backingCache, serializer, false, false);
+    }
+
+    public BTreePersistentIndexedCache(PersistentCache backingCache, Serializer<V> serializer, boolean writeBack,
+                                       boolean memoryMapped) {
+        this(backingCache, serializer, (short) 512, 512, writeBack, memoryMapped);
     }
 
     public BTreePersistentIndexedCache(PersistentCache backingCache, Serializer<V> serializer,
                                        short maxChildIndexEntries, int maxFreeListEntries) {
+        this(backingCache, serializer, maxChildIndexEntries, maxFreeListEntries, false, false);
+    }
+
+    public BTreePersistentIndexedCache(PersistentCache backingCache, Serializer<V> serializer,
+                                       short maxChildIndexEntries, int maxFreeListEntries, boolean writeBack,
+                                       boolean memoryMapped) {
         this.backingCache = backingCache;
+        this.writeBack = writeBack;
         this.serializer = serializer;
         this.maxChildIndexEntries = maxChildIndexEntries;
         this.minIndexChildNodes = maxChildIndexEntries / 2;
         cacheFile = new File(backingCache.getBaseDir(), "cache.bin");
-        BlockStore cachingStore = new CachingBlockStore(new FileBackedBlockStore(cacheFile), IndexBlock.class, FreeListBlockStore.FreeListBlock.class);
+        BlockStore fileStore = memoryMapped ? new MemoryMappedBlockStore(cacheFile, writeBack) : new FileBackedBlockStore(
+                cacheFile, writeBack);
+        BlockStore cachingStore = new CachingBlockStore(fileStore, IndexBlock.class, FreeListBlockStore.FreeListBlock.class);
         store = new StateCheckBlockStore(new FreeListBlockStore(cachingStore, maxFreeListEntries));
         try {
             open();
@@ -109,7 +144,7 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         header = store.readFirst(HeaderBlock.class);
     }
 
-    public V get(K key) {
+    public synchronized V get(K key) {
         try {
             try {
                 DataBlock block = header.getRoot().get(key);
@@ -126,15 +161,16 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         }
     }
 
-    public void put(K key, V value) {
+    public synchronized void put(K key, V value) {
         try {
             String keyString = key.toString();
-            long hashCode = keyString.hashCode();
-            Lookup lookup = header.getRoot().find(hashCode);
+            KeyHash hash = new KeyHash(keyString);
+            Lookup lookup = header.getRoot().find(hash);
             boolean needNewBlock = true;
             if (lookup.entry != null) {
                 DataBlock block = store.read(lookup.entry.dataBlock, DataBlock.class);
-                needNewBlock = !block.useNewValue(value);
+                // If the keys differ, the digests have collided. Replace the existing entry
+                needNewBlock = !block.hasKey(keyString) || !block.useNewValue(value);
                 if (needNewBlock) {
                     store.remove(block);
                 }
@@ -142,29 +178,57 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
             if (needNewBlock) {
                 DataBlock block = new DataBlock(keyString, value);
                 store.write(block);
-                lookup.indexBlock.put(hashCode, block.getPos());
+                lookup.indexBlock.put(hash, block.getPos());
             }
-            store.flush();
+            updated();
         } catch (Exception e) {
             throw new UncheckedIOException(String.format("Could not add entry '%s' to %s.", key, this), e);
         }
     }
 
-    public void remove(K key) {
+    public synchronized void remove(K key) {
         try {
-            Lookup lookup = header.getRoot().find(key.toString());
+            String keyString = key.toString();
+            Lookup lookup = header.getRoot().find(new KeyHash(keyString));
             if (lookup.entry == null) {
                 return;
             }
-            lookup.indexBlock.remove(lookup.entry);
             DataBlock block = store.read(lookup.entry.dataBlock, DataBlock.class);
+            if (!block.hasKey(keyString)) {
+                return;
+            }
+            lookup.indexBlock.remove(lookup.entry);
             store.remove(block);
-            store.flush();
+            updated();
         } catch (Exception e) {
             throw new UncheckedIOException(String.format("Could not remove entry '%s' from %s.", key, this), e);
         }
     }
 
+    private void updated() {
+        pendingUpdates++;
+        if (!writeBack || pendingUpdates >= MAX_PENDING_UPDATES) {
+            doFlush();
+        }
+    }
+
+    private void doFlush() {
+        store.flush();
+        pendingUpdates = 0;
+    }
+
+    /**
+     * Writes any pending updates to the backing file. Does nothing when this cache is not in write-back mode, as
+     * updates have already been written.
+     */
+    public synchronized void flush() {
+        try {
+            doFlush();
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not flush %s.", this), e);
+        }
+    }
+
     private IndexBlock load(BlockPointer pos, IndexRoot root, IndexBlock parent, int index) {
         IndexBlock block = store.read(pos, IndexBlock.class);
         block.root = root;
@@ -173,7 +237,7 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         return block;
     }
 
-    public void reset() {
+    public synchronized void reset() {
         close();
         try {
             open();
@@ -182,8 +246,9 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         }
     }
 
-    public void close() {
+    public synchronized void close() {
         try {
+            pendingUpdates = 0;
             store.close();
         } catch (Exception e) {
             throw new UncheckedIOException(e);
@@ -201,7 +266,7 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         doOpen();
     }
 
-    public void verify() {
+    public synchronized void verify() {
         try {
             doVerify();
         } catch (Exception e) {
@@ -211,11 +276,12 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
     }
 
     private void doVerify() throws Exception {
+        doFlush();
         List<BlockPayload> blocks = new ArrayList<BlockPayload>();
 
         HeaderBlock header = store.readFirst(HeaderBlock.class);
         blocks.add(header);
-        verifyTree(header.getRoot(), "", blocks, Long.MAX_VALUE, true);
+        verifyTree(header.getRoot(), "", blocks, null, true);
 
         Collections.sort(blocks, new Comparator<BlockPayload>() {
             public int compare(BlockPayload block, BlockPayload block1) {
@@ -232,7 +298,7 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         }
     }
 
-    private void verifyTree(IndexBlock current, String prefix, Collection<BlockPayload> blocks, long maxValue,
+    private void verifyTree(IndexBlock current, String prefix, Collection<BlockPayload> blocks, KeyHash maxValue,
                             boolean loadData) throws Exception {
         blocks.add(current);
 
@@ -248,21 +314,24 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
             throw new IOException(String.format("Mismatched leaf/tail-node in %s", current));
         }
 
-        long min = Long.MIN_VALUE;
+        KeyHash min = null;
         for (IndexEntry entry : current.entries) {
             if (isLeaf ^ entry.childIndexBlock.isNull()) {
                 throw new IOException(String.format("Mismatched leaf/non-leaf entry in %s", current));
             }
-            if (entry.hashCode >= maxValue || entry.hashCode <= min) {
+            if (maxValue != null && entry.hash.compareTo(maxValue) >= 0 || min != null && entry.hash.compareTo(min) <= 0) {
                 throw new IOException(String.format("Out-of-order key in %s", current));
             }
-            min = entry.hashCode;
+            min = entry.hash;
             if (!entry.childIndexBlock.isNull()) {
                 IndexBlock child = store.read(entry.childIndexBlock, IndexBlock.class);
-                verifyTree(child, "   " + prefix, blocks, entry.hashCode, loadData);
+                verifyTree(child, "   " + prefix, blocks, entry.hash, loadData);
             }
             if (loadData) {
                 DataBlock block = store.read(entry.dataBlock, DataBlock.class);
+                if (!entry.hash.equals(new KeyHash(block.key))) {
+                    throw new IOException(String.format("Mismatched key in %s", block));
+                }
                 blocks.add(block);
             }
         }
@@ -306,7 +375,7 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
 
         @Override
         protected int getType() {
-            return 0x55;
+            return 0x56;
         }
 
         @Override
@@ -345,12 +414,12 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
 
         @Override
         protected int getType() {
-            return 0x77;
+            return 0x78;
         }
 
         @Override
         protected int getSize() {
-            return Block.INT_SIZE + Block.LONG_SIZE + (3 * Block.LONG_SIZE) * maxChildIndexEntries;
+            return Block.INT_SIZE + Block.LONG_SIZE + (4 * Block.LONG_SIZE) * maxChildIndexEntries;
         }
 
         public void read(DataInputStream instr) throws IOException {
@@ -358,7 +427,7 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
             entries.clear();
             for (int i = 0; i < count; i++) {
                 IndexEntry entry = new IndexEntry();
-                entry.hashCode = instr.readLong();
+                entry.hash = new KeyHash(instr.readLong(), instr.readLong());
                 entry.dataBlock = new BlockPointer(instr.readLong());
                 entry.childIndexBlock = new BlockPointer(instr.readLong());
                 entries.add(entry);
@@ -369,22 +438,23 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         public void write(DataOutputStream outstr) throws IOException {
             outstr.writeInt(entries.size());
             for (IndexEntry entry : entries) {
-                outstr.writeLong(entry.hashCode);
+                outstr.writeLong(entry.hash.high);
+                outstr.writeLong(entry.hash.low);
                 outstr.writeLong(entry.dataBlock.getPos());
                 outstr.writeLong(entry.childIndexBlock.getPos());
             }
             outstr.writeLong(tailPos.getPos());
         }
 
-        public void put(long hashCode, BlockPointer pos) throws Exception {
-            int index = Collections.binarySearch(entries, new IndexEntry(hashCode));
+        public void put(KeyHash hash, BlockPointer pos) throws Exception {
+            int index = Collections.binarySearch(entries, new IndexEntry(hash));
             IndexEntry entry;
             if (index >= 0) {
                 entry = entries.get(index);
             } else {
                 assert tailPos.isNull();
                 entry = new IndexEntry();
-                entry.hashCode = hashCode;
+                entry.hash = hash;
                 entry.childIndexBlock = new BlockPointer();
                 index = -index - 1;
                 entries.add(index, entry);
@@ -433,20 +503,18 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         }
 
         public DataBlock get(K key) throws Exception {
-            Lookup lookup = find(key.toString());
+            String keyString = key.toString();
+            Lookup lookup = find(new KeyHash(keyString));
             if (lookup.entry == null) {
                 return null;
             }
 
-            return store.read(lookup.entry.dataBlock, DataBlock.class);
-        }
-
-        public Lookup find(String keyString) throws Exception {
-            return find((long) keyString.hashCode());
+            DataBlock block = store.read(lookup.entry.dataBlock, DataBlock.class);
+            return block.hasKey(keyString) ? block : null;
         }
 
-        private Lookup find(long hashCode) throws Exception {
-            int index = Collections.binarySearch(entries, new IndexEntry(hashCode));
+        private Lookup find(KeyHash hash) throws Exception {
+            int index = Collections.binarySearch(entries, new IndexEntry(hash));
             if (index >= 0) {
                 return new Lookup(this, entries.get(index));
             }
@@ -463,7 +531,7 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
             }
 
             IndexBlock childBlock = load(childBlockPos, root, this, index);
-            return childBlock.find(hashCode);
+            return childBlock.find(hash);
         }
 
         public void remove(IndexEntry entry) throws Exception {
@@ -498,33 +566,29 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
             if (entries.size() < minIndexChildNodes) {
                 IndexBlock left = parent.getPrevious(this);
                 if (left != null) {
-                    if (left.entries.size() > minIndexChildNodes) {
-                        // Redistribute entries with lhs block
-                        left.mergeFrom(this);
-                        left.maybeSplit();
-                    } else if (left.entries.size() + entries.size() <= maxChildIndexEntries) {
-                        // Merge with the lhs block
-                        left.mergeFrom(this);
-                        parent.maybeMerge();
-                        return;
-                    }
+                    // Merge with the lhs block
+                    left.mergeFrom(this);
+                    left.redistributeAfterMerge();
+                    return;
                 }
                 IndexBlock right = parent.getNext(this);
                 if (right != null) {
-                    if (right.entries.size() > minIndexChildNodes) {
-                        // Redistribute entries with rhs block
-                        mergeFrom(right);
-                        maybeSplit();
-                        return;
-                    } else if (right.entries.size() + entries.size() <= maxChildIndexEntries) {
-                        // Merge with the rhs block
-                        mergeFrom(right);
-                        parent.maybeMerge();
-                        return;
-                    }
+                    // Merge with the rhs block
+                    mergeFrom(right);
+                    redistributeAfterMerge();
+                    return;
                 }
+                throw new IllegalStateException(String.format("No sibling found for %s", this));
+            }
+        }
 
-                throw new UnsupportedOperationException("implement me");
+        private void redistributeAfterMerge() throws Exception {
+            if (entries.size() > maxChildIndexEntries) {
+                // Too many entries for a single block, so redistribute the entries between 2 blocks
+                maybeSplit();
+            } else {
+                // Parent has lost an entry
+                parent.maybeMerge();
             }
         }
 
@@ -574,26 +638,77 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
     }
 
     private static class IndexEntry implements Comparable<IndexEntry> {
-        long hashCode;
+        KeyHash hash;
         BlockPointer dataBlock;
         BlockPointer childIndexBlock;
 
         private IndexEntry() {
         }
 
-        private IndexEntry(long hashCode) {
-            this.hashCode = hashCode;
+        private IndexEntry(KeyHash hash) {
+            this.hash = hash;
         }
 
         public int compareTo(IndexEntry indexEntry) {
-            if (hashCode > indexEntry.hashCode) {
-                return 1;
+            return hash.compareTo(indexEntry.hash);
+        }
+    }
+
+    /**
+     * The 128-bit MD5 digest of a key.
+     */
+    private static class KeyHash implements Comparable<KeyHash> {
+        final long high;
+        final long low;
+
+        private KeyHash(long high, long low) {
+            this.high = high;
+            this.low = low;
+        }
+
+        private KeyHash(String key) {
+            MessageDigest messageDigest;
+            try {
+                messageDigest = MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);
             }
-            if (hashCode < indexEntry.hashCode) {
-                return -1;
+            byte[] digest = messageDigest.digest(encodeKey(key));
+            high = toLong(digest, 0);
+            low = toLong(digest, 8);
+        }
+
+        private static long toLong(byte[] bytes, int offset) {
+            long value = 0;
+            for (int i = offset; i < offset + 8; i++) {
+                value = (value << 8) | (bytes[i] & 0xFF);
+            }
+            return value;
+        }
+
+        public int compareTo(KeyHash other) {
+            if (high != other.high) {
+                return high > other.high ? 1 : -1;
+            }
+            if (low != other.low) {
+                return low > other.low ? 1 : -1;
             }
             return 0;
         }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == null || obj.getClass() != getClass()) {
+                return false;
+            }
+            KeyHash other = (KeyHash) obj;
+            return high == other.high && low == other.low;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (high ^ (high >>> 32));
+        }
     }
 
     private class Lookup {
@@ -606,7 +721,17 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         }
     }
 
+    private static byte[] encodeKey(String key) {
+        try {
+            return key.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     private class DataBlock extends BlockPayload {
+        private String key;
+        private byte[] encodedKey;
         private int size;
         private byte[] serialisedValue;
         private V value;
@@ -615,15 +740,23 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         }
 
         public DataBlock(String key, V value) throws Exception {
-            this.value = value;
+            this.key = key;
+            this.encodedKey = encodeKey(key);
             setValue(value);
-            size = serialisedValue.length;
+            // Round up the size of the block, to make it more likely the block can be reused for some other entry
+            size = serialisedValue.length + DATA_ALIGNMENT - 1 - (encodedKey.length + serialisedValue.length
+                    + DATA_ALIGNMENT - 1) % DATA_ALIGNMENT;
+        }
+
+        public boolean hasKey(String key) {
+            return this.key.equals(key);
         }
 
         public void setValue(V value) throws Exception {
             ByteArrayOutputStream outStr = new ByteArrayOutputStream();
             serializer.write(outStr, value);
             this.serialisedValue = outStr.toByteArray();
+            this.value = value;
         }
 
         public V getValue() throws Exception {
@@ -635,15 +768,22 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
 
         @Override
         protected int getType() {
-            return 0x33;
+            return 0x34;
         }
 
         @Override
         protected int getSize() {
-            return 2 * Block.INT_SIZE + size;
+            return 3 * Block.INT_SIZE + encodedKey.length + size;
         }
 
         public void read(DataInputStream instr) throws Exception {
+            int keyLength = instr.readInt();
+            if (keyLength < 0 || keyLength > getBlock().getSize()) {
+                throw blockCorruptedException();
+            }
+            encodedKey = new byte[keyLength];
+            instr.readFully(encodedKey);
+            key = new String(encodedKey, "UTF-8");
             size = instr.readInt();
             int bytes = instr.readInt();
             serialisedValue = new byte[bytes];
@@ -651,6 +791,8 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         }
 
         public void write(DataOutputStream outstr) throws Exception {
+            outstr.writeInt(encodedKey.length);
+            outstr.write(encodedKey);
             outstr.writeInt(size);
             outstr.writeInt(serialisedValue.length);
             outstr.write(serialisedValue);
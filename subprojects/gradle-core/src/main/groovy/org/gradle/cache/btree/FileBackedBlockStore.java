@@ -18,16 +18,34 @@ package org.gradle.cache.btree;
 import org.gradle.api.UncheckedIOException;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.zip.CRC32;
 
+/**
+ * A {@link BlockStore} backed by a single file. By default, each block is written to the file as soon as it is
+ * written to this store. When a write-ahead journal is used, blocks are held in memory until {@link #flush()} is
+ * called, and then written to the file as a single batch via the journal. This means that the file is never left
+ * partially updated.
+ *
+ * <p>Subclasses can change how the bytes of the file are accessed by overriding the {@code openFile()},
+ * {@code readBytes()} and related methods.</p>
+ */
 public class FileBackedBlockStore implements BlockStore {
     private RandomAccessFile file;
     private final File cacheFile;
+    private final WriteAheadJournal journal;
+    private final List<WriteAheadJournal.Entry> pendingWrites = new ArrayList<WriteAheadJournal.Entry>();
     private long nextBlock;
     private Factory factory;
 
     public FileBackedBlockStore(File cacheFile) {
+        this(cacheFile, false);
+    }
+
+    public FileBackedBlockStore(File cacheFile, boolean useJournal) {
         this.cacheFile = cacheFile;
+        journal = useJournal ? new WriteAheadJournal(new File(cacheFile.getPath() + ".journal")) : null;
     }
 
     @Override
@@ -39,8 +57,11 @@ public class FileBackedBlockStore implements BlockStore {
         this.factory = factory;
         try {
             file = new RandomAccessFile(cacheFile, "rw");
-            nextBlock = file.length();
-            if (file.length() == 0) {
+            if (journal != null) {
+                journal.recover(file);
+            }
+            nextBlock = openFile(file);
+            if (nextBlock == 0) {
                 runnable.run();
             }
         } catch (IOException e) {
@@ -50,6 +71,7 @@ public class FileBackedBlockStore implements BlockStore {
 
     public void close() {
         try {
+            closeFile(nextBlock);
             file.close();
         } catch (IOException e) {
             throw new UncheckedIOException(e);
@@ -57,8 +79,9 @@ public class FileBackedBlockStore implements BlockStore {
     }
 
     public void clear() {
+        pendingWrites.clear();
         try {
-            file.setLength(0);
+            clearFile();
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
@@ -77,6 +100,15 @@ public class FileBackedBlockStore implements BlockStore {
     }
 
     public void flush() {
+        if (pendingWrites.isEmpty()) {
+            return;
+        }
+        try {
+            journal.apply(pendingWrites, file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        pendingWrites.clear();
     }
 
     public <T extends BlockPayload> T readFirst(Class<T> payloadType) {
@@ -108,6 +140,53 @@ public class FileBackedBlockStore implements BlockStore {
         }
     }
 
+    /**
+     * Called when the file is opened.
+     *
+     * @return The offset of the end of the last block in the file.
+     */
+    protected long openFile(RandomAccessFile file) throws IOException {
+        return file.length();
+    }
+
+    /**
+     * Called before the file is closed.
+     *
+     * @param end The offset of the end of the last block in the file.
+     */
+    protected void closeFile(long end) throws IOException {
+    }
+
+    /**
+     * Discards the contents of the file.
+     */
+    protected void clearFile() throws IOException {
+        file.setLength(0);
+    }
+
+    /**
+     * Returns the number of bytes which can be read from the file.
+     */
+    protected long getLength() throws IOException {
+        return file.length();
+    }
+
+    /**
+     * Reads the given number of bytes from the given position in the file.
+     */
+    protected void readBytes(long pos, byte[] buffer, int offset, int length) throws IOException {
+        file.seek(pos);
+        file.readFully(buffer, offset, length);
+    }
+
+    /**
+     * Writes the given bytes to the given position in the file.
+     */
+    protected void writeBytes(long pos, byte[] bytes) throws IOException {
+        file.seek(pos);
+        file.write(bytes);
+    }
+
     private long alloc(long length) {
         long pos = nextBlock;
         nextBlock += length;
@@ -168,10 +247,9 @@ public class FileBackedBlockStore implements BlockStore {
 
         public void write() throws Exception {
             long pos = getPos().getPos();
-            file.seek(pos);
 
-            Crc32OutputStream checkSumOutputStream = new Crc32OutputStream(new BufferedOutputStream(
-                    new RandomAccessFileOutputStream(file)));
+            ByteArrayOutputStream content = new ByteArrayOutputStream(getSize());
+            Crc32OutputStream checkSumOutputStream = new Crc32OutputStream(content);
             DataOutputStream outputStream = new DataOutputStream(checkSumOutputStream);
 
             BlockPayload payload = getPayload();
@@ -180,7 +258,6 @@ public class FileBackedBlockStore implements BlockStore {
             outputStream.writeByte(BLOCK_MARKER);
             outputStream.writeByte(payload.getType());
             outputStream.writeInt(payloadSize);
-            long finalSize = pos + HEADER_SIZE + TAIL_SIZE + payloadSize;
 
             // Write body
             payload.write(outputStream);
@@ -190,21 +267,36 @@ public class FileBackedBlockStore implements BlockStore {
             outputStream.close();
 
             // Pad
-            if (file.length() < finalSize) {
-                file.setLength(finalSize);
+            byte[] bytes = new byte[HEADER_SIZE + TAIL_SIZE + payloadSize];
+            System.arraycopy(content.toByteArray(), 0, bytes, 0, content.size());
+
+            if (journal != null) {
+                pendingWrites.add(new WriteAheadJournal.Entry(pos, bytes));
+            } else {
+                writeBytes(pos, bytes);
             }
         }
 
         public void read() throws Exception {
             long pos = getPos().getPos();
             assert pos >= 0;
-            if (pos + HEADER_SIZE >= file.length()) {
+            long length = getLength();
+            if (pos + HEADER_SIZE >= length) {
+                throw blockCorruptedException();
+            }
+
+            // Read the whole block in one go, then decode it from memory
+            byte[] header = new byte[HEADER_SIZE];
+            readBytes(pos, header, 0, HEADER_SIZE);
+            int storedPayloadSize = new DataInputStream(new ByteArrayInputStream(header, 2, INT_SIZE)).readInt();
+            if (storedPayloadSize < 0 || pos + HEADER_SIZE + TAIL_SIZE + storedPayloadSize > length) {
                 throw blockCorruptedException();
             }
-            file.seek(pos);
+            byte[] bytes = new byte[HEADER_SIZE + storedPayloadSize + TAIL_SIZE];
+            System.arraycopy(header, 0, bytes, 0, HEADER_SIZE);
+            readBytes(pos + HEADER_SIZE, bytes, HEADER_SIZE, storedPayloadSize + TAIL_SIZE);
 
-            Crc32InputStream checkSumInputStream = new Crc32InputStream(new BufferedInputStream(
-                    new RandomAccessFileInputStream(file)));
+            Crc32InputStream checkSumInputStream = new Crc32InputStream(new ByteArrayInputStream(bytes));
             DataInputStream inputStream = new DataInputStream(checkSumInputStream);
 
             BlockPayload payload = getPayload();
@@ -221,9 +313,6 @@ public class FileBackedBlockStore implements BlockStore {
 
             // Read body
             payloadSize = inputStream.readInt();
-            if (pos + HEADER_SIZE + TAIL_SIZE + payloadSize > file.length()) {
-                throw blockCorruptedException();
-            }
             payload.read(inputStream);
 
             // Read and verify checksum
@@ -241,52 +330,6 @@ public class FileBackedBlockStore implements BlockStore {
         }
     }
 
-    private static class RandomAccessFileInputStream extends InputStream {
-        private final RandomAccessFile file;
-
-        private RandomAccessFileInputStream(RandomAccessFile file) {
-            this.file = file;
-        }
-
-        @Override
-        public int read(byte[] bytes) throws IOException {
-            return file.read(bytes);
-        }
-
-        @Override
-        public int read() throws IOException {
-            return file.read();
-        }
-
-        @Override
-        public int read(byte[] bytes, int offset, int length) throws IOException {
-            return file.read(bytes, offset, length);
-        }
-    }
-
-    private static class RandomAccessFileOutputStream extends OutputStream {
-        private final RandomAccessFile file;
-
-        private RandomAccessFileOutputStream(RandomAccessFile file) {
-            this.file = file;
-        }
-
-        @Override
-        public void write(int i) throws IOException {
-            file.write(i);
-        }
-
-        @Override
-        public void write(byte[] bytes) throws IOException {
-            file.write(bytes);
-        }
-
-        @Override
-        public void write(byte[] bytes, int offset, int length) throws IOException {
-            file.write(bytes, offset, length);
-        }
-    }
-
     private static class Crc32InputStream extends FilterInputStream {
         private final CRC32 checksum;
 
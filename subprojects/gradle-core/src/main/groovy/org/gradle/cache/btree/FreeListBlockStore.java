@@ -215,11 +215,14 @@ public class FreeListBlockStore implements BlockStore {
             int requiredSize = block.getSize();
 
             if (entries.isEmpty() || requiredSize <= largestInNextBlock) {
-                if (nextBlock.isNull()) {
+                if (!nextBlock.isNull()) {
+                    getNextBlock().alloc(block);
+                }
+                // largestInNextBlock is an upper bound only, so fall back to the entries of this block when the next
+                // block has nothing large enough
+                if (block.hasPos() || entries.isEmpty()) {
                     return;
                 }
-                getNextBlock().alloc(block);
-                return;
             }
 
             int index = Collections.binarySearch(entries, new FreeListEntry(null, requiredSize));
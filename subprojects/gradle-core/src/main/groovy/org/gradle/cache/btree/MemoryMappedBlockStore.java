@@ -0,0 +1,199 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.btree;
+
+import org.gradle.api.UncheckedIOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A {@link FileBackedBlockStore} which reads and writes blocks through a memory mapping of the file, rather than
+ * making a system call for each read and write. The file format is the same as for {@link FileBackedBlockStore}.
+ *
+ * <p>The mapping grows in chunks, so the file may contain some unused space after the last block. The offset of the
+ * end of the last block is recorded in a separate file when the store is closed. If this is missing, the unused space
+ * is treated as used, which wastes some space but is otherwise harmless.</p>
+ *
+ * <p>The mapping is released when the store is closed or cleared, rather than when it is garbage collected, so that the
+ * cache directory can be deleted straight away. On some platforms a file cannot be deleted while it is mapped. There is
+ * no public API to release a mapping, so this uses the internal cleaner of the buffer, where the JVM provides one.</p>
+ */
+public class MemoryMappedBlockStore extends FileBackedBlockStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MemoryMappedBlockStore.class);
+    static final int CHUNK_SIZE = 1024 * 1024;
+    private final File endFile;
+    private RandomAccessFile file;
+    private MappedByteBuffer buffer;
+    private long length;
+
+    public MemoryMappedBlockStore(File cacheFile) {
+        this(cacheFile, false);
+    }
+
+    public MemoryMappedBlockStore(File cacheFile, boolean useJournal) {
+        super(cacheFile, useJournal);
+        endFile = new File(cacheFile.getPath() + ".end");
+    }
+
+    @Override
+    public void flush() {
+        super.flush();
+        try {
+            // The journal writes directly to the file, and may have made it longer
+            length = Math.max(length, file.length());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    protected long openFile(RandomAccessFile file) throws IOException {
+        this.file = file;
+        unmap();
+        length = file.length();
+        return readEnd();
+    }
+
+    @Override
+    protected void closeFile(long end) throws IOException {
+        unmap();
+        DataOutputStream outputStream = new DataOutputStream(new FileOutputStream(endFile));
+        try {
+            outputStream.writeLong(end);
+            outputStream.writeLong(file.length());
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    @Override
+    protected void clearFile() throws IOException {
+        unmap();
+        file.setLength(0);
+        length = 0;
+    }
+
+    @Override
+    protected long getLength() throws IOException {
+        return length;
+    }
+
+    @Override
+    protected void readBytes(long pos, byte[] bytes, int offset, int count) throws IOException {
+        map(pos + count);
+        buffer.position((int) pos);
+        buffer.get(bytes, offset, count);
+    }
+
+    @Override
+    protected void writeBytes(long pos, byte[] bytes) throws IOException {
+        map(pos + bytes.length);
+        buffer.position((int) pos);
+        buffer.put(bytes);
+    }
+
+    private long readEnd() throws IOException {
+        if (!endFile.isFile()) {
+            return length;
+        }
+        long end;
+        long recordedLength;
+        DataInputStream inputStream = new DataInputStream(new FileInputStream(endFile));
+        try {
+            end = inputStream.readLong();
+            recordedLength = inputStream.readLong();
+        } catch (EOFException e) {
+            return length;
+        } finally {
+            inputStream.close();
+            // The end offset is only valid until this store writes to the file again
+            if (!endFile.delete()) {
+                throw new IOException(String.format("Could not delete '%s'.", endFile));
+            }
+        }
+        if (recordedLength != length || end < 0 || end > length) {
+            // The file has been modified by something else
+            return length;
+        }
+        return end;
+    }
+
+    private void map(long required) throws IOException {
+        if (buffer != null && required <= buffer.capacity()) {
+            return;
+        }
+        long size = Math.max(required, length);
+        size = (size + CHUNK_SIZE - 1) / CHUNK_SIZE * CHUNK_SIZE;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException(String.format("Cannot map more than %d bytes of %s.", Integer.MAX_VALUE, this));
+        }
+        unmap();
+        buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        length = Math.max(length, size);
+    }
+
+    private void unmap() {
+        if (buffer == null) {
+            return;
+        }
+        MappedByteBuffer mapping = buffer;
+        buffer = null;
+        try {
+            release(mapping);
+        } catch (Throwable e) {
+            // The mapping is released when the buffer is garbage collected instead
+            LOGGER.debug(String.format("Could not release the memory mapping of %s.", this), e);
+        }
+    }
+
+    private static void release(ByteBuffer buffer) throws Exception {
+        Class<?> unsafeType;
+        try {
+            unsafeType = Class.forName("sun.misc.Unsafe");
+        } catch (ClassNotFoundException e) {
+            unsafeType = null;
+        }
+        Method invokeCleaner = null;
+        if (unsafeType != null) {
+            try {
+                invokeCleaner = unsafeType.getMethod("invokeCleaner", ByteBuffer.class);
+            } catch (NoSuchMethodException e) {
+                // Before Java 9
+            }
+        }
+        if (invokeCleaner != null) {
+            Field theUnsafe = unsafeType.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            return;
+        }
+        Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+        cleanerMethod.setAccessible(true);
+        Object cleaner = cleanerMethod.invoke(buffer);
+        if (cleaner != null) {
+            Method clean = cleaner.getClass().getMethod("clean");
+            clean.setAccessible(true);
+            clean.invoke(cleaner);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.btree;
+
+import org.gradle.api.UncheckedIOException;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A write-ahead journal for a file. A batch of writes is recorded in the journal and synced to disk before it is
+ * applied to the target file, and the journal is discarded once the target file has been synced. If the process dies
+ * while the batch is being applied, the batch is applied again from the journal when the target file is next opened.
+ * A journal which was not completely written is discarded, as the target file was not modified.
+ */
+public class WriteAheadJournal {
+    private static final long END_MARKER = -1;
+    private final File journalFile;
+
+    public WriteAheadJournal(File journalFile) {
+        this.journalFile = journalFile;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("journal '%s'", journalFile);
+    }
+
+    /**
+     * Applies the given batch of writes to the given file.
+     */
+    public void apply(List<Entry> entries, RandomAccessFile target) throws IOException {
+        if (entries.isEmpty()) {
+            return;
+        }
+        write(entries);
+        applyAndDiscard(entries, target);
+    }
+
+    /**
+     * Applies the writes from a complete journal left behind by a previous process to the given file, if any.
+     *
+     * @return true if writes were recovered from the journal.
+     */
+    public boolean recover(RandomAccessFile target) throws IOException {
+        if (!journalFile.exists()) {
+            return false;
+        }
+        List<Entry> entries = read();
+        if (entries == null) {
+            discard();
+            return false;
+        }
+        applyAndDiscard(entries, target);
+        return true;
+    }
+
+    /**
+     * Discards the contents of this journal.
+     */
+    public void discard() {
+        if (journalFile.exists() && !journalFile.delete()) {
+            throw new UncheckedIOException(String.format("Could not delete %s.", this));
+        }
+    }
+
+    private void applyAndDiscard(List<Entry> entries, RandomAccessFile target) throws IOException {
+        for (Entry entry : entries) {
+            target.seek(entry.pos);
+            target.write(entry.bytes);
+        }
+        target.getFD().sync();
+        discard();
+    }
+
+    private void write(List<Entry> entries) throws IOException {
+        FileOutputStream fileOutputStream = new FileOutputStream(journalFile);
+        try {
+            CheckedOutputStream checkSumOutputStream = new CheckedOutputStream(new BufferedOutputStream(
+                    fileOutputStream), new CRC32());
+            DataOutputStream outputStream = new DataOutputStream(checkSumOutputStream);
+            for (Entry entry : entries) {
+                outputStream.writeLong(entry.pos);
+                outputStream.writeInt(entry.bytes.length);
+                outputStream.write(entry.bytes);
+            }
+            outputStream.writeLong(END_MARKER);
+            outputStream.writeLong(checkSumOutputStream.getChecksum().getValue());
+            outputStream.flush();
+            fileOutputStream.getFD().sync();
+        } finally {
+            fileOutputStream.close();
+        }
+    }
+
+    private List<Entry> read() throws IOException {
+        List<Entry> entries = new ArrayList<Entry>();
+        long length = journalFile.length();
+        CheckedInputStream checkSumInputStream = new CheckedInputStream(new BufferedInputStream(new FileInputStream(
+                journalFile)), new CRC32());
+        DataInputStream inputStream = new DataInputStream(checkSumInputStream);
+        try {
+            while (true) {
+                long pos = inputStream.readLong();
+                if (pos == END_MARKER) {
+                    break;
+                }
+                int size = inputStream.readInt();
+                if (pos < 0 || size < 0 || size > length) {
+                    return null;
+                }
+                byte[] bytes = new byte[size];
+                inputStream.readFully(bytes);
+                entries.add(new Entry(pos, bytes));
+            }
+            long actualChecksum = checkSumInputStream.getChecksum().getValue();
+            if (inputStream.readLong() != actualChecksum) {
+                return null;
+            }
+            return entries;
+        } catch (EOFException e) {
+            return null;
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    /**
+     * A write of some bytes at a given position in the target file.
+     */
+    public static class Entry {
+        private final long pos;
+        private final byte[] bytes;
+
+        public Entry(long pos, byte[] bytes) {
+            this.pos = pos;
+            this.bytes = bytes;
+        }
+
+        public long getPos() {
+            return pos;
+        }
+
+        public byte[] getBytes() {
+            return bytes;
+        }
+    }
+}
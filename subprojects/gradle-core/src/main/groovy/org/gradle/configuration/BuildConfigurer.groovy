@@ -16,7 +16,9 @@
 
 package org.gradle.configuration
 
+import org.gradle.StartParameter
 import org.gradle.api.Project
+import org.gradle.api.internal.GradleInternal
 import org.gradle.api.internal.project.ProjectInternal
 import org.gradle.util.Clock
 import org.slf4j.Logger
@@ -24,6 +26,10 @@ import org.slf4j.LoggerFactory
 import org.gradle.api.Action
 
 /**
+ * Configures the projects of a build. When configured with more than one thread, projects are configured in parallel
+ * using a {@link ParallelProjectConfigurer}. When an {@link OnDemandProjectConfigurer} is provided, only the projects
+ * required by the requested tasks are configured, where these can be determined from the task names.
+ *
  * @author Hans Dockter
  */
 class BuildConfigurer {
@@ -33,20 +39,53 @@ class BuildConfigurer {
 
     Action<Project> projectEvaluateAction
 
+    int threadCount = 1
+
+    OnDemandProjectConfigurer onDemandConfigurer
+
     BuildConfigurer() {}
 
     BuildConfigurer(ProjectDependencies2TaskResolver projectDependencies2TasksResolver) {
+        this(projectDependencies2TasksResolver, 1)
+    }
+
+    BuildConfigurer(ProjectDependencies2TaskResolver projectDependencies2TasksResolver, int threadCount) {
         this.projectDependencies2TasksResolver = projectDependencies2TasksResolver
+        this.threadCount = threadCount
         projectEvaluateAction = {ProjectInternal project ->
             project.evaluate()
         } as Action
     }
 
+    BuildConfigurer(ProjectDependencies2TaskResolver projectDependencies2TasksResolver,
+                    OnDemandProjectConfigurer onDemandConfigurer) {
+        this(projectDependencies2TasksResolver, 1)
+        this.onDemandConfigurer = onDemandConfigurer
+    }
+
     void process(Project rootProject) {
         logger.debug('Configuring Project objects')
         Clock clock = new Clock()
-        rootProject.allprojects(projectEvaluateAction)
+        if (configureOnDemand(rootProject)) {
+            logger.debug("Timing: Configuring projects on demand took " + clock.time)
+            return
+        }
+        if (threadCount > 1) {
+            logger.debug("Configuring projects using {} threads.", threadCount)
+            new ParallelProjectConfigurer(threadCount).configure(rootProject, projectEvaluateAction)
+        } else {
+            rootProject.allprojects(projectEvaluateAction)
+        }
         projectDependencies2TasksResolver.resolve(rootProject)
         logger.debug("Timing: Configuring projects took " + clock.time)
     }
+
+    private boolean configureOnDemand(Project rootProject) {
+        if (onDemandConfigurer == null) {
+            return false
+        }
+        GradleInternal gradle = rootProject.gradle
+        StartParameter startParameter = gradle.startParameter
+        return onDemandConfigurer.configureFor(gradle, startParameter.taskNames + startParameter.excludedTaskNames)
+    }
 }
\ No newline at end of file
@@ -15,24 +15,54 @@
  */
 package org.gradle.configuration;
 
+import org.gradle.api.Project;
+import org.gradle.api.initialization.dsl.ScriptHandler;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.internal.project.ProjectStateInternal;
+import org.gradle.groovy.scripts.ScriptSource;
 import org.gradle.util.Clock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Evaluates the build script of a project.
+ *
+ * <p>When configured with more than one worker, the build scripts of the child projects of a project are compiled in
+ * parallel once the project has been evaluated, ahead of their own evaluation. By then, the parent ClassLoader of each
+ * child project's build script is complete. A build script which declares its own classpath, or whose project already
+ * has classpath dependencies, is left to be compiled during evaluation, as its ClassLoader is not yet complete.</p>
+ */
 public class BuildScriptProcessor implements ProjectEvaluator {
     private static final Logger LOGGER = LoggerFactory.getLogger(BuildScriptProcessor.class);
     private final ScriptPluginFactory configurerFactory;
+    private final int workerCount;
+    private final Map<String, Future<?>> pendingCompilations = new ConcurrentHashMap<String, Future<?>>();
 
     public BuildScriptProcessor(ScriptPluginFactory configurerFactory) {
+        this(configurerFactory, 1);
+    }
+
+    public BuildScriptProcessor(ScriptPluginFactory configurerFactory, int workerCount) {
         this.configurerFactory = configurerFactory;
+        this.workerCount = workerCount;
     }
 
     public void evaluate(ProjectInternal project, ProjectStateInternal state) {
         LOGGER.info(String.format("Evaluating %s using %s.", project, project.getBuildScriptSource().getDisplayName()));
         Clock clock = new Clock();
 
+        if (workerCount > 1) {
+            waitForCompilation(project);
+        }
         try {
             ScriptPlugin configurer = configurerFactory.create(project.getBuildScriptSource());
             configurer.apply(project);
@@ -41,5 +71,66 @@ public class BuildScriptProcessor implements ProjectEvaluator {
         }
 
         LOGGER.debug("Timing: Running the build script took " + clock.getTime());
+
+        if (workerCount > 1) {
+            compileChildProjectScripts(project);
+        }
+    }
+
+    private void waitForCompilation(ProjectInternal project) {
+        Future<?> compilation = pendingCompilations.remove(project.getPath());
+        if (compilation == null || compilation.cancel(false)) {
+            return;
+        }
+        try {
+            compilation.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Ignore - the script is compiled again when it is applied, which reports the failure
+        }
+    }
+
+    private void compileChildProjectScripts(ProjectInternal project) {
+        List<ProjectInternal> children = new ArrayList<ProjectInternal>();
+        for (Project child : project.getChildProjects().values()) {
+            ProjectInternal childProject = (ProjectInternal) child;
+            if (!childProject.getState().getExecuted() && canCompileAheadOfEvaluation(childProject)) {
+                children.add(childProject);
+            }
+        }
+        if (children.isEmpty()) {
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(workerCount, children.size()));
+        try {
+            for (final ProjectInternal child : children) {
+                final ScriptPlugin configurer = configurerFactory.create(child.getBuildScriptSource());
+                pendingCompilations.put(child.getPath(), executor.submit(new Runnable() {
+                    public void run() {
+                        try {
+                            configurer.compile(child);
+                        } catch (Throwable t) {
+                            LOGGER.debug(String.format("Could not compile %s ahead of evaluation.",
+                                    configurer.getSource().getDisplayName()), t);
+                        }
+                    }
+                }));
+            }
+        } finally {
+            // Lets the workers finish the submitted compilations, then discards them
+            executor.shutdown();
+        }
+    }
+
+    private boolean canCompileAheadOfEvaluation(ProjectInternal project) {
+        ScriptSource source = project.getBuildScriptSource();
+        String text = source.getResource().getText();
+        if (text != null && text.contains("buildscript")) {
+            return false;
+        }
+        return project.getBuildscript().getConfigurations().getByName(ScriptHandler.CLASSPATH_CONFIGURATION)
+                .getDependencies().isEmpty();
     }
 }
@@ -15,31 +15,110 @@
  */
 package org.gradle.configuration;
 
+import org.gradle.api.CircularReferenceException;
 import org.gradle.api.ProjectEvaluationListener;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.internal.project.ProjectStateInternal;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Notifies the evaluation listeners of a project around its evaluation, and evaluates each project at most once.
+ *
+ * <p>Projects may be evaluated from multiple threads. When a project is already being evaluated by another thread, for
+ * example when it is the target of an {@code evaluationDependsOn()} from a project which is being evaluated in
+ * parallel, the calling thread waits until the evaluation, including the evaluation listeners, has completed. A
+ * {@link CircularReferenceException} is thrown when waiting would deadlock.</p>
+ */
 public class DefaultProjectEvaluator implements ProjectEvaluator {
     private final ProjectEvaluator evaluator;
+    private final Lock lock = new ReentrantLock();
+    private final Condition evaluationFinished = lock.newCondition();
+    private final Map<ProjectInternal, Thread> evaluating = new HashMap<ProjectInternal, Thread>();
+    private final Map<Thread, ProjectInternal> waitingFor = new HashMap<Thread, ProjectInternal>();
 
     public DefaultProjectEvaluator(ProjectEvaluator evaluator) {
         this.evaluator = evaluator;
     }
 
     public void evaluate(ProjectInternal project, ProjectStateInternal state) {
-        if (state.getExecuted()) {
-            return;
+        boolean owner = acquire(project);
+        try {
+            if (state.getExecuted()) {
+                return;
+            }
+
+            ProjectEvaluationListener listener = project.getProjectEvaluationBroadcaster();
+            listener.beforeEvaluate(project);
+            state.setExecuting(true);
+            try {
+                evaluator.evaluate(project, state);
+            } finally {
+                state.setExecuting(false);
+                state.executed();
+                listener.afterEvaluate(project, state);
+            }
+        } finally {
+            if (owner) {
+                release(project);
+            }
         }
+    }
+
+    /**
+     * Waits until no other thread is evaluating the given project, then marks the project as being evaluated by this
+     * thread.
+     *
+     * @return true if this call has marked the project, false if this thread was already evaluating the project.
+     */
+    private boolean acquire(ProjectInternal project) {
+        Thread current = Thread.currentThread();
+        lock.lock();
+        try {
+            Thread owner = evaluating.get(project);
+            while (owner != null && owner != current) {
+                checkCanWait(project, current);
+                waitingFor.put(current, project);
+                try {
+                    evaluationFinished.awaitUninterruptibly();
+                } finally {
+                    waitingFor.remove(current);
+                }
+                owner = evaluating.get(project);
+            }
+            if (owner == current) {
+                return false;
+            }
+            evaluating.put(project, current);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkCanWait(ProjectInternal project, Thread current) {
+        Thread owner = evaluating.get(project);
+        while (owner != null) {
+            if (owner == current) {
+                throw new CircularReferenceException(String.format("Circular referencing during evaluation for %s.",
+                        project));
+            }
+            ProjectInternal awaited = waitingFor.get(owner);
+            owner = awaited == null ? null : evaluating.get(awaited);
+        }
+    }
 
-        ProjectEvaluationListener listener = project.getProjectEvaluationBroadcaster();
-        listener.beforeEvaluate(project);
-        state.setExecuting(true);
+    private void release(ProjectInternal project) {
+        lock.lock();
         try {
-            evaluator.evaluate(project, state);
+            evaluating.remove(project);
+            evaluationFinished.signalAll();
         } finally {
-            state.setExecuting(false);
-            state.executed();
-            listener.afterEvaluate(project, state);
+            lock.unlock();
         }
     }
 }
@@ -120,5 +120,25 @@ public class DefaultScriptPluginFactory implements ScriptPluginFactory {
             }
             runner.run();
         }
+
+        public void compile(Object target) {
+            if (target instanceof ScriptAware) {
+                ((ScriptAware) target).beforeCompile(this);
+            }
+            ScriptSource withImports = importsReader.withImports(scriptSource, null);
+            ClassLoader classLoader = classLoaderProvider != null ? classLoaderProvider.getClassLoader()
+                    : scriptHandlerFactory.create(withImports, this.classLoader).getClassLoader();
+
+            ScriptCompiler compiler = scriptCompilerFactory.createCompiler(withImports);
+            compiler.setClassloader(classLoader);
+
+            BuildScriptClasspathScriptTransformer classpathScriptTransformer
+                    = new BuildScriptClasspathScriptTransformer(classpathClosureName);
+            compiler.setTransformer(classpathScriptTransformer);
+            compiler.compile(scriptType);
+
+            compiler.setTransformer(new BuildScriptTransformer(classpathScriptTransformer));
+            compiler.compile(scriptType);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.configuration;
+
+import org.gradle.api.Project;
+import org.gradle.api.internal.GradleInternal;
+import org.gradle.api.internal.project.ProjectAccessListener;
+import org.gradle.api.internal.project.ProjectInternal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Configures only those projects which are required to run the requested tasks. A project is configured along with its
+ * ancestors and the projects it depends on. Further projects are configured as they are accessed during the build, by
+ * way of the {@link ProjectAccessListener} notifications.
+ */
+public class OnDemandProjectConfigurer implements ProjectAccessListener {
+    private static Logger logger = LoggerFactory.getLogger(OnDemandProjectConfigurer.class);
+
+    private final ProjectDependencies2TaskResolver projectDependencies2TaskResolver;
+    private final Set<Project> configured = new HashSet<Project>();
+
+    public OnDemandProjectConfigurer(ProjectDependencies2TaskResolver projectDependencies2TaskResolver) {
+        this.projectDependencies2TaskResolver = projectDependencies2TaskResolver;
+    }
+
+    /**
+     * Configures the projects required to run the given tasks.
+     *
+     * @return true if the projects were configured, false if the tasks cannot be mapped to projects without configuring
+     * the whole build.
+     */
+    public boolean configureFor(GradleInternal gradle, Collection<String> taskNames) {
+        if (taskNames.isEmpty()) {
+            return false;
+        }
+        ProjectInternal defaultProject = gradle.getDefaultProject();
+        Set<Project> targets = new LinkedHashSet<Project>();
+        for (String taskName : taskNames) {
+            if (taskName.contains(Project.PATH_SEPARATOR)) {
+                String projectPath = taskName.substring(0, taskName.lastIndexOf(Project.PATH_SEPARATOR));
+                Project project = defaultProject.findProject(projectPath.length() == 0 ? Project.PATH_SEPARATOR
+                        : projectPath);
+                if (project == null) {
+                    return false;
+                }
+                targets.add(project);
+            } else {
+                targets.addAll(defaultProject.getAllprojects());
+            }
+        }
+        logger.debug("Configuring projects on demand for tasks {}.", taskNames);
+        for (Project project : targets) {
+            configure((ProjectInternal) project);
+        }
+        return true;
+    }
+
+    public void beforeAccess(Project project) {
+        configure((ProjectInternal) project);
+    }
+
+    /**
+     * Configures the given project, its ancestors and the projects it depends on, if not already configured.
+     */
+    public synchronized void configure(ProjectInternal project) {
+        if (!configured.add(project)) {
+            return;
+        }
+        if (project.getParent() != null) {
+            configure(project.getParent());
+        }
+        project.evaluate();
+        for (Project dependsOnProject : project.getDependsOnProjects()) {
+            configure((ProjectInternal) dependsOnProject);
+        }
+        projectDependencies2TaskResolver.resolveProject(project);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.configuration;
+
+import org.gradle.api.Action;
+import org.gradle.api.GradleException;
+import org.gradle.api.Project;
+import org.gradle.util.ThreadUtils;
+
+import java.util.LinkedList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Configures the projects of a build using a fixed size pool of worker threads. A project is dispatched as soon as its
+ * parent project has been configured, so that any configuration which the parent injects into its children is in
+ * place. Other ordering constraints, such as those declared using {@code evaluationDependsOn()}, are applied when the
+ * projects are evaluated. No further projects are dispatched once a project has failed, and the first failure is
+ * rethrown once the projects which are already being configured have completed. An instance should be used to
+ * configure a single build only.
+ */
+public class ParallelProjectConfigurer {
+    private final int threadCount;
+    private final Lock lock = new ReentrantLock();
+    private final Condition stateChanged = lock.newCondition();
+    private final LinkedList<Project> ready = new LinkedList<Project>();
+    private int running;
+    private Throwable failure;
+
+    public ParallelProjectConfigurer(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Configures the given project and all of its descendants, blocking until all projects have been configured or a
+     * project has failed.
+     *
+     * @param rootProject The root of the projects to configure.
+     * @param projectAction The action to use to configure each project.
+     */
+    public void configure(Project rootProject, final Action<? super Project> projectAction) {
+        ready.add(rootProject);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        lock.lock();
+        try {
+            while (true) {
+                if (failure == null) {
+                    while (!ready.isEmpty()) {
+                        final Project project = ready.removeFirst();
+                        running++;
+                        executor.execute(new Runnable() {
+                            public void run() {
+                                configureProject(project, projectAction);
+                            }
+                        });
+                    }
+                }
+                if (running == 0) {
+                    break;
+                }
+                stateChanged.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+            ThreadUtils.shutdown(executor);
+        }
+
+        if (failure != null) {
+            rethrow(failure);
+        }
+    }
+
+    private void configureProject(Project project, Action<? super Project> projectAction) {
+        Throwable projectFailure = null;
+        try {
+            projectAction.execute(project);
+        } catch (Throwable t) {
+            projectFailure = t;
+        }
+
+        lock.lock();
+        try {
+            running--;
+            if (projectFailure != null) {
+                if (failure == null) {
+                    failure = projectFailure;
+                }
+            } else {
+                ready.addAll(project.getChildProjects().values());
+            }
+            stateChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void rethrow(Throwable failure) {
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        throw new GradleException(failure);
+    }
+}
@@ -31,19 +31,27 @@ public class ProjectDependencies2TaskResolver {
     public void resolve(Project rootProject) {
         Action<Project> projectAction = new Action<Project>() {
             public void execute(Project project) {
-                for (Project dependsOnProject : project.getDependsOnProjects()) {
-                    logger.debug("Checking task dependencies for project: {} dependsOn: {}", project, dependsOnProject);
-                    for (Task task : project.getTasks()) {
-                        String taskName = task.getName();
-                        Task dependentTask = dependsOnProject.getTasks().findByName(taskName);
-                        if (dependentTask != null) {
-                            logger.debug("Setting task dependencies for task: {}", taskName);
-                            task.dependsOn(dependentTask);
-                        }
-                    }
-                }
+                resolveProject(project);
             }
         };
         rootProject.allprojects(projectAction);
     }
+
+    /**
+     * Adds the task dependencies implied by the dependsOn projects of the given project, without visiting its
+     * children.
+     */
+    public void resolveProject(Project project) {
+        for (Project dependsOnProject : project.getDependsOnProjects()) {
+            logger.debug("Checking task dependencies for project: {} dependsOn: {}", project, dependsOnProject);
+            for (Task task : project.getTasks()) {
+                String taskName = task.getName();
+                Task dependentTask = dependsOnProject.getTasks().findByName(taskName);
+                if (dependentTask != null) {
+                    logger.debug("Setting task dependencies for task: {}", taskName);
+                    task.dependsOn(dependentTask);
+                }
+            }
+        }
+    }
 }
\ No newline at end of file
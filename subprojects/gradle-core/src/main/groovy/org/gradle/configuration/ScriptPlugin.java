@@ -39,4 +39,13 @@ public interface ScriptPlugin extends Plugin<Object> {
      * @param target The target object to configure.
      */
     void apply(Object target);
+
+    /**
+     * Compiles the script for the given target object, without running any of it. Compiled script classes are
+     * cached, so that a later call to {@link #apply(Object)} can use them. This method is safe to call from any
+     * thread.
+     *
+     * @param target The target object which the script will be applied to.
+     */
+    void compile(Object target);
 }
@@ -17,11 +17,13 @@
 package org.gradle.execution;
 
 import groovy.lang.Closure;
+import org.gradle.api.Action;
 import org.gradle.api.CircularReferenceException;
 import org.gradle.api.Task;
 import org.gradle.api.execution.TaskExecutionGraphListener;
 import org.gradle.api.execution.TaskExecutionListener;
 import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.tasks.CachingTaskDependency;
 import org.gradle.api.specs.Spec;
 import org.gradle.api.specs.Specs;
 import org.gradle.listener.ListenerBroadcast;
@@ -41,12 +43,33 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
     private final ListenerBroadcast<TaskExecutionGraphListener> graphListeners;
     private final ListenerBroadcast<TaskExecutionListener> taskListeners;
     private final Set<Task> executionPlan = new LinkedHashSet<Task>();
+    private final Object taskListenerLock = new Object();
+    private final int parallelThreadCount;
+    private final ExecutionPlanCache planCache;
     private boolean populated;
     private Spec<? super Task> filter = Specs.satisfyAll();
 
     public DefaultTaskGraphExecuter(ListenerManager listenerManager) {
+        this(listenerManager, 0);
+    }
+
+    /**
+     * Creates an executer which executes independent tasks concurrently when the given thread count is greater than 1.
+     */
+    public DefaultTaskGraphExecuter(ListenerManager listenerManager, int parallelThreadCount) {
+        this(listenerManager, parallelThreadCount, null);
+    }
+
+    /**
+     * Creates an executer which uses the given cache, if not null, to avoid walking the task dependencies when the
+     * execution plan for the requested tasks has been calculated by an earlier build.
+     */
+    public DefaultTaskGraphExecuter(ListenerManager listenerManager, int parallelThreadCount,
+                                    ExecutionPlanCache planCache) {
         graphListeners = listenerManager.createAnonymousBroadcaster(TaskExecutionGraphListener.class);
         taskListeners = listenerManager.createAnonymousBroadcaster(TaskExecutionListener.class);
+        this.parallelThreadCount = parallelThreadCount;
+        this.planCache = planCache;
     }
 
     public void useFilter(Spec<? super Task> filter) {
@@ -62,7 +85,18 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
         for (Task task : tasks) {
             sortedTasks.add(task);
         }
-        fillDag(sortedTasks);
+        if (planCache != null && executionPlan.isEmpty()) {
+            List<Task> cachedPlan = planCache.get(sortedTasks);
+            if (cachedPlan != null) {
+                logger.debug("Using cached execution plan for {}.", sortedTasks);
+                executionPlan.addAll(cachedPlan);
+            } else {
+                fillDag(sortedTasks);
+                planCache.put(sortedTasks, executionPlan);
+            }
+        } else {
+            fillDag(sortedTasks);
+        }
         populated = true;
 
         logger.debug("Timing: Creating the DAG took " + clock.getTime());
@@ -86,39 +120,53 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
         execute();
     }
 
-    private void fillDag(Collection<? extends Task> tasks) {
+    private void fillDag(final Collection<? extends Task> tasks) {
+        // The model is not expected to change while the graph is built, so the dependencies shared by many tasks
+        // need only be resolved once
+        CachingTaskDependency.cacheDuring(new Runnable() {
+            public void run() {
+                visitTasks(tasks);
+            }
+        });
+    }
+
+    private void visitTasks(Collection<? extends Task> tasks) {
         Set<Task> visiting = new HashSet<Task>();
-        List<Task> queue = new ArrayList<Task>();
-        queue.addAll(tasks);
+        // A stack, with the next task to visit at the end of the list, so that pushing and popping tasks does not
+        // need to shift the remaining tasks
+        List<Task> stack = new ArrayList<Task>(tasks);
+        Collections.reverse(stack);
 
-        while (!queue.isEmpty()) {
-            Task task = queue.get(0);
+        while (!stack.isEmpty()) {
+            int top = stack.size() - 1;
+            Task task = stack.get(top);
             if (!filter.isSatisfiedBy(task)) {
                 // Filtered - skip
-                queue.remove(0);
+                stack.remove(top);
                 continue;
             }
             if (executionPlan.contains(task)) {
                 // Already in plan - skip
-                queue.remove(0);
+                stack.remove(top);
                 continue;
             }
 
             if (visiting.add(task)) {
-                // Have not seen this task before - add its dependencies to the head of the queue and leave this
-                // task in the queue
-                Set<Task> dependsOnTasks = new TreeSet<Task>(Collections.reverseOrder());
-                dependsOnTasks.addAll(task.getTaskDependencies().getDependencies(task));
-                for (Task dependsOnTask : dependsOnTasks) {
+                // Have not seen this task before - push its dependencies, so that they are visited in name order,
+                // and leave this task on the stack
+                List<Task> dependsOnTasks = new ArrayList<Task>(task.getTaskDependencies().getDependencies(task));
+                Collections.sort(dependsOnTasks);
+                for (int i = dependsOnTasks.size() - 1; i >= 0; i--) {
+                    Task dependsOnTask = dependsOnTasks.get(i);
                     if (visiting.contains(dependsOnTask)) {
                         throw new CircularReferenceException(String.format(
                                 "Circular dependency between tasks. Cycle includes %s.", task));
                     }
-                    queue.add(0, dependsOnTask);
+                    stack.add(dependsOnTask);
                 }
             } else {
                 // Have visited this task's dependencies - add it to the end of the plan
-                queue.remove(0);
+                stack.remove(top);
                 visiting.remove(task);
                 executionPlan.add(task);
             }
@@ -153,18 +201,32 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
         taskListeners.add("afterExecute", closure);
     }
 
-    private void doExecute(Iterable<? extends Task> tasks) {
+    private void doExecute(Collection<? extends Task> tasks) {
+        if (parallelThreadCount > 1) {
+            logger.debug("Executing the DAG using {} threads.", parallelThreadCount);
+            new ParallelTaskPlanExecuter(parallelThreadCount).execute(tasks, new Action<Task>() {
+                public void execute(Task task) {
+                    executeTask(task);
+                }
+            });
+            return;
+        }
         for (Task task : tasks) {
             executeTask(task);
         }
     }
 
     private void executeTask(Task task) {
-        taskListeners.getSource().beforeExecute(task);
+        // Listeners are not required to be thread-safe, so notify them one task at a time
+        synchronized (taskListenerLock) {
+            taskListeners.getSource().beforeExecute(task);
+        }
         try {
             ((TaskInternal) task).execute();
         } finally {
-            taskListeners.getSource().afterExecute(task, task.getState());
+            synchronized (taskListenerLock) {
+                taskListeners.getSource().afterExecute(task, task.getState());
+            }
         }
     }
 
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.execution;
+
+import org.gradle.api.Task;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A cache of execution plans, which allows the dependencies of the requested tasks to be determined without walking
+ * the task graph.
+ */
+public interface ExecutionPlanCache {
+    /**
+     * Returns the cached execution plan for the given requested tasks.
+     *
+     * @return The tasks to execute, in order, or null if no plan is cached.
+     */
+    List<Task> get(Collection<? extends Task> requestedTasks);
+
+    /**
+     * Caches the execution plan for the given requested tasks.
+     */
+    void put(Collection<? extends Task> requestedTasks, Collection<? extends Task> plan);
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution;
+
+import org.gradle.api.Action;
+import org.gradle.api.GradleException;
+import org.gradle.api.Task;
+import org.gradle.api.internal.tasks.CachingTaskDependency;
+import org.gradle.util.ThreadUtils;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Executes the tasks of an execution plan using a fixed size pool of worker threads. A task is dispatched as soon as
+ * all of the tasks in the plan which it depends on have completed. No further tasks are dispatched once a task has
+ * failed, and the first failure is rethrown once the tasks which are already running have completed. An instance
+ * should be used to execute a single plan only.
+ */
+public class ParallelTaskPlanExecuter {
+    private final int threadCount;
+    private final Lock lock = new ReentrantLock();
+    private final Condition stateChanged = lock.newCondition();
+    private final LinkedList<Task> ready = new LinkedList<Task>();
+    private final Map<Task, Set<Task>> waitingOn = new HashMap<Task, Set<Task>>();
+    private final Map<Task, List<Task>> dependents = new HashMap<Task, List<Task>>();
+    private int running;
+    private Throwable failure;
+
+    public ParallelTaskPlanExecuter(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Executes the given plan, blocking until all tasks have completed or a task has failed.
+     *
+     * @param plan The tasks to execute, in a valid execution order.
+     * @param taskAction The action to use to execute each task.
+     */
+    public void execute(Collection<? extends Task> plan, final Action<? super Task> taskAction) {
+        buildDependencies(plan);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        lock.lock();
+        try {
+            while (true) {
+                if (failure == null) {
+                    while (!ready.isEmpty()) {
+                        final Task task = ready.removeFirst();
+                        running++;
+                        executor.execute(new Runnable() {
+                            public void run() {
+                                executeTask(task, taskAction);
+                            }
+                        });
+                    }
+                }
+                if (running == 0) {
+                    break;
+                }
+                stateChanged.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+            ThreadUtils.shutdown(executor);
+        }
+
+        if (failure != null) {
+            rethrow(failure);
+        }
+        if (!waitingOn.isEmpty()) {
+            throw new IllegalStateException(String.format("Could not execute %s as their dependencies were not executed.",
+                    waitingOn.keySet()));
+        }
+    }
+
+    private void buildDependencies(final Collection<? extends Task> plan) {
+        CachingTaskDependency.cacheDuring(new Runnable() {
+            public void run() {
+                addDependencies(plan);
+            }
+        });
+    }
+
+    private void addDependencies(Collection<? extends Task> plan) {
+        Set<Task> planTasks = new HashSet<Task>(plan);
+        for (Task task : plan) {
+            Set<Task> dependencies = new HashSet<Task>(task.getTaskDependencies().getDependencies(task));
+            dependencies.retainAll(planTasks);
+            if (dependencies.isEmpty()) {
+                ready.add(task);
+                continue;
+            }
+            waitingOn.put(task, dependencies);
+            for (Task dependency : dependencies) {
+                List<Task> tasks = dependents.get(dependency);
+                if (tasks == null) {
+                    tasks = new ArrayList<Task>();
+                    dependents.put(dependency, tasks);
+                }
+                tasks.add(task);
+            }
+        }
+    }
+
+    private void executeTask(Task task, Action<? super Task> taskAction) {
+        Throwable taskFailure = null;
+        try {
+            taskAction.execute(task);
+        } catch (Throwable t) {
+            taskFailure = t;
+        }
+
+        lock.lock();
+        try {
+            running--;
+            if (taskFailure != null) {
+                if (failure == null) {
+                    failure = taskFailure;
+                }
+            } else {
+                completed(task);
+            }
+            stateChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void completed(Task task) {
+        List<Task> tasks = dependents.remove(task);
+        if (tasks == null) {
+            return;
+        }
+        for (Task dependent : tasks) {
+            Set<Task> dependencies = waitingOn.get(dependent);
+            dependencies.remove(task);
+            if (dependencies.isEmpty()) {
+                waitingOn.remove(dependent);
+                ready.add(dependent);
+            }
+        }
+    }
+
+    private static void rethrow(Throwable failure) {
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        throw new GradleException(failure);
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.execution;
+
+import org.gradle.StartParameter;
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.artifacts.ProjectDependenciesBuildInstruction;
+import org.gradle.api.internal.GradleInternal;
+import org.gradle.cache.CacheRepository;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.groovy.scripts.Script;
+import org.gradle.groovy.scripts.ScriptExecutionListener;
+import org.gradle.groovy.scripts.ScriptSource;
+import org.gradle.util.HashUtil;
+import org.gradle.util.MultiParentClassLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.*;
+
+/**
+ * An {@link ExecutionPlanCache} which stores execution plans as task paths in a persistent cache for the build. A plan
+ * is keyed by the requested tasks, the scripts executed by the build, the classpath of those scripts, the {@code
+ * gradle.properties} files and the command-line parameters of the build. The scripts are collected by listening for
+ * script execution, so the key is only complete once the build has been configured.
+ *
+ * <p>The script classpath is made up of the buildscript classpath of each project and the buildSrc classes. Each entry
+ * is identified by its path, length and modification time, rather than by its content, as the buildSrc classpath also
+ * contains the Gradle API jars, which would take longer to hash than the task graph takes to populate.</p>
+ */
+public class PersistentExecutionPlanCache implements ExecutionPlanCache, ScriptExecutionListener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PersistentExecutionPlanCache.class);
+    private final GradleInternal gradle;
+    private final CacheRepository cacheRepository;
+    private final Set<ClassLoader> sharedClassLoaders = new HashSet<ClassLoader>();
+    private final Map<String, String> scriptHashes = new TreeMap<String, String>();
+    private PersistentIndexedCache<String, ArrayList<String>> cache;
+
+    /**
+     * Creates a cache for the given build. The given root ClassLoader, and its ancestors, are shared by all builds
+     * and so are not included in the key.
+     */
+    public PersistentExecutionPlanCache(GradleInternal gradle, CacheRepository cacheRepository,
+                                        ClassLoader rootClassLoader) {
+        this.gradle = gradle;
+        this.cacheRepository = cacheRepository;
+        for (ClassLoader classLoader = rootClassLoader; classLoader != null; classLoader = classLoader.getParent()) {
+            sharedClassLoaders.add(classLoader);
+        }
+    }
+
+    public void beforeScript(Script script) {
+        ScriptSource source = script.getScriptSource();
+        String hash = HashUtil.createHash(source.getResource().getText());
+        synchronized (scriptHashes) {
+            scriptHashes.put(source.getDisplayName(), hash);
+        }
+    }
+
+    public void afterScript(Script script, Throwable result) {
+    }
+
+    public List<Task> get(Collection<? extends Task> requestedTasks) {
+        List<String> paths = getCache().get(createKey(requestedTasks));
+        if (paths == null) {
+            return null;
+        }
+        List<Task> plan = new ArrayList<Task>(paths.size());
+        for (String path : paths) {
+            Task task = gradle.getRootProject().getTasks().findByPath(path);
+            if (task == null) {
+                LOGGER.debug("Not using cached execution plan, as task {} no longer exists.", path);
+                return null;
+            }
+            plan.add(task);
+        }
+        return plan;
+    }
+
+    public void put(Collection<? extends Task> requestedTasks, Collection<? extends Task> plan) {
+        ArrayList<String> paths = new ArrayList<String>(plan.size());
+        for (Task task : plan) {
+            paths.add(task.getPath());
+        }
+        getCache().put(createKey(requestedTasks), paths);
+    }
+
+    private PersistentIndexedCache<String, ArrayList<String>> getCache() {
+        if (cache == null) {
+            cache = cacheRepository.cache("taskGraph").forObject(gradle).open().openIndexedCache();
+        }
+        return cache;
+    }
+
+    private String createKey(Collection<? extends Task> requestedTasks) {
+        StringBuilder key = new StringBuilder();
+        synchronized (scriptHashes) {
+            for (Map.Entry<String, String> entry : scriptHashes.entrySet()) {
+                key.append(entry.getKey()).append('=').append(entry.getValue()).append(';');
+            }
+        }
+
+        StartParameter startParameter = gradle.getStartParameter();
+        for (Project project : gradle.getRootProject().getAllprojects()) {
+            appendFileHash(key, new File(project.getProjectDir(), Project.GRADLE_PROPERTIES));
+        }
+        appendFileHash(key, new File(startParameter.getGradleUserHomeDir(), Project.GRADLE_PROPERTIES));
+
+        Set<File> classpath = new LinkedHashSet<File>();
+        collectClasspath(gradle.getScriptClassLoader(), classpath, new HashSet<ClassLoader>());
+        for (Project project : gradle.getRootProject().getAllprojects()) {
+            collectClasspath(project.getBuildscript().getClassLoader(), classpath, new HashSet<ClassLoader>());
+        }
+        for (File file : classpath) {
+            appendFileFingerprint(key, file);
+        }
+
+        ProjectDependenciesBuildInstruction instruction = startParameter.getProjectDependenciesBuildInstruction();
+        key.append(startParameter.getExcludedTaskNames()).append(';');
+        key.append(new TreeMap<String, String>(startParameter.getProjectProperties())).append(';');
+        key.append(new TreeMap<String, String>(startParameter.getSystemPropertiesArgs())).append(';');
+        key.append(instruction.isRebuild()).append(instruction.getTaskNames()).append(';');
+        key.append(gradle.getDefaultProject().getPath()).append(';');
+
+        for (Task task : requestedTasks) {
+            key.append(task.getPath()).append(',');
+        }
+        return HashUtil.createHash(key.toString());
+    }
+
+    private void collectClasspath(ClassLoader classLoader, Set<File> classpath, Set<ClassLoader> visited) {
+        if (classLoader == null || sharedClassLoaders.contains(classLoader) || !visited.add(classLoader)) {
+            return;
+        }
+        if (classLoader instanceof URLClassLoader) {
+            for (URL url : ((URLClassLoader) classLoader).getURLs()) {
+                if (url.getProtocol().equals("file")) {
+                    try {
+                        classpath.add(new File(url.toURI()));
+                    } catch (URISyntaxException e) {
+                        classpath.add(new File(url.getPath()));
+                    }
+                }
+            }
+        }
+        if (classLoader instanceof MultiParentClassLoader) {
+            for (ClassLoader parent : ((MultiParentClassLoader) classLoader).getParents()) {
+                collectClasspath(parent, classpath, visited);
+            }
+        } else {
+            collectClasspath(classLoader.getParent(), classpath, visited);
+        }
+    }
+
+    private void appendFileFingerprint(StringBuilder key, File file) {
+        key.append(file.getAbsolutePath());
+        if (file.isDirectory()) {
+            key.append('{');
+            File[] children = file.listFiles();
+            Arrays.sort(children);
+            for (File child : children) {
+                appendFileFingerprint(key, child);
+            }
+            key.append('}');
+        } else if (file.isFile()) {
+            key.append('=').append(file.length()).append(',').append(file.lastModified());
+        }
+        key.append(';');
+    }
+
+    private void appendFileHash(StringBuilder key, File file) {
+        if (file.isFile()) {
+            key.append(file.getAbsolutePath()).append('=');
+            key.append(new BigInteger(1, HashUtil.createHash(file)).toString(16)).append(';');
+        }
+    }
+}
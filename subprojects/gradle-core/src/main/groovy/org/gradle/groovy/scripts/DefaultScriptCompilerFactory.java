@@ -31,12 +31,20 @@ public class DefaultScriptCompilerFactory implements ScriptCompilerFactory {
     private final ScriptCompilationHandler scriptCompilationHandler;
     private final CacheRepository cacheRepository;
     private final ScriptRunnerFactory scriptRunnerFactory;
+    private final ScriptClassCache scriptClassCache;
 
     public DefaultScriptCompilerFactory(ScriptCompilationHandler scriptCompilationHandler,
                                         ScriptRunnerFactory scriptRunnerFactory, CacheRepository cacheRepository) {
+        this(scriptCompilationHandler, scriptRunnerFactory, cacheRepository, new ScriptClassCache());
+    }
+
+    public DefaultScriptCompilerFactory(ScriptCompilationHandler scriptCompilationHandler,
+                                        ScriptRunnerFactory scriptRunnerFactory, CacheRepository cacheRepository,
+                                        ScriptClassCache scriptClassCache) {
         this.scriptCompilationHandler = scriptCompilationHandler;
         this.cacheRepository = cacheRepository;
         this.scriptRunnerFactory = scriptRunnerFactory;
+        this.scriptClassCache = scriptClassCache;
     }
 
     public ScriptCompiler createCompiler(ScriptSource source) {
@@ -73,9 +81,22 @@ public class DefaultScriptCompilerFactory implements ScriptCompilerFactory {
         }
 
         private <T extends Script> T loadViaCache(ClassLoader classLoader, Class<T> scriptBaseClass) {
+            String hash = HashUtil.createHash(source.getResource().getText());
+            String key = String.format("%s/%s/%s/%s", source.getClassName(), hash,
+                    transformer == null ? "" : transformer.getId(), scriptBaseClass.getName());
+            Class<? extends T> scriptClass = scriptClassCache.get(classLoader, key, scriptBaseClass);
+            if (scriptClass == null) {
+                scriptClass = loadViaPersistentCache(classLoader, scriptBaseClass, hash);
+                scriptClassCache.put(classLoader, key, scriptClass);
+            }
+            return scriptBaseClass.cast(ReflectionUtil.newInstance(scriptClass, new Object[0]));
+        }
+
+        private <T extends Script> Class<? extends T> loadViaPersistentCache(ClassLoader classLoader,
+                                                                           Class<T> scriptBaseClass, String hash) {
             Map<String, Object> properties = new HashMap<String, Object>();
             properties.put("source.filename", source.getFileName());
-            properties.put("source.hash", HashUtil.createHash(source.getResource().getText()));
+            properties.put("source.hash", hash);
 
             PersistentCache cache = cacheRepository.cache(String.format("scripts/%s", source.getClassName())).withProperties(properties).open();
             File classesDir;
@@ -90,9 +111,7 @@ public class DefaultScriptCompilerFactory implements ScriptCompilerFactory {
                 scriptCompilationHandler.compileToDir(source, classLoader, classesDir, transformer, scriptBaseClass);
                 cache.markValid();
             }
-            Class<? extends T> scriptClass = scriptCompilationHandler.loadFromDir(source, classLoader, classesDir,
-                    scriptBaseClass);
-            return scriptBaseClass.cast(ReflectionUtil.newInstance(scriptClass, new Object[0]));
+            return scriptCompilationHandler.loadFromDir(source, classLoader, classesDir, scriptBaseClass);
         }
     }
 }
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.groovy.scripts;
+
+import org.gradle.util.MultiParentClassLoader;
+
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.net.URLClassLoader;
+import java.util.*;
+
+/**
+ * An in-memory cache of compiled script classes, which can be shared by all builds in a process.
+ *
+ * <p>Classes are cached per effective parent {@link ClassLoader}, so that a cached class is only handed back to a
+ * script which would load the same classes. The effective parent is found by skipping the ClassLoaders which cannot
+ * define classes themselves: {@link URLClassLoader}s without a classpath, and {@link MultiParentClassLoader}s whose
+ * parents all have the same effective parent. Each build creates such ClassLoaders for its settings and build scripts,
+ * so for a script without a buildscript classpath the effective parent is a ClassLoader shared by all builds.</p>
+ *
+ * <p>Classes whose effective parent is one of the given shared ClassLoaders are held softly, so they are reused by
+ * later builds. Other classes are held weakly, so the cache does not keep a build's ClassLoaders alive.</p>
+ */
+public class ScriptClassCache {
+    private final Set<ClassLoader> sharedClassLoaders = new HashSet<ClassLoader>();
+    private final Map<ClassLoader, Map<String, Reference<Class<?>>>> classes
+            = new WeakHashMap<ClassLoader, Map<String, Reference<Class<?>>>>();
+
+    public ScriptClassCache(ClassLoader... sharedClassLoaders) {
+        for (ClassLoader sharedClassLoader : sharedClassLoaders) {
+            for (ClassLoader classLoader = sharedClassLoader; classLoader != null;
+                 classLoader = classLoader.getParent()) {
+                this.sharedClassLoaders.add(classLoader);
+            }
+        }
+    }
+
+    /**
+     * Returns the cached script class for the given parent ClassLoader and key.
+     *
+     * @return the class, or null if not cached.
+     */
+    public synchronized <T> Class<? extends T> get(ClassLoader parent, String key, Class<T> scriptBaseClass) {
+        Map<String, Reference<Class<?>>> classesForParent = classes.get(getEffectiveParent(parent));
+        if (classesForParent == null) {
+            return null;
+        }
+        Reference<Class<?>> reference = classesForParent.get(key);
+        Class<?> scriptClass = reference == null ? null : reference.get();
+        if (scriptClass == null) {
+            classesForParent.remove(key);
+            return null;
+        }
+        return scriptClass.asSubclass(scriptBaseClass);
+    }
+
+    public synchronized void put(ClassLoader parent, String key, Class<?> scriptClass) {
+        ClassLoader effectiveParent = getEffectiveParent(parent);
+        Map<String, Reference<Class<?>>> classesForParent = classes.get(effectiveParent);
+        if (classesForParent == null) {
+            classesForParent = new HashMap<String, Reference<Class<?>>>();
+            classes.put(effectiveParent, classesForParent);
+        }
+        if (sharedClassLoaders.contains(effectiveParent)) {
+            classesForParent.put(key, new SoftReference<Class<?>>(scriptClass));
+        } else {
+            classesForParent.put(key, new WeakReference<Class<?>>(scriptClass));
+        }
+    }
+
+    static ClassLoader getEffectiveParent(ClassLoader classLoader) {
+        while (true) {
+            if (classLoader instanceof URLClassLoader && ((URLClassLoader) classLoader).getURLs().length == 0
+                    && classLoader.getParent() != null) {
+                classLoader = classLoader.getParent();
+            } else if (classLoader instanceof MultiParentClassLoader) {
+                ClassLoader effectiveParent = getCommonEffectiveParent((MultiParentClassLoader) classLoader);
+                if (effectiveParent == null) {
+                    return classLoader;
+                }
+                classLoader = effectiveParent;
+            } else {
+                return classLoader;
+            }
+        }
+    }
+
+    private static ClassLoader getCommonEffectiveParent(MultiParentClassLoader classLoader) {
+        ClassLoader commonParent = null;
+        for (ClassLoader parent : classLoader.getParents()) {
+            ClassLoader effectiveParent = getEffectiveParent(parent);
+            if (commonParent != null && commonParent != effectiveParent) {
+                return null;
+            }
+            commonParent = effectiveParent;
+        }
+        return commonParent;
+    }
+}
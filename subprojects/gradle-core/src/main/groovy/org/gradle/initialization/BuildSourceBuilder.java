@@ -20,13 +20,14 @@ import org.apache.commons.io.IOUtils;
 import org.gradle.*;
 import org.gradle.api.Project;
 import org.gradle.api.UncheckedIOException;
+import org.gradle.api.internal.changedetection.FileCollectionSnapshot;
 import org.gradle.api.internal.plugins.EmbeddableJavaProject;
 import org.gradle.api.invocation.Gradle;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.PersistentStateCache;
 import org.gradle.groovy.scripts.ScriptSource;
 import org.gradle.groovy.scripts.StringScriptSource;
-import org.gradle.util.TimeProvider;
+import org.gradle.util.GUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -47,16 +48,14 @@ public class BuildSourceBuilder {
     private final CacheInvalidationStrategy cacheInvalidationStrategy;
     private final ClassLoaderFactory classLoaderFactory;
     private final CacheRepository cacheRepository;
-    private final TimeProvider timeProvider;
 
     private static final String DEFAULT_BUILD_SOURCE_SCRIPT_RESOURCE = "defaultBuildSourceScript.txt";
 
-    public BuildSourceBuilder(GradleLauncherFactory gradleLauncherFactory, CacheInvalidationStrategy cacheInvalidationStrategy, ClassLoaderFactory classLoaderFactory, CacheRepository cacheRepository, TimeProvider timeProvider) {
+    public BuildSourceBuilder(GradleLauncherFactory gradleLauncherFactory, CacheInvalidationStrategy cacheInvalidationStrategy, ClassLoaderFactory classLoaderFactory, CacheRepository cacheRepository) {
         this.gradleLauncherFactory = gradleLauncherFactory;
         this.cacheInvalidationStrategy = cacheInvalidationStrategy;
         this.classLoaderFactory = classLoaderFactory;
         this.cacheRepository = cacheRepository;
-        this.timeProvider = timeProvider;
     }
 
     public URLClassLoader buildAndCreateClassLoader(StartParameter startParameter)
@@ -92,11 +91,12 @@ public class BuildSourceBuilder {
         startParameterArg.setSearchUpwards(false);
         boolean executeBuild = true;
 
-        PersistentStateCache<Long> stateCache = cacheRepository.cache("buildSrc").forObject(
-                startParameter.getCurrentDir()).invalidateOnVersionChange().open().openStateCache();
-        Long timestamp = stateCache.get();
+        PersistentStateCache<FileCollectionSnapshot> stateCache = cacheRepository.cache("buildSrc").forObject(
+                startParameter.getCurrentDir()).invalidateOnVersionChange().withProperties(GUtil.map("state",
+                "snapshot")).open().openStateCache(cacheInvalidationStrategy.getSerializer());
+        FileCollectionSnapshot snapshot = stateCache.get();
 
-        if (startParameter.getCacheUsage() == CacheUsage.ON && cacheInvalidationStrategy.isValid(timestamp, startParameter.getCurrentDir())) {
+        if (startParameter.getCacheUsage() == CacheUsage.ON && cacheInvalidationStrategy.isValid(snapshot, startParameter.getCurrentDir())) {
             executeBuild = false;
         }
 
@@ -116,7 +116,10 @@ public class BuildSourceBuilder {
             buildResult = gradleLauncher.getBuildAnalysis();
         }
         buildResult.rethrowFailure();
-        stateCache.set(timeProvider.getCurrentTime());
+        if (executeBuild) {
+            // Snapshot after the build, as the build may generate source files
+            stateCache.set(cacheInvalidationStrategy.snapshot(startParameter.getCurrentDir()));
+        }
 
         Set<File> buildSourceClasspath = new LinkedHashSet<File>();
         buildSourceClasspath.addAll(listener.getRuntimeClasspath());
@@ -15,11 +15,30 @@
  */
 package org.gradle.initialization;
 
+import org.gradle.api.internal.changedetection.FileCollectionSnapshot;
+import org.gradle.cache.Serializer;
+
 import java.io.File;
 
 /**
  * @author Hans Dockter
  */
 public interface CacheInvalidationStrategy {
-    boolean isValid(Long timeStamp, File currentDir);
+    /**
+     * Creates a snapshot of the source files of the build in the given root directory.
+     */
+    FileCollectionSnapshot snapshot(File rootDir);
+
+    /**
+     * Returns true if the source files of the build in the given root directory have not changed since the given
+     * snapshot was created.
+     *
+     * @param previousSnapshot The snapshot created when the build was last run, or null if it has not been run.
+     */
+    boolean isValid(FileCollectionSnapshot previousSnapshot, File rootDir);
+
+    /**
+     * Returns a serializer which can read and write the snapshots created by this strategy.
+     */
+    Serializer<FileCollectionSnapshot> getSerializer();
 }
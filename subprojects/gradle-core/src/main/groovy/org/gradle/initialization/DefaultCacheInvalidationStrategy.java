@@ -15,76 +15,50 @@
  */
 package org.gradle.initialization;
 
-import org.gradle.util.WrapUtil;
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.filefilter.IOFileFilter;
-import org.apache.commons.io.filefilter.AbstractFileFilter;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.internal.changedetection.FileCollectionSnapshot;
+import org.gradle.api.internal.changedetection.FileSnapshotter;
+import org.gradle.api.internal.file.FileSet;
+import org.gradle.api.internal.file.IdentityFileResolver;
+import org.gradle.cache.Serializer;
 
 import java.io.File;
-import java.util.List;
-import java.util.ArrayList;
 
 /**
+ * Compares the contents of the source files of a build with the snapshot taken when the build was last run. The
+ * comparison stops at the first changed file. The build output directory, the {@code .gradle} directory and version
+ * control metadata are ignored.
+ *
  * @author Hans Dockter
  */
 public class DefaultCacheInvalidationStrategy implements CacheInvalidationStrategy {
-    private static final List<String> IGNORE_DIR_FLOATING_LOCATION_NAMES = WrapUtil.toList(".svn");
-    private static final List<String> IGNORE_DIR_FIXED_LOCATION_NAMES = WrapUtil.toList("build", ".gradle");
+    private static final String[] IGNORE_FLOATING_LOCATION_PATTERNS = {"**/.svn"};
+    private static final String[] IGNORE_FIXED_LOCATION_PATTERNS = {"build", ".gradle"};
+    private final FileSnapshotter snapshotter;
 
-    public boolean isValid(Long timestamp, File rootDir) {
-        if (timestamp == null) {
-            return false;
-        }
-        return projectFilesAreOlderThanArtifact(rootDir, timestamp);
+    public DefaultCacheInvalidationStrategy(FileSnapshotter snapshotter) {
+        this.snapshotter = snapshotter;
     }
 
-    private boolean projectFilesAreOlderThanArtifact(File rootDir, final long timestamp) {
-        final DirFilter dirFilter = new DirFilter(rootDir);
-        IOFileFilter lastModifiedFilter = new AbstractFileFilter() {
-            @Override
-            public boolean accept(File file) {
-                if (file.isDirectory() && !dirFilter.accept(file)) {
-                    return false;
-                }
-                if (file.lastModified() > timestamp) {
-                    throw new InvalidCacheException();
-                }
-                return false;
-            }
-        };
-        try {
-            FileUtils.listFiles(rootDir, lastModifiedFilter, new DirFilter(rootDir));
-        } catch (InvalidCacheException e) {
+    public FileCollectionSnapshot snapshot(File rootDir) {
+        return snapshotter.snapshot(getSourceFiles(rootDir));
+    }
+
+    public boolean isValid(FileCollectionSnapshot previousSnapshot, File rootDir) {
+        if (previousSnapshot == null) {
             return false;
         }
-        return true;
+        return snapshotter.isUpToDate(getSourceFiles(rootDir), previousSnapshot);
     }
 
-    private class InvalidCacheException extends RuntimeException {
-
+    public Serializer<FileCollectionSnapshot> getSerializer() {
+        return snapshotter.getSerializer();
     }
 
-    private static class DirFilter extends AbstractFileFilter {
-        private List<File> fixedLocationFiles;
-
-        private DirFilter(File rootDir) {
-            this.fixedLocationFiles = getFixedLocationFiles(rootDir, IGNORE_DIR_FIXED_LOCATION_NAMES);
-        }
-
-        @Override
-        public boolean accept(File file) {
-            if (IGNORE_DIR_FLOATING_LOCATION_NAMES.contains(file.getName()) || fixedLocationFiles.contains(file)) {
-                return false;
-            }
-            return true;
-        }
-
-        private List<File> getFixedLocationFiles(File rootDir, List<String> names) {
-            ArrayList<File> files = new ArrayList<File>();
-            for (String name : names) {
-                files.add(new File(rootDir, name));
-            }
-            return files;
-        }
+    private FileTree getSourceFiles(File rootDir) {
+        FileSet sourceFiles = new FileSet(rootDir, new IdentityFileResolver());
+        sourceFiles.exclude(IGNORE_FLOATING_LOCATION_PATTERNS);
+        sourceFiles.exclude(IGNORE_FIXED_LOCATION_PATTERNS);
+        return sourceFiles;
     }
 }
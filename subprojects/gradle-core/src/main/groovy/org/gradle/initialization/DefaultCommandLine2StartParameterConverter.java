@@ -71,9 +71,17 @@ public class DefaultCommandLine2StartParameterConverter implements CommandLine2S
     private static final String CACHE = "C";
     private static final String DRY_RUN = "m";
     private static final String NO_OPT = "no-opt";
+    private static final String PARALLEL_THREADS = "parallel-threads";
+    private static final String WATCH_FILE_SYSTEM = "watch-fs";
+    private static final String CONFIGURE_IN_PARALLEL = "parallel-configuration";
+    private static final String CONFIGURE_ON_DEMAND = "configure-on-demand";
+    private static final String CACHE_TASK_GRAPH = "cache-task-graph";
     private static final String EXCLUDE_TASK = "x";
     private static final String HELP = "h";
     private static final String GUI = "gui";
+    private static final String DAEMON = "daemon";
+    private static final String STOP_DAEMON = "stop-daemon";
+    private static final String FOREGROUND_DAEMON = "foreground";
 
     private final OptionParser parser = new OptionParser() {
         {
@@ -99,6 +107,9 @@ public class DefaultCommandLine2StartParameterConverter implements CommandLine2S
             acceptsAll(WrapUtil.toList(DEPENDENCIES, "dependencies"), "Show list of all project dependencies.").
                     withOptionalArg().ofType(String.class);
             acceptsAll(WrapUtil.toList(GUI), "Launches a GUI application");
+            acceptsAll(WrapUtil.toList(DAEMON), "Uses the Gradle build daemon to run the build. Starts the daemon if it is not running.");
+            acceptsAll(WrapUtil.toList(STOP_DAEMON), "Stops the Gradle build daemon if it is running.");
+            acceptsAll(WrapUtil.toList(FOREGROUND_DAEMON), "Starts the Gradle build daemon in the foreground.");
             acceptsAll(WrapUtil.toList(PROJECT_DIR, "project-dir"),
                     "Specifies the start directory for Gradle. Defaults to current directory.").withRequiredArg()
                     .ofType(String.class);
@@ -125,6 +136,17 @@ public class DefaultCommandLine2StartParameterConverter implements CommandLine2S
             acceptsAll(WrapUtil.toList(NO_PROJECT_DEPENDENCY_REBUILD, "no-rebuild"),
                     "Do not rebuild project dependencies.");
             acceptsAll(WrapUtil.toList(NO_OPT), "Ignore any task optimization.");
+            acceptsAll(WrapUtil.toList(PARALLEL_THREADS),
+                    "Specifies the number of threads to use to execute independent tasks in parallel.")
+                    .withRequiredArg().ofType(Integer.class);
+            acceptsAll(WrapUtil.toList(WATCH_FILE_SYSTEM),
+                    "Watch the file system for changes, to avoid checking unchanged files in later builds in the same JVM.");
+            acceptsAll(WrapUtil.toList(CONFIGURE_IN_PARALLEL),
+                    "Configure projects in parallel. Only use this for builds whose projects are decoupled.");
+            acceptsAll(WrapUtil.toList(CONFIGURE_ON_DEMAND),
+                    "Only configure the projects required by the requested tasks. Only use this for builds whose projects are decoupled.");
+            acceptsAll(WrapUtil.toList(CACHE_TASK_GRAPH),
+                    "Reuse the task execution graph of an earlier build when the build scripts and parameters are unchanged.");
             acceptsAll(WrapUtil.toList(EXCLUDE_TASK, "exclude-task"), "Specify a task to be excluded from execution.")
                     .withRequiredArg().ofType(String.class);
             acceptsAll(WrapUtil.toList(HELP, "?", "help"), "Shows this help message");
@@ -184,6 +206,18 @@ public class DefaultCommandLine2StartParameterConverter implements CommandLine2S
             startParameter.setLaunchGUI(true);
         }
 
+        if (options.has(DAEMON)) {
+            startParameter.setUseDaemon(true);
+        }
+
+        if (options.has(STOP_DAEMON)) {
+            startParameter.setStopDaemon(true);
+        }
+
+        if (options.has(FOREGROUND_DAEMON)) {
+            startParameter.setForegroundDaemon(true);
+        }
+
         if (options.has(NO_DEFAULT_IMPORTS)) {
             startParameter.setDefaultImportsFile(null);
         } else if (options.has(DEFAULT_IMPORT_FILE)) {
@@ -300,6 +334,31 @@ public class DefaultCommandLine2StartParameterConverter implements CommandLine2S
             startParameter.setNoOpt(true);
         }
 
+        if (options.has(PARALLEL_THREADS)) {
+            int threads = (Integer) options.valueOf(PARALLEL_THREADS);
+            if (threads < 0) {
+                throw new CommandLineArgumentException(String.format(
+                        "Error: The --%s option must not be negative.", PARALLEL_THREADS));
+            }
+            startParameter.setParallelThreadCount(threads);
+        }
+
+        if (options.has(WATCH_FILE_SYSTEM)) {
+            startParameter.setWatchFileSystem(true);
+        }
+
+        if (options.has(CONFIGURE_IN_PARALLEL)) {
+            startParameter.setConfigureInParallel(true);
+        }
+
+        if (options.has(CONFIGURE_ON_DEMAND)) {
+            startParameter.setConfigureOnDemand(true);
+        }
+
+        if (options.has(CACHE_TASK_GRAPH)) {
+            startParameter.setCacheTaskGraph(true);
+        }
+
         if (options.has(EXCLUDE_TASK)) {
             startParameter.setExcludedTaskNames((List<String>) options.valuesOf(EXCLUDE_TASK));
         }
@@ -18,7 +18,9 @@ package org.gradle.initialization;
 import org.gradle.*;
 import org.gradle.api.internal.ClassGenerator;
 import org.gradle.api.internal.ExceptionAnalyser;
+import org.gradle.api.internal.changedetection.FileSnapshotter;
 import org.gradle.api.internal.project.GlobalServicesRegistry;
+import org.gradle.api.internal.project.ProjectAccessListener;
 import org.gradle.api.internal.project.ProjectFactory;
 import org.gradle.api.internal.project.ServiceRegistry;
 import org.gradle.api.internal.project.TopLevelBuildServiceRegistry;
@@ -27,10 +29,10 @@ import org.gradle.api.logging.Logging;
 import org.gradle.api.logging.StandardOutputListener;
 import org.gradle.cache.CacheRepository;
 import org.gradle.configuration.BuildConfigurer;
+import org.gradle.configuration.OnDemandProjectConfigurer;
 import org.gradle.configuration.ProjectDependencies2TaskResolver;
 import org.gradle.invocation.DefaultGradle;
 import org.gradle.listener.ListenerManager;
-import org.gradle.util.TimeProvider;
 import org.gradle.util.WrapUtil;
 
 /**
@@ -71,6 +73,18 @@ public class DefaultGradleLauncherFactory implements GradleLauncherFactory {
         listenerManager.addListener(tracker);
         listenerManager.addListener(new BuildCleanupListener(serviceRegistry));
 
+        ProjectDependencies2TaskResolver projectDependencies2TaskResolver = new ProjectDependencies2TaskResolver();
+        BuildConfigurer buildConfigurer;
+        if (startParameter.isConfigureOnDemand()) {
+            OnDemandProjectConfigurer onDemandConfigurer = new OnDemandProjectConfigurer(
+                    projectDependencies2TaskResolver);
+            serviceRegistry.add(ProjectAccessListener.class, onDemandConfigurer);
+            buildConfigurer = new BuildConfigurer(projectDependencies2TaskResolver, onDemandConfigurer);
+        } else {
+            buildConfigurer = new BuildConfigurer(projectDependencies2TaskResolver,
+                    getConfigurationThreadCount(startParameter));
+        }
+
         DefaultGradle gradle = new DefaultGradle(
                 tracker.getCurrentBuild(),
                 startParameter, serviceRegistry);
@@ -85,22 +99,32 @@ public class DefaultGradleLauncherFactory implements GradleLauncherFactory {
                         serviceRegistry.get(SettingsProcessor.class),
                         new BuildSourceBuilder(
                                 this,
-                                new DefaultCacheInvalidationStrategy(),
+                                new DefaultCacheInvalidationStrategy(
+                                        serviceRegistry.get(FileSnapshotter.class)),
                                 serviceRegistry.get(ClassLoaderFactory.class),
-                                serviceRegistry.get(CacheRepository.class),
-                                serviceRegistry.get(TimeProvider.class)
+                                serviceRegistry.get(CacheRepository.class)
                         )),
                 new DefaultGradlePropertiesLoader(),
                 new BuildLoader(
                         new ProjectFactory(
                                 startParameter.getBuildScriptSource(),
                                 serviceRegistry.get(ClassGenerator.class))),
-                new BuildConfigurer(new ProjectDependencies2TaskResolver()),
+                buildConfigurer,
                 loggingConfigurer,
                 gradle.getBuildListenerBroadcaster(),
                 serviceRegistry.get(ExceptionAnalyser.class));
     }
 
+    private static int getConfigurationThreadCount(StartParameter startParameter) {
+        if (!startParameter.isConfigureInParallel()) {
+            return 1;
+        }
+        if (startParameter.getParallelThreadCount() > 1) {
+            return startParameter.getParallelThreadCount();
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+
     public void setCommandLine2StartParameterConverter(
             CommandLine2StartParameterConverter commandLine2StartParameterConverter) {
         this.commandLine2StartParameterConverter = commandLine2StartParameterConverter;
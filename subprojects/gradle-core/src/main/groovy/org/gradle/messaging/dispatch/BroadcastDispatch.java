@@ -31,9 +31,14 @@ import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+/**
+ * Dispatches method invocations to a set of listeners. Listeners may be added and removed by any thread, including
+ * while an invocation is being dispatched by another thread. A listener which is added while an invocation is being
+ * dispatched does not receive that invocation.
+ */
 public class BroadcastDispatch<T> implements StoppableDispatch<MethodInvocation> {
     private final Class<T> type;
-    private final Map<Object, InvocationHandler> handlers = new LinkedHashMap<Object, InvocationHandler>();
+    private volatile Map<Object, InvocationHandler> handlers = new LinkedHashMap<Object, InvocationHandler>();
     private final DelegatingInvocationHandler noOpLogger = new DelegatingInvocationHandler() {
         @Override
         public T getDelegate() {
@@ -44,24 +49,30 @@ public class BroadcastDispatch<T> implements StoppableDispatch<MethodInvocation>
             return null;
         }
     };
-    private DelegatingInvocationHandler logger = noOpLogger;
+    private volatile DelegatingInvocationHandler logger = noOpLogger;
 
     public BroadcastDispatch(Class<T> type) {
         this.type = type;
     }
 
     public void add(T listener) {
-        handlers.put(listener, new ListenerInvocationHandler(listener));
+        addHandler(listener, new ListenerInvocationHandler(listener));
     }
 
     public void add(String methodName, Closure closure) {
         assertIsMethod(methodName);
-        handlers.put(closure, new ClosureInvocationHandler(methodName, closure));
+        addHandler(closure, new ClosureInvocationHandler(methodName, closure));
     }
 
     public void add(String methodName, Action<?> action) {
         assertIsMethod(methodName);
-        handlers.put(action, new ActionInvocationHandler(methodName, action));
+        addHandler(action, new ActionInvocationHandler(methodName, action));
+    }
+
+    private synchronized void addHandler(Object listener, InvocationHandler handler) {
+        Map<Object, InvocationHandler> newHandlers = new LinkedHashMap<Object, InvocationHandler>(handlers);
+        newHandlers.put(listener, handler);
+        handlers = newHandlers;
     }
 
     private void assertIsMethod(String methodName) {
@@ -74,14 +85,18 @@ public class BroadcastDispatch<T> implements StoppableDispatch<MethodInvocation>
                 type.getSimpleName()));
     }
 
-    public void remove(Object listener) {
+    public synchronized void remove(Object listener) {
         if (listener.equals(logger.getDelegate())) {
             logger = noOpLogger;
         }
-        handlers.remove(listener);
+        if (handlers.containsKey(listener)) {
+            Map<Object, InvocationHandler> newHandlers = new LinkedHashMap<Object, InvocationHandler>(handlers);
+            newHandlers.remove(listener);
+            handlers = newHandlers;
+        }
     }
 
-    public T setLogger(T logger) {
+    public synchronized T setLogger(T logger) {
         T oldLogger = this.logger.getDelegate();
         this.logger = new ListenerInvocationHandler(logger);
         return oldLogger;
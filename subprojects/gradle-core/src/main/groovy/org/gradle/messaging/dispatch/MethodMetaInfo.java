@@ -98,7 +98,7 @@ public class MethodMetaInfo extends Message {
             if (type != null) {
                 return type;
             }
-            return classLoader.loadClass(typeName);
+            return Class.forName(typeName, false, classLoader);
         }
 
         @Override
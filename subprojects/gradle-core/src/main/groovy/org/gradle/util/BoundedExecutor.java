@@ -0,0 +1,62 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.util;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An {@link Executor} which runs tasks using at most a fixed number of threads. The threads are created as required,
+ * and are shared by everything which uses this executor, so the number of threads running such tasks at once stays
+ * bounded however many callers submit tasks concurrently. Tasks submitted while all threads are busy are queued.
+ */
+public class BoundedExecutor implements Executor {
+    private final int maxThreads;
+    private final ExecutorService executor;
+
+    public BoundedExecutor(final String name, int maxThreads) {
+        this.maxThreads = Math.max(1, maxThreads);
+        executor = new ThreadPoolExecutor(this.maxThreads, this.maxThreads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    private final AtomicInteger counter = new AtomicInteger();
+
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, String.format("%s Thread %d", name,
+                                counter.incrementAndGet()));
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
+
+    /**
+     * Returns the maximum number of threads which this executor uses to run tasks.
+     */
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    public void execute(Runnable command) {
+        executor.execute(command);
+    }
+
+    /**
+     * Stops this executor. Blocks until all tasks which have been submitted have completed.
+     */
+    public void stop() {
+        ThreadUtils.shutdown(executor);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+
+/**
+ * Methods to write values in a compact binary form.
+ */
+public class EncodingUtil {
+    /**
+     * Writes a non-negative int using 1 to 5 bytes, with smaller values using fewer bytes.
+     */
+    public static void writeVarInt(DataOutput output, int value) throws IOException {
+        if (value < 0) {
+            throw new IllegalArgumentException(String.format("Cannot encode negative value %d.", value));
+        }
+        while ((value & ~0x7F) != 0) {
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    public static int readVarInt(DataInput input) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) {
+                    break;
+                }
+                return value;
+            }
+        }
+        throw new StreamCorruptedException("Malformed variable length int.");
+    }
+
+    /**
+     * Writes a string as its UTF-8 encoding, preceded by the length of the encoding.
+     */
+    public static void writeString(DataOutput output, String value) throws IOException {
+        byte[] bytes = value.getBytes("UTF-8");
+        writeVarInt(output, bytes.length);
+        output.write(bytes);
+    }
+
+    public static String readString(DataInput input) throws IOException {
+        byte[] bytes = new byte[readVarInt(input)];
+        input.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    /**
+     * Writes a string as the length of the prefix which it shares with the previously written string, followed by the
+     * remainder of the string. This is compact when writing a sorted sequence of strings, such as file paths.
+     */
+    public static void writeString(DataOutput output, String previous, String value) throws IOException {
+        int max = Math.min(previous.length(), value.length());
+        int prefix = 0;
+        while (prefix < max && previous.charAt(prefix) == value.charAt(prefix)) {
+            prefix++;
+        }
+        if (prefix > 0 && Character.isHighSurrogate(value.charAt(prefix - 1))) {
+            // Don't split a surrogate pair
+            prefix--;
+        }
+        writeVarInt(output, prefix);
+        writeString(output, value.substring(prefix));
+    }
+
+    public static String readString(DataInput input, String previous) throws IOException {
+        int prefix = readVarInt(input);
+        if (prefix > previous.length()) {
+            throw new StreamCorruptedException("Malformed string prefix.");
+        }
+        return previous.substring(0, prefix) + readString(input);
+    }
+}
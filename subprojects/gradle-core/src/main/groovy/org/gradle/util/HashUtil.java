@@ -48,7 +48,7 @@ public class HashUtil {
             throw new RuntimeException(e);
         }
         try {
-            byte[] buffer = new byte[4096];
+            byte[] buffer = new byte[64 * 1024];
             InputStream instr = new FileInputStream(file);
             try {
                 while (true) {
@@ -57,6 +57,11 @@ class StartParameterTest {
         testObj.defaultImportsFile = new File('imports')
         testObj.initScripts = [new File('init script'), new File("/path/to/another init script")]
         testObj.cacheUsage = CacheUsage.ON
+        testObj.parallelThreadCount = 4
+        testObj.watchFileSystem = true
+        testObj.configureInParallel = true
+        testObj.configureOnDemand = true
+        testObj.cacheTaskGraph = true
 
         StartParameter startParameter = testObj.newInstance()
         assertEquals(testObj, startParameter)
@@ -233,6 +238,11 @@ class StartParameterTest {
         parameter.cacheUsage = CacheUsage.REBUILD
         parameter.defaultImportsFile = new File("imports")
         parameter.logLevel = LogLevel.DEBUG
+        parameter.parallelThreadCount = 4
+        parameter.watchFileSystem = true
+        parameter.configureInParallel = true
+        parameter.configureOnDemand = true
+        parameter.cacheTaskGraph = true
 
         // Non-copied
         parameter.currentDir = new File("other")
@@ -252,6 +262,11 @@ class StartParameterTest {
         assertThat(newParameter.cacheUsage, equalTo(parameter.cacheUsage));
         assertThat(newParameter.defaultImportsFile, equalTo(parameter.defaultImportsFile));
         assertThat(newParameter.logLevel, equalTo(parameter.logLevel));
+        assertThat(newParameter.parallelThreadCount, equalTo(parameter.parallelThreadCount));
+        assertThat(newParameter.watchFileSystem, equalTo(parameter.watchFileSystem));
+        assertThat(newParameter.configureInParallel, equalTo(parameter.configureInParallel));
+        assertThat(newParameter.configureOnDemand, equalTo(parameter.configureOnDemand));
+        assertThat(newParameter.cacheTaskGraph, equalTo(parameter.cacheTaskGraph));
 
         assertThat(newParameter.buildFile, nullValue())
         assertThat(newParameter.taskNames, isEmpty())
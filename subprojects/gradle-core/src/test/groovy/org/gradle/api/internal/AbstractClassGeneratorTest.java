@@ -28,6 +28,7 @@ import org.junit.Test;
 
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
 
 import static org.gradle.util.HelperUtil.*;
 import static org.gradle.util.Matchers.*;
@@ -89,6 +90,38 @@ public abstract class AbstractClassGeneratorTest {
         assertSame(generator.generate(Bean.class), generator.generate(Bean.class));
     }
 
+    @Test
+    public void generatesSubclassOnceWhenGeneratedConcurrently() throws Exception {
+        final int threadCount = 8;
+        final CyclicBarrier barrier = new CyclicBarrier(threadCount);
+        final Set<Class<?>> generatedClasses = Collections.synchronizedSet(new HashSet<Class<?>>());
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < threadCount; i++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        barrier.await();
+                        generatedClasses.add(generator.generate(ConcurrentlyGeneratedBean.class));
+                    } catch (Throwable t) {
+                        failures.add(t);
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(failures, isEmpty());
+        assertThat(generatedClasses.size(), equalTo(1));
+        assertThat(generatedClasses.iterator().next(), sameInstance((Object) generator.generate(
+                ConcurrentlyGeneratedBean.class)));
+    }
+
     @Test
     public void overridesPublicConstructors() throws Exception {
         Class<? extends Bean> generatedClass = generator.generate(BeanWithConstructor.class);
@@ -467,6 +500,9 @@ public abstract class AbstractClassGeneratorTest {
         }
     }
 
+    public static class ConcurrentlyGeneratedBean extends Bean {
+    }
+
     public static class BeanWithVariousPropertyTypes {
         public String[] getArrayProperty() {
             return new String[1];
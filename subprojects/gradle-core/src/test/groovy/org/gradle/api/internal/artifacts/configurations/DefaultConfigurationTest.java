@@ -26,11 +26,14 @@ import org.gradle.api.artifacts.*;
 import org.gradle.api.internal.artifacts.DefaultExcludeRule;
 import org.gradle.api.internal.artifacts.IvyService;
 import org.gradle.api.internal.artifacts.publish.DefaultPublishArtifact;
+import org.gradle.api.internal.tasks.CachingTaskDependency;
+import org.gradle.api.internal.tasks.DefaultTaskDependency;
 import org.gradle.api.specs.Spec;
 import org.gradle.api.specs.Specs;
 import org.gradle.api.tasks.TaskContainer;
 import org.gradle.api.tasks.TaskDependency;
 import org.gradle.util.HelperUtil;
+import org.gradle.util.TestClosure;
 import static org.gradle.util.Matchers.*;
 import org.gradle.util.WrapUtil;
 import static org.gradle.util.WrapUtil.*;
@@ -472,6 +475,38 @@ public class DefaultConfigurationTest {
                 projectDepTaskDummy)));
     }
 
+    @Test
+    public void cachedBuildDependenciesAreResolvedForEachTaskWhenDependencyClosureUsesTheTask() {
+        final Task target = context.mock(Task.class, "target");
+        final Task otherTarget = context.mock(Task.class, "otherTarget");
+        final Task targetDepTask = context.mock(Task.class, "targetDepTask");
+        final Task otherTargetDepTask = context.mock(Task.class, "otherTargetDepTask");
+        final FileCollectionDependency fileCollectionDependencyStub = context.mock(FileCollectionDependency.class);
+        final TaskDependency builtBy = new DefaultTaskDependency().add(HelperUtil.toClosure(new TestClosure() {
+            public Object call(Object task) {
+                return task == target ? targetDepTask : otherTargetDepTask;
+            }
+        }));
+
+        context.checking(new Expectations() {{
+            allowing(fileCollectionDependencyStub).getBuildDependencies();
+            will(returnValue(builtBy));
+        }});
+
+        configuration.addDependency(fileCollectionDependencyStub);
+
+        final List<Set<? extends Task>> dependencies = new ArrayList<Set<? extends Task>>();
+        CachingTaskDependency.cacheDuring(new Runnable() {
+            public void run() {
+                dependencies.add(configuration.getBuildDependencies().getDependencies(target));
+                dependencies.add(configuration.getBuildDependencies().getDependencies(otherTarget));
+            }
+        });
+
+        assertThat(dependencies.get(0), equalTo((Set) toSet(targetDepTask)));
+        assertThat(dependencies.get(1), equalTo((Set) toSet(otherTargetDepTask)));
+    }
+
     @Test
     public void buildDependenciesDelegatesToInheritedConfigurations() {
         final Task target = context.mock(Task.class, "target");
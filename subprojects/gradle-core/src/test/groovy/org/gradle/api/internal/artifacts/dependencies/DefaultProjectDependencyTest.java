@@ -23,6 +23,7 @@ import org.gradle.api.tasks.TaskContainer;
 import org.gradle.api.tasks.TaskDependency;
 import org.gradle.api.artifacts.*;
 import org.gradle.api.internal.project.DefaultProject;
+import org.gradle.api.internal.project.ProjectAccessListener;
 import org.gradle.util.HelperUtil;
 import static org.gradle.util.Matchers.*;
 import org.gradle.util.WrapUtil;
@@ -289,6 +290,38 @@ public class DefaultProjectDependencyTest extends AbstractModuleDependencyTest {
         return projectDependency;
     }
 
+    @Test
+    public void notifiesListenerBeforeDependencyProjectIsAccessed() {
+        final ProjectAccessListener listener = context.mock(ProjectAccessListener.class);
+        DefaultProjectDependency dependency = new DefaultProjectDependency(dependencyProjectStub, "conf", instruction,
+                listener);
+
+        context.checking(new Expectations() {{
+            one(listener).beforeAccess(dependencyProjectStub);
+        }});
+
+        assertThat(dependency.getDependencyProject(), sameInstance(dependencyProjectStub));
+    }
+
+    @Test
+    public void copyNotifiesSameListener() {
+        final ProjectAccessListener listener = context.mock(ProjectAccessListener.class);
+        ProjectDependency copy = new DefaultProjectDependency(dependencyProjectStub, "conf", instruction, listener).copy();
+
+        context.checking(new Expectations() {{
+            one(listener).beforeAccess(dependencyProjectStub);
+        }});
+
+        assertThat(copy.getDependencyProject(), sameInstance(dependencyProjectStub));
+    }
+
+    @Test
+    public void equalityDoesNotNotifyListener() {
+        ProjectAccessListener listener = context.mock(ProjectAccessListener.class);
+        assertThat(new DefaultProjectDependency(dependencyProjectStub, "conf", instruction, listener),
+                strictlyEqual(new DefaultProjectDependency(dependencyProjectStub, "conf", instruction, listener)));
+    }
+
     @Test
     @Override
     public void equality() {
@@ -19,6 +19,7 @@ import org.gradle.api.IllegalDependencyNotation;
 import org.gradle.api.artifacts.ProjectDependenciesBuildInstruction;
 import org.gradle.api.internal.AsmBackedClassGenerator;
 import org.gradle.api.internal.artifacts.dependencies.DefaultProjectDependency;
+import org.gradle.api.internal.project.ProjectAccessListener;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.util.GUtil;
 import static org.junit.Assert.assertThat;
@@ -37,7 +38,8 @@ public class DefaultProjectDependencyFactoryTest {
     private JUnit4Mockery context = new JUnit4Mockery();
 
     private final ProjectDependenciesBuildInstruction projectDependenciesBuildInstruction = new ProjectDependenciesBuildInstruction(null);
-    private ProjectDependencyFactory projectDependencyFactory = new DefaultProjectDependencyFactory(projectDependenciesBuildInstruction, new AsmBackedClassGenerator());
+    private final ProjectAccessListener projectAccessListener = context.mock(ProjectAccessListener.class);
+    private ProjectDependencyFactory projectDependencyFactory = new DefaultProjectDependencyFactory(projectDependenciesBuildInstruction, new AsmBackedClassGenerator(), projectAccessListener);
     private ProjectFinder projectFinder = context.mock(ProjectFinder.class);
 
     @Test
@@ -47,6 +49,7 @@ public class DefaultProjectDependencyFactoryTest {
         context.checking(new Expectations() {{
             allowing(projectFinder).getProject(somePath);
             will(returnValue(projectDummy));
+            one(projectAccessListener).beforeAccess(projectDummy);
         }});
         DefaultProjectDependency projectDependency = (DefaultProjectDependency)
                 projectDependencyFactory.createProject(projectFinder, somePath);
@@ -61,6 +64,7 @@ public class DefaultProjectDependencyFactoryTest {
         context.checking(new Expectations() {{
             allowing(projectFinder).getProject((String) mapNotation.get("path"));
             will(returnValue(projectDummy));
+            one(projectAccessListener).beforeAccess(projectDummy);
         }});
         DefaultProjectDependency projectDependency = (DefaultProjectDependency)
                 projectDependencyFactory.createProject(projectFinder, mapNotation);
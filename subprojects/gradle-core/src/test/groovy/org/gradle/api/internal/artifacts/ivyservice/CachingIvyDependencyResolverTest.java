@@ -0,0 +1,328 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor;
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.plugins.resolver.FileSystemResolver;
+import org.gradle.api.artifacts.*;
+import org.gradle.api.internal.artifacts.DefaultResolvedDependency;
+import org.gradle.api.internal.project.DefaultProject;
+import org.gradle.api.specs.Specs;
+import org.gradle.cache.*;
+import org.gradle.util.GUtil;
+import org.gradle.util.HelperUtil;
+import org.gradle.util.TemporaryFolder;
+import org.jmock.Expectations;
+import org.jmock.integration.junit4.JMock;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.*;
+
+import static org.gradle.util.WrapUtil.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+@RunWith(JMock.class)
+public class CachingIvyDependencyResolverTest {
+    @Rule
+    public final TemporaryFolder tmpDir = new TemporaryFolder();
+    private final JUnit4Mockery context = new JUnit4Mockery();
+    private final IvyDependencyResolver delegate = context.mock(IvyDependencyResolver.class);
+    private final CacheRepository cacheRepository = context.mock(CacheRepository.class);
+    private final Map<String, byte[]> entries = new HashMap<String, byte[]>();
+    private final ModuleDescriptor moduleDescriptor = DefaultModuleDescriptor.newDefaultInstance(
+            ModuleRevisionId.newInstance("org", "root", "1.0"));
+    private DefaultProject root;
+    private Configuration configuration;
+    private Ivy ivy;
+    private File fileA;
+    private File fileB;
+
+    @Before
+    public void setUp() {
+        root = HelperUtil.createRootProject(tmpDir.createDir("root"));
+        configuration = root.getConfigurations().add("compile");
+        root.getDependencies().add("compile", "org:a:1.0");
+        fileA = tmpDir.createFile("a.jar").write("a");
+        fileB = tmpDir.createFile("b.jar").write("b");
+
+        IvySettings settings = new IvySettings();
+        settings.setDefaultCache(tmpDir.createDir("cache"));
+        FileSystemResolver resolver = new FileSystemResolver();
+        resolver.setName("repo");
+        resolver.addArtifactPattern(tmpDir.getDir().getAbsolutePath() + "/repo/[artifact]-[revision].[ext]");
+        settings.addResolver(resolver);
+        settings.setDefaultResolver("repo");
+        ivy = Ivy.newInstance(settings);
+
+        final CacheBuilder cacheBuilder = context.mock(CacheBuilder.class);
+        final PersistentCache persistentCache = context.mock(PersistentCache.class);
+        context.checking(new Expectations() {{
+            allowing(cacheRepository).cache("resolvedConfigurations");
+            will(returnValue(cacheBuilder));
+            allowing(cacheBuilder).open();
+            will(returnValue(persistentCache));
+            allowing(persistentCache).openIndexedCache();
+            will(returnValue(new InMemoryIndexedCache()));
+        }});
+    }
+
+    @Test
+    public void resolvesConfigurationWhenNothingIsCached() {
+        final ResolvedConfiguration resolvedConfiguration = createResult();
+        context.checking(new Expectations() {{
+            one(delegate).resolve(configuration, ivy, moduleDescriptor);
+            will(returnValue(resolvedConfiguration));
+        }});
+
+        assertThat(newResolver().resolve(configuration, ivy, moduleDescriptor), sameInstance(resolvedConfiguration));
+        assertThat(entries.size(), equalTo(1));
+    }
+
+    @Test
+    public void reusesCachedResultInLaterBuild() {
+        expectResolve(1);
+        newResolver().resolve(configuration, ivy, moduleDescriptor);
+
+        ResolvedConfiguration resolvedConfiguration = newResolver().resolve(configuration, ivy, moduleDescriptor);
+
+        assertFalse(resolvedConfiguration.hasError());
+        assertThat(resolvedConfiguration.getFiles(Specs.<Dependency>satisfyAll()), equalTo(toSet(fileA, fileB)));
+
+        Set<ResolvedDependency> firstLevelDependencies = resolvedConfiguration.getFirstLevelModuleDependencies();
+        assertThat(firstLevelDependencies.size(), equalTo(1));
+        ResolvedDependency a = firstLevelDependencies.iterator().next();
+        assertThat(a.getName(), equalTo("org:a:1.0"));
+        assertThat(a.getConfiguration(), equalTo("default"));
+        assertThat(a.getParents(), equalTo(toSet((ResolvedDependency) null)));
+        assertThat(a.getChildren().size(), equalTo(1));
+        ResolvedDependency b = a.getChildren().iterator().next();
+        assertThat(b.getName(), equalTo("org:b:1.0"));
+        assertThat(b.getParents(), equalTo(toSet(a)));
+
+        List<ResolvedArtifact> artifacts = new ArrayList<ResolvedArtifact>(resolvedConfiguration.getResolvedArtifacts());
+        assertThat(artifacts.size(), equalTo(2));
+        assertThat(artifacts.get(0).getName(), equalTo("a"));
+        assertThat(artifacts.get(0).getFile(), equalTo(fileA));
+        assertThat(artifacts.get(0).getResolvedDependency(), sameInstance(a));
+        assertThat(artifacts.get(1).getFile(), equalTo(fileB));
+        assertThat(artifacts.get(1).getResolvedDependency(), sameInstance(b));
+    }
+
+    @Test
+    public void resolvesAgainWhenDependenciesChange() {
+        expectResolve(2);
+        newResolver().resolve(configuration, ivy, moduleDescriptor);
+
+        root.getDependencies().add("compile", "org:c:1.0");
+
+        newResolver().resolve(configuration, ivy, moduleDescriptor);
+        assertThat(entries.size(), equalTo(2));
+    }
+
+    @Test
+    public void resolvesAgainWhenExcludeRulesChange() {
+        expectResolve(2);
+        newResolver().resolve(configuration, ivy, moduleDescriptor);
+
+        configuration.exclude(GUtil.map("module", "b"));
+
+        newResolver().resolve(configuration, ivy, moduleDescriptor);
+    }
+
+    @Test
+    public void resolvesAgainWhenConfigurationOfDependedOnProjectChanges() {
+        DefaultProject child = HelperUtil.createChildProject(root, "child");
+        child.getConfigurations().add(Dependency.DEFAULT_CONFIGURATION);
+        root.getDependencies().add("compile", root.getDependencies().project(GUtil.map("path", ":child")));
+
+        expectResolve(2);
+        newResolver().resolve(configuration, ivy, moduleDescriptor);
+        newResolver().resolve(configuration, ivy, moduleDescriptor);
+
+        child.getDependencies().add(Dependency.DEFAULT_CONFIGURATION, "org:c:1.0");
+
+        newResolver().resolve(configuration, ivy, moduleDescriptor);
+    }
+
+    @Test
+    public void resolvesAgainWhenCachedFileNoLongerExists() {
+        expectResolve(2);
+        newResolver().resolve(configuration, ivy, moduleDescriptor);
+
+        assertTrue(fileB.delete());
+
+        newResolver().resolve(configuration, ivy, moduleDescriptor);
+    }
+
+    @Test
+    public void doesNotCacheConfigurationWithDynamicVersion() {
+        root.getDependencies().add("compile", "org:c:1.+");
+
+        expectResolve(2);
+        newResolver().resolve(configuration, ivy, moduleDescriptor);
+        newResolver().resolve(configuration, ivy, moduleDescriptor);
+
+        assertTrue(entries.isEmpty());
+    }
+
+    @Test
+    public void doesNotCacheConfigurationWithSnapshotVersion() {
+        root.getDependencies().add("compile", "org:c:1.0-SNAPSHOT");
+
+        expectResolve(2);
+        newResolver().resolve(configuration, ivy, moduleDescriptor);
+        newResolver().resolve(configuration, ivy, moduleDescriptor);
+
+        assertTrue(entries.isEmpty());
+    }
+
+    @Test
+    public void doesNotCacheConfigurationWithChangingModule() {
+        ((ExternalModuleDependency) root.getDependencies().add("compile", "org:c:1.0")).setChanging(true);
+
+        expectResolve(2);
+        newResolver().resolve(configuration, ivy, moduleDescriptor);
+        newResolver().resolve(configuration, ivy, moduleDescriptor);
+
+        assertTrue(entries.isEmpty());
+    }
+
+    @Test
+    public void doesNotCacheConfigurationWithTransitiveDependencyOnChangingModule() {
+        context.checking(new Expectations() {{
+            exactly(2).of(delegate).resolve(configuration, ivy, moduleDescriptor);
+            will(returnValue(createResult(true)));
+        }});
+
+        newResolver().resolve(configuration, ivy, moduleDescriptor);
+        newResolver().resolve(configuration, ivy, moduleDescriptor);
+
+        assertTrue(entries.isEmpty());
+    }
+
+    @Test
+    public void doesNotCacheFailedResolve() {
+        final ResolvedConfiguration failed = new DefaultIvyDependencyResolver.ResolvedConfigurationImpl(configuration,
+                toList("broken"));
+        context.checking(new Expectations() {{
+            exactly(2).of(delegate).resolve(configuration, ivy, moduleDescriptor);
+            will(returnValue(failed));
+        }});
+
+        assertThat(newResolver().resolve(configuration, ivy, moduleDescriptor), sameInstance(failed));
+        assertThat(newResolver().resolve(configuration, ivy, moduleDescriptor), sameInstance(failed));
+        assertTrue(entries.isEmpty());
+    }
+
+    private CachingIvyDependencyResolver newResolver() {
+        return new CachingIvyDependencyResolver(delegate, cacheRepository, new ParallelArtifactDownloader());
+    }
+
+    private void expectResolve(final int count) {
+        context.checking(new Expectations() {{
+            exactly(count).of(delegate).resolve(configuration, ivy, moduleDescriptor);
+            will(returnValue(createResult()));
+        }});
+    }
+
+    private ResolvedConfiguration createResult() {
+        return createResult(false);
+    }
+
+    private ResolvedConfiguration createResult(boolean changing) {
+        final ResolvedArtifact artifactA = context.mock(ResolvedArtifact.class, "artifactA");
+        final ResolvedArtifact artifactB = context.mock(ResolvedArtifact.class, "artifactB");
+        final DefaultResolvedDependency a = new DefaultResolvedDependency("org", "a", "1.0", "default",
+                toSet("default"), toSet(artifactA));
+        final DefaultResolvedDependency b = new DefaultResolvedDependency("org", "b", "1.0", "default",
+                toSet("default"), toSet(artifactB));
+        context.checking(new Expectations() {{
+            allowing(artifactA).getName();
+            will(returnValue("a"));
+            allowing(artifactA).getType();
+            will(returnValue("jar"));
+            allowing(artifactA).getExtension();
+            will(returnValue("jar"));
+            allowing(artifactA).getFile();
+            will(returnValue(fileA));
+            allowing(artifactA).getResolvedDependency();
+            will(returnValue(a));
+            allowing(artifactB).getName();
+            will(returnValue("b"));
+            allowing(artifactB).getType();
+            will(returnValue("jar"));
+            allowing(artifactB).getExtension();
+            will(returnValue("jar"));
+            allowing(artifactB).getFile();
+            will(returnValue(fileB));
+            allowing(artifactB).getResolvedDependency();
+            will(returnValue(b));
+        }});
+        a.getParents().add(null);
+        a.addParentSpecificArtifacts(null, Collections.<ResolvedArtifact>emptySet());
+        a.getChildren().add(b);
+        b.getParents().add(a);
+        b.addParentSpecificArtifacts(a, Collections.<ResolvedArtifact>emptySet());
+
+        Map<Dependency, Set<ResolvedDependency>> firstLevelDependencies = new LinkedHashMap<Dependency, Set<ResolvedDependency>>();
+        Dependency dependency = configuration.getDependencies().iterator().next();
+        firstLevelDependencies.put(dependency, toSet((ResolvedDependency) a));
+        return new DefaultIvyDependencyResolver.ResolvedConfigurationImpl(configuration, new DefaultIvyConversionResult(
+                firstLevelDependencies, toLinkedSet(artifactA, artifactB)), ivy, new ParallelArtifactDownloader(), changing);
+    }
+
+    private class InMemoryIndexedCache implements PersistentIndexedCache<String, Object> {
+        private final DefaultSerializer<Object> serializer = new DefaultSerializer<Object>();
+
+        public Object get(String key) {
+            byte[] value = entries.get(key);
+            if (value == null) {
+                return null;
+            }
+            try {
+                return serializer.read(new ByteArrayInputStream(value));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        public void put(String key, Object value) {
+            ByteArrayOutputStream outstr = new ByteArrayOutputStream();
+            try {
+                serializer.write(outstr, value);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            entries.put(key, outstr.toByteArray());
+        }
+
+        public void remove(String key) {
+            entries.remove(key);
+        }
+    }
+}
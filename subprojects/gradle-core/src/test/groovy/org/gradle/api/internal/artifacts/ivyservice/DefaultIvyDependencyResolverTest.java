@@ -16,17 +16,21 @@
 package org.gradle.api.internal.artifacts.ivyservice;
 
 import org.apache.ivy.Ivy;
+import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor;
 import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor;
 import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.core.report.ResolveReport;
 import org.apache.ivy.core.resolve.ResolveOptions;
+import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.plugins.resolver.FileSystemResolver;
 import org.gradle.api.GradleException;
 import org.gradle.api.artifacts.*;
 import org.gradle.api.internal.artifacts.DefaultResolvedArtifactTest;
 import org.gradle.api.specs.Spec;
 import org.gradle.api.specs.Specs;
 import org.gradle.util.GUtil;
+import org.gradle.util.TemporaryFolder;
 import org.gradle.util.WrapUtil;
 import static org.gradle.util.WrapUtil.toList;
 import org.hamcrest.BaseMatcher;
@@ -40,6 +44,7 @@ import org.jmock.integration.junit4.JUnit4Mockery;
 import org.jmock.lib.legacy.ClassImposteriser;
 import static org.junit.Assert.*;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
@@ -53,6 +58,8 @@ import java.util.*;
  */
 @RunWith(JMock.class)
 public class DefaultIvyDependencyResolverTest {
+    @Rule
+    public final TemporaryFolder tmpDir = new TemporaryFolder();
     private JUnit4Mockery context = new JUnit4Mockery() {{
         setImposteriser(ClassImposteriser.INSTANCE);
     }};
@@ -62,7 +69,8 @@ public class DefaultIvyDependencyResolverTest {
     private DefaultIvyReportConverter ivyReportConverterStub = context.mock(DefaultIvyReportConverter.class);
     private ResolveReport resolveReportMock = context.mock(ResolveReport.class);
 
-    private DefaultIvyDependencyResolver ivyDependencyResolver = new DefaultIvyDependencyResolver(ivyReportConverterStub);
+    private DefaultIvyDependencyResolver ivyDependencyResolver = new DefaultIvyDependencyResolver(ivyReportConverterStub,
+            new ParallelArtifactDownloader(1, 1));
 
     @Before
     public void setUp() {
@@ -226,6 +234,65 @@ public class DefaultIvyDependencyResolverTest {
         assertEquals(true, ivyDependencyResolver.resolve(configurationStub, ivyStub, moduleDescriptor).hasError());
     }
 
+    @Test
+    public void resultIsChangingWhenTransitiveDependencyHasDynamicVersion() {
+        assertTrue(resolveWithTransitiveDependency("1.+", false).isChanging());
+    }
+
+    @Test
+    public void resultIsChangingWhenTransitiveDependencyHasSnapshotVersion() {
+        assertTrue(resolveWithTransitiveDependency("1.2-SNAPSHOT", false).isChanging());
+    }
+
+    @Test
+    public void resultIsChangingWhenTransitiveDependencyIsChanging() {
+        assertTrue(resolveWithTransitiveDependency("1.2", true).isChanging());
+    }
+
+    @Test
+    public void resultIsNotChangingWhenAllDependenciesHaveFixedVersions() {
+        assertFalse(resolveWithTransitiveDependency("1.2", false).isChanging());
+    }
+
+    private DefaultIvyDependencyResolver.ResolvedConfigurationImpl resolveWithTransitiveDependency(String version,
+                                                                                                   boolean changing) {
+        tmpDir.file("repo/org/a/1.0/ivy.xml").write(String.format("<ivy-module version='2.0'>"
+                + "<info organisation='org' module='a' revision='1.0'/>"
+                + "<configurations><conf name='default'/></configurations><publications/>"
+                + "<dependencies><dependency org='org' name='b' rev='%s' changing='%s' conf='default'/></dependencies>"
+                + "</ivy-module>", version, changing));
+        String resolvedVersion = version.replace("+", "2");
+        tmpDir.file(String.format("repo/org/b/%s/ivy.xml", resolvedVersion)).write(String.format(
+                "<ivy-module version='2.0'><info organisation='org' module='b' revision='%s'/>"
+                        + "<configurations><conf name='default'/></configurations><publications/></ivy-module>",
+                resolvedVersion));
+
+        IvySettings settings = new IvySettings();
+        settings.setDefaultCache(tmpDir.createDir("cache"));
+        FileSystemResolver repository = new FileSystemResolver();
+        repository.setName("repo");
+        repository.addIvyPattern(tmpDir.getDir().getAbsolutePath() + "/repo/[organisation]/[module]/[revision]/ivy.xml");
+        settings.addResolver(repository);
+        settings.setDefaultResolver("repo");
+
+        DefaultModuleDescriptor moduleDescriptor = DefaultModuleDescriptor.newDefaultInstance(
+                ModuleRevisionId.newInstance("org", "root", "1.0"));
+        moduleDescriptor.addConfiguration(new org.apache.ivy.core.module.descriptor.Configuration("someConfName"));
+        DefaultDependencyDescriptor dependencyDescriptor = new DefaultDependencyDescriptor(moduleDescriptor,
+                ModuleRevisionId.newInstance("org", "a", "1.0"), false, false, true);
+        dependencyDescriptor.addDependencyConfiguration("someConfName", "default");
+        moduleDescriptor.addDependency(dependencyDescriptor);
+
+        context.checking(new Expectations() {{
+            allowing(ivyReportConverterStub).convertReport(with(any(ResolveReport.class)), with(equal(configurationStub)));
+        }});
+
+        ResolvedConfiguration result = ivyDependencyResolver.resolve(configurationStub, Ivy.newInstance(settings),
+                moduleDescriptor);
+        assertFalse(result.hasError());
+        return (DefaultIvyDependencyResolver.ResolvedConfigurationImpl) result;
+    }
+
     private ModuleDescriptor createAnonymousModuleDescriptor() {
         return DefaultModuleDescriptor.newDefaultInstance(
                 ModuleRevisionId.newInstance("org", "name", "1.0", new HashMap()));
@@ -236,6 +303,8 @@ public class DefaultIvyDependencyResolverTest {
             {
                 allowing(resolveReportMock).hasError();
                 will(returnValue(false));
+                allowing(resolveReportMock).getDependencies();
+                will(returnValue(new ArrayList()));
             }
         });
     }
@@ -19,6 +19,8 @@ import org.apache.ivy.Ivy;
 import org.apache.ivy.core.settings.IvySettings;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import org.junit.Test;
 
@@ -33,4 +35,13 @@ public class DefaultIvyFactoryTest {
         assertThat(ivy, notNullValue());
         assertThat(ivy.getSettings(), equalTo(ivySettings));
     }
+
+    @Test
+    public void reusesIvyInstanceForSameSettings() {
+        DefaultIvyFactory factory = new DefaultIvyFactory();
+        IvySettings ivySettings = new IvySettings();
+        Ivy ivy = factory.createIvy(ivySettings);
+        assertThat(factory.createIvy(ivySettings), sameInstance(ivy));
+        assertThat(factory.createIvy(new IvySettings()), not(sameInstance(ivy)));
+    }
 }
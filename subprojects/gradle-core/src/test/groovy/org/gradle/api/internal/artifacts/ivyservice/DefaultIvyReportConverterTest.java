@@ -0,0 +1,295 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.ResolveReport;
+import org.apache.ivy.core.resolve.ResolveOptions;
+import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.plugins.resolver.ChainResolver;
+import org.apache.ivy.plugins.resolver.FileSystemResolver;
+import org.gradle.api.artifacts.*;
+import org.gradle.api.internal.artifacts.DefaultResolvedArtifact;
+import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.dependencies.DependencyDescriptorFactory;
+import org.gradle.api.internal.project.DefaultProject;
+import org.gradle.util.GUtil;
+import org.gradle.util.HelperUtil;
+import org.gradle.util.TemporaryFolder;
+import org.jmock.Expectations;
+import org.jmock.api.Invocation;
+import org.jmock.integration.junit4.JMock;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.jmock.lib.action.CustomAction;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.*;
+
+import static org.gradle.util.WrapUtil.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+@RunWith(JMock.class)
+public class DefaultIvyReportConverterTest {
+    @Rule
+    public final TemporaryFolder tmpDir = new TemporaryFolder();
+    private final JUnit4Mockery context = new JUnit4Mockery();
+    private final DependencyDescriptorFactory dependencyDescriptorFactory = context.mock(DependencyDescriptorFactory.class);
+    private final DefaultIvyReportConverter converter = new DefaultIvyReportConverter(dependencyDescriptorFactory);
+    private final DefaultModuleDescriptor moduleDescriptor = DefaultModuleDescriptor.newDefaultInstance(
+            ModuleRevisionId.newInstance("org", "root", "1.0"));
+    private final Map<ModuleRevisionId, DefaultDependencyDescriptor> dependencyDescriptors =
+            new HashMap<ModuleRevisionId, DefaultDependencyDescriptor>();
+    private DefaultProject project;
+    private Configuration configuration;
+
+    @Before
+    public void setUp() {
+        project = HelperUtil.createRootProject(tmpDir.createDir("root"));
+        configuration = project.getConfigurations().add("compile");
+        moduleDescriptor.addConfiguration(new org.apache.ivy.core.module.descriptor.Configuration("compile"));
+        context.checking(new Expectations() {{
+            allowing(dependencyDescriptorFactory).createModuleRevisionId(with(any(ModuleDependency.class)));
+            will(new CustomAction("create module revision id") {
+                public Object invoke(Invocation invocation) throws Throwable {
+                    ModuleDependency dependency = (ModuleDependency) invocation.getParameter(0);
+                    return ModuleRevisionId.newInstance(dependency.getGroup(), dependency.getName(),
+                            dependency.getVersion());
+                }
+            });
+        }});
+    }
+
+    @Test
+    public void convertsFirstLevelDependenciesAndTheirChildren() {
+        module("a", "<dependency org='org' name='b' rev='1.0'/><dependency org='org' name='c' rev='1.0'/>");
+        module("b", "<dependency org='org' name='c' rev='1.0'/>");
+        module("c", "");
+        Dependency dependency = dependsOn("a", "default");
+
+        IvyConversionResult result = convert();
+
+        assertThat(result.getFirstLevelResolvedDependencies().keySet(), equalTo(toSet(dependency)));
+        ResolvedDependency a = single(result.getFirstLevelResolvedDependencies().get(dependency));
+        assertThat(a.getName(), equalTo("org:a:1.0"));
+        assertThat(a.getConfiguration(), equalTo("default"));
+        assertThat(a.getParents(), equalTo(toSet((ResolvedDependency) null)));
+        assertThat(names(a.getChildren()), equalTo(toList("org:b:1.0", "org:c:1.0")));
+
+        ResolvedDependency b = child(a, "org:b:1.0");
+        ResolvedDependency c = child(a, "org:c:1.0");
+        assertThat(b.getParents(), equalTo(toSet(a)));
+        assertThat(b.getChildren(), equalTo(toSet(c)));
+        assertThat(c.getParents(), equalTo(toSet(a, b)));
+        assertTrue(c.getChildren().isEmpty());
+    }
+
+    @Test
+    public void createsResolvedDependencyForEachConfigurationOfModule() {
+        module("a", "<dependency org='org' name='b' rev='1.0' conf='default->default;extra->extra'/>");
+        module("b", "");
+        Dependency defaultDependency = dependsOn("a", "default");
+        Dependency extraDependency = dependsOn("a", "extra");
+
+        IvyConversionResult result = convert();
+
+        ResolvedDependency a = single(result.getFirstLevelResolvedDependencies().get(defaultDependency));
+        ResolvedDependency aExtra = single(result.getFirstLevelResolvedDependencies().get(extraDependency));
+        assertThat(a.getConfiguration(), equalTo("default"));
+        assertThat(aExtra.getConfiguration(), equalTo("extra"));
+        ResolvedDependency b = single(a.getChildren());
+        ResolvedDependency bExtra = single(aExtra.getChildren());
+        assertThat(b.getConfiguration(), equalTo("default"));
+        assertThat(bExtra.getConfiguration(), equalTo("extra"));
+        assertThat(b.getParents(), equalTo(toSet(a)));
+        assertThat(bExtra.getParents(), equalTo(toSet(aExtra)));
+    }
+
+    @Test
+    public void attachesParentSpecificArtifactsToTheParentWhichRequestedThem() {
+        module("a", "<dependency org='org' name='c' rev='1.0'><artifact name='c-api' type='jar' ext='jar'/></dependency>");
+        module("b", "<dependency org='org' name='c' rev='1.0'/>");
+        module("c", "");
+        Dependency dependencyA = dependsOn("a", "default");
+        Dependency dependencyB = dependsOn("b", "default");
+
+        IvyConversionResult result = convert();
+
+        ResolvedDependency a = single(result.getFirstLevelResolvedDependencies().get(dependencyA));
+        ResolvedDependency b = single(result.getFirstLevelResolvedDependencies().get(dependencyB));
+        ResolvedDependency c = single(a.getChildren());
+        assertThat(single(b.getChildren()), sameInstance(c));
+        assertThat(artifactNames(c.getParentArtifacts(a)), equalTo(toList("c-api")));
+        assertThat(single(c.getParentArtifacts(a)).getResolvedDependency(), sameInstance(c));
+        assertTrue(c.getParentArtifacts(b).isEmpty());
+        assertTrue(artifactNames(result.getResolvedArtifacts()).contains("c-api"));
+    }
+
+    @Test
+    public void resolvedArtifactsAreInOrderOfResolveReport() {
+        module("a", "<dependency org='org' name='b' rev='1.0'/>");
+        module("b", "<dependency org='org' name='c' rev='1.0'/>");
+        module("c", "");
+        module("d", "");
+        dependsOn("a", "default");
+        dependsOn("d", "default");
+
+        IvyConversionResult result = convert();
+
+        assertThat(artifactNames(result.getResolvedArtifacts()), equalTo(toList("a", "d", "b", "c")));
+        for (ResolvedArtifact artifact : result.getResolvedArtifacts()) {
+            assertThat(artifact.getResolvedDependency().getModuleName(), equalTo(artifact.getName()));
+        }
+    }
+
+    @Test
+    public void resolvedArtifactsAreDownloadedFromRepositoryWhichResolvedTheirModule() {
+        module("a", "");
+        dependsOn("a", "default");
+
+        IvyConversionResult result = convert(true);
+
+        DefaultResolvedArtifact artifact = (DefaultResolvedArtifact) result.getResolvedArtifacts().iterator().next();
+        assertThat(artifact.getRepositoryName(), equalTo("repo"));
+    }
+
+    @Test
+    public void attachesNodeToCallerWhichIsStillBeingConvertedInDependencyCycle() {
+        module("a", "<dependency org='org' name='b' rev='1.0' conf='extra->default'/>");
+        module("b", "<dependency org='org' name='a' rev='1.0' conf='default->default'/>");
+        Dependency dependencyA = dependsOn("a", "extra");
+        Dependency dependencyB = dependsOn("b", "default");
+
+        IvyConversionResult result = convert();
+
+        ResolvedDependency b = single(result.getFirstLevelResolvedDependencies().get(dependencyB));
+        ResolvedDependency aExtra = single(result.getFirstLevelResolvedDependencies().get(dependencyA));
+        ResolvedDependency a = child(b, "org:a:1.0");
+        assertThat(a.getConfiguration(), equalTo("default"));
+        assertThat(aExtra.getConfiguration(), equalTo("extra"));
+        assertThat(b.getParents(), equalTo(toSet(null, aExtra)));
+        assertThat(b.getChildren(), equalTo(toSet(a)));
+        assertThat(aExtra.getChildren(), equalTo(toSet(b)));
+        assertThat(a.getParents(), hasItem(b));
+        assertTrue(a.getChildren().isEmpty());
+    }
+
+    private void module(String name, String dependencies) {
+        tmpDir.file("repo/org/" + name + "/1.0/ivy.xml").write(String.format("<ivy-module version='2.0'>"
+                + "<info organisation='org' module='%s' revision='1.0'/>"
+                + "<configurations><conf name='default'/><conf name='extra' extends='default'/></configurations>"
+                + "<publications><artifact name='%s' type='jar' ext='jar' conf='default'/>"
+                + "<artifact name='%s-api' type='jar' ext='jar' conf='extra'/></publications>"
+                + "<dependencies defaultconfmapping='*->default'>%s</dependencies></ivy-module>", name, name, name,
+                dependencies));
+    }
+
+    private Dependency dependsOn(String name, String dependencyConfiguration) {
+        Dependency dependency = project.getDependencies().add("compile", GUtil.map("group", "org", "name", name,
+                "version", "1.0", "configuration", dependencyConfiguration));
+        ModuleRevisionId moduleRevisionId = ModuleRevisionId.newInstance("org", name, "1.0");
+        DefaultDependencyDescriptor dependencyDescriptor = dependencyDescriptors.get(moduleRevisionId);
+        if (dependencyDescriptor == null) {
+            dependencyDescriptor = new DefaultDependencyDescriptor(moduleDescriptor, moduleRevisionId, false, false,
+                    true);
+            dependencyDescriptors.put(moduleRevisionId, dependencyDescriptor);
+            moduleDescriptor.addDependency(dependencyDescriptor);
+        }
+        dependencyDescriptor.addDependencyConfiguration("compile", dependencyConfiguration);
+        return dependency;
+    }
+
+    private IvyConversionResult convert() {
+        return convert(false);
+    }
+
+    private IvyConversionResult convert(boolean useChain) {
+        IvySettings settings = new IvySettings();
+        settings.setDefaultCache(tmpDir.createDir("cache"));
+        FileSystemResolver repository = new FileSystemResolver();
+        repository.setName("repo");
+        repository.addIvyPattern(tmpDir.getDir().getAbsolutePath() + "/repo/[organisation]/[module]/[revision]/ivy.xml");
+        repository.addArtifactPattern(tmpDir.getDir().getAbsolutePath()
+                + "/repo/[organisation]/[module]/[revision]/[artifact].[ext]");
+        if (useChain) {
+            FileSystemResolver emptyRepository = new FileSystemResolver();
+            emptyRepository.setName("empty");
+            emptyRepository.addIvyPattern(tmpDir.getDir().getAbsolutePath() + "/empty/[module]/ivy.xml");
+            ChainResolver chain = new ChainResolver();
+            chain.setName("chain");
+            chain.add(emptyRepository);
+            chain.add(repository);
+            settings.addResolver(chain);
+            settings.setDefaultResolver("chain");
+        } else {
+            settings.addResolver(repository);
+            settings.setDefaultResolver("repo");
+        }
+
+        ResolveOptions options = new ResolveOptions();
+        options.setDownload(false);
+        options.setConfs(new String[]{"compile"});
+        ResolveReport report;
+        try {
+            report = Ivy.newInstance(settings).resolve(moduleDescriptor, options);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        assertFalse(report.getAllProblemMessages().toString(), report.hasError());
+        return converter.convertReport(report, configuration);
+    }
+
+    private ResolvedDependency single(Set<? extends ResolvedDependency> dependencies) {
+        assertThat(dependencies.size(), equalTo(1));
+        return dependencies.iterator().next();
+    }
+
+    private ResolvedArtifact single(Collection<ResolvedArtifact> artifacts) {
+        assertThat(artifacts.size(), equalTo(1));
+        return artifacts.iterator().next();
+    }
+
+    private ResolvedDependency child(ResolvedDependency parent, String name) {
+        for (ResolvedDependency child : parent.getChildren()) {
+            if (child.getName().equals(name)) {
+                return child;
+            }
+        }
+        fail(String.format("%s has no child %s.", parent, name));
+        return null;
+    }
+
+    private List<String> names(Collection<ResolvedDependency> dependencies) {
+        List<String> names = new ArrayList<String>();
+        for (ResolvedDependency dependency : dependencies) {
+            names.add(dependency.getName());
+        }
+        return names;
+    }
+
+    private List<String> artifactNames(Collection<ResolvedArtifact> artifacts) {
+        List<String> names = new ArrayList<String>();
+        for (ResolvedArtifact artifact : artifacts) {
+            names.add(artifact.getName());
+        }
+        return names;
+    }
+}
@@ -28,6 +28,7 @@ import org.junit.Test
 import static org.junit.Assert.assertEquals
 import static org.junit.Assert.assertTrue
 import static org.junit.Assert.assertSame
+import static org.junit.Assert.assertNotSame
 
 /**
  * @author Hans Dockter
@@ -128,6 +129,43 @@ class DefaultSettingsConverterTest {
 
     }
 
+    @Test
+    public void reusesResolveSettingsForSameResolvers() {
+        IvySettings settings1 = converter.convertForResolve([TEST_RESOLVER, TEST_RESOLVER_2], testGradleUserHome,
+                TEST_BUILD_RESOLVER, clientModuleRegistry)
+        IvySettings settings2 = converter.convertForResolve([TEST_RESOLVER, TEST_RESOLVER_2], testGradleUserHome,
+                TEST_BUILD_RESOLVER, clientModuleRegistry)
+        assertSame(settings1, settings2)
+    }
+
+    @Test
+    public void createsNewResolveSettingsWhenInputsChange() {
+        IvySettings settings = converter.convertForResolve([TEST_RESOLVER, TEST_RESOLVER_2], testGradleUserHome,
+                TEST_BUILD_RESOLVER, clientModuleRegistry)
+        assertNotSame(settings, converter.convertForResolve([TEST_RESOLVER], testGradleUserHome,
+                TEST_BUILD_RESOLVER, clientModuleRegistry))
+        assertNotSame(settings, converter.convertForResolve([TEST_RESOLVER_2, TEST_RESOLVER], testGradleUserHome,
+                TEST_BUILD_RESOLVER, clientModuleRegistry))
+        assertNotSame(settings, converter.convertForResolve([TEST_RESOLVER, TEST_RESOLVER_2], new File('otherUserHome'),
+                TEST_BUILD_RESOLVER, clientModuleRegistry))
+        assertNotSame(settings, converter.convertForResolve([TEST_RESOLVER, TEST_RESOLVER_2], testGradleUserHome,
+                new IBiblioResolver(name: 'buildResolver'), clientModuleRegistry))
+        assertNotSame(settings, converter.convertForResolve([TEST_RESOLVER, TEST_RESOLVER_2], testGradleUserHome,
+                TEST_BUILD_RESOLVER, [:]))
+    }
+
+    @Test
+    public void moduleDescriptorMemoryCacheShouldBeSharedBetweenSettings() {
+        IvySettings settings1 = converter.convertForResolve([TEST_RESOLVER], testGradleUserHome,
+                TEST_BUILD_RESOLVER, clientModuleRegistry)
+        IvySettings settings2 = converter.convertForResolve([TEST_RESOLVER_2], testGradleUserHome,
+                TEST_BUILD_RESOLVER, clientModuleRegistry)
+        assertSame(settings1.getDefaultRepositoryCacheManager().memoryCache,
+                settings2.getDefaultRepositoryCacheManager().memoryCache)
+        assertEquals(DefaultSettingsConverter.MODULE_DESCRIPTOR_MEMORY_CACHE_SIZE,
+                settings1.getDefaultRepositoryCacheManager().memoryCache.maxSize)
+    }
+
     @Test public void testWithGivenSettings() {
         IvySettings ivySettings = [:] as IvySettings
         converter.ivySettings = ivySettings
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.IvyContext;
+import org.apache.ivy.core.event.EventManager;
+import org.apache.ivy.core.module.descriptor.Artifact;
+import org.apache.ivy.core.module.descriptor.DefaultArtifact;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.ArtifactDownloadReport;
+import org.apache.ivy.core.report.DownloadReport;
+import org.apache.ivy.core.resolve.DownloadOptions;
+import org.apache.ivy.core.resolve.ResolveEngine;
+import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.core.sort.SortEngine;
+import org.apache.ivy.plugins.resolver.FileSystemResolver;
+import org.gradle.api.internal.artifacts.DefaultResolvedArtifact;
+import org.gradle.util.TemporaryFolder;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+public class ParallelArtifactDownloaderTest {
+    @Rule
+    public final TemporaryFolder tmpDir = new TemporaryFolder();
+    private final TestResolveEngine engine = new TestResolveEngine();
+
+    @Test
+    public void downloadsArtifactsConcurrently() {
+        List<DefaultResolvedArtifact> artifacts = artifacts(4, "repo1", "repo2");
+        engine.awaitConcurrentDownloads = new CountDownLatch(4);
+
+        download(4, 2, artifacts);
+
+        for (DefaultResolvedArtifact artifact : artifacts) {
+            assertTrue(artifact.isFileLocated());
+        }
+        assertThat(engine.downloads, equalTo(4));
+        assertThat(engine.maxConcurrentDownloads, equalTo(4));
+    }
+
+    @Test
+    public void limitsConcurrentDownloadsFromEachRepository() {
+        List<DefaultResolvedArtifact> artifacts = artifacts(6, "repo1");
+
+        download(6, 2, artifacts);
+
+        for (DefaultResolvedArtifact artifact : artifacts) {
+            assertTrue(artifact.isFileLocated());
+        }
+        assertThat(engine.maxConcurrentDownloads, lessThanOrEqualTo(2));
+    }
+
+    @Test
+    public void downloadsArtifactsWhoseFileHasNotBeenLocatedOnly() {
+        List<DefaultResolvedArtifact> artifacts = artifacts(3, "repo1");
+        artifacts.get(0).getFile();
+
+        download(4, 4, artifacts);
+
+        assertThat(engine.downloads, equalTo(3));
+    }
+
+    @Test
+    public void downloadsEachArtifactOnce() {
+        List<DefaultResolvedArtifact> artifacts = artifacts(2, "repo1");
+        artifacts.addAll(artifacts(2, "repo1"));
+
+        download(4, 4, artifacts);
+
+        assertThat(engine.downloads, equalTo(2));
+        assertTrue(artifacts.get(0).isFileLocated());
+        assertFalse(artifacts.get(2).isFileLocated());
+    }
+
+    @Test
+    public void downloadsArtifactOnceWhenItIsRequestedByConcurrentCalls() throws Exception {
+        final ParallelArtifactDownloader downloader = new ParallelArtifactDownloader(8, 8);
+        engine.release = new CountDownLatch(1);
+        try {
+            Thread first = downloadInOtherThread(downloader, artifacts(4, "repo1"));
+            engine.awaitDownloads(4);
+            Thread second = downloadInOtherThread(downloader, artifacts(4, "repo1"));
+            // Give the second call time to start its own downloads, if it were going to
+            Thread.sleep(200);
+            engine.release.countDown();
+            first.join();
+            second.join();
+        } finally {
+            engine.release.countDown();
+            downloader.stop();
+        }
+
+        assertThat(engine.downloads, equalTo(4));
+    }
+
+    @Test
+    public void ignoresFailedDownloads() {
+        List<DefaultResolvedArtifact> artifacts = artifacts(3, "repo1");
+        engine.failing = "artifact1";
+
+        download(4, 4, artifacts);
+
+        assertTrue(artifacts.get(0).isFileLocated());
+        assertFalse(artifacts.get(1).isFileLocated());
+        assertTrue(artifacts.get(2).isFileLocated());
+        try {
+            artifacts.get(1).getFile();
+            fail();
+        } catch (RuntimeException e) {
+            assertThat(e.getMessage(), equalTo("broken"));
+        }
+    }
+
+    @Test
+    public void doesNotDownloadWhenSingleThreaded() {
+        List<DefaultResolvedArtifact> artifacts = artifacts(3, "repo1");
+
+        download(1, 1, artifacts);
+
+        assertThat(engine.downloads, equalTo(0));
+    }
+
+    @Test
+    public void downloadsArtifactsFromRepositoryInContextOfIvyInstanceWhichResolvedThem() {
+        IvySettings settings = new IvySettings();
+        settings.setDefaultCache(tmpDir.createDir("cache"));
+        ContextRecordingResolver repository = new ContextRecordingResolver();
+        repository.setName("repo");
+        repository.addArtifactPattern(tmpDir.getDir().getAbsolutePath() + "/repo/[organisation]/[artifact]-[revision].[ext]");
+        settings.addResolver(repository);
+        settings.setDefaultResolver("repo");
+        Ivy ivy = Ivy.newInstance(settings);
+
+        List<DefaultResolvedArtifact> artifacts = new ArrayList<DefaultResolvedArtifact>();
+        for (int i = 0; i < 4; i++) {
+            tmpDir.file("repo/org/artifact" + i + "-1.0.jar").write("content" + i);
+            Artifact artifact = new DefaultArtifact(ModuleRevisionId.newInstance("org", "module" + i, "1.0"), null,
+                    "artifact" + i, "jar", "jar");
+            artifacts.add(new DefaultResolvedArtifact(artifact, ivy.getResolveEngine()));
+        }
+
+        download(4, 4, artifacts, ivy);
+
+        for (DefaultResolvedArtifact artifact : artifacts) {
+            assertTrue(artifact.isFileLocated());
+            assertTrue(artifact.getFile().isFile());
+        }
+        assertThat(repository.contexts.size(), equalTo(4));
+        for (Ivy context : repository.contexts) {
+            assertThat(context, sameInstance(ivy));
+        }
+    }
+
+    private void download(int threadCount, int connectionsPerRepository, List<DefaultResolvedArtifact> artifacts) {
+        download(threadCount, connectionsPerRepository, artifacts, null);
+    }
+
+    private void download(int threadCount, int connectionsPerRepository, List<DefaultResolvedArtifact> artifacts,
+                          Ivy ivy) {
+        ParallelArtifactDownloader downloader = new ParallelArtifactDownloader(threadCount, connectionsPerRepository);
+        try {
+            downloader.download(artifacts, ivy);
+        } finally {
+            downloader.stop();
+        }
+    }
+
+    private Thread downloadInOtherThread(final ParallelArtifactDownloader downloader,
+                                         final List<DefaultResolvedArtifact> artifacts) {
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                downloader.download(artifacts, null);
+            }
+        };
+        thread.start();
+        return thread;
+    }
+
+    private List<DefaultResolvedArtifact> artifacts(int count, String... repositories) {
+        List<DefaultResolvedArtifact> artifacts = new ArrayList<DefaultResolvedArtifact>();
+        for (int i = 0; i < count; i++) {
+            ModuleRevisionId id = ModuleRevisionId.newInstance(repositories[i % repositories.length], "module" + i,
+                    "1.0");
+            Artifact artifact = new DefaultArtifact(id, null, "artifact" + i, "jar", "jar");
+            artifacts.add(new DefaultResolvedArtifact(artifact, engine));
+        }
+        return artifacts;
+    }
+
+    private static class ContextRecordingResolver extends FileSystemResolver {
+        private final List<Ivy> contexts = Collections.synchronizedList(new ArrayList<Ivy>());
+
+        @Override
+        public DownloadReport download(Artifact[] artifacts, DownloadOptions options) {
+            contexts.add(IvyContext.getContext().peekIvy());
+            return super.download(artifacts, options);
+        }
+    }
+
+    private static class TestResolveEngine extends ResolveEngine {
+        private int downloads;
+        private int concurrentDownloads;
+        private int maxConcurrentDownloads;
+        private CountDownLatch awaitConcurrentDownloads;
+        private CountDownLatch release;
+        private String failing;
+
+        private TestResolveEngine() {
+            this(new IvySettings() {
+                @Override
+                public String getResolverName(ModuleRevisionId mrid) {
+                    return mrid.getOrganisation();
+                }
+            });
+        }
+
+        private TestResolveEngine(IvySettings settings) {
+            super(settings, new EventManager(), new SortEngine(settings));
+        }
+
+        public synchronized void awaitDownloads(int count) throws InterruptedException {
+            long expiry = System.currentTimeMillis() + 10000;
+            while (downloads < count && System.currentTimeMillis() < expiry) {
+                wait(expiry - System.currentTimeMillis());
+            }
+            assertThat(downloads, equalTo(count));
+        }
+
+        @Override
+        public ArtifactDownloadReport download(Artifact artifact, DownloadOptions options) {
+            synchronized (this) {
+                notifyAll();
+                downloads++;
+                concurrentDownloads++;
+                maxConcurrentDownloads = Math.max(maxConcurrentDownloads, concurrentDownloads);
+            }
+            try {
+                if (release != null) {
+                    release.await(10, TimeUnit.SECONDS);
+                } else if (awaitConcurrentDownloads != null) {
+                    awaitConcurrentDownloads.countDown();
+                    awaitConcurrentDownloads.await(10, TimeUnit.SECONDS);
+                } else {
+                    Thread.sleep(20);
+                }
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            } finally {
+                synchronized (this) {
+                    concurrentDownloads--;
+                }
+            }
+            if (artifact.getName().equals(failing)) {
+                throw new RuntimeException("broken");
+            }
+            ArtifactDownloadReport report = new ArtifactDownloadReport(artifact);
+            report.setLocalFile(new File(artifact.getName() + ".jar"));
+            return report;
+        }
+    }
+}
@@ -30,6 +30,7 @@ import org.junit.Before;
 import org.junit.runner.RunWith;
 
 import java.io.File;
+import java.util.Collections;
 
 @RunWith(JMock.class)
 public class CachingHasherTest {
@@ -50,9 +51,18 @@ public class CachingHasherTest {
             CacheBuilder cacheBuilder = context.mock(CacheBuilder.class);
             PersistentCache persistentCache = context.mock(PersistentCache.class);
 
+            allowing(delegate).getAlgorithm();
+            will(returnValue("algorithm"));
+
             one(cacheRepository).cache("fileHashes");
             will(returnValue(cacheBuilder));
 
+            one(cacheBuilder).withProperties(Collections.singletonMap("algorithm", "algorithm"));
+            will(returnValue(cacheBuilder));
+
+            one(cacheBuilder).withMemoryMappedIndex();
+            will(returnValue(cacheBuilder));
+
             one(cacheBuilder).open();
             will(returnValue(persistentCache));
 
@@ -62,6 +72,11 @@ public class CachingHasherTest {
         hasher = new CachingHasher(delegate, cacheRepository);
     }
 
+    @Test
+    public void usesAlgorithmOfTargetHasher() {
+        assertThat(hasher.getAlgorithm(), equalTo("algorithm"));
+    }
+
     @Test
     public void hashesFileWhenHashNotCached() {
         context.checking(new Expectations() {{
@@ -28,6 +28,9 @@ import org.gradle.util.TemporaryFolder
 import org.gradle.util.TestFile
 import org.gradle.api.file.FileCollection
 import org.gradle.util.ChangeListener
+import org.gradle.api.Action
+import org.gradle.util.BoundedExecutor
+import org.junit.After
 
 @RunWith(JMock.class)
 public class DefaultFileSnapshotterTest {
@@ -36,9 +39,15 @@ public class DefaultFileSnapshotterTest {
     private int counter
     private ChangeListener listener = context.mock(ChangeListener.class)
     private final DefaultFileSnapshotter snapshotter = new DefaultFileSnapshotter(hasher)
+    private final BoundedExecutor executor = new BoundedExecutor('hasher', 4)
     @Rule
     public final TemporaryFolder tmpDir = new TemporaryFolder()
 
+    @After
+    public void tearDown() {
+        executor.stop()
+    }
+
     @Test
     public void notifiesListenerWhenFileAdded() {
         TestFile file1 = tmpDir.createFile('file1')
@@ -304,6 +313,134 @@ public class DefaultFileSnapshotterTest {
         target.changesSince(snapshotter.snapshot(), listener)
     }
 
+    @Test
+    public void canSerializeSnapshot() {
+        TestFile file = tmpDir.createFile('file')
+        TestFile otherFile = tmpDir.createFile('other-file')
+        TestFile dir = tmpDir.createDir('dir')
+        TestFile missing = tmpDir.file('missing')
+        FileCollectionSnapshot snapshot = snapshotter.snapshot(files(file, otherFile, dir, missing))
+
+        ByteArrayOutputStream outstr = new ByteArrayOutputStream()
+        snapshotter.serializer.write(outstr, snapshot)
+        FileCollectionSnapshot copy = snapshotter.serializer.read(new ByteArrayInputStream(outstr.toByteArray()))
+
+        snapshot.changesSince(copy, listener)
+
+        file.write('new content')
+        dir.deleteDir()
+        otherFile.delete()
+
+        context.checking {
+            one(listener).changed(file)
+            one(listener).changed(dir)
+            one(listener).changed(otherFile)
+        }
+        snapshotter.snapshot(files(file, otherFile, dir, missing)).changesSince(copy, listener)
+    }
+
+    @Test
+    public void hashesLargeNumberOfFilesUsingMultipleThreads() {
+        Set<String> threads = Collections.synchronizedSet(new HashSet<String>())
+        Hasher recordingHasher = { File file ->
+            threads << Thread.currentThread().name
+            Thread.sleep(5)
+            hasher.hash(file)
+        } as Hasher
+        DefaultFileSnapshotter parallelSnapshotter = new DefaultFileSnapshotter(recordingHasher, executor)
+        List<TestFile> testFiles = (1..4 * DefaultFileSnapshotter.MIN_FILES_PER_THREAD).collect { tmpDir.createFile("file$it") }
+        testFiles.each { it.text = it.name }
+        testFiles << tmpDir.createDir('dir') << tmpDir.file('missing')
+
+        FileCollectionSnapshot snapshot = snapshotter.snapshot(files(testFiles as File[]))
+        FileCollectionSnapshot parallelSnapshot = parallelSnapshotter.snapshot(files(testFiles as File[]))
+
+        assertThat(threads.size(), greaterThan(1))
+        assertThat(threads, not(hasItem(Thread.currentThread().name)))
+        parallelSnapshot.changesSince(snapshot, listener)
+
+        testFiles[7].text = 'new content'
+
+        context.checking {
+            one(listener).changed(testFiles[7])
+        }
+        parallelSnapshotter.snapshot(files(testFiles as File[])).changesSince(parallelSnapshot, listener)
+    }
+
+    @Test
+    public void rethrowsFailureToHashFileUsingMultipleThreads() {
+        RuntimeException failure = new RuntimeException('broken')
+        Hasher brokenHasher = { File file ->
+            if (file.name == 'file5') {
+                throw failure
+            }
+            hasher.hash(file)
+        } as Hasher
+        DefaultFileSnapshotter parallelSnapshotter = new DefaultFileSnapshotter(brokenHasher, executor)
+        List<TestFile> testFiles = (1..4 * DefaultFileSnapshotter.MIN_FILES_PER_THREAD).collect { tmpDir.createFile("file$it") }
+
+        try {
+            parallelSnapshotter.snapshot(files(testFiles as File[]))
+            fail()
+        } catch (RuntimeException e) {
+            assertThat(e, sameInstance(failure))
+        }
+    }
+
+    @Test
+    public void sharesExecutorThreadsBetweenConcurrentSnapshots() {
+        Set<String> threads = Collections.synchronizedSet(new HashSet<String>())
+        Hasher recordingHasher = { File file ->
+            threads << Thread.currentThread().name
+            hasher.hash(file)
+        } as Hasher
+        DefaultFileSnapshotter parallelSnapshotter = new DefaultFileSnapshotter(recordingHasher, executor)
+        List<TestFile> testFiles = (1..4 * DefaultFileSnapshotter.MIN_FILES_PER_THREAD).collect { tmpDir.createFile("file$it") }
+        FileCollection collection = files(testFiles as File[])
+
+        List<Thread> callers = (1..4).collect {
+            Thread.start { 10.times { parallelSnapshotter.snapshot(collection) } }
+        }
+        callers*.join()
+
+        assertThat(threads.size(), lessThanOrEqualTo(4))
+    }
+
+    @Test
+    public void reusesRetainedSnapshotOfFileUntilFileChanges() {
+        List<File> changes = []
+        FileWatcher watcher = [
+                watch: { File dir -> true },
+                processChanges: { Action<File> handler -> changes.each { handler.execute(it) }; changes.clear() },
+                stop: { }
+        ] as FileWatcher
+        int hashCount = 0
+        Hasher countingHasher = { File file ->
+            hashCount++
+            hasher.hash(file)
+        } as Hasher
+        DefaultFileSnapshotter retainingSnapshotter = new DefaultFileSnapshotter(countingHasher, null, new WatchedFileCache<Object>(watcher))
+        TestFile file = tmpDir.createFile('file')
+        file.text = 'content'
+        TestFile otherFile = tmpDir.createFile('other')
+        otherFile.text = 'other'
+
+        FileCollectionSnapshot snapshot = retainingSnapshotter.snapshot(files(file, otherFile))
+        assertThat(hashCount, equalTo(2))
+
+        retainingSnapshotter.snapshot(files(file, otherFile)).changesSince(snapshot, listener)
+        assertThat(hashCount, equalTo(2))
+
+        file.text = 'new content'
+        changes << file
+
+        context.checking {
+            one(listener).changed(file)
+        }
+        retainingSnapshotter.snapshot(files(file, otherFile)).changesSince(snapshot, listener)
+        assertThat(hashCount, equalTo(3))
+    }
+
     private FileCollection files(File... files) {
         FileCollection collection = context.mock(FileCollection.class, "collection ${counter++}")
         context.checking {
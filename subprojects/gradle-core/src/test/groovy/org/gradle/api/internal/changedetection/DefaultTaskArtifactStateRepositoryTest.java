@@ -24,21 +24,27 @@ import org.gradle.cache.CacheBuilder;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.PersistentCache;
 import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.cache.Serializer;
 import org.gradle.util.HelperUtil;
 import org.gradle.util.JUnit4GroovyMockery;
 import org.gradle.util.TemporaryFolder;
 import org.gradle.util.TestFile;
 import org.jmock.Expectations;
+import org.jmock.api.Invocation;
 import org.jmock.integration.junit4.JMock;
 import org.jmock.integration.junit4.JUnit4Mockery;
+import org.jmock.lib.action.CustomAction;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.util.*;
 
 import static org.gradle.util.WrapUtil.*;
+import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 
 @RunWith(JMock.class)
@@ -264,6 +270,20 @@ public class DefaultTaskArtifactStateRepositoryTest {
         assertTrue(state.isUpToDate());
     }
 
+    @Test
+    public void inputPropertyValueCanHaveAnySerializableType() {
+        TaskInternal task = builder().withProperty("int", 12).withProperty("long", 12L).withProperty("bool", true)
+                .withProperty("list", toList("a", "b")).task();
+        execute(task);
+
+        TaskArtifactState state = repository.getStateFor(task);
+        assertTrue(state.isUpToDate());
+
+        state = repository.getStateFor(builder().withProperty("int", 12).withProperty("long", 12L).withProperty(
+                "bool", true).withProperty("list", toList("a", "c")).task());
+        assertFalse(state.isUpToDate());
+    }
+
     @Test
     public void artifactsAreNotUpToDateWhenAnyInputPropertyAdded() {
         execute();
@@ -491,11 +511,18 @@ public class DefaultTaskArtifactStateRepositoryTest {
             one(builder).forObject(gradle);
             will(returnValue(builder));
 
+            one(builder).withMemoryMappedIndex();
+            will(returnValue(builder));
+
             one(builder).open();
             will(returnValue(persistentCache));
             
-            one(persistentCache).openIndexedCache();
-            will(returnValue(new TestIndexedCache()));
+            one(persistentCache).openIndexedCache(with(notNullValue(Serializer.class)));
+            will(new CustomAction("open cache") {
+                public Object invoke(Invocation invocation) throws Throwable {
+                    return new TestIndexedCache((Serializer<Object>) invocation.getParameter(0));
+                }
+            });
         }});
     }
 
@@ -582,15 +609,37 @@ public class DefaultTaskArtifactStateRepositoryTest {
     public static class TaskSubType extends DefaultTask {
     }
 
+    /**
+     * Holds each entry in serialized form, so that the serializer is exercised.
+     */
     public static class TestIndexedCache implements PersistentIndexedCache<Object, Object> {
-        Map<Object, Object> entries = new HashMap<Object, Object>();
+        private final Serializer<Object> serializer;
+        Map<Object, byte[]> entries = new HashMap<Object, byte[]>();
+
+        public TestIndexedCache(Serializer<Object> serializer) {
+            this.serializer = serializer;
+        }
 
         public Object get(Object key) {
-            return entries.get(key);
+            byte[] value = entries.get(key);
+            if (value == null) {
+                return null;
+            }
+            try {
+                return serializer.read(new ByteArrayInputStream(value));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
         }
 
         public void put(Object key, Object value) {
-            entries.put(key, value);
+            ByteArrayOutputStream outstr = new ByteArrayOutputStream();
+            try {
+                serializer.write(outstr, value);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            entries.put(key, outstr.toByteArray());
         }
 
         public void remove(Object key) {
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.util.TemporaryFolder;
+import org.gradle.util.TestFile;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+public class Murmur3HasherTest {
+    @Rule
+    public TemporaryFolder tmpDir = new TemporaryFolder();
+    private final Murmur3Hasher hasher = new Murmur3Hasher();
+
+    @Test
+    public void hashesEmptyFile() throws IOException {
+        assertThat(hash(0), equalTo("00000000000000000000000000000000"));
+    }
+
+    @Test
+    public void hashesFilesWithPartialBlocks() throws IOException {
+        assertThat(hash(1), equalTo("17bd72899d9027c4dd99b1452a70155c"));
+        assertThat(hash(5), equalTo("0fe0388754324363fc8aad335c8e3605"));
+        assertThat(hash(8), equalTo("5dafa33e0c1327d932687efbb44cabee"));
+        assertThat(hash(9), equalTo("e43bfbfbf3430f32a2f746d02d1773a3"));
+        assertThat(hash(15), equalTo("17ab8267b5f475375e412bb1809d296c"));
+    }
+
+    @Test
+    public void hashesFilesWithMultipleBlocks() throws IOException {
+        assertThat(hash(16), equalTo("14da89f6eb796b468a8505b8028b548c"));
+        assertThat(hash(17), equalTo("24e59d30842f32eb1b4828271fa02a08"));
+        assertThat(hash(31), equalTo("69059632da93db491e6cdc33601eb290"));
+        assertThat(hash(100), equalTo("98c5120a490b4e028303f04b14c2bb6d"));
+    }
+
+    @Test
+    public void hashesFilesLargerThanBuffer() throws IOException {
+        assertThat(hash(Murmur3Hasher.BUFFER_SIZE + 7), equalTo("126320edca726fc62c51bd46335f6d10"));
+        assertThat(hash(1000003), equalTo("3aadee2171ef23099455a1ed0cb13b98"));
+    }
+
+    @Test
+    public void failsWhenFileCannotBeRead() {
+        try {
+            hasher.hash(tmpDir.file("missing"));
+            fail();
+        } catch (UncheckedIOException e) {
+            // expected
+        }
+    }
+
+    private String hash(int length) throws IOException {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            content[i] = (byte) (i * 31 + 7);
+        }
+        TestFile file = tmpDir.file("file" + length);
+        FileOutputStream outstr = new FileOutputStream(file);
+        try {
+            outstr.write(content);
+        } finally {
+            outstr.close();
+        }
+        return String.format("%032x", new BigInteger(1, hasher.hash(file)));
+    }
+}
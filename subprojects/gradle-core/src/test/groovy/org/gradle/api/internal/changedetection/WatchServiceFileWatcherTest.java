@@ -0,0 +1,145 @@
+/*
+ * Copyright 2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.api.Action;
+import org.gradle.util.TemporaryFolder;
+import org.gradle.util.TestFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.gradle.util.Matchers.isEmpty;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+public class WatchServiceFileWatcherTest {
+    @Rule
+    public TemporaryFolder tmpDir = new TemporaryFolder();
+    private final WatchServiceFileWatcher watcher = new WatchServiceFileWatcher();
+    private TestFile dir;
+
+    @Before
+    public void setup() {
+        assumeTrue(watcher.isAvailable());
+        dir = tmpDir.createDir("dir");
+    }
+
+    @After
+    public void tearDown() {
+        watcher.stop();
+    }
+
+    @Test
+    public void reportsNothingWhenNoDirectoriesWatched() {
+        assertThat(changes(), isEmpty());
+    }
+
+    @Test
+    public void reportsNothingWhenWatchedDirectoryHasNotChanged() {
+        dir.file("file").createFile();
+        assertTrue(watcher.watch(dir));
+        assertThat(changes(), isEmpty());
+    }
+
+    @Test
+    public void reportsFilesWhichAreCreatedModifiedAndDeleted() {
+        TestFile modified = dir.file("modified").createFile();
+        TestFile deleted = dir.file("deleted").createFile();
+        assertTrue(watcher.watch(dir));
+
+        TestFile created = dir.file("created").createFile();
+        modified.write("new content");
+        assertTrue(deleted.delete());
+
+        assertThat(changes(), hasItems((File) created, modified, deleted));
+        assertThat(changes(), isEmpty());
+    }
+
+    @Test
+    public void reportsChangesMadeAfterEventsForEarlierMarkerHaveBeenQueued() throws InterruptedException {
+        assertTrue(watcher.watch(dir));
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(changes(), isEmpty());
+            // Give the watch service time to queue the deletion of the marker file
+            Thread.sleep(20);
+            TestFile created = dir.file("file" + i).createFile();
+            assertThat(changes(), hasItem((File) created));
+        }
+    }
+
+    @Test
+    public void doesNotReportChangesInNestedDirectory() {
+        TestFile nested = dir.file("nested").createDir();
+        assertTrue(watcher.watch(dir));
+
+        nested.file("file").createFile();
+
+        assertThat(changes(), not(hasItem((File) nested.file("file"))));
+    }
+
+    @Test
+    public void reportsDirectoryWhenItIsDeleted() {
+        TestFile nested = dir.file("nested").createDir();
+        assertTrue(watcher.watch(nested));
+
+        assertTrue(nested.delete());
+
+        assertThat(changes(), hasItem((File) nested));
+    }
+
+    @Test
+    public void cannotWatchMissingDirectory() {
+        assertFalse(watcher.watch(dir.file("missing")));
+    }
+
+    @Test
+    public void reportsAllWatchedDirectoriesWhenChangesCannotBeDetermined() {
+        WatchServiceFileWatcher timingOutWatcher = new WatchServiceFileWatcher(0);
+        try {
+            assertTrue(timingOutWatcher.watch(dir));
+
+            Set<File> changes = new HashSet<File>();
+            timingOutWatcher.processChanges(collector(changes));
+
+            assertThat(changes, equalTo(Collections.singleton((File) dir)));
+        } finally {
+            timingOutWatcher.stop();
+        }
+    }
+
+    private Set<File> changes() {
+        Set<File> changes = new HashSet<File>();
+        watcher.processChanges(collector(changes));
+        return changes;
+    }
+
+    private Action<File> collector(final Set<File> changes) {
+        return new Action<File>() {
+            public void execute(File file) {
+                changes.add(file);
+            }
+        };
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.api.Action;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+public class WatchedFileCacheTest {
+    private final TestWatcher watcher = new TestWatcher();
+    private final WatchedFileCache<String> cache = new WatchedFileCache<String>(watcher);
+    private final File dir = new File("dir").getAbsoluteFile();
+    private final File file = new File(dir, "file");
+    private final File otherFile = new File(dir, "other");
+
+    @Test
+    public void watchesParentDirectoryOfFile() {
+        assertTrue(cache.watch(file));
+        assertThat(watcher.watched, equalTo(toSet(dir)));
+    }
+
+    @Test
+    public void cannotRetainValueWhenParentDirectoryCannotBeWatched() {
+        watcher.canWatch = false;
+        assertFalse(cache.watch(file));
+    }
+
+    @Test
+    public void retainsValueUntilFileChanges() {
+        long token = cache.refresh();
+        cache.put(file, "value", token);
+        cache.put(otherFile, "other", token);
+        assertThat(cache.get(file), equalTo("value"));
+
+        cache.refresh();
+        assertThat(cache.get(file), equalTo("value"));
+
+        watcher.changes.add(file);
+        cache.refresh();
+        assertThat(cache.get(file), nullValue());
+        assertThat(cache.get(otherFile), equalTo("other"));
+    }
+
+    @Test
+    public void discardsValuesForAllFilesUnderChangedDirectory() {
+        File nestedFile = new File(new File(dir, "nested"), "file");
+        File siblingFile = new File(dir.getPath() + "-sibling");
+        long token = cache.refresh();
+        cache.put(file, "value", token);
+        cache.put(nestedFile, "nested", token);
+        cache.put(siblingFile, "sibling", token);
+
+        watcher.changes.add(dir);
+        cache.refresh();
+
+        assertThat(cache.get(file), nullValue());
+        assertThat(cache.get(nestedFile), nullValue());
+        assertThat(cache.get(siblingFile), equalTo("sibling"));
+    }
+
+    @Test
+    public void doesNotRetainValueWhenChangesProcessedSinceValueCalculated() {
+        long token = cache.refresh();
+        watcher.changes.add(otherFile);
+        cache.refresh();
+
+        cache.put(file, "value", token);
+        assertThat(cache.get(file), nullValue());
+    }
+
+    @Test
+    public void discardsValuesAndStopsWatcherOnStop() {
+        cache.put(file, "value", cache.refresh());
+
+        cache.stop();
+
+        assertTrue(watcher.stopped);
+        assertThat(cache.get(file), nullValue());
+    }
+
+    private static Set<File> toSet(File... files) {
+        Set<File> set = new HashSet<File>();
+        for (File file : files) {
+            set.add(file);
+        }
+        return set;
+    }
+
+    private static class TestWatcher implements FileWatcher {
+        final Set<File> watched = new HashSet<File>();
+        final List<File> changes = new ArrayList<File>();
+        boolean canWatch = true;
+        boolean stopped;
+
+        public boolean watch(File dir) {
+            if (canWatch) {
+                watched.add(dir);
+            }
+            return canWatch;
+        }
+
+        public void processChanges(Action<File> handler) {
+            for (File change : changes) {
+                handler.execute(change);
+            }
+            changes.clear();
+        }
+
+        public void stop() {
+            stopped = true;
+        }
+    }
+}
@@ -22,7 +22,12 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
@@ -74,6 +79,97 @@ public class DefaultServiceRegistryTest {
         }
     }
 
+    @Test
+    public void throwsExceptionForServiceUnknownToAllAncestors() {
+        DefaultServiceRegistry parent = new DefaultServiceRegistry(new DefaultServiceRegistry());
+        TestRegistry registry = new TestRegistry(parent);
+
+        try {
+            registry.get(Map.class);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), equalTo("No service of type Map available in TestRegistry."));
+        }
+    }
+
+    @Test
+    public void locatesServiceInAncestorRegistry() {
+        BigDecimal value = BigDecimal.TEN;
+        DefaultServiceRegistry grandParent = new DefaultServiceRegistry();
+        grandParent.add(BigDecimal.class, value);
+        DefaultServiceRegistry registry = new DefaultServiceRegistry(new DefaultServiceRegistry(grandParent));
+
+        assertThat(registry.get(BigDecimal.class), sameInstance(value));
+        assertThat(registry.get(Number.class), sameInstance((Object) value));
+    }
+
+    @Test
+    public void propagatesExceptionForUnknownServiceRequiredToCreateService() {
+        DefaultServiceRegistry parent = new DefaultServiceRegistry() {
+            protected List<?> createList() {
+                return new ArrayList<Object>(get(Map.class).keySet());
+            }
+        };
+        TestRegistry registry = new TestRegistry(parent);
+
+        try {
+            registry.get(List.class);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), startsWith("No service of type Map available in "));
+        }
+    }
+
+    @Test
+    public void usesServiceAddedAfterTypeHasBeenLocated() {
+        registry.add(BigDecimal.class, BigDecimal.TEN);
+        assertThat(registry.get(Number.class), sameInstance((Object) BigDecimal.TEN));
+
+        registry.add(BigDecimal.class, BigDecimal.ONE);
+        assertThat(registry.get(Number.class), sameInstance((Object) BigDecimal.ONE));
+    }
+
+    @Test
+    public void createsServiceOnceWhenLocatedConcurrently() throws InterruptedException {
+        final AtomicInteger created = new AtomicInteger();
+        registry.add(new DefaultServiceRegistry.Service(BigDecimal.class) {
+            @Override
+            protected Object create() {
+                created.incrementAndGet();
+                return new BigDecimal(created.get());
+            }
+        });
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Object> results = new CopyOnWriteArrayList<Object>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 10; i++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    results.add(registry.get(Number.class));
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(created.get(), equalTo(1));
+        assertThat(results.size(), equalTo(10));
+        for (Object result : results) {
+            assertThat(result, sameInstance(results.get(0)));
+        }
+    }
+
     @Test
     public void returnsAddedServiceInstance() {
         BigDecimal value = BigDecimal.TEN;
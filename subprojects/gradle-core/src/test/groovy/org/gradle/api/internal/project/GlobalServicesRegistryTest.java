@@ -19,6 +19,7 @@ import org.gradle.api.internal.ClassPathRegistry;
 import org.gradle.api.internal.DefaultClassPathRegistry;
 import org.gradle.cache.CacheFactory;
 import org.gradle.cache.DefaultCacheFactory;
+import org.gradle.groovy.scripts.ScriptClassCache;
 import org.gradle.initialization.*;
 import org.junit.Test;
 
@@ -48,4 +49,10 @@ public class GlobalServicesRegistryTest {
     public void providesAClassLoaderFactory() {
         assertThat(registry.get(ClassLoaderFactory.class), instanceOf(DefaultClassLoaderFactory.class));
     }
+
+    @Test
+    public void providesAScriptClassCache() {
+        assertThat(registry.get(ScriptClassCache.class), instanceOf(ScriptClassCache.class));
+        assertThat(registry.get(ScriptClassCache.class), sameInstance(registry.get(ScriptClassCache.class)));
+    }
 }
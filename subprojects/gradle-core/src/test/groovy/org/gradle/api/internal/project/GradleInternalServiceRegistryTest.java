@@ -24,8 +24,11 @@ import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.PublishModul
 import org.gradle.api.internal.artifacts.repositories.DefaultInternalRepository;
 import org.gradle.api.internal.plugins.DefaultPluginRegistry;
 import org.gradle.api.internal.plugins.PluginRegistry;
+import org.gradle.cache.CacheRepository;
 import org.gradle.execution.DefaultTaskGraphExecuter;
+import org.gradle.execution.PersistentExecutionPlanCache;
 import org.gradle.execution.TaskGraphExecuter;
+import org.gradle.initialization.ClassLoaderFactory;
 import org.gradle.listener.ListenerBroadcast;
 import org.gradle.listener.ListenerManager;
 import org.gradle.util.MultiParentClassLoader;
@@ -99,6 +102,26 @@ public class GradleInternalServiceRegistryTest {
         assertThat(registry.get(TaskGraphExecuter.class), sameInstance(registry.get(TaskGraphExecuter.class)));
     }
 
+    @Test
+    public void registersExecutionPlanCacheWhenTaskGraphIsCached() {
+        startParameter.setCacheTaskGraph(true);
+        final ClassLoaderFactory classLoaderFactory = context.mock(ClassLoaderFactory.class);
+        context.checking(new Expectations(){{
+            allowing(parent).get(CacheRepository.class);
+            will(returnValue(context.mock(CacheRepository.class)));
+            allowing(parent).get(ClassLoaderFactory.class);
+            will(returnValue(classLoaderFactory));
+            allowing(classLoaderFactory).getRootClassLoader();
+            will(returnValue(getClass().getClassLoader()));
+            one(listenerManager).addListener(with(instanceOf(PersistentExecutionPlanCache.class)));
+            one(listenerManager).createAnonymousBroadcaster(TaskExecutionGraphListener.class);
+            will(returnValue(new ListenerBroadcast<TaskExecutionGraphListener>(TaskExecutionGraphListener.class)));
+            one(listenerManager).createAnonymousBroadcaster(TaskExecutionListener.class);
+            will(returnValue(new ListenerBroadcast<TaskExecutionListener>(TaskExecutionListener.class)));
+        }});
+        assertThat(registry.get(TaskGraphExecuter.class), instanceOf(DefaultTaskGraphExecuter.class));
+    }
+
     @Test
     public void providesAnInternalRepository() {
         assertThat(registry.get(InternalRepository.class), instanceOf(DefaultInternalRepository.class));
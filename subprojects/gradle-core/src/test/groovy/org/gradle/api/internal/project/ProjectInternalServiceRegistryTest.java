@@ -68,6 +68,7 @@ public class ProjectInternalServiceRegistryTest {
     private final ServiceRegistry parent = context.mock(ServiceRegistry.class);
     private final ProjectInternalServiceRegistry registry = new ProjectInternalServiceRegistry(parent, project);
     private final PluginRegistry pluginRegistry = context.mock(PluginRegistry.class);
+    private final ProjectAccessListener projectAccessListener = context.mock(ProjectAccessListener.class);
 
     @Before
     public void setUp() {
@@ -89,6 +90,8 @@ public class ProjectInternalServiceRegistryTest {
             will(returnValue(dependencyFactory));
             allowing(parent).get(PluginRegistry.class);
             will(returnValue(pluginRegistry));
+            allowing(parent).get(ProjectAccessListener.class);
+            will(returnValue(projectAccessListener));
         }});
     }
 
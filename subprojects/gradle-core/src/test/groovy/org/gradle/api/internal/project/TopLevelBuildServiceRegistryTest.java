@@ -16,6 +16,7 @@
 package org.gradle.api.internal.project;
 
 import org.gradle.StartParameter;
+import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.artifacts.dsl.RepositoryHandlerFactory;
 import org.gradle.api.internal.ClassPathRegistry;
 import org.gradle.api.internal.ExceptionAnalyser;
@@ -23,6 +24,11 @@ import org.gradle.api.internal.GradleInternal;
 import org.gradle.api.internal.artifacts.dsl.DefaultPublishArtifactFactory;
 import org.gradle.api.internal.artifacts.dsl.DefaultRepositoryHandlerFactory;
 import org.gradle.api.internal.artifacts.dsl.PublishArtifactFactory;
+import org.gradle.api.internal.artifacts.ivyservice.ParallelArtifactDownloader;
+import org.gradle.api.internal.changedetection.CachingHasher;
+import org.gradle.api.internal.changedetection.DefaultFileSnapshotter;
+import org.gradle.api.internal.changedetection.FileSnapshotter;
+import org.gradle.api.internal.changedetection.Hasher;
 import org.gradle.api.internal.tasks.ExecuteAtMostOnceTaskExecuter;
 import org.gradle.api.internal.tasks.TaskExecuter;
 import org.gradle.cache.CacheFactory;
@@ -31,12 +37,14 @@ import org.gradle.cache.DefaultCacheRepository;
 import org.gradle.configuration.DefaultScriptPluginFactory;
 import org.gradle.configuration.ScriptPluginFactory;
 import org.gradle.groovy.scripts.DefaultScriptCompilerFactory;
+import org.gradle.groovy.scripts.ScriptClassCache;
 import org.gradle.groovy.scripts.ScriptCompilerFactory;
 import org.gradle.initialization.*;
 import org.gradle.listener.DefaultListenerManager;
 import org.gradle.listener.ListenerManager;
 import org.gradle.process.DefaultWorkerProcessFactory;
 import org.gradle.process.WorkerProcessFactory;
+import org.gradle.util.BoundedExecutor;
 import org.gradle.util.MultiParentClassLoader;
 import org.gradle.util.TemporaryFolder;
 import org.jmock.Expectations;
@@ -75,6 +83,8 @@ public class TopLevelBuildServiceRegistryTest {
             will(returnValue(classPathRegistry));
             allowing(parent).get(ClassLoaderFactory.class);
             will(returnValue(classLoaderFactory));
+            allowing(parent).get(ScriptClassCache.class);
+            will(returnValue(new ScriptClassCache()));
         }});
     }
     
@@ -124,15 +134,80 @@ public class TopLevelBuildServiceRegistryTest {
         assertThat(factory.get(PublishArtifactFactory.class), sameInstance(factory.get(PublishArtifactFactory.class)));
     }
 
+    @Test
+    public void providesAProjectAccessListener() {
+        assertThat(factory.get(ProjectAccessListener.class), notNullValue());
+        assertThat(factory.get(ProjectAccessListener.class), sameInstance(factory.get(ProjectAccessListener.class)));
+    }
+
     @Test
     public void providesATaskExecuter() {
         context.checking(new Expectations(){{
-            one(cacheFactory).open(with(notNullValue(File.class)), with(equalTo(startParameter.getCacheUsage())), with(equalTo(Collections.EMPTY_MAP)));
+            one(cacheFactory).open(with(notNullValue(File.class)), with(equalTo(startParameter.getCacheUsage())), with(equalTo(Collections.singletonMap("algorithm", "MurmurHash3_x64_128"))), with(equalTo(true)));
         }});
         assertThat(factory.get(TaskExecuter.class), instanceOf(ExecuteAtMostOnceTaskExecuter.class));
         assertThat(factory.get(TaskExecuter.class), sameInstance(factory.get(TaskExecuter.class)));
     }
 
+    @Test
+    public void providesAFileSnapshotter() {
+        context.checking(new Expectations(){{
+            one(cacheFactory).open(with(notNullValue(File.class)), with(equalTo(startParameter.getCacheUsage())), with(equalTo(Collections.singletonMap("algorithm", "MurmurHash3_x64_128"))), with(equalTo(true)));
+        }});
+        assertThat(factory.get(FileSnapshotter.class), instanceOf(DefaultFileSnapshotter.class));
+        assertThat(factory.get(FileSnapshotter.class), sameInstance(factory.get(FileSnapshotter.class)));
+    }
+
+    @Test
+    public void providesABoundedExecutor() {
+        BoundedExecutor executor = factory.get(BoundedExecutor.class);
+        assertThat(executor.getMaxThreads(), equalTo(Runtime.getRuntime().availableProcessors()));
+        assertThat(factory.get(BoundedExecutor.class), sameInstance(executor));
+        factory.close();
+    }
+
+    @Test
+    public void providesAParallelArtifactDownloader() {
+        assertThat(factory.get(ParallelArtifactDownloader.class), instanceOf(ParallelArtifactDownloader.class));
+        assertThat(factory.get(ParallelArtifactDownloader.class), sameInstance(factory.get(
+                ParallelArtifactDownloader.class)));
+    }
+
+    @Test
+    public void providesAHasher() {
+        context.checking(new Expectations(){{
+            one(cacheFactory).open(with(notNullValue(File.class)), with(equalTo(startParameter.getCacheUsage())), with(equalTo(Collections.singletonMap("algorithm", "MurmurHash3_x64_128"))), with(equalTo(true)));
+        }});
+        assertThat(factory.get(Hasher.class), instanceOf(CachingHasher.class));
+        assertThat(factory.get(Hasher.class), sameInstance(factory.get(Hasher.class)));
+    }
+
+    @Test
+    public void providesAnMd5HasherWhenSelectedBySystemProperty() {
+        context.checking(new Expectations(){{
+            one(cacheFactory).open(with(notNullValue(File.class)), with(equalTo(startParameter.getCacheUsage())), with(equalTo(Collections.singletonMap("algorithm", "MD5"))), with(equalTo(true)));
+        }});
+        System.setProperty(TopLevelBuildServiceRegistry.HASH_ALGORITHM_PROPERTY, "md5");
+        try {
+            assertThat(factory.get(Hasher.class).getAlgorithm(), equalTo("MD5"));
+        } finally {
+            System.clearProperty(TopLevelBuildServiceRegistry.HASH_ALGORITHM_PROPERTY);
+        }
+    }
+
+    @Test
+    public void failsWhenSystemPropertySelectsAnUnknownHashAlgorithm() {
+        System.setProperty(TopLevelBuildServiceRegistry.HASH_ALGORITHM_PROPERTY, "unknown");
+        try {
+            factory.get(Hasher.class);
+            fail();
+        } catch (InvalidUserDataException e) {
+            assertThat(e.getMessage(), equalTo("Unknown file hash algorithm 'unknown' specified by system property 'org.gradle.hashAlgorithm'. Use 'murmur3' or 'md5'."));
+        } finally {
+            System.clearProperty(TopLevelBuildServiceRegistry.HASH_ALGORITHM_PROPERTY);
+        }
+    }
+
     @Test
     public void providesARepositoryHandlerFactory() {
         assertThat(factory.get(RepositoryHandlerFactory.class), instanceOf(DefaultRepositoryHandlerFactory.class));
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks
+
+import org.gradle.api.Task
+import org.gradle.api.tasks.TaskDependency
+import org.gradle.util.JUnit4GroovyMockery
+import org.jmock.integration.junit4.JMock
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.concurrent.Callable
+import static org.gradle.util.WrapUtil.*
+import static org.hamcrest.Matchers.*
+import static org.junit.Assert.*
+
+@RunWith(JMock.class)
+public class CachingTaskDependencyTest {
+    private final JUnit4GroovyMockery context = new JUnit4GroovyMockery()
+    private final TaskDependency target = context.mock(TaskDependency.class, "target")
+    private final TaskDependency otherTarget = context.mock(TaskDependency.class, "otherTarget")
+    private final Task task = context.mock(Task.class, "task")
+    private final Task otherTask = context.mock(Task.class, "otherTask")
+    private final Task dependencyTask = context.mock(Task.class, "dependencyTask")
+    private final Object owner = new Object()
+
+    @Test
+    public void resolvesDelegateEachTimeWhenNotCaching() {
+        CachingTaskDependency dependency = new CachingTaskDependency(owner, "kind", target)
+
+        context.checking {
+            exactly(2).of(target).getDependencies(task)
+            will(returnValue(toSet(dependencyTask)))
+        }
+
+        assertThat(dependency.getDependencies(task), equalTo(toSet(dependencyTask)))
+        assertThat(dependency.getDependencies(task), equalTo(toSet(dependencyTask)))
+    }
+
+    @Test
+    public void resolvesDelegateOnceWhenCaching() {
+        CachingTaskDependency dependency = new CachingTaskDependency(owner, "kind", target)
+        CachingTaskDependency sameKey = new CachingTaskDependency(owner, "kind", otherTarget)
+
+        context.checking {
+            one(target).getDependencies(task)
+            will(returnValue(toSet(dependencyTask)))
+        }
+
+        CachingTaskDependency.cacheDuring({
+            assertThat(dependency.getDependencies(task), equalTo(toSet(dependencyTask)))
+            assertThat(dependency.getDependencies(otherTask), equalTo(toSet(dependencyTask)))
+            assertThat(sameKey.getDependencies(task), equalTo(toSet(dependencyTask)))
+        } as Runnable)
+    }
+
+    @Test
+    public void cachesResultsForDifferentOwnersAndKindsSeparately() {
+        CachingTaskDependency dependency = new CachingTaskDependency(owner, "kind", target)
+        CachingTaskDependency otherKind = new CachingTaskDependency(owner, "otherKind", otherTarget)
+        CachingTaskDependency otherOwner = new CachingTaskDependency(new Object(), "kind", otherTarget)
+
+        context.checking {
+            one(target).getDependencies(task)
+            will(returnValue(toSet(dependencyTask)))
+            exactly(2).of(otherTarget).getDependencies(task)
+            will(returnValue(toSet(otherTask)))
+        }
+
+        CachingTaskDependency.cacheDuring({
+            assertThat(dependency.getDependencies(task), equalTo(toSet(dependencyTask)))
+            assertThat(otherKind.getDependencies(task), equalTo(toSet(otherTask)))
+            assertThat(otherOwner.getDependencies(task), equalTo(toSet(otherTask)))
+        } as Runnable)
+    }
+
+    @Test
+    public void nestedCallsShareTheCacheOfTheOutermostCall() {
+        CachingTaskDependency dependency = new CachingTaskDependency(owner, "kind", target)
+
+        context.checking {
+            one(target).getDependencies(task)
+            will(returnValue(toSet(dependencyTask)))
+        }
+
+        CachingTaskDependency.cacheDuring({
+            dependency.getDependencies(task)
+            CachingTaskDependency.cacheDuring({
+                assertThat(dependency.getDependencies(task), equalTo(toSet(dependencyTask)))
+            } as Runnable)
+            assertThat(dependency.getDependencies(task), equalTo(toSet(dependencyTask)))
+        } as Runnable)
+    }
+
+    @Test
+    public void discardsCachedResultsWhenActionCompletes() {
+        CachingTaskDependency dependency = new CachingTaskDependency(owner, "kind", target)
+
+        context.checking {
+            exactly(2).of(target).getDependencies(task)
+            will(returnValue(toSet(dependencyTask)))
+        }
+
+        CachingTaskDependency.cacheDuring({ dependency.getDependencies(task) } as Runnable)
+
+        assertThat(dependency.getDependencies(task), equalTo(toSet(dependencyTask)))
+    }
+
+    @Test
+    public void discardsCachedResultsWhenActionFails() {
+        CachingTaskDependency dependency = new CachingTaskDependency(owner, "kind", target)
+        RuntimeException failure = new RuntimeException()
+
+        context.checking {
+            exactly(2).of(target).getDependencies(task)
+            will(returnValue(toSet(dependencyTask)))
+        }
+
+        try {
+            CachingTaskDependency.cacheDuring({
+                dependency.getDependencies(task)
+                throw failure
+            } as Runnable)
+            fail()
+        } catch (RuntimeException e) {
+            assertThat(e, sameInstance(failure))
+        }
+
+        dependency.getDependencies(task)
+    }
+
+    @Test
+    public void cachesResultForEachTaskWhenClosureUsesRequestingTask() {
+        Task otherDependencyTask = context.mock(Task.class, "otherDependencyTask")
+        CachingTaskDependency dependency = new CachingTaskDependency(owner, "kind", new DefaultTaskDependency().add({
+            Task requestingTask -> requestingTask.is(task) ? dependencyTask : otherDependencyTask
+        }))
+
+        CachingTaskDependency.cacheDuring({
+            assertThat(dependency.getDependencies(task), equalTo(toSet(dependencyTask)))
+            assertThat(dependency.getDependencies(otherTask), equalTo(toSet(otherDependencyTask)))
+            assertThat(dependency.getDependencies(task), equalTo(toSet(dependencyTask)))
+        } as Runnable)
+    }
+
+    @Test
+    public void cachesResultForEachTaskWhenNestedDependencyUsesRequestingTask() {
+        Task otherDependencyTask = context.mock(Task.class, "otherDependencyTask")
+        CachingTaskDependency nested = new CachingTaskDependency(new Object(), "kind", new DefaultTaskDependency().add({
+            Task requestingTask -> requestingTask.is(task) ? dependencyTask : otherDependencyTask
+        }))
+        CachingTaskDependency dependency = new CachingTaskDependency(owner, "kind", new DefaultTaskDependency().add(
+                nested))
+
+        CachingTaskDependency.cacheDuring({
+            assertThat(dependency.getDependencies(task), equalTo(toSet(dependencyTask)))
+            assertThat(dependency.getDependencies(otherTask), equalTo(toSet(otherDependencyTask)))
+        } as Runnable)
+    }
+
+    @Test
+    public void sharesResultBetweenTasksWhenRequestingTaskIsNotUsed() {
+        int resolveCount = 0
+        CachingTaskDependency dependency = new CachingTaskDependency(owner, "kind", new DefaultTaskDependency().add([call: {
+            resolveCount++
+            dependencyTask
+        }] as Callable))
+
+        CachingTaskDependency.cacheDuring({
+            assertThat(dependency.getDependencies(task), equalTo(toSet(dependencyTask)))
+            assertThat(dependency.getDependencies(otherTask), equalTo(toSet(dependencyTask)))
+        } as Runnable)
+        assertThat(resolveCount, equalTo(1))
+    }
+}
@@ -21,6 +21,7 @@ import org.gradle.api.Project;
 import org.gradle.api.Task;
 import org.gradle.api.UnknownTaskException;
 import org.gradle.api.internal.project.taskfactory.ITaskFactory;
+import org.gradle.api.internal.project.ProjectAccessListener;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.internal.TaskInternal;
 import org.gradle.api.tasks.TaskContainer;
@@ -41,8 +42,9 @@ public class DefaultTaskContainerTest {
     private final JUnit4Mockery context = new JUnit4Mockery();
     private final ITaskFactory taskFactory = context.mock(ITaskFactory.class);
     private final ProjectInternal project = context.mock(ProjectInternal.class, "<project>");
+    private final ProjectAccessListener projectAccessListener = context.mock(ProjectAccessListener.class);
     private int taskCount;
-    private final DefaultTaskContainer container = new DefaultTaskContainer(project, taskFactory);
+    private final DefaultTaskContainer container = new DefaultTaskContainer(project, taskFactory, projectAccessListener);
 
     @Test
     public void addsTaskWithMap() {
@@ -187,6 +189,43 @@ public class DefaultTaskContainerTest {
         assertThat(container.findByPath(":task"), sameInstance(task));
     }
 
+    @Test
+    public void notifiesListenerBeforeLookingUpTaskInOtherProject() {
+        final Task task = task("task");
+        final Project otherProject = context.mock(Project.class);
+        final TaskContainer otherTaskContainer = context.mock(TaskContainer.class);
+
+        context.checking(new Expectations(){{
+            allowing(project).findProject(":other");
+            will(returnValue(otherProject));
+
+            one(projectAccessListener).beforeAccess(otherProject);
+
+            one(otherProject).getTasks();
+            will(returnValue(otherTaskContainer));
+
+            one(otherTaskContainer).findByName("task");
+            will(returnValue(task));
+        }});
+
+        assertThat(container.findByPath(":other:task"), sameInstance(task));
+    }
+
+    @Test
+    public void doesNotNotifyListenerWhenLookingUpTaskInThisProject() {
+        final Task task = addTask("task");
+
+        context.checking(new Expectations(){{
+            allowing(project).findProject(":");
+            will(returnValue(project));
+
+            allowing(project).getTasks();
+            will(returnValue(container));
+        }});
+
+        assertThat(container.findByPath(":task"), sameInstance(task));
+    }
+
     @Test
     public void findByPathReturnsNullForUnknownProject() {
         context.checking(new Expectations(){{
@@ -251,6 +290,8 @@ public class DefaultTaskContainerTest {
             allowing(project).findProject(projectPath);
             will(returnValue(otherProject));
 
+            allowing(projectAccessListener).beforeAccess(otherProject);
+
             allowing(otherProject).getTasks();
             will(returnValue(otherTaskContainer));
 
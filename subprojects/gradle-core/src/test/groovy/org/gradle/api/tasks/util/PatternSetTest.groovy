@@ -16,9 +16,11 @@
  
 package org.gradle.api.tasks.util
 
+import org.apache.tools.ant.DirectoryScanner
 import org.gradle.api.file.FileTreeElement
 import org.gradle.api.file.RelativePath
 import org.gradle.api.specs.Spec
+import org.junit.After
 import org.junit.Test
 import static org.gradle.util.Matchers.*
 import static org.hamcrest.Matchers.*
@@ -34,6 +36,10 @@ class PatternSetTest extends AbstractTestForPatternSet {
         patternSet
     }
 
+    @After public void restoreGlobalExcludes() {
+        PatternSet.globalExcludes = DirectoryScanner.DEFAULTEXCLUDES as List
+    }
+
     @Test public void testConstructionFromMap() {
         Map map = [includes: [TEST_PATTERN_1], excludes: [TEST_PATTERN_2]]
         PatternFilterable patternSet = new PatternSet(map)
@@ -34,13 +34,13 @@ public class AutoCloseCacheFactoryTest {
         PersistentCache cache1 = context.mock(PersistentCache, '1')
         PersistentCache cache2 = context.mock(PersistentCache, '2')
         context.checking {
-            one(backingFactory).open(new File('dir1'), CacheUsage.ON, [:])
+            one(backingFactory).open(new File('dir1'), CacheUsage.ON, [:], false)
             will(returnValue(cache1))
-            one(backingFactory).open(new File('dir2'), CacheUsage.ON, [:])
+            one(backingFactory).open(new File('dir2'), CacheUsage.ON, [:], false)
             will(returnValue(cache2))
         }
-        assertThat(factory.open(new File('dir1'), CacheUsage.ON, [:]), sameInstance(cache1))
-        assertThat(factory.open(new File('dir2'), CacheUsage.ON, [:]), sameInstance(cache2))
+        assertThat(factory.open(new File('dir1'), CacheUsage.ON, [:], false), sameInstance(cache1))
+        assertThat(factory.open(new File('dir2'), CacheUsage.ON, [:], false), sameInstance(cache2))
 
         context.checking {
             one(backingFactory).close(cache1)
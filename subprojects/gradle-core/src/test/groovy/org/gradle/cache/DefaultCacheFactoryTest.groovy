@@ -29,23 +29,40 @@ class DefaultCacheFactoryTest {
 
     @Test
     public void createsCache() {
-        PersistentCache cache = factory.open(tmpDir.dir, CacheUsage.ON, [prop: 'value'])
+        PersistentCache cache = factory.open(tmpDir.dir, CacheUsage.ON, [prop: 'value'], false)
         assertThat(cache, instanceOf(DefaultPersistentDirectoryCache))
         assertThat(cache.baseDir, equalTo(tmpDir.dir))
     }
 
     @Test
     public void cachesCacheInstances() {
-        PersistentCache cache = factory.open(tmpDir.dir, CacheUsage.ON, [prop: 'value'])
-        assertThat(factory.open(tmpDir.dir, CacheUsage.ON, [prop: 'value']), sameInstance(cache))
-        assertThat(factory.open(tmpDir.createDir('some-other-dir'), CacheUsage.ON, [prop: 'value']), not(sameInstance(cache)))
+        PersistentCache cache = factory.open(tmpDir.dir, CacheUsage.ON, [prop: 'value'], false)
+        assertThat(factory.open(tmpDir.dir, CacheUsage.ON, [prop: 'value'], false), sameInstance(cache))
+        assertThat(factory.open(tmpDir.createDir('some-other-dir'), CacheUsage.ON, [prop: 'value'], false), not(sameInstance(cache)))
     }
 
     @Test
     public void discardsCacheInstanceWhenClosed() {
-        PersistentCache cache = factory.open(tmpDir.dir, CacheUsage.ON, [prop: 'value'])
+        PersistentCache cache = factory.open(tmpDir.dir, CacheUsage.ON, [prop: 'value'], false)
         factory.close(cache)
-        assertThat(factory.open(tmpDir.dir, CacheUsage.ON, [prop: 'value']), not(sameInstance(cache)))
+        assertThat(factory.open(tmpDir.dir, CacheUsage.ON, [prop: 'value'], false), not(sameInstance(cache)))
+    }
+
+    @Test
+    public void createsCacheWithMemoryMappedIndex() {
+        DefaultPersistentDirectoryCache cache = factory.open(tmpDir.dir, CacheUsage.ON, [prop: 'value'], true)
+        assertTrue(cache.memoryMappedIndex)
+    }
+
+    @Test
+    public void cannotOpenCacheWhichIsAlreadyOpenWithDifferentIndexType() {
+        factory.open(tmpDir.dir, CacheUsage.ON, [prop: 'value'], false)
+        try {
+            factory.open(tmpDir.dir, CacheUsage.ON, [prop: 'value'], true)
+            fail()
+        } catch (UnsupportedOperationException e) {
+            assertThat(e.message, equalTo("Cache '${tmpDir.dir}' is already open with different state.".toString()))
+        }
     }
 }
 
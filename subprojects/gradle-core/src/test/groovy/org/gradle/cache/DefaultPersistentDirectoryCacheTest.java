@@ -149,6 +149,15 @@ public class DefaultPersistentDirectoryCacheTest {
         assertThat(cache.openStateCache(), sameInstance(cache.openStateCache()));
     }
 
+    @Test
+    public void createsAStateCacheWithTheGivenSerializer() {
+        TestFile dir = tmpDir.getDir().file("dir");
+        DefaultPersistentDirectoryCache cache = new DefaultPersistentDirectoryCache(dir, CacheUsage.ON, properties);
+        PersistentStateCache<String> stateCache = cache.openStateCache(new DefaultSerializer<String>());
+        stateCache.set("value");
+        assertThat(new DefaultPersistentDirectoryCache(dir, CacheUsage.ON, properties).<String>openStateCache(new DefaultSerializer<String>()).get(), equalTo("value"));
+    }
+
     private Map<String, String> loadProperties(TestFile file) {
         Properties properties = GUtil.loadProperties(file);
         Map<String, String> result = new HashMap<String, String>();
@@ -138,10 +138,10 @@ public class BTreePersistentIndexedCacheTest {
         assertThat(cacheFile.length(), equalTo(len));
 
         cache.remove("key_1");
-        cache.put("key_new", "a1b2");
+        cache.put("key_6", "a1b2");
         assertThat(cacheFile.length(), equalTo(len));
 
-        cache.put("key_new", "longer value");
+        cache.put("key_6", "longer value");
         assertThat(cacheFile.length(), greaterThan(len));
         len = cacheFile.length();
 
@@ -227,6 +227,113 @@ public class BTreePersistentIndexedCacheTest {
         assertThat(cache.get(new File("File")), equalTo(3));
     }
 
+    @Test
+    public void canUseKeysWithSameHashCode() {
+        assertThat("Aa".hashCode(), equalTo("BB".hashCode()));
+
+        cache.put("Aa", 1);
+        cache.put("BB", 2);
+        assertThat(cache.get("Aa"), equalTo(1));
+        assertThat(cache.get("BB"), equalTo(2));
+
+        cache.reset();
+
+        assertThat(cache.get("Aa"), equalTo(1));
+        assertThat(cache.get("BB"), equalTo(2));
+
+        cache.remove("Aa");
+        assertNull(cache.get("Aa"));
+        assertThat(cache.get("BB"), equalTo(2));
+        cache.verify();
+    }
+
+    @Test
+    public void writesUpdatesInWriteBackModeWhenFlushed() {
+        BTreePersistentIndexedCache<String, Integer> cache = new BTreePersistentIndexedCache<String, Integer>(backingCache, serializer, (short) 4, 100, true, false);
+        TestFile testFile = tmpDir.getDir().file("cache.bin");
+        long len = testFile.length();
+
+        for (int i = 0; i < 10; i++) {
+            cache.put(String.format("key_%d", i), i);
+        }
+        cache.remove("key_4");
+
+        assertThat(testFile.length(), equalTo(len));
+        assertThat(cache.get("key_3"), equalTo(3));
+        assertNull(cache.get("key_4"));
+
+        cache.flush();
+
+        assertThat(testFile.length(), greaterThan(len));
+        assertFalse(tmpDir.getDir().file("cache.bin.journal").exists());
+
+        BTreePersistentIndexedCache<String, Integer> other = new BTreePersistentIndexedCache<String, Integer>(backingCache, serializer, (short) 4, 100);
+        assertThat(other.get("key_3"), equalTo(3));
+        assertNull(other.get("key_4"));
+        other.verify();
+        other.close();
+        cache.close();
+    }
+
+    @Test
+    public void writesUpdatesInWriteBackModeWhenClosed() {
+        BTreePersistentIndexedCache<String, Integer> cache = new BTreePersistentIndexedCache<String, Integer>(backingCache, serializer, (short) 4, 100, true, false);
+
+        cache.put("key_1", 1);
+        cache.put("key_2", 2);
+        cache.put("key_1", 3);
+        cache.close();
+
+        cache = new BTreePersistentIndexedCache<String, Integer>(backingCache, serializer, (short) 4, 100, true, false);
+        assertThat(cache.get("key_1"), equalTo(3));
+        assertThat(cache.get("key_2"), equalTo(2));
+        cache.verify();
+        cache.close();
+    }
+
+    @Test
+    public void getReturnsLatestValueInWriteBackModeWhenEntryIsUpdatedInPlace() {
+        BTreePersistentIndexedCache<String, String> cache = new BTreePersistentIndexedCache<String, String>(backingCache, new DefaultSerializer<String>(), (short) 4, 100, true, false);
+
+        cache.put("key", "aaaa");
+        cache.put("key", "bbbb");
+        assertThat(cache.get("key"), equalTo("bbbb"));
+
+        cache.flush();
+        assertThat(cache.get("key"), equalTo("bbbb"));
+        cache.verify();
+        cache.close();
+    }
+
+    @Test
+    public void writesUpdatesInWriteBackModeWhenTooManyUpdatesArePending() {
+        BTreePersistentIndexedCache<String, Integer> cache = new BTreePersistentIndexedCache<String, Integer>(backingCache, serializer, true, false);
+
+        for (int i = 0; i < 1500; i++) {
+            cache.put(String.format("key_%d", i), i);
+        }
+
+        BTreePersistentIndexedCache<String, Integer> other = new BTreePersistentIndexedCache<String, Integer>(backingCache, serializer);
+        assertThat(other.get("key_999"), equalTo(999));
+        assertNull(other.get("key_1000"));
+        other.close();
+        cache.close();
+    }
+
+    @Test
+    public void canUseMemoryMappedFile() {
+        cache = new BTreePersistentIndexedCache<String, Integer>(backingCache, serializer, (short) 4, 100, true, true);
+
+        checkAddsAndRemoves(3, 2, 11, 5, 7, 1, 10, 8, 9, 4, 6, 0);
+        checkAdds(1, 2, 3, 4, 5);
+        cache.verify();
+        cache.close();
+
+        cache = new BTreePersistentIndexedCache<String, Integer>(backingCache, serializer, (short) 4, 100);
+        assertThat(cache.get("key_5"), equalTo(5));
+        cache.verify();
+    }
+
     private void checkAdds(Integer... values) {
         checkAdds(Arrays.asList(values));
     }
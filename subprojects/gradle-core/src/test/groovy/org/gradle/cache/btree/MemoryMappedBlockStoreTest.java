@@ -0,0 +1,221 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.btree;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.util.TemporaryFolder;
+import org.gradle.util.TestFile;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+public class MemoryMappedBlockStoreTest {
+    @Rule
+    public TemporaryFolder tmpDir = new TemporaryFolder();
+    private final BlockStore.Factory factory = new BlockStore.Factory() {
+        public Object create(Class<? extends BlockPayload> type) {
+            return new TestBlock();
+        }
+    };
+    private TestFile cacheFile;
+    private int initCount;
+    private final Runnable initAction = new Runnable() {
+        public void run() {
+            initCount++;
+        }
+    };
+
+    @Before
+    public void setup() {
+        cacheFile = tmpDir.getDir().file("cache.bin");
+    }
+
+    @Test
+    public void canReadBlocksWrittenToStore() {
+        MemoryMappedBlockStore store = new MemoryMappedBlockStore(cacheFile);
+        store.open(initAction, factory);
+        assertThat(initCount, equalTo(1));
+
+        BlockPointer first = write(store, "first");
+        BlockPointer second = write(store, "second");
+
+        assertThat(store.read(first, TestBlock.class).value, equalTo("first"));
+        assertThat(store.read(second, TestBlock.class).value, equalTo("second"));
+        store.close();
+    }
+
+    @Test
+    public void growsFileInChunks() {
+        MemoryMappedBlockStore store = new MemoryMappedBlockStore(cacheFile);
+        store.open(initAction, factory);
+
+        write(store, "first");
+        assertThat(cacheFile.length(), equalTo((long) MemoryMappedBlockStore.CHUNK_SIZE));
+
+        BlockPointer last = null;
+        String value = String.format("%1000s", "value");
+        for (int i = 0; i < 2000; i++) {
+            last = write(store, value);
+        }
+        assertThat(cacheFile.length() % MemoryMappedBlockStore.CHUNK_SIZE, equalTo(0L));
+        assertThat(cacheFile.length(), greaterThan((long) MemoryMappedBlockStore.CHUNK_SIZE));
+        assertThat(store.read(last, TestBlock.class).value, equalTo(value));
+        store.close();
+    }
+
+    @Test
+    public void appendsBlocksAfterLastBlockWhenReopened() {
+        MemoryMappedBlockStore store = new MemoryMappedBlockStore(cacheFile);
+        store.open(initAction, factory);
+        BlockPointer first = write(store, "first");
+        store.close();
+
+        store = new MemoryMappedBlockStore(cacheFile);
+        store.open(initAction, factory);
+        assertThat(initCount, equalTo(1));
+        BlockPointer second = write(store, "second");
+
+        assertThat(second, equalTo(store.read(first, TestBlock.class).getNextPos()));
+        assertThat(store.read(first, TestBlock.class).value, equalTo("first"));
+        assertThat(store.read(second, TestBlock.class).value, equalTo("second"));
+        store.close();
+    }
+
+    @Test
+    public void appendsBlocksAfterEndOfFileWhenNotClosedCleanly() {
+        MemoryMappedBlockStore store = new MemoryMappedBlockStore(cacheFile);
+        store.open(initAction, factory);
+        BlockPointer first = write(store, "first");
+        store.close();
+        tmpDir.getDir().file("cache.bin.end").delete();
+
+        store = new MemoryMappedBlockStore(cacheFile);
+        store.open(initAction, factory);
+        BlockPointer second = write(store, "second");
+
+        assertThat(second.getPos(), equalTo((long) MemoryMappedBlockStore.CHUNK_SIZE));
+        assertThat(store.read(first, TestBlock.class).value, equalTo("first"));
+        assertThat(store.read(second, TestBlock.class).value, equalTo("second"));
+        store.close();
+    }
+
+    @Test
+    public void canReadFileWrittenByFileBackedStore() {
+        FileBackedBlockStore fileStore = new FileBackedBlockStore(cacheFile);
+        fileStore.open(initAction, factory);
+        BlockPointer first = write(fileStore, "first");
+        fileStore.close();
+
+        MemoryMappedBlockStore store = new MemoryMappedBlockStore(cacheFile);
+        store.open(initAction, factory);
+        assertThat(store.read(first, TestBlock.class).value, equalTo("first"));
+        store.close();
+    }
+
+    @Test
+    public void truncatesFileWhenCleared() {
+        MemoryMappedBlockStore store = new MemoryMappedBlockStore(cacheFile);
+        store.open(initAction, factory);
+        write(store, "first");
+        store.clear();
+        assertThat(cacheFile.length(), equalTo(0L));
+        BlockPointer first = write(store, "first");
+        assertThat(first.getPos(), equalTo(0L));
+        assertThat(store.read(first, TestBlock.class).value, equalTo("first"));
+        store.clear();
+        store.close();
+
+        store = new MemoryMappedBlockStore(cacheFile);
+        store.open(initAction, factory);
+        assertThat(initCount, equalTo(2));
+        BlockPointer second = write(store, "second");
+        assertThat(second.getPos(), equalTo(0L));
+        store.close();
+    }
+
+    @Test
+    public void releasesMappingWhenClosed() throws IOException {
+        File maps = new File("/proc/self/maps");
+        Assume.assumeTrue(maps.isFile());
+
+        MemoryMappedBlockStore store = new MemoryMappedBlockStore(cacheFile);
+        store.open(initAction, factory);
+        write(store, "first");
+        assertTrue(isMapped(maps));
+
+        store.close();
+        assertFalse(isMapped(maps));
+    }
+
+    private boolean isMapped(File maps) throws IOException {
+        return FileUtils.readFileToString(maps).contains(cacheFile.getCanonicalPath());
+    }
+
+    @Test
+    public void canUseJournal() {
+        MemoryMappedBlockStore store = new MemoryMappedBlockStore(cacheFile, true);
+        store.open(initAction, factory);
+        BlockPointer first = write(store, "first");
+        store.flush();
+        BlockPointer second = write(store, "second");
+        store.flush();
+
+        assertThat(store.read(first, TestBlock.class).value, equalTo("first"));
+        assertThat(store.read(second, TestBlock.class).value, equalTo("second"));
+        store.close();
+    }
+
+    private BlockPointer write(BlockStore store, String value) {
+        TestBlock block = new TestBlock();
+        block.value = value;
+        store.attach(block);
+        store.write(block);
+        return block.getPos();
+    }
+
+    private static class TestBlock extends BlockPayload {
+        private String value;
+
+        @Override
+        protected int getSize() {
+            return 2 + value.length();
+        }
+
+        @Override
+        protected int getType() {
+            return 0x55;
+        }
+
+        @Override
+        protected void read(DataInputStream inputStream) throws Exception {
+            value = inputStream.readUTF();
+        }
+
+        @Override
+        protected void write(DataOutputStream outputStream) throws Exception {
+            outputStream.writeUTF(value);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.btree;
+
+import org.gradle.util.TemporaryFolder;
+import org.gradle.util.TestFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+public class WriteAheadJournalTest {
+    @Rule
+    public TemporaryFolder tmpDir = new TemporaryFolder();
+    private TestFile journalFile;
+    private TestFile targetFile;
+    private WriteAheadJournal journal;
+    private RandomAccessFile target;
+
+    @Before
+    public void setup() throws IOException {
+        journalFile = tmpDir.getDir().file("target.journal");
+        targetFile = tmpDir.getDir().file("target").write("0123456789");
+        journal = new WriteAheadJournal(journalFile);
+        target = new RandomAccessFile(targetFile, "rw");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        target.close();
+    }
+
+    @Test
+    public void appliesWritesToTargetFileAndDiscardsJournal() throws IOException {
+        journal.apply(entries(), target);
+
+        assertThat(targetFile.getText(), equalTo("ab2345cde9fg"));
+        journalFile.assertDoesNotExist();
+    }
+
+    @Test
+    public void recoverDoesNothingWhenThereIsNoJournal() throws IOException {
+        assertFalse(journal.recover(target));
+
+        assertThat(targetFile.getText(), equalTo("0123456789"));
+    }
+
+    @Test
+    public void recoversWritesFromCompleteJournal() throws IOException {
+        writeJournalWithoutApplying();
+        journalFile.assertIsFile();
+
+        assertTrue(journal.recover(target));
+
+        assertThat(targetFile.getText(), equalTo("ab2345cde9fg"));
+        journalFile.assertDoesNotExist();
+    }
+
+    @Test
+    public void discardsIncompleteJournal() throws IOException {
+        writeJournalWithoutApplying();
+        RandomAccessFile file = new RandomAccessFile(journalFile, "rw");
+        try {
+            file.setLength(file.length() - 4);
+        } finally {
+            file.close();
+        }
+
+        assertFalse(journal.recover(target));
+
+        assertThat(targetFile.getText(), equalTo("0123456789"));
+        journalFile.assertDoesNotExist();
+    }
+
+    @Test
+    public void discardsCorruptJournal() throws IOException {
+        writeJournalWithoutApplying();
+        RandomAccessFile file = new RandomAccessFile(journalFile, "rw");
+        try {
+            file.seek(12);
+            file.write('x');
+        } finally {
+            file.close();
+        }
+
+        assertFalse(journal.recover(target));
+
+        assertThat(targetFile.getText(), equalTo("0123456789"));
+        journalFile.assertDoesNotExist();
+    }
+
+    private void writeJournalWithoutApplying() throws IOException {
+        // Simulate a failure part way through applying the journal by using a read-only target
+        RandomAccessFile readOnlyTarget = new RandomAccessFile(targetFile, "r");
+        try {
+            journal.apply(entries(), readOnlyTarget);
+            fail();
+        } catch (IOException e) {
+            // expected
+        } finally {
+            readOnlyTarget.close();
+        }
+    }
+
+    private List<WriteAheadJournal.Entry> entries() {
+        return Arrays.asList(
+                new WriteAheadJournal.Entry(0, "ab".getBytes()),
+                new WriteAheadJournal.Entry(6, "cde".getBytes()),
+                new WriteAheadJournal.Entry(10, "fg".getBytes()));
+    }
+}
@@ -17,9 +17,13 @@
 package org.gradle.configuration;
 
 import org.gradle.api.Action;
+import org.gradle.StartParameter;
 import org.gradle.api.Project;
+import org.gradle.api.internal.GradleInternal;
+import org.gradle.api.internal.project.DefaultProject;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.util.HelperUtil;
+import org.gradle.util.WrapUtil;
 import org.jmock.Expectations;
 import org.jmock.integration.junit4.JUnit4Mockery;
 import org.jmock.lib.legacy.ClassImposteriser;
@@ -28,9 +32,14 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.io.File;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
+import static org.junit.Assert.*;
+
 /**
  * @author Hans Dockter
  */
@@ -81,4 +90,59 @@ public class BuildConfigurerTest {
         createExpectations();
         buildConfigurer.process(rootProject);
     }
+
+    @Test
+    public void testProcessInParallel() {
+        final DefaultProject root = HelperUtil.createRootProject(new File("root"));
+        final DefaultProject child = HelperUtil.createChildProject(root, "child");
+        final Set<Project> evaluated = Collections.synchronizedSet(new HashSet<Project>());
+        buildConfigurer = new BuildConfigurer(projectDependencies2TasksResolver, 2);
+        buildConfigurer.setProjectEvaluateAction(new Action<Project>() {
+            public void execute(Project project) {
+                evaluated.add(project);
+            }
+        });
+        context.checking(new Expectations() {{
+            one(projectDependencies2TasksResolver).resolve(with(same(root)));
+        }});
+
+        buildConfigurer.process(root);
+
+        assertEquals(WrapUtil.<Project>toSet(root, child), evaluated);
+    }
+
+    @Test
+    public void testProcessOnDemand() {
+        final OnDemandProjectConfigurer onDemandConfigurer = context.mock(OnDemandProjectConfigurer.class);
+        final GradleInternal gradle = context.mock(GradleInternal.class);
+        final StartParameter startParameter = new StartParameter();
+        startParameter.setTaskNames(WrapUtil.toList(":a:build"));
+        startParameter.setExcludedTaskNames(WrapUtil.toList(":a:test"));
+        buildConfigurer = new BuildConfigurer(projectDependencies2TasksResolver, onDemandConfigurer);
+        context.checking(new Expectations() {{
+            allowing(rootProject).getGradle(); will(returnValue(gradle));
+            allowing(gradle).getStartParameter(); will(returnValue(startParameter));
+            one(onDemandConfigurer).configureFor(gradle, WrapUtil.toList(":a:build", ":a:test"));
+            will(returnValue(true));
+        }});
+
+        buildConfigurer.process(rootProject);
+    }
+
+    @Test
+    public void testProcessFallsBackToFullConfigurationWhenProjectsCannotBeConfiguredOnDemand() {
+        final OnDemandProjectConfigurer onDemandConfigurer = context.mock(OnDemandProjectConfigurer.class);
+        final GradleInternal gradle = context.mock(GradleInternal.class);
+        final StartParameter startParameter = new StartParameter();
+        buildConfigurer = new BuildConfigurer(projectDependencies2TasksResolver, onDemandConfigurer);
+        context.checking(new Expectations() {{
+            allowing(rootProject).getGradle(); will(returnValue(gradle));
+            allowing(gradle).getStartParameter(); will(returnValue(startParameter));
+            one(onDemandConfigurer).configureFor(gradle, WrapUtil.<String>toList());
+            will(returnValue(false));
+        }});
+        createExpectations();
+
+        buildConfigurer.process(rootProject);
+    }
 }
\ No newline at end of file
@@ -15,9 +15,16 @@
  */
 package org.gradle.configuration;
 
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ConfigurationContainer;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.initialization.dsl.ScriptHandler;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.internal.project.ProjectStateInternal;
+import org.gradle.api.internal.resource.Resource;
 import org.gradle.groovy.scripts.ScriptSource;
+import org.gradle.util.GUtil;
 import org.gradle.util.JUnit4GroovyMockery;
 import org.jmock.Expectations;
 import org.jmock.integration.junit4.JMock;
@@ -26,6 +33,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.Collections;
+
 @RunWith(JMock.class)
 public class BuildScriptProcessorTest {
     private final JUnit4Mockery context = new JUnit4GroovyMockery();
@@ -56,4 +65,98 @@ public class BuildScriptProcessorTest {
 
         evaluator.evaluate(project, state);
     }
+
+    @Test
+    public void compilesBuildScriptsOfChildProjectsAfterEvaluatingProject() {
+        final BuildScriptProcessor evaluator = new BuildScriptProcessor(configurerFactory, 2);
+        final ProjectInternal child = context.mock(ProjectInternal.class, "child");
+        final ScriptSource childScriptSource = context.mock(ScriptSource.class, "childScript");
+        final ScriptPlugin childScriptPlugin = context.mock(ScriptPlugin.class, "childPlugin");
+        final ProjectStateInternal childState = context.mock(ProjectStateInternal.class, "childState");
+        expectChildProject(child, childScriptSource, childState, "apply plugin: 'java'");
+
+        context.checking(new Expectations() {{
+            one(configurerFactory).create(scriptSource);
+            will(returnValue(scriptPlugin));
+
+            one(scriptPlugin).apply(project);
+
+            one(configurerFactory).create(childScriptSource);
+            will(returnValue(childScriptPlugin));
+
+            allowing(childScriptPlugin).getSource();
+            will(returnValue(childScriptSource));
+
+            atMost(1).of(childScriptPlugin).compile(child);
+        }});
+
+        evaluator.evaluate(project, state);
+
+        context.checking(new Expectations() {{
+            one(configurerFactory).create(childScriptSource);
+            will(returnValue(childScriptPlugin));
+
+            one(childScriptPlugin).apply(child);
+        }});
+
+        evaluator.evaluate(child, childState);
+    }
+
+    @Test
+    public void doesNotCompileBuildScriptOfChildProjectWhichDeclaresItsClasspath() {
+        final BuildScriptProcessor evaluator = new BuildScriptProcessor(configurerFactory, 2);
+        final ProjectInternal child = context.mock(ProjectInternal.class, "child");
+        final ScriptSource childScriptSource = context.mock(ScriptSource.class, "childScript");
+        final ProjectStateInternal childState = context.mock(ProjectStateInternal.class, "childState");
+        expectChildProject(child, childScriptSource, childState, "buildscript { }");
+
+        context.checking(new Expectations() {{
+            one(configurerFactory).create(scriptSource);
+            will(returnValue(scriptPlugin));
+
+            one(scriptPlugin).apply(project);
+        }});
+
+        evaluator.evaluate(project, state);
+    }
+
+    private void expectChildProject(final ProjectInternal child, final ScriptSource childScriptSource,
+                                    final ProjectStateInternal childState, final String scriptText) {
+        context.checking(new Expectations() {{
+            Resource resource = context.mock(Resource.class);
+            ScriptHandler scriptHandler = context.mock(ScriptHandler.class);
+            ConfigurationContainer configurations = context.mock(ConfigurationContainer.class);
+            Configuration classpath = context.mock(Configuration.class);
+
+            allowing(project).getChildProjects();
+            will(returnValue(GUtil.map("child", child)));
+            allowing(project).getPath();
+            will(returnValue(":"));
+
+            allowing(child).getPath();
+            will(returnValue(":child"));
+            allowing(child).getBuildScriptSource();
+            will(returnValue(childScriptSource));
+            allowing(child).getState();
+            will(returnValue(childState));
+            allowing(childState).getExecuted();
+            will(returnValue(false));
+            allowing(childScriptSource).getResource();
+            will(returnValue(resource));
+            allowing(childScriptSource).getDisplayName();
+            will(returnValue("child script"));
+            allowing(resource).getText();
+            will(returnValue(scriptText));
+            allowing(child).getBuildscript();
+            will(returnValue(scriptHandler));
+            allowing(scriptHandler).getConfigurations();
+            will(returnValue(configurations));
+            allowing(configurations).getByName(ScriptHandler.CLASSPATH_CONFIGURATION);
+            will(returnValue(classpath));
+            allowing(classpath).getDependencies();
+            will(returnValue(Collections.<Dependency>emptySet()));
+            allowing(child).getChildProjects();
+            will(returnValue(Collections.<String, Project>emptyMap()));
+        }});
+    }
 }
\ No newline at end of file
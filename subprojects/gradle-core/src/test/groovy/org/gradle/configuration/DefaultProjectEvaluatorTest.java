@@ -15,6 +15,7 @@
  */
 package org.gradle.configuration;
 
+import org.gradle.api.CircularReferenceException;
 import org.gradle.api.ProjectEvaluationListener;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.internal.project.ProjectStateInternal;
@@ -28,6 +29,10 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
 import static org.junit.Assert.*;
 
 @RunWith(JMock.class)
@@ -124,4 +129,115 @@ public class DefaultProjectEvaluatorTest {
             assertThat(e, Matchers.sameInstance(failure));
         }
     }
+
+    @Test
+    public void waitsForEvaluationByAnotherThreadToComplete() throws InterruptedException {
+        final ProjectStateInternal state = new ProjectStateInternal();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch finish = new CountDownLatch(1);
+        final AtomicInteger evaluations = new AtomicInteger();
+        final DefaultProjectEvaluator evaluator = new DefaultProjectEvaluator(new ProjectEvaluator() {
+            public void evaluate(ProjectInternal project, ProjectStateInternal state) {
+                evaluations.incrementAndGet();
+                started.countDown();
+                await(finish);
+            }
+        });
+
+        context.checking(new Expectations() {{
+            ignoring(listener);
+        }});
+
+        Thread first = start(new Runnable() {
+            public void run() {
+                evaluator.evaluate(project, state);
+            }
+        });
+        await(started);
+        Thread second = start(new Runnable() {
+            public void run() {
+                evaluator.evaluate(project, state);
+            }
+        });
+        waitUntilBlocked(second);
+        finish.countDown();
+        first.join();
+        second.join();
+
+        assertThat(evaluations.get(), Matchers.equalTo(1));
+        assertTrue(state.getExecuted());
+    }
+
+    @Test
+    public void failsWhenProjectsEvaluatedByDifferentThreadsWaitForEachOther() throws InterruptedException {
+        final ProjectInternal otherProject = context.mock(ProjectInternal.class, "otherProject");
+        final ProjectStateInternal state = new ProjectStateInternal();
+        final ProjectStateInternal otherState = new ProjectStateInternal();
+        final CountDownLatch otherStarted = new CountDownLatch(1);
+        final AtomicReference<Thread> first = new AtomicReference<Thread>();
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final DefaultProjectEvaluator[] evaluator = new DefaultProjectEvaluator[1];
+        evaluator[0] = new DefaultProjectEvaluator(new ProjectEvaluator() {
+            public void evaluate(ProjectInternal target, ProjectStateInternal targetState) {
+                if (target == project) {
+                    // Spin rather than block, so that this thread only blocks when waiting for the other project
+                    while (otherStarted.getCount() > 0) {
+                        Thread.yield();
+                    }
+                    evaluator[0].evaluate(otherProject, otherState);
+                } else {
+                    otherStarted.countDown();
+                    waitUntilBlocked(first.get());
+                    try {
+                        evaluator[0].evaluate(project, state);
+                    } catch (Throwable t) {
+                        failure.set(t);
+                    }
+                }
+            }
+        });
+
+        context.checking(new Expectations() {{
+            allowing(otherProject).getProjectEvaluationBroadcaster();
+            will(returnValue(listener));
+            ignoring(listener);
+        }});
+
+        first.set(start(new Runnable() {
+            public void run() {
+                evaluator[0].evaluate(project, state);
+            }
+        }));
+        Thread second = start(new Runnable() {
+            public void run() {
+                evaluator[0].evaluate(otherProject, otherState);
+            }
+        });
+        first.get().join();
+        second.join();
+
+        assertThat(failure.get(), Matchers.instanceOf(CircularReferenceException.class));
+        assertTrue(state.getExecuted());
+        assertTrue(otherState.getExecuted());
+    }
+
+    private static Thread start(Runnable runnable) {
+        Thread thread = new Thread(runnable);
+        thread.start();
+        return thread;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void waitUntilBlocked(Thread thread) {
+        while (thread.getState() != Thread.State.WAITING) {
+            Thread.yield();
+        }
+    }
 }
@@ -180,4 +180,46 @@ public class DefaultScriptPluginFactoryTest {
         ScriptPlugin configurer = factory.create(scriptSourceMock);
         configurer.apply(target);
     }
+
+    @Test
+    public void compilesScriptWithoutRunningIt() {
+        final Object target = new Object();
+
+        context.checking(new Expectations() {{
+            Sequence sequence = context.sequence("seq");
+            ScriptSource sourceWithImportsMock = context.mock(ScriptSource.class, "imports");
+
+            one(importsReaderMock).withImports(scriptSourceMock, null);
+            will(returnValue(sourceWithImportsMock));
+
+            one(scriptCompilerFactoryMock).createCompiler(sourceWithImportsMock);
+            will(returnValue(scriptCompilerMock));
+
+            one(scriptHandlerFactoryMock).create(sourceWithImportsMock, parentClassLoader);
+            will(returnValue(scriptHandlerMock));
+
+            allowing(scriptHandlerMock).getClassLoader();
+            will(returnValue(scriptClassLoader));
+
+            one(scriptCompilerMock).setClassloader(scriptClassLoader);
+            inSequence(sequence);
+
+            one(scriptCompilerMock).setTransformer(with(any(ClasspathScriptTransformer.class)));
+            inSequence(sequence);
+
+            one(scriptCompilerMock).compile(DefaultScript.class);
+            will(returnValue(classPathScriptRunnerMock));
+            inSequence(sequence);
+
+            one(scriptCompilerMock).setTransformer(with(notNullValue(Transformer.class)));
+            inSequence(sequence);
+
+            one(scriptCompilerMock).compile(DefaultScript.class);
+            will(returnValue(scriptRunnerMock));
+            inSequence(sequence);
+        }});
+
+        ScriptPlugin configurer = factory.create(scriptSourceMock);
+        configurer.compile(target);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.configuration;
+
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.internal.GradleInternal;
+import org.gradle.api.internal.project.DefaultProject;
+import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.api.internal.project.ProjectStateInternal;
+import org.jmock.Expectations;
+import org.jmock.integration.junit4.JMock;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.gradle.util.HelperUtil.*;
+import static org.gradle.util.WrapUtil.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+@RunWith(JMock.class)
+public class OnDemandProjectConfigurerTest {
+    private final JUnit4Mockery context = new JUnit4Mockery();
+    private final GradleInternal gradle = context.mock(GradleInternal.class);
+    private final DefaultProject root = createRootProject(new File("root"));
+    private final DefaultProject a = createChildProject(root, "a");
+    private final DefaultProject b = createChildProject(root, "b");
+    private final DefaultProject c = createChildProject(b, "c");
+    private final List<Project> configuredProjects = new ArrayList<Project>();
+    private final OnDemandProjectConfigurer configurer = new OnDemandProjectConfigurer(
+            new ProjectDependencies2TaskResolver());
+
+    @Before
+    public void setUp() {
+        ProjectEvaluator evaluator = new ProjectEvaluator() {
+            public void evaluate(ProjectInternal project, ProjectStateInternal state) {
+                configuredProjects.add(project);
+                project.getTasks().add("build");
+                if (project == a) {
+                    a.dependsOn(":b", false);
+                }
+            }
+        };
+        for (DefaultProject project : toList(root, a, b, c)) {
+            project.setProjectEvaluator(evaluator);
+        }
+        context.checking(new Expectations() {{
+            allowing(gradle).getDefaultProject();
+            will(returnValue(root));
+        }});
+    }
+
+    @Test
+    public void configuresTargetProjectAndItsAncestors() {
+        assertTrue(configurer.configureFor(gradle, toList(":b:c:build")));
+
+        assertThat(configuredProjects, equalTo(toList((Project) root, b, c)));
+    }
+
+    @Test
+    public void configuresProjectsTheTargetProjectDependsOn() {
+        assertTrue(configurer.configureFor(gradle, toList(":a:build")));
+
+        assertThat(configuredProjects, equalTo(toList((Project) root, a, b)));
+        Task build = a.getTasks().getByName("build");
+        assertThat(build.getTaskDependencies().getDependencies(build),
+                equalTo((Object) toSet(b.getTasks().getByName("build"))));
+    }
+
+    @Test
+    public void configuresAllProjectsForTaskNameWithoutAPath() {
+        assertTrue(configurer.configureFor(gradle, toList("build")));
+
+        assertThat(configuredProjects.size(), equalTo(4));
+    }
+
+    @Test
+    public void configuresRootProjectForTaskInRootProject() {
+        assertTrue(configurer.configureFor(gradle, toList(":build")));
+
+        assertThat(configuredProjects, equalTo(toList((Project) root)));
+    }
+
+    @Test
+    public void doesNotConfigureAnythingWhenProjectCannotBeFound() {
+        assertFalse(configurer.configureFor(gradle, toList(":unknown:build")));
+        assertFalse(configurer.configureFor(gradle, Collections.<String>emptyList()));
+
+        assertTrue(configuredProjects.isEmpty());
+    }
+
+    @Test
+    public void configuresProjectWhenItIsAccessed() {
+        assertTrue(configurer.configureFor(gradle, toList(":b:build")));
+        configurer.beforeAccess(c);
+        configurer.beforeAccess(c);
+        configurer.beforeAccess(a);
+
+        assertThat(configuredProjects, equalTo(toList((Project) root, b, c, a)));
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.configuration;
+
+import org.gradle.api.Action;
+import org.gradle.api.Project;
+import org.gradle.api.internal.project.DefaultProject;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.gradle.util.HelperUtil.*;
+import static org.gradle.util.WrapUtil.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+public class ParallelProjectConfigurerTest {
+    private final DefaultProject root = createRootProject(new File("root"));
+    private final DefaultProject a = createChildProject(root, "a");
+    private final DefaultProject b = createChildProject(root, "b");
+    private final DefaultProject c = createChildProject(a, "c");
+    private final List<Project> configuredProjects = Collections.synchronizedList(new ArrayList<Project>());
+
+    @Test
+    public void configuresEachProjectAfterItsParent() {
+        new ParallelProjectConfigurer(4).configure(root, configureAction());
+
+        assertThat(configuredProjects.size(), equalTo(4));
+        assertThat(new HashSet<Project>(configuredProjects), equalTo(toSet((Project) root, a, b, c)));
+        assertThat(configuredProjects.get(0), sameInstance((Project) root));
+        assertThat(configuredProjects.indexOf(c), greaterThan(configuredProjects.indexOf(a)));
+    }
+
+    @Test
+    public void configuresIndependentProjectsConcurrently() {
+        final CountDownLatch latch = new CountDownLatch(2);
+        Action<Project> waitForOtherProject = new Action<Project>() {
+            public void execute(Project project) {
+                configuredProjects.add(project);
+                if (project == a || project == b) {
+                    latch.countDown();
+                    try {
+                        assertTrue(latch.await(20, TimeUnit.SECONDS));
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            }
+        };
+
+        new ParallelProjectConfigurer(2).configure(root, waitForOtherProject);
+
+        assertThat(configuredProjects.size(), equalTo(4));
+    }
+
+    @Test
+    public void doesNotConfigureChildrenOfAProjectWhichFails() {
+        final RuntimeException failure = new RuntimeException("broken");
+        Action<Project> action = new Action<Project>() {
+            public void execute(Project project) {
+                configuredProjects.add(project);
+                if (project == a) {
+                    throw failure;
+                }
+            }
+        };
+
+        try {
+            new ParallelProjectConfigurer(2).configure(root, action);
+            fail();
+        } catch (RuntimeException e) {
+            assertThat(e, sameInstance(failure));
+        }
+
+        assertThat(configuredProjects, not(hasItem((Project) c)));
+    }
+
+    private Action<Project> configureAction() {
+        return new Action<Project>() {
+            public void execute(Project project) {
+                configuredProjects.add(project);
+            }
+        };
+    }
+}
@@ -26,6 +26,7 @@ import org.gradle.api.internal.AbstractTask;
 import org.gradle.api.internal.TaskInternal;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.specs.Spec;
+import org.gradle.api.tasks.TaskDependency;
 import org.gradle.api.tasks.TaskExecutionException;
 import org.gradle.api.tasks.TaskState;
 import org.gradle.listener.ListenerBroadcast;
@@ -40,7 +41,9 @@ import org.junit.runner.RunWith;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Callable;
 
 import static org.gradle.util.HelperUtil.*;
@@ -96,6 +99,41 @@ public class DefaultTaskGraphExecuterTest {
         assertThat(executedTasks, equalTo(toList(a, b, c, d)));
     }
 
+    @Test
+    public void testResolvesDependenciesOfEachTaskOnce() {
+        final List<Task> resolved = new ArrayList<Task>();
+        Task a = createTask("a");
+        a.dependsOn(new TaskDependency() {
+            public Set<? extends Task> getDependencies(Task task) {
+                resolved.add(task);
+                return Collections.emptySet();
+            }
+        });
+        Task b = createTask("b", a);
+        Task c = createTask("c", a);
+        Task d = createTask("d", b, c, a);
+
+        taskExecuter.addTasks(toList(d, c));
+
+        assertThat(taskExecuter.getAllTasks(), equalTo(toList(a, c, b, d)));
+        assertThat(resolved, equalTo(toList(a)));
+    }
+
+    @Test
+    public void testExecutesLongChainOfTasksInDependencyOrder() {
+        List<Task> tasks = new ArrayList<Task>();
+        Task previous = createTask("task0");
+        tasks.add(previous);
+        for (int i = 1; i < 2000; i++) {
+            previous = createTask("task" + i, previous);
+            tasks.add(previous);
+        }
+
+        taskExecuter.addTasks(toList(previous));
+
+        assertThat(taskExecuter.getAllTasks(), equalTo(tasks));
+    }
+
     @Test
     public void testExecutesTasksInASingleBatchInNameOrder() {
         Task a = createTask("a");
@@ -386,6 +424,50 @@ public class DefaultTaskGraphExecuterTest {
         assertThat(taskExecuter.getAllTasks(), equalTo(toList(b, c)));
     }
 
+    @Test
+    public void usesCachedExecutionPlanWhenAvailable() {
+        final ExecutionPlanCache planCache = context.mock(ExecutionPlanCache.class);
+        final Task a = createTask("a");
+        final Task b = createTask("b");
+        final Task c = createTask("c", a);
+        context.checking(new Expectations(){{
+            one(planCache).get(toSortedSet(c));
+            will(returnValue(toList(b, c)));
+        }});
+
+        TaskGraphExecuter executer = createExecuterWithCache(planCache);
+        executer.execute(toList(c));
+
+        assertThat(executedTasks, equalTo(toList(b, c)));
+    }
+
+    @Test
+    public void cachesExecutionPlanWhenNotAvailable() {
+        final ExecutionPlanCache planCache = context.mock(ExecutionPlanCache.class);
+        final Task a = createTask("a");
+        final Task b = createTask("b", a);
+        context.checking(new Expectations(){{
+            one(planCache).get(toSortedSet(b));
+            will(returnValue(null));
+            one(planCache).put(toSortedSet(b), toLinkedSet(a, b));
+        }});
+
+        TaskGraphExecuter executer = createExecuterWithCache(planCache);
+        executer.addTasks(toList(b));
+
+        assertThat(executer.getAllTasks(), equalTo(toList(a, b)));
+    }
+
+    private TaskGraphExecuter createExecuterWithCache(ExecutionPlanCache planCache) {
+        context.checking(new Expectations(){{
+            one(listenerManager).createAnonymousBroadcaster(TaskExecutionGraphListener.class);
+            will(returnValue(new ListenerBroadcast<TaskExecutionGraphListener>(TaskExecutionGraphListener.class)));
+            one(listenerManager).createAnonymousBroadcaster(TaskExecutionListener.class);
+            will(returnValue(new ListenerBroadcast<TaskExecutionListener>(TaskExecutionListener.class)));
+        }});
+        return new DefaultTaskGraphExecuter(listenerManager, 0, planCache);
+    }
+
     private Task createTask(String name, final Task... dependsOn) {
         final TaskInternal task = AbstractTask.injectIntoNewInstance(root, name, new Callable<TaskInternal>() {
             public TaskInternal call() throws Exception {
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution;
+
+import org.gradle.api.Action;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.Task;
+import org.gradle.api.internal.AbstractTask;
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.project.ProjectInternal;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.gradle.util.HelperUtil.*;
+import static org.gradle.util.WrapUtil.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+public class ParallelTaskPlanExecuterTest {
+    private final ProjectInternal root = createRootProject(new File("root"));
+    private final List<Task> executedTasks = Collections.synchronizedList(new ArrayList<Task>());
+
+    @Test
+    public void executesTasksAfterTheirDependencies() {
+        Task a = createTask("a");
+        Task b = createTask("b", a);
+        Task c = createTask("c", a);
+        Task d = createTask("d", b, c);
+
+        new ParallelTaskPlanExecuter(4).execute(toList(a, b, c, d), executeAction());
+
+        assertThat(executedTasks.size(), equalTo(4));
+        assertThat(executedTasks.get(0), sameInstance(a));
+        assertThat(executedTasks.get(3), sameInstance(d));
+    }
+
+    @Test
+    public void executesIndependentTasksConcurrently() {
+        final CountDownLatch latch = new CountDownLatch(2);
+        Action<Task> waitForOtherTask = new Action<Task>() {
+            public void execute(Task task) {
+                latch.countDown();
+                try {
+                    assertTrue(latch.await(20, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        Task a = createTask("a");
+        a.doFirst(waitForOtherTask);
+        Task b = createTask("b");
+        b.doFirst(waitForOtherTask);
+
+        new ParallelTaskPlanExecuter(2).execute(toList(a, b), executeAction());
+
+        assertThat(executedTasks.size(), equalTo(2));
+    }
+
+    @Test
+    public void ignoresDependenciesWhichAreNotPartOfThePlan() {
+        Task a = createTask("a");
+        Task b = createTask("b", a);
+
+        new ParallelTaskPlanExecuter(2).execute(toList(b), executeAction());
+
+        assertThat(executedTasks, equalTo(toList(b)));
+    }
+
+    @Test
+    public void doesNotExecuteFurtherTasksWhenATaskFails() {
+        final RuntimeException failure = new RuntimeException("broken");
+        Task a = createTask("a");
+        a.doLast(new Action<Task>() {
+            public void execute(Task task) {
+                throw failure;
+            }
+        });
+        Task b = createTask("b", a);
+
+        try {
+            new ParallelTaskPlanExecuter(2).execute(toList(a, b), executeAction());
+            fail();
+        } catch (RuntimeException e) {
+            assertThat(e.getCause(), sameInstance((Throwable) failure));
+        }
+
+        assertThat(executedTasks, equalTo(toList(a)));
+    }
+
+    private Action<Task> executeAction() {
+        return new Action<Task>() {
+            public void execute(Task task) {
+                ((TaskInternal) task).execute();
+            }
+        };
+    }
+
+    private Task createTask(String name, final Task... dependsOn) {
+        final TaskInternal task = AbstractTask.injectIntoNewInstance(root, name, new Callable<TaskInternal>() {
+            public TaskInternal call() throws Exception {
+                return new DefaultTask();
+            }
+        });
+        task.dependsOn((Object[]) dependsOn);
+        task.doFirst(new Action<Task>() {
+            public void execute(Task task) {
+                executedTasks.add(task);
+            }
+        });
+        return task;
+    }
+}
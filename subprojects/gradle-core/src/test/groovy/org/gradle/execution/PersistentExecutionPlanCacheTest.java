@@ -0,0 +1,216 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.execution;
+
+import org.gradle.StartParameter;
+import org.gradle.api.Task;
+import org.gradle.api.internal.GradleInternal;
+import org.gradle.api.internal.project.DefaultProject;
+import org.gradle.api.internal.project.ServiceRegistry;
+import org.gradle.api.internal.project.StandardOutputRedirector;
+import org.gradle.cache.CacheBuilder;
+import org.gradle.cache.CacheRepository;
+import org.gradle.cache.PersistentCache;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.groovy.scripts.Script;
+import org.gradle.groovy.scripts.StringScriptSource;
+import org.gradle.util.HelperUtil;
+import org.gradle.util.MultiParentClassLoader;
+import org.gradle.util.ObservableUrlClassLoader;
+import org.gradle.util.TemporaryFolder;
+import org.gradle.util.TestFile;
+import org.jmock.Expectations;
+import org.jmock.integration.junit4.JMock;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.gradle.util.WrapUtil.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+@RunWith(JMock.class)
+public class PersistentExecutionPlanCacheTest {
+    @Rule
+    public final TemporaryFolder tmpDir = new TemporaryFolder();
+    private final JUnit4Mockery context = new JUnit4Mockery();
+    private final GradleInternal gradle = context.mock(GradleInternal.class);
+    private final CacheRepository cacheRepository = context.mock(CacheRepository.class);
+    private final Map<String, ArrayList<String>> entries = new HashMap<String, ArrayList<String>>();
+    private final StartParameter startParameter = new StartParameter();
+    private final ClassLoader rootClassLoader = getClass().getClassLoader();
+    private final MultiParentClassLoader scriptClassLoader = new MultiParentClassLoader(rootClassLoader);
+    private DefaultProject root;
+    private Task a;
+    private Task b;
+
+    @Before
+    public void setUp() {
+        root = HelperUtil.createRootProject(tmpDir.createDir("root"));
+        a = root.getTasks().add("a");
+        b = root.getTasks().add("b");
+        startParameter.setGradleUserHomeDir(tmpDir.createDir("home"));
+        final CacheBuilder cacheBuilder = context.mock(CacheBuilder.class);
+        final PersistentCache persistentCache = context.mock(PersistentCache.class);
+        context.checking(new Expectations() {{
+            allowing(gradle).getRootProject();
+            will(returnValue(root));
+            allowing(gradle).getDefaultProject();
+            will(returnValue(root));
+            allowing(gradle).getStartParameter();
+            will(returnValue(startParameter));
+            allowing(gradle).getScriptClassLoader();
+            will(returnValue(scriptClassLoader));
+            allowing(cacheRepository).cache("taskGraph");
+            will(returnValue(cacheBuilder));
+            allowing(cacheBuilder).forObject(gradle);
+            will(returnValue(cacheBuilder));
+            allowing(cacheBuilder).open();
+            will(returnValue(persistentCache));
+            allowing(persistentCache).openIndexedCache();
+            will(returnValue(new InMemoryIndexedCache()));
+        }});
+    }
+
+    @Test
+    public void returnsNullWhenNoPlanIsCached() {
+        assertThat(newCache().get(toList(b)), nullValue());
+    }
+
+    @Test
+    public void returnsPlanCachedByEarlierBuild() {
+        newCache().put(toList(b), toList(a, b));
+
+        assertThat(newCache().get(toList(b)), equalTo(toList(a, b)));
+        assertThat(newCache().get(toList(a)), nullValue());
+    }
+
+    @Test
+    public void doesNotReturnPlanWhenScriptHasChanged() {
+        PersistentExecutionPlanCache cache = newCache();
+        cache.beforeScript(script("build file", "task a"));
+        cache.put(toList(b), toList(a, b));
+
+        PersistentExecutionPlanCache sameScripts = newCache();
+        sameScripts.beforeScript(script("build file", "task a"));
+        assertThat(sameScripts.get(toList(b)), equalTo(toList(a, b)));
+
+        PersistentExecutionPlanCache changedScripts = newCache();
+        changedScripts.beforeScript(script("build file", "task a; task c"));
+        assertThat(changedScripts.get(toList(b)), nullValue());
+    }
+
+    @Test
+    public void doesNotReturnPlanWhenGradlePropertiesHaveChanged() {
+        tmpDir.file("root/gradle.properties").write("prop=1");
+        newCache().put(toList(b), toList(a, b));
+
+        tmpDir.file("root/gradle.properties").write("prop=2");
+        assertThat(newCache().get(toList(b)), nullValue());
+    }
+
+    @Test
+    public void doesNotReturnPlanWhenParametersHaveChanged() {
+        newCache().put(toList(b), toList(a, b));
+
+        startParameter.setProjectProperties(toMap("prop", "value"));
+        assertThat(newCache().get(toList(b)), nullValue());
+    }
+
+    @Test
+    public void doesNotReturnPlanWhenBuildscriptClasspathHasChanged() throws Exception {
+        TestFile jar = tmpDir.file("plugin.jar");
+        jar.write("content");
+        ((ObservableUrlClassLoader) root.getBuildscript().getClassLoader()).addURL(toUrl(jar));
+        newCache().put(toList(b), toList(a, b));
+        assertThat(newCache().get(toList(b)), equalTo(toList(a, b)));
+
+        jar.write("changed content");
+        assertThat(newCache().get(toList(b)), nullValue());
+    }
+
+    @Test
+    public void doesNotReturnPlanWhenBuildSrcClassesHaveChanged() throws Exception {
+        TestFile classesDir = tmpDir.createDir("buildSrc/classes");
+        classesDir.file("Plugin.class").write("content");
+        scriptClassLoader.addParent(new URLClassLoader(new URL[]{toUrl(classesDir)}, rootClassLoader));
+        newCache().put(toList(b), toList(a, b));
+        assertThat(newCache().get(toList(b)), equalTo(toList(a, b)));
+
+        classesDir.file("OtherPlugin.class").write("content");
+        assertThat(newCache().get(toList(b)), nullValue());
+    }
+
+    @Test
+    public void doesNotReturnPlanWhenTaskNoLongerExists() {
+        final Task removed = context.mock(Task.class);
+        context.checking(new Expectations() {{
+            allowing(removed).getPath();
+            will(returnValue(":removed"));
+        }});
+        newCache().put(toList(b), toList(a, removed, b));
+
+        assertThat(newCache().get(toList(b)), nullValue());
+    }
+
+    private PersistentExecutionPlanCache newCache() {
+        return new PersistentExecutionPlanCache(gradle, cacheRepository, rootClassLoader);
+    }
+
+    private URL toUrl(TestFile file) throws MalformedURLException {
+        return file.toURI().toURL();
+    }
+
+    private Script script(String displayName, String text) {
+        Script script = new Script() {
+            public void init(Object target, ServiceRegistry services) {
+            }
+
+            public StandardOutputRedirector getStandardOutputRedirector() {
+                return null;
+            }
+
+            public Object run() {
+                return null;
+            }
+        };
+        script.setScriptSource(new StringScriptSource(displayName, text));
+        return script;
+    }
+
+    private class InMemoryIndexedCache implements PersistentIndexedCache<String, ArrayList<String>> {
+        public ArrayList<String> get(String key) {
+            return entries.get(key);
+        }
+
+        public void put(String key, ArrayList<String> value) {
+            entries.put(key, value);
+        }
+
+        public void remove(String key) {
+            entries.remove(key);
+        }
+    }
+}
@@ -24,6 +24,8 @@ import org.gradle.cache.CacheRepository;
 import org.gradle.cache.PersistentCache;
 import org.gradle.util.GUtil;
 import org.gradle.util.HashUtil;
+import org.gradle.util.MultiParentClassLoader;
+import org.gradle.util.ObservableUrlClassLoader;
 import org.gradle.util.TemporaryFolder;
 import org.gradle.util.TestFile;
 import org.jmock.Expectations;
@@ -254,6 +256,114 @@ public class DefaultScriptCompilerFactoryTest {
         assertSame(expectedScriptRunner, scriptProcessor.createCompiler(source).setTransformer(transformer).compile(expectedScriptBaseClass));
     }
 
+    @Test
+    public void testReusesScriptClassForLaterCompilationWithSameClassLoader() {
+        context.checking(new Expectations() {{
+            one(cacheRepositoryMock).cache("scripts/class-name");
+            will(returnValue(cacheBuilder));
+
+            one(cacheBuilder).withProperties(expectedCacheProperties);
+            will(returnValue(cacheBuilder));
+
+            one(cacheBuilder).open();
+            will(returnValue(cacheMock));
+
+            allowing(cacheMock).isValid();
+            will(returnValue(true));
+
+            one(scriptCompilationHandlerMock).loadFromDir(expectedSource, testClassLoader, expectedScriptCacheDir,
+                    expectedScriptBaseClass);
+            will(returnValue(TestScript.class));
+
+            exactly(2).of(scriptRunnerFactoryMock).create(with(notNullValue(TestScript.class)));
+            will(returnValue(expectedScriptRunner));
+        }});
+
+        assertSame(expectedScriptRunner, scriptProcessor.createCompiler(source).compile(expectedScriptBaseClass));
+        assertSame(expectedScriptRunner, scriptProcessor.createCompiler(source).compile(expectedScriptBaseClass));
+    }
+
+    @Test
+    public void testDoesNotReuseScriptClassForCompilationWithDifferentClassLoader() {
+        final ClassLoader classLoader = new ClassLoader() {
+        };
+
+        context.checking(new Expectations() {{
+            exactly(2).of(cacheRepositoryMock).cache("scripts/class-name");
+            will(returnValue(cacheBuilder));
+
+            exactly(2).of(cacheBuilder).withProperties(expectedCacheProperties);
+            will(returnValue(cacheBuilder));
+
+            exactly(2).of(cacheBuilder).open();
+            will(returnValue(cacheMock));
+
+            allowing(cacheMock).isValid();
+            will(returnValue(true));
+
+            one(scriptCompilationHandlerMock).loadFromDir(expectedSource, testClassLoader, expectedScriptCacheDir,
+                    expectedScriptBaseClass);
+            will(returnValue(TestScript.class));
+
+            one(scriptCompilationHandlerMock).loadFromDir(expectedSource, classLoader, expectedScriptCacheDir,
+                    expectedScriptBaseClass);
+            will(returnValue(TestScript.class));
+
+            exactly(2).of(scriptRunnerFactoryMock).create(with(notNullValue(TestScript.class)));
+            will(returnValue(expectedScriptRunner));
+        }});
+
+        assertSame(expectedScriptRunner, scriptProcessor.createCompiler(source).compile(expectedScriptBaseClass));
+        assertSame(expectedScriptRunner, scriptProcessor.createCompiler(source).setClassloader(classLoader).compile(expectedScriptBaseClass));
+    }
+
+    @Test
+    public void testReusesScriptClassInLaterBuildWhenScriptHasNoBuildscriptClasspath() throws Exception {
+        final ClassLoader rootClassLoader = new URLClassLoader(new URL[]{tmpDir.getDir().toURI().toURL()});
+        scriptProcessor = new DefaultScriptCompilerFactory(scriptCompilationHandlerMock, scriptRunnerFactoryMock,
+                cacheRepositoryMock, new ScriptClassCache(rootClassLoader));
+        final ClassLoader firstBuildClassLoader = createBuildScriptClassLoader(rootClassLoader);
+        ClassLoader secondBuildClassLoader = createBuildScriptClassLoader(rootClassLoader);
+
+        context.checking(new Expectations() {{
+            one(cacheRepositoryMock).cache("scripts/class-name");
+            will(returnValue(cacheBuilder));
+
+            one(cacheBuilder).withProperties(expectedCacheProperties);
+            will(returnValue(cacheBuilder));
+
+            one(cacheBuilder).open();
+            will(returnValue(cacheMock));
+
+            allowing(cacheMock).isValid();
+            will(returnValue(true));
+
+            one(scriptCompilationHandlerMock).loadFromDir(expectedSource, firstBuildClassLoader,
+                    expectedScriptCacheDir, expectedScriptBaseClass);
+            will(returnValue(TestScript.class));
+
+            exactly(2).of(scriptRunnerFactoryMock).create(with(notNullValue(TestScript.class)));
+            will(returnValue(expectedScriptRunner));
+        }});
+
+        assertSame(expectedScriptRunner, scriptProcessor.createCompiler(source).setClassloader(
+                firstBuildClassLoader).compile(expectedScriptBaseClass));
+        assertSame(expectedScriptRunner, scriptProcessor.createCompiler(source).setClassloader(
+                secondBuildClassLoader).compile(expectedScriptBaseClass));
+    }
+
+    /**
+     * Creates the ClassLoader chain which a build creates for a build script, when there is no buildSrc and no
+     * buildscript classpath.
+     */
+    private ClassLoader createBuildScriptClassLoader(ClassLoader rootClassLoader) {
+        ClassLoader buildSrcClassLoader = new URLClassLoader(new URL[0], rootClassLoader);
+        ClassLoader settingsClassLoader = new ObservableUrlClassLoader(buildSrcClassLoader);
+        MultiParentClassLoader scriptClassLoader = new MultiParentClassLoader(rootClassLoader);
+        scriptClassLoader.addParent(settingsClassLoader);
+        return new ObservableUrlClassLoader(scriptClassLoader);
+    }
+
     public static class TestScript extends Script {
         @Override
         public StandardOutputRedirector getStandardOutputRedirector() {
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.groovy.scripts;
+
+import org.gradle.util.MultiParentClassLoader;
+import org.gradle.util.ObservableUrlClassLoader;
+import org.gradle.util.TemporaryFolder;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+public class ScriptClassCacheTest {
+    @Rule
+    public final TemporaryFolder tmpDir = new TemporaryFolder();
+    private final ScriptClassCache cache = new ScriptClassCache();
+    private final ClassLoader classLoader = new ClassLoader() {
+    };
+
+    @Test
+    public void returnsNullForUnknownClass() {
+        assertThat(cache.get(classLoader, "key", Object.class), nullValue());
+    }
+
+    @Test
+    public void returnsClassForClassLoaderAndKey() {
+        cache.put(classLoader, "key", String.class);
+
+        assertThat(cache.get(classLoader, "key", Object.class), equalTo((Object) String.class));
+        assertThat(cache.get(classLoader, "other", Object.class), nullValue());
+        assertThat(cache.get(new ClassLoader() {
+        }, "key", Object.class), nullValue());
+    }
+
+    @Test
+    public void returnsClassForParentWithSameEffectiveParent() {
+        MultiParentClassLoader scriptClassLoader = new MultiParentClassLoader(classLoader);
+        scriptClassLoader.addParent(new ObservableUrlClassLoader(new URLClassLoader(new URL[0], classLoader)));
+        cache.put(new ObservableUrlClassLoader(classLoader), "key", String.class);
+
+        assertThat(cache.get(new ObservableUrlClassLoader(scriptClassLoader), "key", Object.class),
+                equalTo((Object) String.class));
+    }
+
+    @Test
+    public void doesNotReturnClassForParentWhichDefinesClasses() throws Exception {
+        URL classesDir = tmpDir.getDir().toURI().toURL();
+        cache.put(new ObservableUrlClassLoader(classLoader, classesDir), "key", String.class);
+
+        assertThat(cache.get(new ObservableUrlClassLoader(classLoader, classesDir), "key", Object.class), nullValue());
+    }
+
+    @Test
+    public void doesNotReturnClassForMultiParentClassLoaderWithDifferentEffectiveParents() {
+        MultiParentClassLoader scriptClassLoader = new MultiParentClassLoader(classLoader);
+        scriptClassLoader.addParent(new ClassLoader() {
+        });
+        cache.put(classLoader, "key", String.class);
+
+        assertThat(cache.get(scriptClassLoader, "key", Object.class), nullValue());
+    }
+}
@@ -36,10 +36,11 @@ import org.gradle.*
 import static org.hamcrest.Matchers.*
 import static org.junit.Assert.*
 import org.gradle.cache.CacheRepository
-import org.gradle.util.TimeProvider
 import org.gradle.cache.CacheBuilder
 import org.gradle.cache.PersistentStateCache
 import org.gradle.cache.PersistentCache
+import org.gradle.cache.Serializer
+import org.gradle.api.internal.changedetection.FileCollectionSnapshot
 
 /**
  * @author Hans Dockter
@@ -54,13 +55,14 @@ class BuildSourceBuilderTest {
     CacheInvalidationStrategy cacheInvalidationStrategyMock
     CacheRepository cacheRepositoryMock
     PersistentStateCache cacheMock
-    TimeProvider timeProviderMock
+    Serializer serializerMock
     File rootDir
     File testBuildSrcDir
     Set testDependencies
     StartParameter expectedStartParameter
     JUnit4GroovyMockery context = new JUnit4GroovyMockery()
-    Long expectedTimestamp
+    FileCollectionSnapshot expectedSnapshot
+    FileCollectionSnapshot newSnapshot
     BuildResult expectedBuildResult
     Gradle build
     @Rule public TemporaryFolder tmpDir = new TemporaryFolder();
@@ -77,8 +79,8 @@ class BuildSourceBuilderTest {
         cacheInvalidationStrategyMock = context.mock(CacheInvalidationStrategy)
         cacheRepositoryMock = context.mock(CacheRepository)
         cacheMock = context.mock(PersistentStateCache)
-        timeProviderMock = context.mock(TimeProvider)
-        buildSourceBuilder = new BuildSourceBuilder(gradleFactoryMock, cacheInvalidationStrategyMock, context.mock(ClassLoaderFactory), cacheRepositoryMock, timeProviderMock)
+        serializerMock = context.mock(Serializer)
+        buildSourceBuilder = new BuildSourceBuilder(gradleFactoryMock, cacheInvalidationStrategyMock, context.mock(ClassLoaderFactory), cacheRepositoryMock)
         expectedStartParameter = new StartParameter(
                 searchUpwards: false,
                 currentDir: testBuildSrcDir,
@@ -87,7 +89,8 @@ class BuildSourceBuilderTest {
                 projectProperties: [:]
         )
         testDependencies = ['dep1' as File, 'dep2' as File]
-        expectedTimestamp = 2000L
+        expectedSnapshot = context.mock(FileCollectionSnapshot, 'previous')
+        newSnapshot = context.mock(FileCollectionSnapshot, 'new')
         build = context.mock(Gradle)
         Convention convention = context.mock(Convention)
         EmbeddableJavaProject projectMetaInfo = context.mock(EmbeddableJavaProject)
@@ -106,14 +109,14 @@ class BuildSourceBuilderTest {
 
     @Test public void testCreateDependencyWithExistingBuildSources() {
         StartParameter modifiedStartParameter = expectedStartParameter.newInstance()
-        expectTimestampFetchedFromCache()
+        expectSnapshotFetchedFromCache()
         context.checking {
-            one(cacheInvalidationStrategyMock).isValid(expectedTimestamp, testBuildSrcDir); will(returnValue(false))
+            one(cacheInvalidationStrategyMock).isValid(expectedSnapshot, testBuildSrcDir); will(returnValue(false))
             one(gradleFactoryMock).newInstance(modifiedStartParameter); will(returnValue(gradleMock))
             one(gradleMock).addListener(withParam(not(nullValue()))); will(notifyProjectsEvaluated())
             one(gradleMock).run(); will(returnValue(expectedBuildResult))
         }
-        expectTimestampWrittenToCache()
+        expectSnapshotWrittenToCache()
         
         createBuildFile()
         Set<File> actualClasspath = buildSourceBuilder.createBuildSourceClasspath(expectedStartParameter)
@@ -123,14 +126,13 @@ class BuildSourceBuilderTest {
     @Test public void testCreateDependencyWithCachedArtifactAndValidCache() {
         expectedStartParameter.setCacheUsage(CacheUsage.ON)
         StartParameter modifiedStartParameter = expectedStartParameter.newInstance()
-        expectTimestampFetchedFromCache()
+        expectSnapshotFetchedFromCache()
         context.checking {
-            one(cacheInvalidationStrategyMock).isValid(expectedTimestamp, testBuildSrcDir); will(returnValue(true))
+            one(cacheInvalidationStrategyMock).isValid(expectedSnapshot, testBuildSrcDir); will(returnValue(true))
             one(gradleFactoryMock).newInstance(modifiedStartParameter); will(returnValue(gradleMock))
             one(gradleMock).addListener(withParam(not(nullValue()))); will(notifyProjectsEvaluated())
             one(gradleMock).getBuildAnalysis(); will(returnValue(expectedBuildResult))
         }
-        expectTimestampWrittenToCache()
 
         createBuildFile()
         Set actualClasspath = buildSourceBuilder.createBuildSourceClasspath(expectedStartParameter)
@@ -140,13 +142,13 @@ class BuildSourceBuilderTest {
     @Test public void testCreateDependencyWithCachedArtifactAndValidCacheWithRebuildCache() {
         expectedStartParameter.setCacheUsage(CacheUsage.REBUILD)
         StartParameter modifiedStartParameter = expectedStartParameter.newInstance()
-        expectTimestampFetchedFromCache()
+        expectSnapshotFetchedFromCache()
         context.checking {
             one(gradleFactoryMock).newInstance(modifiedStartParameter); will(returnValue(gradleMock))
             one(gradleMock).addListener(withParam(not(nullValue()))); will(notifyProjectsEvaluated())
             one(gradleMock).run(); will(returnValue(expectedBuildResult))
         }
-        expectTimestampWrittenToCache()
+        expectSnapshotWrittenToCache()
 
         createBuildFile()
         Set actualClasspath = buildSourceBuilder.createBuildSourceClasspath(expectedStartParameter)
@@ -154,9 +156,9 @@ class BuildSourceBuilderTest {
     }
 
     @Test public void testCreateDependencyWithNonExistingBuildScript() {
-        expectTimestampFetchedFromCache()
+        expectSnapshotFetchedFromCache()
         context.checking {
-            one(cacheInvalidationStrategyMock).isValid(expectedTimestamp, testBuildSrcDir); will(returnValue(false))
+            one(cacheInvalidationStrategyMock).isValid(expectedSnapshot, testBuildSrcDir); will(returnValue(false))
             one(gradleFactoryMock).newInstance((StartParameter) withParam(notNullValue()))
             will { StartParameter param ->
                 assertThat(param.buildScriptSource, instanceOf(StringScriptSource.class))
@@ -167,7 +169,7 @@ class BuildSourceBuilderTest {
             one(gradleMock).addListener(withParam(not(nullValue()))); will(notifyProjectsEvaluated())
             one(gradleMock).run(); will(returnValue(expectedBuildResult))
         }
-        expectTimestampWrittenToCache()
+        expectSnapshotWrittenToCache()
 
         Set actualClasspath = buildSourceBuilder.createBuildSourceClasspath(expectedStartParameter)
         assertEquals(testDependencies, actualClasspath)
@@ -179,7 +181,7 @@ class BuildSourceBuilderTest {
         assertEquals([] as Set, buildSourceBuilder.createBuildSourceClasspath(expectedStartParameter))
     }
 
-    private expectTimestampFetchedFromCache() {
+    private expectSnapshotFetchedFromCache() {
         context.checking {
             CacheBuilder cacheBuilder = context.mock(CacheBuilder)
             PersistentCache cache = context.mock(PersistentCache)
@@ -193,23 +195,29 @@ class BuildSourceBuilderTest {
             one(cacheBuilder).invalidateOnVersionChange()
             will(returnValue(cacheBuilder))
 
+            one(cacheBuilder).withProperties([state: 'snapshot'])
+            will(returnValue(cacheBuilder))
+
             one(cacheBuilder).open()
             will(returnValue(cache))
 
-            one(cache).openStateCache()
+            allowing(cacheInvalidationStrategyMock).getSerializer()
+            will(returnValue(serializerMock))
+
+            one(cache).openStateCache(serializerMock)
             will(returnValue(cacheMock))
 
             one(cacheMock).get()
-            will(returnValue(expectedTimestamp))
+            will(returnValue(expectedSnapshot))
         }
     }
 
-    private expectTimestampWrittenToCache() {
+    private expectSnapshotWrittenToCache() {
         context.checking {
-            allowing(timeProviderMock).getCurrentTime()
-            will(returnValue(6700L))
+            one(cacheInvalidationStrategyMock).snapshot(testBuildSrcDir)
+            will(returnValue(newSnapshot))
 
-            one(cacheMock).set(6700L)
+            one(cacheMock).set(newSnapshot)
         }
     }
 
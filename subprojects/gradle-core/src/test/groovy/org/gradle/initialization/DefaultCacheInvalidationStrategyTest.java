@@ -15,14 +15,21 @@
  */
 package org.gradle.initialization;
 
+import org.gradle.api.internal.changedetection.DefaultFileSnapshotter;
+import org.gradle.api.internal.changedetection.DefaultHasher;
+import org.gradle.api.internal.changedetection.FileCollectionSnapshot;
+import org.gradle.api.internal.changedetection.Hasher;
 import org.gradle.util.GUtil;
 import org.gradle.util.TemporaryFolder;
+import org.gradle.util.TestFile;
 import org.gradle.util.WrapUtil;
 import static org.junit.Assert.*;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -52,39 +59,102 @@ public class DefaultCacheInvalidationStrategyTest {
             ".svn",
             ".gradle");
 
-    private long timestamp;
+    private FileCollectionSnapshot snapshot;
+
+    private final List<File> hashedFiles = new ArrayList<File>();
 
     @Rule
     public TemporaryFolder tmpDir = new TemporaryFolder();
 
     @Before
     public void setUp() throws IOException {
-        cacheInvalidationStrategy = new DefaultCacheInvalidationStrategy();
+        final Hasher hasher = new DefaultHasher();
+        cacheInvalidationStrategy = new DefaultCacheInvalidationStrategy(new DefaultFileSnapshotter(new Hasher() {
+            public byte[] hash(File file) {
+                hashedFiles.add(file);
+                return hasher.hash(file);
+            }
+
+            public String getAlgorithm() {
+                return hasher.getAlgorithm();
+            }
+        }));
         projectDir = tmpDir.createDir("buildSrc");
         createTestFile();
+        snapshot = cacheInvalidationStrategy.snapshot(projectDir);
+    }
+
+    @Test
+    public void isNotValidWhenNoPreviousSnapshot() {
+        assertFalse(cacheInvalidationStrategy.isValid(null, projectDir));
     }
 
     @Test
-    public void isValidWithNoNewerFiles() throws IOException {
-        assertTrue(cacheInvalidationStrategy.isValid(timestamp, projectDir));
+    public void isValidWithNoChangedFiles() {
+        assertTrue(cacheInvalidationStrategy.isValid(snapshot, projectDir));
     }
 
     @Test
-    public void isNotValidWithNewerFiles() throws IOException, InterruptedException {
+    public void isValidWithNewerFilesWhoseContentHasNotChanged() {
         for (File projectFile : getFiles(GUtil.addLists(projectFiles, projectDirs))) {
-            projectFile.setLastModified(timestamp + 1000);
-            assertFalse(cacheInvalidationStrategy.isValid(timestamp, projectDir));
-            timestamp = projectFile.lastModified();
+            projectFile.setLastModified(projectFile.lastModified() + 2000);
+            assertTrue(cacheInvalidationStrategy.isValid(snapshot, projectDir));
+        }
+    }
+
+    @Test
+    public void isNotValidWithChangedFiles() {
+        for (File projectFile : getFiles(projectFiles)) {
+            new TestFile(projectFile).write("new content");
+            assertFalse(cacheInvalidationStrategy.isValid(snapshot, projectDir));
+            snapshot = cacheInvalidationStrategy.snapshot(projectDir);
+        }
+    }
+
+    @Test
+    public void isNotValidWithAddedFiles() {
+        new TestFile(projectDir, "src/main/groovy/Added.groovy").write("class Added {}");
+        assertFalse(cacheInvalidationStrategy.isValid(snapshot, projectDir));
+    }
+
+    @Test
+    public void isNotValidWithRemovedFiles() {
+        for (File projectFile : getFiles(projectFiles)) {
+            assertTrue(projectFile.delete());
+            assertFalse(cacheInvalidationStrategy.isValid(snapshot, projectDir));
+            snapshot = cacheInvalidationStrategy.snapshot(projectDir);
         }
     }
 
     @Test
-    public void isValidWithIgnoreFiles() throws IOException, InterruptedException {
-        for (File ignoreFile : getFiles(GUtil.addLists(ignoreFiles, ignoreDirs))) {
-            ignoreFile.setLastModified(timestamp + 1000);
-            assertTrue(cacheInvalidationStrategy.isValid(timestamp, projectDir));
-            timestamp = ignoreFile.lastModified();
+    public void stopsComparingFilesAtFirstChangedFile() {
+        for (File projectFile : getFiles(projectFiles)) {
+            new TestFile(projectFile).write("new content");
+        }
+        hashedFiles.clear();
+
+        assertFalse(cacheInvalidationStrategy.isValid(snapshot, projectDir));
+        assertEquals(1, hashedFiles.size());
+    }
+
+    @Test
+    public void isValidWithChangedIgnoreFiles() {
+        for (File ignoreFile : getFiles(ignoreFiles)) {
+            new TestFile(ignoreFile).write("new content");
+            assertTrue(cacheInvalidationStrategy.isValid(snapshot, projectDir));
         }
+        new TestFile(projectDir, "build/classes/Added.class").write("class");
+        assertTrue(cacheInvalidationStrategy.isValid(snapshot, projectDir));
+    }
+
+    @Test
+    public void canSerializeSnapshot() throws Exception {
+        ByteArrayOutputStream outstr = new ByteArrayOutputStream();
+        cacheInvalidationStrategy.getSerializer().write(outstr, snapshot);
+        FileCollectionSnapshot copy = cacheInvalidationStrategy.getSerializer().read(new ByteArrayInputStream(
+                outstr.toByteArray()));
+
+        assertTrue(cacheInvalidationStrategy.isValid(copy, projectDir));
     }
 
     private void createTestFile() throws IOException {
@@ -103,7 +173,6 @@ public class DefaultCacheInvalidationStrategyTest {
             File file = new File(projectDir, (String) fileName);
             file.getParentFile().mkdirs();
             file.createNewFile();
-            timestamp = Math.max(timestamp, file.lastModified());
         }
     }
 
@@ -114,6 +183,4 @@ public class DefaultCacheInvalidationStrategyTest {
         }
         return files;
     }
-
-
 }
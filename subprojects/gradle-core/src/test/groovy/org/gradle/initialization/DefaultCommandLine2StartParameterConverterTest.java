@@ -65,6 +65,14 @@ public class DefaultCommandLine2StartParameterConverterTest {
     private CacheUsage expectedCacheUsage = CacheUsage.ON;
     private boolean expectedSearchUpwards = true;
     private boolean expectedDryRun;
+    private int expectedParallelThreadCount;
+    private boolean expectedWatchFileSystem;
+    private boolean expectedConfigureInParallel;
+    private boolean expectedConfigureOnDemand;
+    private boolean expectedCacheTaskGraph;
+    private boolean expectedUseDaemon;
+    private boolean expectedStopDaemon;
+    private boolean expectedForegroundDaemon;
     private boolean expectedShowHelp;
     private boolean expectedShowVersion;
     private StartParameter.ShowStacktrace expectedShowStackTrace = StartParameter.ShowStacktrace.INTERNAL_EXCEPTIONS;
@@ -122,6 +130,14 @@ public class DefaultCommandLine2StartParameterConverterTest {
         assertEquals(expectedShowStackTrace, startParameter.getShowStacktrace());
         assertEquals(expectedExcludedTasks, startParameter.getExcludedTaskNames());
         assertEquals(expectedInitScripts, startParameter.getInitScripts());
+        assertEquals(expectedParallelThreadCount, startParameter.getParallelThreadCount());
+        assertEquals(expectedWatchFileSystem, startParameter.isWatchFileSystem());
+        assertEquals(expectedConfigureInParallel, startParameter.isConfigureInParallel());
+        assertEquals(expectedConfigureOnDemand, startParameter.isConfigureOnDemand());
+        assertEquals(expectedCacheTaskGraph, startParameter.isCacheTaskGraph());
+        assertEquals(expectedUseDaemon, startParameter.isUseDaemon());
+        assertEquals(expectedStopDaemon, startParameter.isStopDaemon());
+        assertEquals(expectedForegroundDaemon, startParameter.isForegroundDaemon());
     }
 
     private void checkConversion(final boolean embedded, final boolean noTasks, String... args) {
@@ -247,6 +263,59 @@ public class DefaultCommandLine2StartParameterConverterTest {
         checkConversion("-m");
     }
 
+    @Test
+    public void withParallelThreads() {
+        expectedParallelThreadCount = 4;
+        checkConversion("--parallel-threads", "4");
+    }
+
+    @Test(expected = CommandLineArgumentException.class)
+    public void withNegativeParallelThreads() {
+        checkConversion("--parallel-threads", "-1");
+    }
+
+    @Test
+    public void withWatchFileSystem() {
+        expectedWatchFileSystem = true;
+        checkConversion("--watch-fs");
+    }
+
+    @Test
+    public void withConfigureInParallel() {
+        expectedConfigureInParallel = true;
+        checkConversion("--parallel-configuration");
+    }
+
+    @Test
+    public void withConfigureOnDemand() {
+        expectedConfigureOnDemand = true;
+        checkConversion("--configure-on-demand");
+    }
+
+    @Test
+    public void withCacheTaskGraph() {
+        expectedCacheTaskGraph = true;
+        checkConversion("--cache-task-graph");
+    }
+
+    @Test
+    public void withDaemon() {
+        expectedUseDaemon = true;
+        checkConversion("--daemon");
+    }
+
+    @Test
+    public void withStopDaemon() {
+        expectedStopDaemon = true;
+        checkConversion("--stop-daemon");
+    }
+
+    @Test
+    public void withForegroundDaemon() {
+        expectedForegroundDaemon = true;
+        checkConversion("--foreground");
+    }
+
     @Test
     public void withExcludeTask() {
         expectedExcludedTasks.add("excluded");
@@ -20,8 +20,10 @@ import org.gradle.api.Action;
 import org.gradle.messaging.dispatch.MethodInvocation;
 import org.gradle.util.TestClosure;
 import org.jmock.Expectations;
+import org.jmock.api.Invocation;
 import org.jmock.integration.junit4.JMock;
 import org.jmock.integration.junit4.JUnit4Mockery;
+import org.jmock.lib.action.CustomAction;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
@@ -70,6 +72,29 @@ public class ListenerBroadcastTest {
         broadcast.getSource().event1("param");
     }
 
+    @Test
+    public void listenerAddedWhileEventIsBeingDispatchedDoesNotReceiveThatEvent() {
+        final TestListener listener1 = context.mock(TestListener.class, "listener1");
+        final TestListener listener2 = context.mock(TestListener.class, "listener2");
+
+        context.checking(new Expectations() {{
+            one(listener1).event1("param");
+            will(new CustomAction("add listener") {
+                public Object invoke(Invocation invocation) {
+                    broadcast.add(listener2);
+                    return null;
+                }
+            });
+            one(listener1).event1("param2");
+            one(listener2).event1("param2");
+        }});
+
+        broadcast.add(listener1);
+
+        broadcast.getSource().event1("param");
+        broadcast.getSource().event1("param2");
+    }
+
     @Test
     public void canDispatchEventToListeners() throws NoSuchMethodException {
         final TestListener listener1 = context.mock(TestListener.class, "listener1");
@@ -49,6 +49,19 @@ public class MethodInvocationUnmarshallingDispatchTest {
         dispatch.dispatch(new RemoteMethodInvocation(1, new Object[]{17}));
     }
 
+    @Test
+    public void transformsRemoteMethodInvocationMessageForMethodWithArrayParameters() throws Exception {
+        final Method method = String.class.getMethod("getChars", Integer.TYPE, Integer.TYPE, char[].class, Integer.TYPE);
+        final char[] chars = new char[2];
+
+        context.checking(new Expectations() {{
+            one(target).dispatch(new MethodInvocation(method, new Object[]{0, 2, chars, 0}));
+        }});
+
+        dispatch.dispatch(new MethodMetaInfo(1, method));
+        dispatch.dispatch(new RemoteMethodInvocation(1, new Object[]{0, 2, chars, 0}));
+    }
+
     @Test
     public void failsWhenRemoteMethodInvocationMessageReceivedForUnknownMethod() {
         try {
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.util
+
+import org.junit.Test
+import static org.hamcrest.Matchers.*
+import static org.junit.Assert.*
+
+class EncodingUtilTest {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream()
+    private final DataOutputStream output = new DataOutputStream(bytes)
+
+    @Test
+    public void canWriteAndReadVarInts() {
+        List<Integer> values = [0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE]
+        values.each { EncodingUtil.writeVarInt(output, it) }
+
+        DataInputStream input = input()
+        values.each { assertThat(EncodingUtil.readVarInt(input), equalTo(it)) }
+        assertThat(input.available(), equalTo(0))
+    }
+
+    @Test
+    public void smallVarIntsUseFewerBytes() {
+        EncodingUtil.writeVarInt(output, 127)
+        assertThat(bytes.size(), equalTo(1))
+        EncodingUtil.writeVarInt(output, 128)
+        assertThat(bytes.size(), equalTo(3))
+        EncodingUtil.writeVarInt(output, Integer.MAX_VALUE)
+        assertThat(bytes.size(), equalTo(8))
+    }
+
+    @Test
+    public void cannotWriteNegativeVarInt() {
+        try {
+            EncodingUtil.writeVarInt(output, -1)
+            fail()
+        } catch (IllegalArgumentException e) {
+            assertThat(e.message, equalTo('Cannot encode negative value -1.'))
+        }
+    }
+
+    @Test
+    public void failsToReadMalformedVarInt() {
+        5.times { output.writeByte(0xFF) }
+        try {
+            EncodingUtil.readVarInt(input())
+            fail()
+        } catch (StreamCorruptedException e) {
+            assertThat(e.message, equalTo('Malformed variable length int.'))
+        }
+    }
+
+    @Test
+    public void canWriteAndReadStrings() {
+        List<String> values = ['', 'a', 'some \u00e9\u4e2d string', 'x' * 100000]
+        values.each { EncodingUtil.writeString(output, it) }
+
+        DataInputStream input = input()
+        values.each { assertThat(EncodingUtil.readString(input), equalTo(it)) }
+    }
+
+    @Test
+    public void canWriteAndReadStringsWithSharedPrefix() {
+        List<String> values = ['/a/b/c', '/a/b/d', '/a/b', '/z', '/z/\ud83d\ude00a', '/z/\ud83d\ude01b', '']
+        String previous = ''
+        values.each {
+            EncodingUtil.writeString(output, previous, it)
+            previous = it
+        }
+
+        DataInputStream input = input()
+        previous = ''
+        values.each {
+            previous = EncodingUtil.readString(input, previous)
+            assertThat(previous, equalTo(it))
+        }
+    }
+
+    @Test
+    public void writesOnlyRemainderOfStringWithSharedPrefix() {
+        EncodingUtil.writeString(output, '/some/long/path/a', '/some/long/path/b')
+        assertThat(bytes.size(), equalTo(3))
+    }
+
+    private DataInputStream input() {
+        output.flush()
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.launcher;
+
+import java.io.File;
+
+/**
+ * The requests which a client can send to a build daemon. Each request carries the token which the daemon published
+ * in the {@link DaemonRegistry}. The daemon ignores requests with any other token.
+ */
+public interface BuildDaemon {
+    /**
+     * Requests that the daemon run a build. The daemon notifies the client of the progress of the build using a
+     * {@link BuildDaemonListener}.
+     *
+     * @param token The token of the daemon.
+     * @param currentDir The current directory of the client.
+     * @param args The command-line arguments of the client.
+     */
+    void build(String token, File currentDir, String[] args);
+
+    /**
+     * Requests that the daemon stop.
+     *
+     * @param token The token of the daemon.
+     */
+    void stop(String token);
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.launcher;
+
+/**
+ * Receives notifications from a build daemon about the build it is running for a client.
+ */
+public interface BuildDaemonListener {
+    /**
+     * Called when the daemon starts running the build.
+     */
+    void buildStarted();
+
+    /**
+     * Called periodically while the build is running.
+     */
+    void buildRunning();
+
+    /**
+     * Called when the build writes to its standard output or standard error.
+     */
+    void onOutput(byte[] output, boolean error);
+
+    /**
+     * Called when the build has finished.
+     *
+     * @param successful true if the build was successful.
+     */
+    void buildFinished(boolean successful);
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.launcher;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.messaging.MessagingClient;
+import org.gradle.messaging.TcpMessagingClient;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs builds using the build daemon for a Gradle user home directory, starting the daemon when it is not running.
+ * Only one client uses a daemon at a time. Other clients wait until the daemon is available.
+ *
+ * <p>The daemon is started with the JVM options of the client. A daemon which was started with different JVM options
+ * is stopped, and a new daemon is started in its place.</p>
+ */
+public class DaemonClient {
+    private static final Logger LOGGER = Logging.getLogger(DaemonClient.class);
+    static final long START_TIMEOUT = 30000;
+    static final long CONNECT_TIMEOUT = 10000;
+    static final long KEEP_ALIVE_TIMEOUT = 60000;
+    private final DaemonRegistry registry;
+    private final File gradleHomeDir;
+    private final File gradleUserHomeDir;
+    private final List<String> jvmOptions;
+    private PrintStream out = System.out;
+    private PrintStream err = System.err;
+
+    /**
+     * Creates a client.
+     *
+     * @param jvmOptions The JVM options which the daemon should use.
+     */
+    public DaemonClient(File gradleHomeDir, File gradleUserHomeDir, List<String> jvmOptions) {
+        this.gradleHomeDir = gradleHomeDir;
+        this.gradleUserHomeDir = gradleUserHomeDir;
+        this.jvmOptions = new ArrayList<String>(jvmOptions);
+        registry = new DaemonRegistry(gradleUserHomeDir);
+    }
+
+    void setOutput(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * Runs a build using the daemon.
+     *
+     * @return true if the build was successful.
+     */
+    public boolean build(File currentDir, String[] args) {
+        RandomAccessFile lockFile = lock();
+        try {
+            for (int attempt = 0; attempt < 2; attempt++) {
+                DaemonRegistry.Address address = registry.getAddress();
+                if (address != null && !address.getJvmOptions().equals(jvmOptions)) {
+                    LOGGER.lifecycle("Stopping the Gradle build daemon, as it uses different JVM options.");
+                    stop(address);
+                    address = null;
+                }
+                if (address == null) {
+                    address = startDaemon();
+                }
+                Boolean result = build(address, currentDir, args);
+                if (result != null) {
+                    return result;
+                }
+                // Stale address
+                registry.clearAddress(address.getUri());
+            }
+            throw new GradleException("Could not connect to the Gradle build daemon.");
+        } finally {
+            unlock(lockFile);
+        }
+    }
+
+    /**
+     * Stops the daemon, if it is running.
+     *
+     * @return true if the daemon was running.
+     */
+    public boolean stop() {
+        RandomAccessFile lockFile = lock();
+        try {
+            DaemonRegistry.Address address = registry.getAddress();
+            return address != null && stop(address);
+        } finally {
+            unlock(lockFile);
+        }
+    }
+
+    private boolean stop(DaemonRegistry.Address address) {
+        MessagingClient client;
+        try {
+            client = createClient(address.getUri());
+        } catch (GradleException e) {
+            LOGGER.debug("Could not connect to daemon.", e);
+            registry.clearAddress(address.getUri());
+            return false;
+        }
+        try {
+            client.getConnection().addOutgoing(BuildDaemon.class).stop(address.getToken());
+        } finally {
+            client.stop();
+        }
+        // Don't hand this address to a later client before the daemon gets around to removing it
+        registry.clearAddress(address.getUri());
+        return true;
+    }
+
+    /**
+     * Runs the build using the daemon at the given address.
+     *
+     * @return the result of the build, or null if the daemon at the given address is not available.
+     */
+    private Boolean build(DaemonRegistry.Address address, File currentDir, String[] args) {
+        MessagingClient client;
+        try {
+            client = createClient(address.getUri());
+        } catch (GradleException e) {
+            LOGGER.debug(String.format("Could not connect to daemon at %s.", address), e);
+            return null;
+        }
+        try {
+            BuildListener listener = new BuildListener(out, err);
+            client.getConnection().addIncoming(BuildDaemonListener.class, listener);
+            client.getConnection().addOutgoing(BuildDaemon.class).build(address.getToken(), currentDir, args);
+            return listener.waitForResult();
+        } finally {
+            client.stop();
+        }
+    }
+
+    MessagingClient createClient(URI address) {
+        return new TcpMessagingClient(getClass().getClassLoader(), address);
+    }
+
+    /**
+     * Starts a new daemon process, and waits until it is ready for a client.
+     */
+    DaemonRegistry.Address startDaemon() {
+        List<String> command = new ArrayList<String>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getAbsolutePath());
+        command.addAll(jvmOptions);
+        command.add(String.format("-Dgradle.home=%s", gradleHomeDir.getAbsolutePath()));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(GradleMain.class.getName());
+        command.add("--foreground");
+        command.add("-g");
+        command.add(gradleUserHomeDir.getAbsolutePath());
+
+        LOGGER.info("Starting Gradle build daemon.");
+        try {
+            registry.getDir().mkdirs();
+            ProcessBuilder builder = new ProcessBuilder(command);
+            builder.directory(registry.getDir());
+            builder.redirectErrorStream(true);
+            Process process = builder.start();
+            // The daemon outlives this process, so don't hold on to its output
+            process.getOutputStream().close();
+            process.getInputStream().close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        try {
+            DaemonRegistry.Address address = registry.waitForAddress(START_TIMEOUT);
+            if (address == null) {
+                throw new GradleException("Timeout waiting for the Gradle build daemon to start.");
+            }
+            return address;
+        } catch (InterruptedException e) {
+            throw new GradleException(e);
+        }
+    }
+
+    private RandomAccessFile lock() {
+        try {
+            registry.getDir().mkdirs();
+            RandomAccessFile lockFile = new RandomAccessFile(registry.getLockFile(), "rw");
+            try {
+                if (lockFile.getChannel().tryLock() == null) {
+                    LOGGER.lifecycle("Waiting for another build to finish using the Gradle build daemon.");
+                    lockFile.getChannel().lock();
+                }
+            } catch (IOException e) {
+                lockFile.close();
+                throw e;
+            }
+            return lockFile;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void unlock(RandomAccessFile lockFile) {
+        try {
+            // Releases the lock
+            lockFile.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the output of the build, and waits for the build to finish.
+     */
+    private static class BuildListener implements BuildDaemonListener {
+        private final PrintStream out;
+        private final PrintStream err;
+        private boolean started;
+        private Boolean result;
+        private long lastMessage = System.currentTimeMillis();
+
+        private BuildListener(PrintStream out, PrintStream err) {
+            this.out = out;
+            this.err = err;
+        }
+
+        public synchronized void buildStarted() {
+            started = true;
+            received();
+        }
+
+        public synchronized void buildRunning() {
+            received();
+        }
+
+        public void onOutput(byte[] output, boolean error) {
+            PrintStream target = error ? err : out;
+            target.write(output, 0, output.length);
+            target.flush();
+            synchronized (this) {
+                received();
+            }
+        }
+
+        public synchronized void buildFinished(boolean successful) {
+            result = successful;
+            received();
+        }
+
+        private void received() {
+            lastMessage = System.currentTimeMillis();
+            notifyAll();
+        }
+
+        /**
+         * @return the result, or null if the daemon did not start the build.
+         */
+        public synchronized Boolean waitForResult() {
+            while (result == null) {
+                long timeout = started ? KEEP_ALIVE_TIMEOUT : CONNECT_TIMEOUT;
+                long remaining = lastMessage + timeout - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    if (!started) {
+                        return null;
+                    }
+                    throw new GradleException("Lost connection to the Gradle build daemon.");
+                }
+                try {
+                    wait(remaining);
+                } catch (InterruptedException e) {
+                    throw new GradleException(e);
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.launcher;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.GradleException;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.util.GradleVersion;
+import org.gradle.util.OperatingSystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Records the address at which the build daemon for a Gradle user home directory can be reached. A separate daemon is
+ * used for each Gradle version.
+ *
+ * <p>Along with the address, the registry holds the token which a client must present to the daemon, and the JVM
+ * options the daemon was started with. The registry directory is made accessible to its owner only before the token is
+ * written, so that other users cannot connect to the daemon.</p>
+ */
+public class DaemonRegistry {
+    private final File dir;
+    private final File addressFile;
+    private boolean dirRestricted;
+
+    public DaemonRegistry(File gradleUserHomeDir) {
+        dir = new File(gradleUserHomeDir, "daemon/" + new GradleVersion().getVersion());
+        addressFile = new File(dir, "daemon.address");
+    }
+
+    public File getDir() {
+        return dir;
+    }
+
+    /**
+     * Returns the file which clients lock while they are using the daemon.
+     */
+    public File getLockFile() {
+        return new File(dir, "daemon.lock");
+    }
+
+    /**
+     * Returns the address of the daemon, or null if no daemon is waiting for a client.
+     */
+    public Address getAddress() {
+        if (!addressFile.isFile()) {
+            return null;
+        }
+        try {
+            List<String> lines = Arrays.asList(FileUtils.readFileToString(addressFile).split("\n"));
+            if (lines.size() < 2) {
+                return null;
+            }
+            return new Address(new URI(lines.get(0)), lines.get(1), lines.subList(2, lines.size()));
+        } catch (IOException e) {
+            // Address file has been removed
+            return null;
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Waits until a daemon is waiting for a client.
+     *
+     * @return The address of the daemon, or null if no daemon is waiting for a client within the given timeout.
+     */
+    public Address waitForAddress(long timeoutMillis) throws InterruptedException {
+        long expiry = System.currentTimeMillis() + timeoutMillis;
+        while (true) {
+            Address address = getAddress();
+            if (address != null || System.currentTimeMillis() >= expiry) {
+                return address;
+            }
+            Thread.sleep(100);
+        }
+    }
+
+    public void setAddress(Address address) {
+        File tmpFile = new File(dir, addressFile.getName() + ".tmp");
+        try {
+            restrictDir();
+            StringBuilder content = new StringBuilder();
+            content.append(address.getUri()).append('\n').append(address.getToken());
+            for (String jvmOption : address.getJvmOptions()) {
+                content.append('\n').append(jvmOption);
+            }
+            FileUtils.writeStringToFile(tmpFile, content.toString());
+            addressFile.delete();
+            if (!tmpFile.renameTo(addressFile)) {
+                throw new IOException(String.format("Could not rename %s to %s.", tmpFile, addressFile));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Removes the given address, if it is the current address of the daemon.
+     */
+    public void clearAddress(URI address) {
+        Address current = getAddress();
+        if (current != null && address.equals(current.getUri())) {
+            addressFile.delete();
+        }
+    }
+
+    private void restrictDir() throws IOException {
+        if (dirRestricted) {
+            return;
+        }
+        dir.mkdirs();
+        if (!OperatingSystem.current().isWindows()) {
+            Process process = new ProcessBuilder("chmod", "700", dir.getAbsolutePath()).start();
+            process.getOutputStream().close();
+            try {
+                if (process.waitFor() != 0) {
+                    throw new GradleException(String.format("Could not restrict access to %s.", dir));
+                }
+            } catch (InterruptedException e) {
+                throw new GradleException(e);
+            }
+        }
+        dirRestricted = true;
+    }
+
+    /**
+     * The address of a daemon, along with the token a client must present to it and the JVM options it was started
+     * with.
+     */
+    public static class Address {
+        private final URI uri;
+        private final String token;
+        private final List<String> jvmOptions;
+
+        public Address(URI uri, String token, List<String> jvmOptions) {
+            this.uri = uri;
+            this.token = token;
+            this.jvmOptions = Collections.unmodifiableList(new ArrayList<String>(jvmOptions));
+        }
+
+        public URI getUri() {
+            return uri;
+        }
+
+        public String getToken() {
+            return token;
+        }
+
+        public List<String> getJvmOptions() {
+            return jvmOptions;
+        }
+
+        @Override
+        public String toString() {
+            return uri.toString();
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright 2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.launcher;
+
+import org.gradle.messaging.MessagingServer;
+import org.gradle.messaging.ObjectConnection;
+import org.gradle.messaging.TcpMessagingServer;
+import org.gradle.util.ThreadUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A build daemon, which runs builds on behalf of clients. Running builds in a long-lived process means that the JVM,
+ * the Gradle runtime and the services shared by all builds are already loaded and warmed up when a build starts.
+ *
+ * <p>The daemon serves one client at a time. While waiting for a client, it publishes the address of a connection in
+ * the {@link DaemonRegistry}, along with a random token generated when the daemon starts and the JVM options of the
+ * daemon. A client must present the token with each request. A request with any other token is discarded, along with
+ * its connection, and a new address is published. While a build is running, anything written to {@code System.out} and {@code System.err}
+ * is forwarded to the client. The daemon stops when a client requests it, or when no client has connected for the
+ * idle timeout.</p>
+ *
+ * <p>Limitations: the client's standard input is not forwarded to the build. Builds see the daemon's environment
+ * variables and working directory, rather than those of the client. System properties set by a build remain set for
+ * later builds.</p>
+ */
+public class DaemonServer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DaemonServer.class);
+    public static final long DEFAULT_IDLE_TIMEOUT = 3 * 60 * 60 * 1000L;
+    static final long KEEP_ALIVE_INTERVAL = 5000;
+    private final DaemonRegistry registry;
+    private final BuildRunner buildRunner;
+    private final long idleTimeout;
+    private final List<String> jvmOptions;
+    private final String token = new BigInteger(128, new SecureRandom()).toString(16);
+    private final BlockingQueue<Request> requests = new LinkedBlockingQueue<Request>();
+
+    /**
+     * Creates a daemon.
+     *
+     * @param jvmOptions The JVM options the daemon was started with, which are published along with its address.
+     */
+    public DaemonServer(DaemonRegistry registry, BuildRunner buildRunner, long idleTimeout, List<String> jvmOptions) {
+        this.registry = registry;
+        this.buildRunner = buildRunner;
+        this.idleTimeout = idleTimeout;
+        this.jvmOptions = new ArrayList<String>(jvmOptions);
+    }
+
+    /**
+     * Runs the daemon until it is stopped.
+     */
+    public void run() {
+        PrintStream originalOut = System.out;
+        PrintStream originalErr = System.err;
+        ClientOutputStream out = new ClientOutputStream(originalOut, false);
+        ClientOutputStream err = new ClientOutputStream(originalErr, true);
+        System.setOut(new PrintStream(out, true));
+        System.setErr(new PrintStream(err, true));
+        ScheduledExecutorService keepAliveExecutor = Executors.newSingleThreadScheduledExecutor();
+        MessagingServer server = new TcpMessagingServer(getClass().getClassLoader());
+        try {
+            LOGGER.info("Build daemon started in {}.", registry.getDir());
+            ObjectConnection connection = waitForClient(server);
+            while (connection != null) {
+                connection = serveClient(server, connection, keepAliveExecutor, out, err);
+            }
+            LOGGER.info("Build daemon stopped.");
+        } finally {
+            System.setOut(originalOut);
+            System.setErr(originalErr);
+            ThreadUtils.shutdown(keepAliveExecutor);
+            server.stop();
+        }
+    }
+
+    /**
+     * Requests that the daemon stop, once the current build, if any, has finished.
+     */
+    public void stop() {
+        requests.add(Request.STOP);
+    }
+
+    /**
+     * Creates a connection for the next client, and publishes its address. Only the first request received on the
+     * connection is served.
+     */
+    private ObjectConnection waitForClient(MessagingServer server) {
+        ObjectConnection connection = server.createUnicastConnection();
+        final AtomicBoolean received = new AtomicBoolean();
+        connection.addIncoming(BuildDaemon.class, new BuildDaemon() {
+            public void build(String token, File currentDir, String[] args) {
+                receive(isValid(token) ? new Request(currentDir, args) : Request.REJECTED);
+            }
+
+            public void stop(String token) {
+                receive(isValid(token) ? Request.STOP : Request.REJECTED);
+            }
+
+            private void receive(Request request) {
+                if (received.compareAndSet(false, true)) {
+                    requests.add(request);
+                }
+            }
+        });
+        registry.setAddress(new DaemonRegistry.Address(connection.getLocalAddress(), token, jvmOptions));
+        return connection;
+    }
+
+    private boolean isValid(String token) {
+        return this.token.equals(token);
+    }
+
+    /**
+     * Serves the client of the given connection.
+     *
+     * @return The connection for the next client, or null if the daemon should stop.
+     */
+    private ObjectConnection serveClient(MessagingServer server, ObjectConnection connection,
+                                         ScheduledExecutorService keepAliveExecutor, ClientOutputStream out,
+                                         ClientOutputStream err) {
+        try {
+            Request request;
+            try {
+                request = requests.poll(idleTimeout, TimeUnit.MILLISECONDS);
+            } finally {
+                registry.clearAddress(connection.getLocalAddress());
+            }
+
+            if (request == null) {
+                LOGGER.info("No client has connected for {} ms. Stopping.", idleTimeout);
+                return null;
+            }
+            if (request == Request.STOP) {
+                LOGGER.info("Stop requested.");
+                return null;
+            }
+            if (request == Request.REJECTED) {
+                LOGGER.warn("Rejected a build daemon client which did not present the daemon's token.");
+                return waitForClient(server);
+            }
+
+            BuildDaemonListener client = connection.addOutgoing(BuildDaemonListener.class);
+            boolean successful = false;
+            try {
+                successful = runBuild(request, client, keepAliveExecutor, out, err);
+            } catch (RuntimeException e) {
+                // Most likely the client has gone away
+                LOGGER.error("Could not serve build daemon client.", e);
+            }
+
+            // Publish the address for the next client before this client finishes, so that it can reuse this daemon
+            // straight away
+            ObjectConnection next = waitForClient(server);
+            try {
+                client.buildFinished(successful);
+            } catch (RuntimeException e) {
+                LOGGER.error("Could not notify build daemon client.", e);
+            }
+            return next;
+        } catch (InterruptedException e) {
+            LOGGER.info("Build daemon interrupted. Stopping.");
+            return null;
+        } finally {
+            connection.stop();
+        }
+    }
+
+    private boolean runBuild(Request request, final BuildDaemonListener client,
+                             ScheduledExecutorService keepAliveExecutor, ClientOutputStream out,
+                             ClientOutputStream err) {
+        client.buildStarted();
+        ScheduledFuture<?> keepAlive = keepAliveExecutor.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                client.buildRunning();
+            }
+        }, KEEP_ALIVE_INTERVAL, KEEP_ALIVE_INTERVAL, TimeUnit.MILLISECONDS);
+        out.attach(client);
+        err.attach(client);
+        try {
+            return buildRunner.run(request.currentDir, request.args);
+        } catch (Throwable t) {
+            // Report to the client
+            t.printStackTrace(System.err);
+            return false;
+        } finally {
+            System.out.flush();
+            System.err.flush();
+            out.detach();
+            err.detach();
+            keepAlive.cancel(false);
+        }
+    }
+
+    /**
+     * Runs a build in this process.
+     */
+    public interface BuildRunner {
+        /**
+         * Runs the build for the given command-line arguments.
+         *
+         * @return true if the build was successful.
+         */
+        boolean run(File currentDir, String[] args);
+    }
+
+    private static class Request {
+        private static final Request STOP = new Request(null, null);
+        private static final Request REJECTED = new Request(null, null);
+        private final File currentDir;
+        private final String[] args;
+
+        private Request(File currentDir, String[] args) {
+            this.currentDir = currentDir;
+            this.args = args;
+        }
+    }
+
+    /**
+     * Forwards output to the current client, if any. Writes to the original stream when there is no client, or the
+     * client has gone away.
+     */
+    private static class ClientOutputStream extends OutputStream {
+        private final OutputStream original;
+        private final boolean error;
+        private volatile BuildDaemonListener client;
+
+        private ClientOutputStream(OutputStream original, boolean error) {
+            this.original = original;
+            this.error = error;
+        }
+
+        public void attach(BuildDaemonListener client) {
+            this.client = client;
+        }
+
+        public void detach() {
+            client = null;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            BuildDaemonListener client = this.client;
+            if (client != null) {
+                byte[] output = new byte[length];
+                System.arraycopy(bytes, offset, output, 0, length);
+                try {
+                    client.onOutput(output, error);
+                    return;
+                } catch (RuntimeException e) {
+                    // Client has gone away - don't try again for this build
+                    this.client = null;
+                }
+            }
+            original.write(bytes, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            original.flush();
+        }
+    }
+}
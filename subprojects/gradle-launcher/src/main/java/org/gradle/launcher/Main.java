@@ -16,14 +16,21 @@
 package org.gradle.launcher;
 
 import org.gradle.*;
+import org.gradle.api.GradleException;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.gradleplugin.userinterface.swing.standalone.BlockingApplication;
 import org.gradle.initialization.CommandLine2StartParameterConverter;
 import org.gradle.initialization.DefaultCommandLine2StartParameterConverter;
+import org.gradle.initialization.DefaultLoggingConfigurer;
 import org.gradle.util.Clock;
 import org.gradle.util.GradleVersion;
 
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * @author Hans Dockter
  */
@@ -53,15 +60,7 @@ public class Main {
     public void execute() throws Exception {
         Clock buildTimeClock = new Clock();
 
-        StartParameter startParameter = null;
-
-        try {
-            startParameter = parameterConverter.convert(args);
-        } catch (Exception e) {
-            System.err.println(e.getMessage());
-            parameterConverter.showHelp(System.err);
-            buildCompleter.exit(e);
-        }
+        StartParameter startParameter = convertArgs();
 
         if (startParameter.isShowHelp()) {
             parameterConverter.showHelp(System.out);
@@ -84,21 +83,92 @@ public class Main {
             buildCompleter.exit(null);
         }
 
+        if (startParameter.isForegroundDaemon()) {
+            new DaemonServer(new DaemonRegistry(startParameter.getGradleUserHomeDir()), new DaemonBuildRunner(),
+                    DaemonServer.DEFAULT_IDLE_TIMEOUT, getJvmOptions()).run();
+            buildCompleter.exit(null);
+        }
+
+        if (startParameter.isStopDaemon() || startParameter.isUseDaemon()) {
+            new DefaultLoggingConfigurer().configure(startParameter.getLogLevel());
+            DaemonClient client = new DaemonClient(startParameter.getGradleHomeDir(),
+                    startParameter.getGradleUserHomeDir(), getJvmOptions());
+            if (startParameter.isStopDaemon()) {
+                try {
+                    if (client.stop()) {
+                        System.out.println("Gradle build daemon stopped.");
+                    } else {
+                        System.out.println("Gradle build daemon is not running.");
+                    }
+                } catch (Throwable e) {
+                    logger.error("Could not stop the Gradle build daemon.", e);
+                    buildCompleter.exit(e);
+                }
+                buildCompleter.exit(null);
+            }
+
+            boolean successful = false;
+            try {
+                successful = client.build(startParameter.getCurrentDir(), args);
+            } catch (Throwable e) {
+                logger.error("Could not run the build using the Gradle build daemon.", e);
+                buildCompleter.exit(e);
+            }
+            buildCompleter.exit(successful ? null : new GradleException("Build failed."));
+        }
+
+        runBuild(startParameter, buildTimeClock);
+    }
+
+    /**
+     * Runs the build in this process, ignoring any options which control the build daemon.
+     */
+    void executeBuild() {
+        Clock buildTimeClock = new Clock();
+        runBuild(convertArgs(), buildTimeClock);
+    }
+
+    /**
+     * Returns the JVM options of this process which the daemon should share with its clients.
+     */
+    private static List<String> getJvmOptions() {
+        List<String> jvmOptions = new ArrayList<String>();
+        for (String jvmOption : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            // The daemon client sets the Gradle home itself
+            if (!jvmOption.startsWith("-Dgradle.home=")) {
+                jvmOptions.add(jvmOption);
+            }
+        }
+        return jvmOptions;
+    }
+
+    private StartParameter convertArgs() {
+        StartParameter startParameter = null;
+        try {
+            startParameter = parameterConverter.convert(args);
+        } catch (Exception e) {
+            System.err.println(e.getMessage());
+            parameterConverter.showHelp(System.err);
+            buildCompleter.exit(e);
+        }
+        return startParameter;
+    }
+
+    private void runBuild(StartParameter startParameter, Clock buildTimeClock) {
         BuildListener resultLogger = new BuildLogger(logger, buildTimeClock, startParameter);
+        Throwable failure;
         try {
             GradleLauncher gradleLauncher = GradleLauncher.newInstance(startParameter);
 
             gradleLauncher.useLogger(resultLogger);
 
             BuildResult buildResult = gradleLauncher.run();
-            if (buildResult.getFailure() != null) {
-                buildCompleter.exit(buildResult.getFailure());
-            }
+            failure = buildResult.getFailure();
         } catch (Throwable e) {
             resultLogger.buildFinished(new BuildResult(null, e));
-            buildCompleter.exit(e);
+            failure = e;
         }
-        buildCompleter.exit(null);
+        buildCompleter.exit(failure);
     }
 
     public interface BuildCompleter {
@@ -110,4 +180,46 @@ public class Main {
             System.exit(failure == null ? 0 : 1);
         }
     }
+
+    /**
+     * Runs builds in the daemon process. The client's current directory is used as the current directory of the build,
+     * and the {@code user.dir} system property is set to it for the duration of the build. This does not change the
+     * working directory of the process, so a relative {@link File} used by build logic is still resolved against the
+     * directory the daemon was started in.
+     */
+    private static class DaemonBuildRunner implements DaemonServer.BuildRunner {
+        public boolean run(File currentDir, String[] args) {
+            String userDir = System.getProperty("user.dir");
+            System.setProperty("user.dir", currentDir.getAbsolutePath());
+            try {
+                Main main = new Main(args);
+                RecordingBuildCompleter completer = new RecordingBuildCompleter();
+                main.setBuildCompleter(completer);
+                try {
+                    main.executeBuild();
+                } catch (BuildCompletedError e) {
+                    // Expected
+                }
+                return completer.successful;
+            } finally {
+                System.setProperty("user.dir", userDir);
+            }
+        }
+    }
+
+    private static class RecordingBuildCompleter implements BuildCompleter {
+        private boolean completed;
+        private boolean successful;
+
+        public void exit(Throwable failure) {
+            if (!completed) {
+                completed = true;
+                successful = failure == null;
+            }
+            throw new BuildCompletedError();
+        }
+    }
+
+    private static class BuildCompletedError extends Error {
+    }
 }
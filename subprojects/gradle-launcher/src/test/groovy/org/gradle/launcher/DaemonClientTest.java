@@ -0,0 +1,268 @@
+/*
+ * Copyright 2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.launcher;
+
+import org.gradle.messaging.MessagingClient;
+import org.gradle.messaging.TcpMessagingClient;
+import org.gradle.util.TemporaryFolder;
+import org.gradle.util.TestFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+public class DaemonClientTest {
+    @Rule
+    public TemporaryFolder tmpDir = new TemporaryFolder();
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream errorOutput = new ByteArrayOutputStream();
+    private final TestBuildRunner buildRunner = new TestBuildRunner();
+    private final List<DaemonServer> servers = new ArrayList<DaemonServer>();
+    private TestFile userHomeDir;
+    private DaemonRegistry registry;
+    private DaemonClient client;
+    private Thread daemonThread;
+    private int startCount;
+    private long idleTimeout = DaemonServer.DEFAULT_IDLE_TIMEOUT;
+
+    @Before
+    public void setup() {
+        userHomeDir = tmpDir.getDir().file("user-home");
+        registry = new DaemonRegistry(userHomeDir);
+        client = createClient(Collections.<String>emptyList());
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        for (DaemonServer server : servers) {
+            server.stop();
+        }
+        if (daemonThread != null) {
+            daemonThread.join();
+        }
+    }
+
+    @Test
+    public void startsDaemonWhenNotRunningAndRunsBuild() {
+        File currentDir = tmpDir.getDir().file("current");
+
+        assertTrue(client.build(currentDir, new String[]{"a", "b"}));
+
+        assertThat(startCount, equalTo(1));
+        assertThat(buildRunner.currentDirs, equalTo(Arrays.asList(currentDir)));
+        assertThat(buildRunner.args, equalTo(Arrays.asList("a b")));
+        assertThat(output.toString(), equalTo(String.format("output a b%n")));
+        assertThat(errorOutput.toString(), equalTo(String.format("error%n")));
+    }
+
+    @Test
+    public void reusesDaemonForLaterBuilds() {
+        assertTrue(client.build(tmpDir.getDir(), new String[]{"a"}));
+        assertTrue(client.build(tmpDir.getDir(), new String[]{"b"}));
+
+        assertThat(startCount, equalTo(1));
+        assertThat(buildRunner.args, equalTo(Arrays.asList("a", "b")));
+        assertThat(output.toString(), equalTo(String.format("output a%noutput b%n")));
+    }
+
+    @Test
+    public void reportsBuildFailure() {
+        assertFalse(client.build(tmpDir.getDir(), new String[]{"fail"}));
+        assertTrue(client.build(tmpDir.getDir(), new String[]{"a"}));
+    }
+
+    @Test
+    public void reportsBuildWhichThrowsExceptionAsFailure() {
+        assertFalse(client.build(tmpDir.getDir(), new String[]{"broken"}));
+        assertThat(errorOutput.toString(), containsString("broken"));
+        assertTrue(client.build(tmpDir.getDir(), new String[]{"a"}));
+    }
+
+    @Test
+    public void startsNewDaemonWhenRegisteredDaemonIsNotRunning() throws Exception {
+        registry.getDir().mkdirs();
+        registry.setAddress(new DaemonRegistry.Address(new URI("channel:tcp://localhost:1!0"), "token",
+                Collections.<String>emptyList()));
+
+        assertTrue(client.build(tmpDir.getDir(), new String[]{"a"}));
+
+        assertThat(startCount, equalTo(1));
+    }
+
+    @Test
+    public void canStopDaemon() throws InterruptedException {
+        assertFalse(client.stop());
+
+        client.build(tmpDir.getDir(), new String[]{"a"});
+        assertTrue(client.stop());
+
+        daemonThread.join();
+        assertThat(registry.getAddress(), nullValue());
+        assertFalse(client.stop());
+    }
+
+    @Test
+    public void daemonStopsWhenNoClientConnectsWithinIdleTimeout() throws InterruptedException {
+        idleTimeout = 200;
+        client.build(tmpDir.getDir(), new String[]{"a"});
+
+        daemonThread.join();
+        assertThat(registry.getAddress(), nullValue());
+    }
+
+    @Test
+    public void daemonIgnoresBuildRequestWithInvalidToken() throws Exception {
+        client.build(tmpDir.getDir(), new String[]{"a"});
+        DaemonRegistry.Address address = registry.getAddress();
+
+        MessagingClient otherClient = new TcpMessagingClient(getClass().getClassLoader(), address.getUri());
+        try {
+            otherClient.getConnection().addOutgoing(BuildDaemon.class).build("invalid", tmpDir.getDir(),
+                    new String[]{"b"});
+        } finally {
+            otherClient.stop();
+        }
+        waitForAddressOtherThan(address);
+
+        assertTrue(client.build(tmpDir.getDir(), new String[]{"c"}));
+        assertThat(startCount, equalTo(1));
+        assertThat(buildRunner.args, equalTo(Arrays.asList("a", "c")));
+    }
+
+    @Test
+    public void daemonIgnoresStopRequestWithInvalidToken() throws Exception {
+        client.build(tmpDir.getDir(), new String[]{"a"});
+        DaemonRegistry.Address address = registry.getAddress();
+
+        MessagingClient otherClient = new TcpMessagingClient(getClass().getClassLoader(), address.getUri());
+        try {
+            otherClient.getConnection().addOutgoing(BuildDaemon.class).stop("invalid");
+        } finally {
+            otherClient.stop();
+        }
+        waitForAddressOtherThan(address);
+
+        assertTrue(client.build(tmpDir.getDir(), new String[]{"b"}));
+        assertThat(startCount, equalTo(1));
+    }
+
+    @Test
+    public void publishesTokenAndJvmOptionsOfDaemon() {
+        client = createClient(Arrays.asList("-Xmx64m"));
+        client.build(tmpDir.getDir(), new String[]{"a"});
+
+        DaemonRegistry.Address address = registry.getAddress();
+        assertThat(address.getToken().length(), greaterThan(0));
+        assertThat(address.getJvmOptions(), equalTo(Arrays.asList("-Xmx64m")));
+    }
+
+    @Test
+    public void startsNewDaemonWhenRunningDaemonHasDifferentJvmOptions() throws InterruptedException {
+        client.build(tmpDir.getDir(), new String[]{"a"});
+        Thread firstDaemonThread = daemonThread;
+
+        client = createClient(Arrays.asList("-Xmx64m"));
+        assertTrue(client.build(tmpDir.getDir(), new String[]{"b"}));
+
+        assertThat(startCount, equalTo(2));
+        firstDaemonThread.join();
+        assertThat(registry.getAddress().getJvmOptions(), equalTo(Arrays.asList("-Xmx64m")));
+    }
+
+    private void waitForAddressOtherThan(DaemonRegistry.Address address) throws InterruptedException {
+        long expiry = System.currentTimeMillis() + DaemonClient.START_TIMEOUT;
+        while (true) {
+            DaemonRegistry.Address current = registry.getAddress();
+            if (current != null && !current.getUri().equals(address.getUri())) {
+                return;
+            }
+            assertThat(System.currentTimeMillis(), lessThan(expiry));
+            Thread.sleep(100);
+        }
+    }
+
+    private DaemonClient createClient(final List<String> jvmOptions) {
+        DaemonClient client = new DaemonClient(tmpDir.getDir(), userHomeDir, jvmOptions) {
+            @Override
+            DaemonRegistry.Address startDaemon() {
+                startCount++;
+                startDaemonInThisProcess(jvmOptions);
+                try {
+                    return registry.waitForAddress(START_TIMEOUT);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        client.setOutput(new PrintStream(output, true), new PrintStream(errorOutput, true));
+        return client;
+    }
+
+    private void startDaemonInThisProcess(List<String> jvmOptions) {
+        final DaemonServer server = new DaemonServer(registry, buildRunner, idleTimeout, jvmOptions);
+        servers.add(server);
+        daemonThread = new Thread() {
+            @Override
+            public void run() {
+                server.run();
+            }
+        };
+        daemonThread.start();
+    }
+
+    private static class TestBuildRunner implements DaemonServer.BuildRunner {
+        final List<File> currentDirs = new CopyOnWriteArrayList<File>();
+        final List<String> args = new CopyOnWriteArrayList<String>();
+
+        public boolean run(File currentDir, String[] args) {
+            String joined = join(args);
+            currentDirs.add(currentDir);
+            this.args.add(joined);
+            if (joined.equals("broken")) {
+                throw new RuntimeException("broken");
+            }
+            System.out.println("output " + joined);
+            if (joined.equals("a b")) {
+                System.err.println("error");
+            }
+            return !joined.equals("fail");
+        }
+
+        private String join(String[] args) {
+            StringBuilder builder = new StringBuilder();
+            for (String arg : args) {
+                if (builder.length() > 0) {
+                    builder.append(' ');
+                }
+                builder.append(arg);
+            }
+            return builder.toString();
+        }
+    }
+}
@@ -95,7 +95,7 @@ public class MainTest {
             main.execute();
             fail();
         } catch (BuildCompletedError e) {
-            assertThat((RuntimeException) (e.getCause().getCause()), sameInstance(exception));
+            assertThat((RuntimeException) e.getCause(), sameInstance(exception));
         }
     }
 
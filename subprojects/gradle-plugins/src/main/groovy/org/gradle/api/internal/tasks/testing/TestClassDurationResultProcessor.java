@@ -0,0 +1,66 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing;
+
+import org.gradle.cache.PersistentIndexedCache;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Records the execution time of each test class in the given cache, keyed by class name. A test class is a composite
+ * test which has a class name.
+ */
+public class TestClassDurationResultProcessor implements TestResultProcessor {
+    private final TestResultProcessor processor;
+    private final PersistentIndexedCache<String, Long> durations;
+    private final Map<Object, TestClassExecution> executing = new HashMap<Object, TestClassExecution>();
+
+    public TestClassDurationResultProcessor(TestResultProcessor processor, PersistentIndexedCache<String, Long> durations) {
+        this.processor = processor;
+        this.durations = durations;
+    }
+
+    public void started(TestDescriptorInternal test, TestStartEvent event) {
+        if (test.isComposite() && test.getClassName() != null) {
+            executing.put(test.getId(), new TestClassExecution(test.getClassName(), event.getStartTime()));
+        }
+        processor.started(test, event);
+    }
+
+    public void addFailure(Object testId, Throwable result) {
+        processor.addFailure(testId, result);
+    }
+
+    public void completed(Object testId, TestCompleteEvent event) {
+        TestClassExecution execution = executing.remove(testId);
+        if (execution != null) {
+            durations.put(execution.className, Math.max(0, event.getEndTime() - execution.startTime));
+        }
+        processor.completed(testId, event);
+    }
+
+    private static class TestClassExecution {
+        final String className;
+        final long startTime;
+
+        private TestClassExecution(String className, long startTime) {
+            this.className = className;
+            this.startTime = startTime;
+        }
+    }
+}
@@ -28,7 +28,7 @@ public class TestMainAction implements Runnable {
     public TestMainAction(Runnable detector, TestClassProcessor processor, TestResultProcessor resultProcessor, TimeProvider timeProvider) {
         this.detector = detector;
         this.processor = processor;
-        this.resultProcessor = new AttachParentTestResultProcessor(resultProcessor);
+        this.resultProcessor = resultProcessor;
         this.timeProvider = timeProvider;
     }
 
@@ -36,7 +36,7 @@ public class TestMainAction implements Runnable {
         RootTestSuiteDescriptor suite = new RootTestSuiteDescriptor();
         resultProcessor.started(suite, new TestStartEvent(timeProvider.getCurrentTime()));
         try {
-            processor.startProcessing(resultProcessor);
+            processor.startProcessing(new AttachToRootResultProcessor(resultProcessor, suite.getId()));
             try {
                 detector.run();
             } finally {
@@ -47,6 +47,35 @@ public class TestMainAction implements Runnable {
         }
     }
 
+    /**
+     * Attaches each test which has no parent to the root suite. The processor may start tests from several threads
+     * concurrently, so no attempt is made to track nesting of suites here.
+     */
+    private static class AttachToRootResultProcessor implements TestResultProcessor {
+        private final TestResultProcessor processor;
+        private final Object rootId;
+
+        public AttachToRootResultProcessor(TestResultProcessor processor, Object rootId) {
+            this.processor = processor;
+            this.rootId = rootId;
+        }
+
+        public void started(TestDescriptorInternal test, TestStartEvent event) {
+            if (event.getParentId() == null) {
+                event.setParentId(rootId);
+            }
+            processor.started(test, event);
+        }
+
+        public void addFailure(Object testId, Throwable result) {
+            processor.addFailure(testId, result);
+        }
+
+        public void completed(Object testId, TestCompleteEvent event) {
+            processor.completed(testId, event);
+        }
+    }
+
     private static class RootTestSuiteDescriptor extends DefaultTestSuiteDescriptor {
         public RootTestSuiteDescriptor() {
             super("root", "");
@@ -71,6 +71,8 @@ public abstract class AbstractTestTask extends ConventionTask implements Pattern
 
     private Long forkEvery;
 
+    private int maxParallelForks = 1;
+
     /**
      * The broadcaster for all {@link TestListener} implementations that have been registered with ListenerManager.
      */
@@ -458,4 +460,27 @@ public abstract class AbstractTestTask extends ConventionTask implements Pattern
     public void setForkEvery(Long forkEvery) {
         this.forkEvery = forkEvery;
     }
+
+    /**
+     * Returns the maximum number of forked test processes to execute in parallel. The default value is 1 (no parallel
+     * test execution).
+     *
+     * @return The maximum number of forked test processes.
+     */
+    public int getMaxParallelForks() {
+        return maxParallelForks;
+    }
+
+    /**
+     * Sets the maximum number of forked test processes to execute in parallel. Set to 1 to disable parallel test
+     * execution.
+     *
+     * @param maxParallelForks The maximum number of forked test processes.
+     */
+    public void setMaxParallelForks(int maxParallelForks) {
+        if (maxParallelForks < 1) {
+            throw new IllegalArgumentException("Cannot set maxParallelForks to a value less than 1.");
+        }
+        this.maxParallelForks = maxParallelForks;
+    }
 }
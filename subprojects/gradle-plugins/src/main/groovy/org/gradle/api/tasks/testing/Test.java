@@ -29,6 +29,7 @@ import org.gradle.api.testing.TestClassProcessor;
 import org.gradle.api.testing.TestClassProcessorFactory;
 import org.gradle.api.testing.detection.DefaultTestClassScannerFactory;
 import org.gradle.api.testing.detection.TestClassScannerFactory;
+import org.gradle.api.testing.execution.MaxNParallelTestClassProcessor;
 import org.gradle.api.testing.execution.RestartEveryNTestClassProcessor;
 import org.gradle.api.testing.execution.fork.ForkingTestClassProcessor;
 import org.gradle.api.testing.execution.fork.WorkerTestClassProcessorFactory;
@@ -46,11 +47,16 @@ import java.util.Map;
  * @author Hans Dockter
  */
 public class Test extends AbstractTestTask implements JavaForkOptions {
+    /**
+     * The maximum number of test classes given to a forked test process which it has not yet completed. More than
+     * one, so the process has the next test class at hand when it completes one.
+     */
+    private static final int MAX_TEST_CLASSES_IN_FLIGHT = 2;
     private TestClassScannerFactory testClassScannerFactory;
     private final DefaultJavaForkOptions options;
 
     public Test() {
-        this.testClassScannerFactory = new DefaultTestClassScannerFactory();
+        this.testClassScannerFactory = new DefaultTestClassScannerFactory(getServices());
         options = new DefaultJavaForkOptions(getServices().get(FileResolver.class));
         options.setEnableAssertions(true);
     }
@@ -286,14 +292,26 @@ public class Test extends AbstractTestTask implements JavaForkOptions {
 
         final TestFrameworkInstance testFrameworkInstance = getTestFramework();
         final WorkerTestClassProcessorFactory testInstanceFactory = testFrameworkInstance.getProcessorFactory();
-        TestClassProcessorFactory processorFactory = new TestClassProcessorFactory() {
+        final TestClassProcessorFactory forkingProcessorFactory = new TestClassProcessorFactory() {
             public TestClassProcessor create() {
                 return new ForkingTestClassProcessor(workerFactory, testInstanceFactory, options, getClasspath(), testFrameworkInstance.getWorkerConfigurationAction());
             }
         };
+        final Long forkEvery = getForkEvery();
+        TestClassProcessorFactory reforkingProcessorFactory = new TestClassProcessorFactory() {
+            public TestClassProcessor create() {
+                return new RestartEveryNTestClassProcessor(forkingProcessorFactory, forkEvery == null ? 0 : forkEvery);
+            }
+        };
 
-        Long forkEvery = getForkEvery();
-        TestClassProcessor processor = new RestartEveryNTestClassProcessor(processorFactory, forkEvery == null ? 0 : forkEvery);
+        TestClassProcessor processor;
+        if (getMaxParallelForks() > 1) {
+            int maxInFlight = testFrameworkInstance.isExecutesTestClassesAsReceived() ? MAX_TEST_CLASSES_IN_FLIGHT : 0;
+            processor = new MaxNParallelTestClassProcessor(getMaxParallelForks(), maxInFlight,
+                    reforkingProcessorFactory);
+        } else {
+            processor = reforkingProcessorFactory.create();
+        }
 
         TestSummaryListener listener = new TestSummaryListener(LoggerFactory.getLogger(Test.class));
         addTestListener(listener);
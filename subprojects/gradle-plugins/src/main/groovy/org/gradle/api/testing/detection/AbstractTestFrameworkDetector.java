@@ -44,6 +44,7 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
     private List<File> testClassDirectories;
     private ClassFileExtractionManager classFileExtractionManager;
     private final Map<File, Boolean> superClasses;
+    private TestClassDetectionCache detectionCache;
 
     protected TestClassProcessor testClassProcessor;
 
@@ -59,6 +60,13 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
 
     protected abstract T createClassVisitor();
 
+    /**
+     * Sets the cache used to skip parsing class files which were inspected by a previous run. May be null.
+     */
+    public void setDetectionCache(TestClassDetectionCache detectionCache) {
+        this.detectionCache = detectionCache;
+    }
+
     protected File getSuperTestClassFile(String superClassName) {
         prepareClasspath();
         if (StringUtils.isEmpty(superClassName)) {
@@ -106,8 +114,17 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
     protected TestClassVisitor classVisitor(final File testClassFile) {
         final TestClassVisitor classVisitor = createClassVisitor();
 
+        String cacheKey = null;
         InputStream classStream = null;
         try {
+            // Classes extracted from library jars are written to a new temporary file on each run, so are not cached
+            if (detectionCache != null && !isLibraryClassFile(testClassFile)) {
+                cacheKey = detectionCache.getKey(getClass().getName(), testClassFile);
+                TestClassDetectionCache.ClassDetails details = detectionCache.get(cacheKey);
+                if (details != null) {
+                    return new CachedClassVisitor(this, details);
+                }
+            }
             classStream = new BufferedInputStream(new FileInputStream(testClassFile));
             final ClassReader classReader = new ClassReader(classStream);
             classReader.accept(classVisitor, ClassReader.SKIP_DEBUG | ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES);
@@ -117,9 +134,17 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
             IOUtils.closeQuietly(classStream);
         }
 
+        if (cacheKey != null) {
+            detectionCache.put(cacheKey, new TestClassDetectionCache.ClassDetails(classVisitor.getClassName(),
+                    classVisitor.getSuperClassName(), classVisitor.isAbstract(), classVisitor.isTest()));
+        }
         return classVisitor;
     }
 
+    private boolean isLibraryClassFile(File classFile) {
+        return classFileExtractionManager != null && classFileExtractionManager.isExtractedClassFile(classFile);
+    }
+
     public boolean processTestClass(File testClassFile) {
         return processTestClass(testClassFile, false);
     }
@@ -168,6 +193,34 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
         }
     }
 
+    /**
+     * A visitor which replays the details of a class file read by a previous run, without visiting the class.
+     */
+    private static class CachedClassVisitor extends TestClassVisitor {
+        private final TestClassDetectionCache.ClassDetails details;
+
+        private CachedClassVisitor(TestFrameworkDetector detector, TestClassDetectionCache.ClassDetails details) {
+            super(detector);
+            this.details = details;
+        }
+
+        public String getClassName() {
+            return details.getClassName();
+        }
+
+        public boolean isTest() {
+            return details.isTest();
+        }
+
+        public boolean isAbstract() {
+            return details.isAbstract();
+        }
+
+        public String getSuperClassName() {
+            return details.getSuperClassName();
+        }
+    }
+
     protected boolean isKnownTestCaseClassName(String testCaseClassName) {
         boolean isKnownTestCase = false;
 
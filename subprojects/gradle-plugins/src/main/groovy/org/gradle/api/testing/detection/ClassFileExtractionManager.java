@@ -85,6 +85,13 @@ public class ClassFileExtractionManager {
         }
     }
 
+    /**
+     * Returns true if the given file contains a class file extracted by this manager.
+     */
+    public boolean isExtractedClassFile(File file) {
+        return extractedJarClasses.containsValue(file);
+    }
+
     boolean extractClassFile(final String className) {
         boolean classFileExtracted = false;
 
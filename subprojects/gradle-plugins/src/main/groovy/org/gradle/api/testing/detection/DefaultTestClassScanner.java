@@ -19,18 +19,25 @@ package org.gradle.api.testing.detection;
 import org.gradle.api.file.EmptyFileVisitor;
 import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.internal.file.FileSet;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.testing.TestClassProcessor;
 import org.gradle.api.testing.fabric.DefaultTestClassRunInfo;
 import org.gradle.api.testing.fabric.TestClassRunInfo;
 import org.gradle.api.testing.fabric.TestFrameworkDetector;
+import org.gradle.cache.PersistentIndexedCache;
 
 import java.io.File;
-import java.util.Collection;
+import java.util.*;
 
 /**
  * The default test class scanner depending on the availability of a test framework detecter a detection or filename
  * scan is performed to find test classes.
  *
+ * <p>When a cache of test class durations is provided, the test classes found are passed to the test class processor
+ * once the scan is complete, with the longest running test classes first. Test classes with no recorded duration are
+ * passed first, in the order they were found. Running the longest test classes first lets several processes which
+ * execute the test classes finish at about the same time.</p>
+ *
  * @author Tom Eyckmans
  */
 public class DefaultTestClassScanner implements Runnable {
@@ -39,28 +46,50 @@ public class DefaultTestClassScanner implements Runnable {
     private final Collection<String> excludePatterns;
     private final TestFrameworkDetector testFrameworkDetector;
     private final TestClassProcessor testClassProcessor;
+    private final PersistentIndexedCache<String, Long> testClassDurations;
 
     public DefaultTestClassScanner(File testClassDirectory, Collection<String> includePatterns,
                                    Collection<String> excludePatterns, TestFrameworkDetector testFrameworkDetector,
                                    TestClassProcessor testClassProcessor) {
+        this(testClassDirectory, includePatterns, excludePatterns, testFrameworkDetector, testClassProcessor, null);
+    }
+
+    public DefaultTestClassScanner(File testClassDirectory, Collection<String> includePatterns,
+                                   Collection<String> excludePatterns, TestFrameworkDetector testFrameworkDetector,
+                                   TestClassProcessor testClassProcessor,
+                                   PersistentIndexedCache<String, Long> testClassDurations) {
         this.testClassDirectory = testClassDirectory;
         this.includePatterns = includePatterns;
         this.excludePatterns = excludePatterns;
         this.testFrameworkDetector = testFrameworkDetector;
         this.testClassProcessor = testClassProcessor;
+        this.testClassDurations = testClassDurations;
     }
 
     public void run() {
         final FileSet testClassFileSet = new FileSet(testClassDirectory, null);
 
+        if (testClassDurations == null) {
+            scan(testClassFileSet, testClassProcessor);
+            return;
+        }
+
+        TestClassCollector collector = new TestClassCollector();
+        scan(testClassFileSet, collector);
+        for (TestClassRunInfo testClass : collector.longestFirst()) {
+            testClassProcessor.processTestClass(testClass);
+        }
+    }
+
+    private void scan(FileSet testClassFileSet, TestClassProcessor testClassProcessor) {
         if (testFrameworkDetector == null) {
-            filenameScan(testClassFileSet);
+            filenameScan(testClassFileSet, testClassProcessor);
         } else {
-            detectionScan(testClassFileSet);
+            detectionScan(testClassFileSet, testClassProcessor);
         }
     }
 
-    private void detectionScan(final FileSet testClassFileSet) {
+    private void detectionScan(final FileSet testClassFileSet, TestClassProcessor testClassProcessor) {
         testClassFileSet.include(includePatterns);
         testClassFileSet.exclude(excludePatterns);
 
@@ -73,7 +102,7 @@ public class DefaultTestClassScanner implements Runnable {
         });
     }
 
-    private void filenameScan(final FileSet testClassFileSet) {
+    private void filenameScan(final FileSet testClassFileSet, final TestClassProcessor testClassProcessor) {
         if (includePatterns.isEmpty()) {
             includePatterns.add("**/*Tests.class");
             includePatterns.add("**/*Test.class");
@@ -93,6 +122,36 @@ public class DefaultTestClassScanner implements Runnable {
         });
     }
 
+    private class TestClassCollector implements TestClassProcessor {
+        private final List<TestClassRunInfo> testClasses = new ArrayList<TestClassRunInfo>();
+
+        public void startProcessing(TestResultProcessor resultProcessor) {
+        }
+
+        public void processTestClass(TestClassRunInfo testClass) {
+            testClasses.add(testClass);
+        }
+
+        public void endProcessing() {
+        }
+
+        public List<TestClassRunInfo> longestFirst() {
+            final Map<String, Long> durations = new HashMap<String, Long>();
+            for (TestClassRunInfo testClass : testClasses) {
+                Long duration = testClassDurations.get(testClass.getTestClassName());
+                durations.put(testClass.getTestClassName(), duration == null ? Long.MAX_VALUE : duration);
+            }
+
+            List<TestClassRunInfo> ordered = new ArrayList<TestClassRunInfo>(testClasses);
+            Collections.sort(ordered, new Comparator<TestClassRunInfo>() {
+                public int compare(TestClassRunInfo left, TestClassRunInfo right) {
+                    return durations.get(right.getTestClassName()).compareTo(durations.get(left.getTestClassName()));
+                }
+            });
+            return ordered;
+        }
+    }
+
     private abstract class ClassFileVisitor extends EmptyFileVisitor {
         public void visitFile(FileVisitDetails fileDetails) {
             final File file = fileDetails.getFile();
@@ -16,37 +16,114 @@
 
 package org.gradle.api.testing.detection;
 
+import org.gradle.api.internal.changedetection.Hasher;
+import org.gradle.api.internal.project.ServiceRegistry;
+import org.gradle.api.internal.tasks.testing.TestClassDurationResultProcessor;
 import org.gradle.api.internal.tasks.testing.TestMainAction;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.tasks.testing.AbstractTestTask;
 import org.gradle.api.testing.TestClassProcessor;
 import org.gradle.api.testing.fabric.TestFrameworkDetector;
+import org.gradle.cache.CacheRepository;
+import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.util.TrueTimeProvider;
 
 import java.util.Set;
 import java.io.File;
 
 /**
- * The default test class scanner factory.
+ * The default test class scanner factory. When a cache repository is provided, the duration of each test class is
+ * recorded, and tests executed in several forked processes are executed longest first. When created from a service
+ * registry, the details which test detection reads from class files are also cached.
  *
  * @author Tom Eyckmans
  */
 public class DefaultTestClassScannerFactory implements TestClassScannerFactory {
+    private final CacheRepository cacheRepository;
+    private final ServiceRegistry services;
+
+    public DefaultTestClassScannerFactory() {
+        this((CacheRepository) null);
+    }
+
+    public DefaultTestClassScannerFactory(CacheRepository cacheRepository) {
+        this.cacheRepository = cacheRepository;
+        this.services = null;
+    }
+
+    /**
+     * The hasher is looked up from the given registry only when test classes are scanned, as it opens the file hash
+     * cache.
+     */
+    public DefaultTestClassScannerFactory(ServiceRegistry services) {
+        this.cacheRepository = services.get(CacheRepository.class);
+        this.services = services;
+    }
+
     public Runnable createTestClassScanner(AbstractTestTask testTask, TestClassProcessor testClassProcessor, TestResultProcessor testResultProcessor) {
         final File testClassDirectory = testTask.getTestClassesDir();
         final Set<String> includePatterns = testTask.getIncludes();
         final Set<String> excludePatterns = testTask.getExcludes();
 
+        PersistentIndexedCache<String, Long> testClassDurations = null;
+        if (cacheRepository != null) {
+            PersistentIndexedCache<String, Long> durations = cacheRepository.cache("testClassDurations").forObject(
+                    testTask.getProject().getGradle()).open().openIndexedCache();
+            testClassDurations = new TaskTestClassDurations(testTask.getPath(), durations);
+        }
+        // Ordering the test classes delays executing them until the scan is complete, which only pays off when the
+        // test classes are spread over several processes
+        PersistentIndexedCache<String, Long> orderByDuration = testTask.getMaxParallelForks() > 1 ? testClassDurations
+                : null;
+
         Runnable detector;
         if (testTask.isScanForTestClasses()) {
             final TestFrameworkDetector testFrameworkDetector = testTask.getTestFramework().getDetector();
+            if (services != null && testFrameworkDetector instanceof AbstractTestFrameworkDetector) {
+                ((AbstractTestFrameworkDetector) testFrameworkDetector).setDetectionCache(new TestClassDetectionCache(
+                        cacheRepository, services.get(Hasher.class)));
+            }
 
             detector = new DefaultTestClassScanner(testClassDirectory, includePatterns, excludePatterns,
-                    testFrameworkDetector, testClassProcessor);
+                    testFrameworkDetector, testClassProcessor, orderByDuration);
         } else {
             detector = new DefaultTestClassScanner(testClassDirectory, includePatterns, excludePatterns, null,
-                    testClassProcessor);
+                    testClassProcessor, orderByDuration);
+        }
+        TestResultProcessor resultProcessor = testResultProcessor;
+        if (testClassDurations != null) {
+            resultProcessor = new TestClassDurationResultProcessor(testResultProcessor, testClassDurations);
+        }
+        return new TestMainAction(detector, testClassProcessor, resultProcessor, new TrueTimeProvider());
+    }
+
+    /**
+     * The test class durations of a single test task, so that several test tasks can execute the same test class. The
+     * durations of all test tasks are kept in a single build-scoped cache, keyed by task path and class name.
+     */
+    private static class TaskTestClassDurations implements PersistentIndexedCache<String, Long> {
+        private final String taskPath;
+        private final PersistentIndexedCache<String, Long> durations;
+
+        private TaskTestClassDurations(String taskPath, PersistentIndexedCache<String, Long> durations) {
+            this.taskPath = taskPath;
+            this.durations = durations;
+        }
+
+        private String key(String className) {
+            return taskPath + ':' + className;
+        }
+
+        public Long get(String className) {
+            return durations.get(key(className));
+        }
+
+        public void put(String className, Long duration) {
+            durations.put(key(className), duration);
+        }
+
+        public void remove(String className) {
+            durations.remove(key(className));
         }
-        return new TestMainAction(detector, testClassProcessor, testResultProcessor, new TrueTimeProvider());
     }
 }
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.testing.detection;
+
+import org.gradle.api.internal.changedetection.Hasher;
+import org.gradle.cache.CacheRepository;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.cache.Serializer;
+
+import java.io.*;
+import java.math.BigInteger;
+import java.util.Collections;
+
+/**
+ * A persistent cache of the details which test detection reads from class files. The details of a class file depend
+ * only on its content and on the type of detector which reads it, so they are keyed by both and shared by all builds.
+ * A class file which is unchanged since a previous run is not parsed again. An instance can be used from multiple
+ * threads concurrently.
+ */
+public class TestClassDetectionCache {
+    private final PersistentIndexedCache<String, ClassDetails> cache;
+    private final Hasher hasher;
+
+    public TestClassDetectionCache(CacheRepository cacheRepository, Hasher hasher) {
+        this.hasher = hasher;
+        cache = cacheRepository.cache("testClassDetection").withProperties(Collections.singletonMap("algorithm",
+                hasher.getAlgorithm())).open().openIndexedCache(new ClassDetailsSerializer());
+    }
+
+    /**
+     * Returns the key for the given class file, as read by the given type of detector.
+     */
+    public String getKey(String detectorType, File classFile) {
+        return detectorType + ':' + new BigInteger(1, hasher.hash(classFile)).toString(16);
+    }
+
+    /**
+     * Returns the cached details for the given key, or null if there are none.
+     */
+    public synchronized ClassDetails get(String key) {
+        return cache.get(key);
+    }
+
+    public synchronized void put(String key, ClassDetails details) {
+        cache.put(key, details);
+    }
+
+    public static class ClassDetails {
+        private final String className;
+        private final String superClassName;
+        private final boolean isAbstract;
+        private final boolean test;
+
+        public ClassDetails(String className, String superClassName, boolean isAbstract, boolean test) {
+            this.className = className;
+            this.superClassName = superClassName;
+            this.isAbstract = isAbstract;
+            this.test = test;
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        public String getSuperClassName() {
+            return superClassName;
+        }
+
+        public boolean isAbstract() {
+            return isAbstract;
+        }
+
+        public boolean isTest() {
+            return test;
+        }
+    }
+
+    static class ClassDetailsSerializer implements Serializer<ClassDetails> {
+        public ClassDetails read(InputStream instr) throws Exception {
+            DataInputStream input = new DataInputStream(instr);
+            String className = input.readUTF();
+            String superClassName = input.readBoolean() ? input.readUTF() : null;
+            boolean isAbstract = input.readBoolean();
+            boolean test = input.readBoolean();
+            return new ClassDetails(className, superClassName, isAbstract, test);
+        }
+
+        public void write(OutputStream outstr, ClassDetails value) throws Exception {
+            DataOutputStream output = new DataOutputStream(outstr);
+            output.writeUTF(value.className);
+            output.writeBoolean(value.superClassName != null);
+            if (value.superClassName != null) {
+                output.writeUTF(value.superClassName);
+            }
+            output.writeBoolean(value.isAbstract);
+            output.writeBoolean(value.test);
+            output.flush();
+        }
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.testing.execution;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.internal.tasks.testing.TestClassProcessedListener;
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent;
+import org.gradle.api.internal.tasks.testing.TestDescriptorInternal;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.TestStartEvent;
+import org.gradle.api.testing.TestClassProcessor;
+import org.gradle.api.testing.TestClassProcessorFactory;
+import org.gradle.api.testing.fabric.TestClassRunInfo;
+import org.gradle.listener.ThreadSafeProxy;
+import org.gradle.util.ThreadUtils;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link TestClassProcessor} which distributes test classes over up to a given number of target processors, each of
+ * which is driven from its own thread. A target processor is started for each test class received, until the maximum
+ * is reached.
+ *
+ * <p>Test classes are held in a queue shared by the targets. A target takes the next test class from the queue only
+ * when it has fewer than the given number of test classes in flight, and no other target has fewer. So a target which
+ * is busy with a slow test class is not handed more work, and the test classes behind it are taken by the other
+ * targets as they become free. A test class is in flight until the target acknowledges that it has processed the test
+ * class, which it does also when the test class fails to execute, or until it reports the completion of the
+ * corresponding test class. When the maximum number in flight is 0, there is no limit, which suits targets that only execute
+ * test classes once they have all been received. The test classes are then shared evenly between the targets.</p>
+ *
+ * <p>The results of all target processors are merged and delivered to the result processor one event at a time.</p>
+ */
+public class MaxNParallelTestClassProcessor implements TestClassProcessor {
+    private final int maxProcessors;
+    private final int maxInFlight;
+    private final TestClassProcessorFactory factory;
+    private final Lock lock = new ReentrantLock();
+    private final Condition stateChanged = lock.newCondition();
+    private final List<TargetProcessor> targets = new ArrayList<TargetProcessor>();
+    private final LinkedList<TestClassRunInfo> queue = new LinkedList<TestClassRunInfo>();
+    private ExecutorService executor;
+    private TestResultProcessor resultProcessor;
+    private boolean ended;
+    private int running;
+    private Throwable failure;
+
+    public MaxNParallelTestClassProcessor(int maxProcessors, int maxInFlight, TestClassProcessorFactory factory) {
+        this.maxProcessors = maxProcessors;
+        this.maxInFlight = maxInFlight;
+        this.factory = factory;
+    }
+
+    public void startProcessing(TestResultProcessor resultProcessor) {
+        this.resultProcessor = new ThreadSafeProxy<TestResultProcessor>(TestResultProcessor.class, resultProcessor).getSource();
+        executor = Executors.newFixedThreadPool(maxProcessors);
+    }
+
+    public void processTestClass(TestClassRunInfo testClass) {
+        lock.lock();
+        try {
+            rethrowFailure();
+            queue.add(testClass);
+            if (targets.size() < maxProcessors) {
+                TargetProcessor target = new TargetProcessor(factory.create());
+                targets.add(target);
+                running++;
+                executor.execute(target);
+            }
+            stateChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void endProcessing() {
+        lock.lock();
+        try {
+            ended = true;
+            stateChanged.signalAll();
+            while (running > 0) {
+                stateChanged.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+        ThreadUtils.shutdown(executor);
+
+        rethrowFailure();
+    }
+
+    private boolean canTakeTestClass(TargetProcessor target) {
+        if (maxInFlight > 0 && target.inFlight.size() >= maxInFlight) {
+            return false;
+        }
+        for (TargetProcessor other : targets) {
+            if (!other.finished && other.inFlight.size() < target.inFlight.size()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rethrowFailure() {
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw new GradleException(failure);
+        }
+    }
+
+    private class TargetProcessor implements Runnable {
+        private final TestClassProcessor processor;
+        private final Set<String> inFlight = new HashSet<String>();
+        private boolean finished;
+
+        private TargetProcessor(TestClassProcessor processor) {
+            this.processor = processor;
+        }
+
+        public void run() {
+            try {
+                processor.startProcessing(new TargetResultProcessor(this));
+                try {
+                    TestClassRunInfo testClass;
+                    while ((testClass = nextTestClass()) != null) {
+                        processor.processTestClass(testClass);
+                    }
+                } finally {
+                    processor.endProcessing();
+                }
+            } catch (Throwable t) {
+                failed(t);
+            } finally {
+                finished();
+            }
+        }
+
+        private TestClassRunInfo nextTestClass() {
+            lock.lock();
+            try {
+                while (failure == null && (queue.isEmpty() ? !ended : !canTakeTestClass(this))) {
+                    stateChanged.awaitUninterruptibly();
+                }
+                if (queue.isEmpty() || failure != null) {
+                    return null;
+                }
+                TestClassRunInfo testClass = queue.removeFirst();
+                inFlight.add(testClass.getTestClassName());
+                stateChanged.signalAll();
+                return testClass;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void testClassCompleted(String testClassName) {
+            lock.lock();
+            try {
+                inFlight.remove(testClassName);
+                stateChanged.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void failed(Throwable t) {
+            lock.lock();
+            try {
+                if (failure == null) {
+                    failure = t;
+                }
+                stateChanged.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void finished() {
+            lock.lock();
+            try {
+                running--;
+                finished = true;
+                stateChanged.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Forwards the results of a target processor, and keeps track of which of the target's test classes have
+     * completed. A test class is a test whose parent is one of the target's top level suites.
+     */
+    private class TargetResultProcessor implements TestResultProcessor, TestClassProcessedListener {
+        private final TargetProcessor target;
+        private final Set<Object> topLevelSuites = new HashSet<Object>();
+        private final Map<Object, String> testClasses = new HashMap<Object, String>();
+
+        private TargetResultProcessor(TargetProcessor target) {
+            this.target = target;
+        }
+
+        public void started(TestDescriptorInternal test, TestStartEvent event) {
+            synchronized (this) {
+                if (event.getParentId() == null) {
+                    topLevelSuites.add(test.getId());
+                } else if (topLevelSuites.contains(event.getParentId())) {
+                    testClasses.put(test.getId(), test.getClassName());
+                }
+            }
+            resultProcessor.started(test, event);
+        }
+
+        public void addFailure(Object testId, Throwable result) {
+            resultProcessor.addFailure(testId, result);
+        }
+
+        public void completed(Object testId, TestCompleteEvent event) {
+            resultProcessor.completed(testId, event);
+            String testClassName;
+            synchronized (this) {
+                topLevelSuites.remove(testId);
+                testClassName = testClasses.remove(testId);
+            }
+            if (testClassName != null) {
+                target.testClassCompleted(testClassName);
+            }
+        }
+
+        public void testClassProcessed(String testClassName) {
+            target.testClassCompleted(testClassName);
+        }
+    }
+}
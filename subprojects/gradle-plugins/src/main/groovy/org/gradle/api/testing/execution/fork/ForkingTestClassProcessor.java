@@ -17,6 +17,7 @@
 package org.gradle.api.testing.execution.fork;
 
 import org.gradle.api.Action;
+import org.gradle.api.internal.tasks.testing.TestClassProcessedListener;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.tasks.util.JavaForkOptions;
 import org.gradle.api.testing.TestClassProcessor;
@@ -64,6 +65,7 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
             
             workerProcess = builder.build();
             workerProcess.getConnection().addIncoming(TestResultProcessor.class, resultProcessor);
+            workerProcess.getConnection().addIncoming(TestClassProcessedListener.class, getProcessedListener());
             worker = workerProcess.getConnection().addOutgoing(TestClassProcessor.class);
 
             workerProcess.start();
@@ -71,6 +73,16 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
         worker.processTestClass(testClass);
     }
 
+    private TestClassProcessedListener getProcessedListener() {
+        if (resultProcessor instanceof TestClassProcessedListener) {
+            return (TestClassProcessedListener) resultProcessor;
+        }
+        return new TestClassProcessedListener() {
+            public void testClassProcessed(String testClassName) {
+            }
+        };
+    }
+
     public void endProcessing() {
         if (worker != null) {
             worker.endProcessing();
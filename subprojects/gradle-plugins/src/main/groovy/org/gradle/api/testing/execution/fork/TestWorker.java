@@ -19,6 +19,7 @@ package org.gradle.api.testing.execution.fork;
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
 import org.gradle.api.internal.tasks.testing.AttachParentTestResultProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassProcessedListener;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessor;
 import org.gradle.api.testing.TestClassProcessor;
@@ -42,6 +43,7 @@ public class TestWorker implements Action<WorkerProcessContext>, TestClassProces
     private final WorkerTestClassProcessorFactory factory;
     private CountDownLatch completed;
     private TestClassProcessor processor;
+    private TestClassProcessedListener processedListener;
 
     public TestWorker(WorkerTestClassProcessorFactory factory) {
         this.factory = factory;
@@ -63,6 +65,7 @@ public class TestWorker implements Action<WorkerProcessContext>, TestClassProces
         resultProcessor = new AttachParentTestResultProcessor(resultProcessor);
         ThreadSafeProxy<TestResultProcessor> resultProcessorProxy = new ThreadSafeProxy<TestResultProcessor>(TestResultProcessor.class, resultProcessor);
         processor.startProcessing(resultProcessorProxy.getSource());
+        processedListener = serverConnection.addOutgoing(TestClassProcessedListener.class);
 
         serverConnection.addIncoming(TestClassProcessor.class, this);
 
@@ -80,7 +83,11 @@ public class TestWorker implements Action<WorkerProcessContext>, TestClassProces
     }
 
     public void processTestClass(TestClassRunInfo testClass) {
-        processor.processTestClass(testClass);
+        try {
+            processor.processTestClass(testClass);
+        } finally {
+            processedListener.testClassProcessed(testClass.getTestClassName());
+        }
     }
 
     public void endProcessing() {
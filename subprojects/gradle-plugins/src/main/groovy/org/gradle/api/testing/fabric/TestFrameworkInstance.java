@@ -40,5 +40,11 @@ public interface TestFrameworkInstance {
 
     WorkerTestClassProcessorFactory getProcessorFactory();
 
+    /**
+     * Returns true if the test processors of this framework execute each test class as it is received, and report its
+     * completion straight away. Otherwise, test classes are only executed once all of them have been received.
+     */
+    boolean isExecutesTestClassesAsReceived();
+
     Action<WorkerProcessBuilder> getWorkerConfigurationAction();
 }
@@ -54,6 +54,10 @@ public class JUnitTestFrameworkInstance extends AbstractTestFrameworkInstance {
         return new TestClassProcessorFactoryImpl(testResultsDir);
     }
 
+    public boolean isExecutesTestClassesAsReceived() {
+        return true;
+    }
+
     public Action<WorkerProcessBuilder> getWorkerConfigurationAction() {
         return new Action<WorkerProcessBuilder>() {
             public void execute(WorkerProcessBuilder workerProcessBuilder) {
@@ -57,6 +57,10 @@ public class TestNGTestFrameworkInstance extends AbstractTestFrameworkInstance {
         return new TestClassProcessorFactoryImpl(testTask.getTestReportDir(), options, suiteFiles);
     }
 
+    public boolean isExecutesTestClassesAsReceived() {
+        return false;
+    }
+
     public Action<WorkerProcessBuilder> getWorkerConfigurationAction() {
         return new Action<WorkerProcessBuilder>() {
             public void execute(WorkerProcessBuilder workerProcessBuilder) {
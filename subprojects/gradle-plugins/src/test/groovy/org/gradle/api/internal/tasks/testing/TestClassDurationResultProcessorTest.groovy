@@ -0,0 +1,61 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.testing
+
+import org.gradle.cache.PersistentIndexedCache
+import org.gradle.util.JUnit4GroovyMockery
+import org.jmock.integration.junit4.JMock
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(JMock.class)
+class TestClassDurationResultProcessorTest {
+    private final JUnit4GroovyMockery context = new JUnit4GroovyMockery()
+    private final TestResultProcessor target = context.mock(TestResultProcessor.class)
+    private final PersistentIndexedCache<String, Long> durations = context.mock(PersistentIndexedCache.class)
+    private final TestClassDurationResultProcessor processor = new TestClassDurationResultProcessor(target, durations)
+
+    @Test
+    public void recordsDurationOfTestClassWhenItCompletes() {
+        TestDescriptorInternal testClass = new DefaultTestClassDescriptor('id', 'org.gradle.SomeTest')
+        TestStartEvent startEvent = new TestStartEvent(100L)
+        TestCompleteEvent completeEvent = new TestCompleteEvent(350L)
+
+        context.checking {
+            one(target).started(testClass, startEvent)
+            one(durations).put('org.gradle.SomeTest', 250L)
+            one(target).completed('id', completeEvent)
+        }
+
+        processor.started(testClass, startEvent)
+        processor.completed('id', completeEvent)
+    }
+
+    @Test
+    public void doesNotRecordDurationOfOtherTests() {
+        TestDescriptorInternal suite = new DefaultTestSuiteDescriptor('suite', 'suite')
+        TestDescriptorInternal method = new DefaultTestMethodDescriptor('method', 'org.gradle.SomeTest', 'method')
+
+        context.checking {
+            ignoring(target)
+        }
+
+        processor.started(suite, new TestStartEvent(100L))
+        processor.started(method, new TestStartEvent(100L))
+        processor.completed('method', new TestCompleteEvent(200L))
+        processor.completed('suite', new TestCompleteEvent(200L))
+    }
+}
@@ -63,6 +63,29 @@ class TestMainActionTest {
         action.run();
     }
 
+    @Test
+    public void attachesTestsWithNoParentToRootSuite() {
+        TestDescriptorInternal test = new DefaultTestSuiteDescriptor('worker', 'worker')
+        TestStartEvent event = new TestStartEvent(100L)
+
+        context.checking {
+            ignoring(timeProvider).getCurrentTime()
+            one(resultProcessor).started(withParam(notNullValue()), withParam(notNullValue()))
+            one(processor).startProcessing(withParam(notNullValue()))
+            will { TestResultProcessor processor ->
+                processor.started(test, event)
+            }
+            one(resultProcessor).started(test, event)
+            one(detector).run()
+            one(processor).endProcessing()
+            one(resultProcessor).completed(withParam(notNullValue()), withParam(notNullValue()))
+        }
+
+        action.run()
+
+        assertThat(event.parentId, equalTo('root'))
+    }
+
     @Test
     public void firesEndEventsWhenDetectorFails() {
         RuntimeException failure = new RuntimeException()
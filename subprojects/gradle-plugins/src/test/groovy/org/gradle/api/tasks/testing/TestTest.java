@@ -23,6 +23,7 @@ import org.gradle.api.internal.tasks.testing.TestListenerAdapter;
 import org.gradle.api.tasks.AbstractConventionTaskTest;
 import org.gradle.api.testing.TestClassProcessor;
 import org.gradle.api.testing.detection.TestClassScannerFactory;
+import org.gradle.api.testing.execution.MaxNParallelTestClassProcessor;
 import org.gradle.api.testing.execution.RestartEveryNTestClassProcessor;
 import org.gradle.api.testing.execution.fork.WorkerTestClassProcessorFactory;
 import org.gradle.api.testing.fabric.TestFramework;
@@ -102,6 +103,7 @@ public class TestTest extends AbstractConventionTaskTest {
         assertEquals(toLinkedSet(), test.getIncludes());
         assertEquals(toLinkedSet(), test.getExcludes());
         assertFalse(test.isIgnoreFailures());
+        assertEquals(1, test.getMaxParallelForks());
     }
 
     @org.junit.Test
@@ -112,6 +114,30 @@ public class TestTest extends AbstractConventionTaskTest {
         test.executeTests();
     }
 
+    @org.junit.Test
+    public void testExecuteWithMaxParallelForks() {
+        configureTask();
+        test.setMaxParallelForks(3);
+        expectOptionsBuilt();
+        context.checking(new Expectations() {{
+            one(testFrameworkInstanceMock).isExecutesTestClassesAsReceived();
+            will(returnValue(true));
+        }});
+        expectTestsExecuted(instanceOf(MaxNParallelTestClassProcessor.class));
+
+        test.executeTests();
+    }
+
+    @org.junit.Test
+    public void testCannotSetMaxParallelForksToLessThanOne() {
+        try {
+            test.setMaxParallelForks(0);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), equalTo("Cannot set maxParallelForks to a value less than 1."));
+        }
+    }
+
     @org.junit.Test
     public void testExecuteWithTestFailuresAndStopAtFailures() {
         configureTask();
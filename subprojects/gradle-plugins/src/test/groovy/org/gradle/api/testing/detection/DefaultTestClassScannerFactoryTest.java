@@ -0,0 +1,167 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.testing.detection;
+
+import org.gradle.api.Project;
+import org.gradle.api.internal.changedetection.Hasher;
+import org.gradle.api.internal.project.ServiceRegistry;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.api.tasks.testing.AbstractTestTask;
+import org.gradle.api.testing.TestClassProcessor;
+import org.gradle.api.testing.fabric.TestClassRunInfo;
+import org.gradle.cache.CacheBuilder;
+import org.gradle.cache.CacheRepository;
+import org.gradle.cache.PersistentCache;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.util.TemporaryFolder;
+import org.hamcrest.Description;
+import org.hamcrest.Matcher;
+import org.hamcrest.TypeSafeMatcher;
+import org.jmock.Expectations;
+import org.jmock.Sequence;
+import org.jmock.integration.junit4.JMock;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.jmock.lib.legacy.ClassImposteriser;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.HashSet;
+
+@RunWith(JMock.class)
+public class DefaultTestClassScannerFactoryTest {
+    @Rule
+    public final TemporaryFolder tmpDir = new TemporaryFolder();
+    private final JUnit4Mockery context = new JUnit4Mockery() {{
+        setImposteriser(ClassImposteriser.INSTANCE);
+    }};
+    private final AbstractTestTask testTask = context.mock(AbstractTestTask.class);
+    private final CacheRepository cacheRepository = context.mock(CacheRepository.class);
+    private final PersistentIndexedCache<String, Long> durations = context.mock(PersistentIndexedCache.class);
+    private final TestClassProcessor testClassProcessor = context.mock(TestClassProcessor.class);
+    private final TestResultProcessor testResultProcessor = context.mock(TestResultProcessor.class);
+    private final DefaultTestClassScannerFactory factory = new DefaultTestClassScannerFactory(cacheRepository);
+
+    @Before
+    public void setUp() {
+        tmpDir.createFile("SlowTest.class");
+        tmpDir.createFile("FastTest.class");
+
+        context.checking(new Expectations() {{
+            Project project = context.mock(Project.class);
+            Gradle gradle = context.mock(Gradle.class);
+            CacheBuilder cacheBuilder = context.mock(CacheBuilder.class);
+            PersistentCache persistentCache = context.mock(PersistentCache.class);
+
+            allowing(testTask).getTestClassesDir();
+            will(returnValue(tmpDir.getDir()));
+            allowing(testTask).getIncludes();
+            will(returnValue(new HashSet<String>()));
+            allowing(testTask).getExcludes();
+            will(returnValue(new HashSet<String>()));
+            allowing(testTask).isScanForTestClasses();
+            will(returnValue(false));
+            allowing(testTask).getPath();
+            will(returnValue(":project:test"));
+            allowing(testTask).getProject();
+            will(returnValue(project));
+            allowing(project).getGradle();
+            will(returnValue(gradle));
+
+            one(cacheRepository).cache("testClassDurations");
+            will(returnValue(cacheBuilder));
+            one(cacheBuilder).forObject(gradle);
+            will(returnValue(cacheBuilder));
+            one(cacheBuilder).open();
+            will(returnValue(persistentCache));
+            one(persistentCache).openIndexedCache();
+            will(returnValue(durations));
+
+            ignoring(testResultProcessor);
+            ignoring(testClassProcessor).startProcessing(with(any(TestResultProcessor.class)));
+            ignoring(testClassProcessor).endProcessing();
+        }});
+    }
+
+    @Test
+    public void executesLongestRunningTestClassesFirstWhenThereAreSeveralForks() {
+        context.checking(new Expectations() {{
+            allowing(testTask).getMaxParallelForks();
+            will(returnValue(2));
+
+            allowing(durations).get(":project:test:FastTest");
+            will(returnValue(10L));
+            allowing(durations).get(":project:test:SlowTest");
+            will(returnValue(1000L));
+
+            Sequence sequence = context.sequence("seq");
+            one(testClassProcessor).processTestClass(with(testClass("SlowTest")));
+            inSequence(sequence);
+            one(testClassProcessor).processTestClass(with(testClass("FastTest")));
+            inSequence(sequence);
+        }});
+
+        factory.createTestClassScanner(testTask, testClassProcessor, testResultProcessor).run();
+    }
+
+    @Test
+    public void passesTestClassesOnAsTheyAreFoundWhenThereIsOneFork() {
+        context.checking(new Expectations() {{
+            allowing(testTask).getMaxParallelForks();
+            will(returnValue(1));
+
+            one(testClassProcessor).processTestClass(with(testClass("SlowTest")));
+            one(testClassProcessor).processTestClass(with(testClass("FastTest")));
+        }});
+
+        factory.createTestClassScanner(testTask, testClassProcessor, testResultProcessor).run();
+    }
+
+    @Test
+    public void doesNotLookUpHasherWhenNotScanningForTestClasses() {
+        final ServiceRegistry services = context.mock(ServiceRegistry.class);
+        context.checking(new Expectations() {{
+            allowing(services).get(CacheRepository.class);
+            will(returnValue(cacheRepository));
+            never(services).get(Hasher.class);
+
+            allowing(testTask).getMaxParallelForks();
+            will(returnValue(1));
+            ignoring(durations);
+
+            one(testClassProcessor).processTestClass(with(testClass("SlowTest")));
+            one(testClassProcessor).processTestClass(with(testClass("FastTest")));
+        }});
+
+        new DefaultTestClassScannerFactory(services).createTestClassScanner(testTask, testClassProcessor,
+                testResultProcessor).run();
+    }
+
+    private Matcher<TestClassRunInfo> testClass(final String name) {
+        return new TypeSafeMatcher<TestClassRunInfo>() {
+            @Override
+            public boolean matchesSafely(TestClassRunInfo item) {
+                return item.getTestClassName().equals(name);
+            }
+
+            public void describeTo(Description description) {
+                description.appendText("test class ").appendValue(name);
+            }
+        };
+    }
+}
@@ -26,6 +26,9 @@ import org.gradle.util.TemporaryFolder
 import org.gradle.api.testing.fabric.TestFrameworkDetector
 import org.gradle.api.testing.TestClassProcessor
 import org.jmock.Sequence
+import org.gradle.cache.PersistentIndexedCache
+import org.gradle.api.testing.fabric.TestClassRunInfo
+import static org.hamcrest.Matchers.*
 
 @RunWith(JMock.class)
 public class DefaultTestClassScannerTest {
@@ -61,4 +64,35 @@ public class DefaultTestClassScannerTest {
         
         scanner.run()
     }
+
+    @Test
+    public void passesTestClassesToProcessorLongestFirstWhenDurationsAreAvailable() {
+        PersistentIndexedCache<String, Long> durations = context.mock(PersistentIndexedCache.class)
+        DefaultTestClassScanner scanner = new DefaultTestClassScanner(tmpDir.dir, [] as Set, [] as Set, null, processor, durations)
+
+        tmpDir.dir.create {
+            file 'FastTest.class'
+            file 'NewTest.class'
+            file 'SlowTest.class'
+        }
+
+        context.checking {
+            allowing(durations).get('FastTest')
+            will(returnValue(10L))
+            allowing(durations).get('NewTest')
+            will(returnValue(null))
+            allowing(durations).get('SlowTest')
+            will(returnValue(2000L))
+
+            Sequence sequence = context.sequence('seq')
+            one(processor).processTestClass(withParam(hasProperty('testClassName', equalTo('NewTest'))))
+            inSequence(sequence)
+            one(processor).processTestClass(withParam(hasProperty('testClassName', equalTo('SlowTest'))))
+            inSequence(sequence)
+            one(processor).processTestClass(withParam(hasProperty('testClassName', equalTo('FastTest'))))
+            inSequence(sequence)
+        }
+
+        scanner.run()
+    }
 }
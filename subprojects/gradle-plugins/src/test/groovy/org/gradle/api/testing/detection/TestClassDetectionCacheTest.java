@@ -0,0 +1,127 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.testing.detection;
+
+import org.gradle.api.internal.changedetection.Hasher;
+import org.gradle.cache.*;
+import org.gradle.util.TemporaryFolder;
+import org.jmock.Expectations;
+import org.jmock.integration.junit4.JMock;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+@RunWith(JMock.class)
+public class TestClassDetectionCacheTest {
+    @Rule
+    public TemporaryFolder tmpDir = new TemporaryFolder();
+    private final JUnit4Mockery context = new JUnit4Mockery();
+    private final Hasher hasher = context.mock(Hasher.class);
+    private final PersistentIndexedCache<String, TestClassDetectionCache.ClassDetails> indexedCache = context.mock(
+            PersistentIndexedCache.class);
+    private final CacheRepository cacheRepository = context.mock(CacheRepository.class);
+    private final File classFile = tmpDir.createFile("Test.class").write("content");
+    private TestClassDetectionCache cache;
+
+    @Before
+    public void setup() {
+        context.checking(new Expectations() {{
+            CacheBuilder cacheBuilder = context.mock(CacheBuilder.class);
+            PersistentCache persistentCache = context.mock(PersistentCache.class);
+
+            allowing(hasher).getAlgorithm();
+            will(returnValue("algorithm"));
+
+            one(cacheRepository).cache("testClassDetection");
+            will(returnValue(cacheBuilder));
+
+            one(cacheBuilder).withProperties(Collections.singletonMap("algorithm", "algorithm"));
+            will(returnValue(cacheBuilder));
+
+            one(cacheBuilder).open();
+            will(returnValue(persistentCache));
+
+            one(persistentCache).openIndexedCache(with(notNullValue(Serializer.class)));
+            will(returnValue(indexedCache));
+        }});
+        cache = new TestClassDetectionCache(cacheRepository, hasher);
+    }
+
+    @Test
+    public void keyIsMadeFromDetectorTypeAndClassFileHash() {
+        context.checking(new Expectations() {{
+            one(hasher).hash(classFile);
+            will(returnValue(new byte[]{0x0a, (byte) 0xff}));
+        }});
+
+        assertThat(cache.getKey("detector", classFile), equalTo("detector:aff"));
+    }
+
+    @Test
+    public void getsAndPutsDetailsUsingBackingCache() {
+        final TestClassDetectionCache.ClassDetails details = new TestClassDetectionCache.ClassDetails("org/gradle/Test",
+                "java/lang/Object", false, true);
+
+        context.checking(new Expectations() {{
+            one(indexedCache).get("key");
+            will(returnValue(null));
+            one(indexedCache).put("key", details);
+        }});
+
+        assertThat(cache.get("key"), nullValue());
+        cache.put("key", details);
+    }
+
+    @Test
+    public void serializesClassDetails() throws Exception {
+        TestClassDetectionCache.ClassDetails details = roundTrip(new TestClassDetectionCache.ClassDetails(
+                "org/gradle/Test", "org/gradle/Base", true, false));
+
+        assertThat(details.getClassName(), equalTo("org/gradle/Test"));
+        assertThat(details.getSuperClassName(), equalTo("org/gradle/Base"));
+        assertTrue(details.isAbstract());
+        assertFalse(details.isTest());
+    }
+
+    @Test
+    public void serializesClassDetailsWithNoSuperClass() throws Exception {
+        TestClassDetectionCache.ClassDetails details = roundTrip(new TestClassDetectionCache.ClassDetails(
+                "java/lang/Object", null, false, true));
+
+        assertThat(details.getClassName(), equalTo("java/lang/Object"));
+        assertThat(details.getSuperClassName(), nullValue());
+        assertFalse(details.isAbstract());
+        assertTrue(details.isTest());
+    }
+
+    private TestClassDetectionCache.ClassDetails roundTrip(TestClassDetectionCache.ClassDetails details)
+            throws Exception {
+        TestClassDetectionCache.ClassDetailsSerializer serializer = new TestClassDetectionCache.ClassDetailsSerializer();
+        ByteArrayOutputStream outstr = new ByteArrayOutputStream();
+        serializer.write(outstr, details);
+        return serializer.read(new ByteArrayInputStream(outstr.toByteArray()));
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.testing.execution
+
+import org.gradle.api.internal.tasks.testing.DefaultTestClassDescriptor
+import org.gradle.api.internal.tasks.testing.DefaultTestSuiteDescriptor
+import org.gradle.api.internal.tasks.testing.TestClassProcessedListener
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent
+import org.gradle.api.internal.tasks.testing.TestDescriptorInternal
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import org.gradle.api.internal.tasks.testing.TestStartEvent
+import org.gradle.api.testing.TestClassProcessor
+import org.gradle.api.testing.TestClassProcessorFactory
+import org.gradle.api.testing.fabric.TestClassRunInfo
+import org.junit.Test
+import static org.hamcrest.Matchers.*
+import static org.junit.Assert.*
+
+class MaxNParallelTestClassProcessorTest {
+    private final List<FakeProcessor> processors = Collections.synchronizedList([])
+    private final List<String> events = Collections.synchronizedList([])
+    private final TestClassProcessorFactory factory = {
+        FakeProcessor processor = new FakeProcessor("worker${processors.size() + 1}")
+        processors << processor
+        processor
+    } as TestClassProcessorFactory
+    private final TestResultProcessor resultProcessor = [
+            started: { TestDescriptorInternal test, TestStartEvent event -> events << "start ${test.id}".toString() },
+            completed: { Object id, TestCompleteEvent event -> events << "complete ${id}".toString() },
+            addFailure: { Object id, Throwable failure -> events << "failure ${id}".toString() }
+    ] as TestResultProcessor
+
+    @Test
+    public void createsProcessorsOnDemandUpToTheMaximum() {
+        MaxNParallelTestClassProcessor processor = new MaxNParallelTestClassProcessor(2, 2, factory)
+
+        processor.startProcessing(resultProcessor)
+        processor.processTestClass(testClass('fast1'))
+        processor.processTestClass(testClass('fast2'))
+        processor.processTestClass(testClass('fast3'))
+        processor.endProcessing()
+
+        assertThat(processors.size(), equalTo(2))
+        assertThat(processors.collect { it.testClasses }.flatten() as Set, equalTo(['fast1', 'fast2', 'fast3'] as Set))
+        processors.each { assertTrue(it.ended) }
+    }
+
+    @Test
+    public void testClassesQueuedBehindASlowTestClassAreTakenByAnotherProcessor() {
+        MaxNParallelTestClassProcessor processor = new MaxNParallelTestClassProcessor(2, 1, factory)
+
+        processor.startProcessing(resultProcessor)
+        processor.processTestClass(testClass('slow1'))
+        processor.processTestClass(testClass('fast1'))
+        processor.processTestClass(testClass('fast2'))
+        processor.processTestClass(testClass('fast3'))
+        processor.processTestClass(testClass('fast4'))
+        processor.endProcessing()
+
+        FakeProcessor slowProcessor = processors.find { it.testClasses.contains('slow1') }
+        FakeProcessor otherProcessor = processors.find { it != slowProcessor }
+        assertThat(slowProcessor.testClasses, equalTo(['slow1']))
+        assertThat(otherProcessor.testClasses, equalTo(['fast1', 'fast2', 'fast3', 'fast4']))
+    }
+
+    @Test
+    public void sharesTestClassesEvenlyWhenThereIsNoLimitOnTestClassesInFlight() {
+        MaxNParallelTestClassProcessor processor = new MaxNParallelTestClassProcessor(2, 0, factory)
+
+        processor.startProcessing(resultProcessor)
+        processor.processTestClass(testClass('slow1'))
+        processor.processTestClass(testClass('slow2'))
+        processor.processTestClass(testClass('slow3'))
+        processor.processTestClass(testClass('slow4'))
+        processor.endProcessing()
+
+        assertThat(processors.size(), equalTo(2))
+        processors.each { assertThat(it.testClasses.size(), equalTo(2)) }
+    }
+
+    @Test
+    public void sendsTestClassToTheProcessorWithFewestTestClassesInProgress() {
+        MaxNParallelTestClassProcessor processor = new MaxNParallelTestClassProcessor(2, 2, factory)
+
+        processor.startProcessing(resultProcessor)
+        processor.processTestClass(testClass('slow1'))
+        waitForProcessed(1)
+        processor.processTestClass(testClass('fast1'))
+        waitForProcessed(2)
+        processor.processTestClass(testClass('fast2'))
+        waitForProcessed(3)
+        processor.processTestClass(testClass('fast3'))
+        processor.endProcessing()
+
+        assertThat(processors[0].testClasses, equalTo(['slow1']))
+        assertThat(processors[1].testClasses, equalTo(['fast1', 'fast2', 'fast3']))
+    }
+
+    @Test
+    public void forwardsResultsFromAllProcessors() {
+        MaxNParallelTestClassProcessor processor = new MaxNParallelTestClassProcessor(2, 2, factory)
+
+        processor.startProcessing(resultProcessor)
+        processor.processTestClass(testClass('slow1'))
+        processor.processTestClass(testClass('fast1'))
+        processor.endProcessing()
+
+        assertThat(events, hasItems('start worker1', 'start slow1', 'complete worker1', 'start worker2', 'start fast1', 'complete fast1', 'complete worker2'))
+    }
+
+    @Test
+    public void rethrowsProcessorFailureAtEndOfProcessing() {
+        RuntimeException failure = new RuntimeException('broken')
+        MaxNParallelTestClassProcessor processor = new MaxNParallelTestClassProcessor(2, 2, {
+            [startProcessing: { throw failure }, processTestClass: {}, endProcessing: {}] as TestClassProcessor
+        } as TestClassProcessorFactory)
+
+        processor.startProcessing(resultProcessor)
+        processor.processTestClass(testClass('fast1'))
+
+        try {
+            processor.endProcessing()
+            fail()
+        } catch (RuntimeException e) {
+            assertThat(e, sameInstance(failure))
+        }
+    }
+
+    @Test(timeout = 20000L)
+    public void releasesTestClassWhichIsAcknowledgedWithoutReportingItsCompletion() {
+        List<String> testClasses = Collections.synchronizedList([])
+        MaxNParallelTestClassProcessor processor = new MaxNParallelTestClassProcessor(1, 2, {
+            TestResultProcessor targetResultProcessor
+            [startProcessing: { targetResultProcessor = it },
+                    processTestClass: { TestClassRunInfo testClass ->
+                        testClasses << testClass.testClassName
+                        ((TestClassProcessedListener) targetResultProcessor).testClassProcessed(testClass.testClassName)
+                    },
+                    endProcessing: {}] as TestClassProcessor
+        } as TestClassProcessorFactory)
+
+        processor.startProcessing(resultProcessor)
+        processor.processTestClass(testClass('broken1'))
+        processor.processTestClass(testClass('broken2'))
+        processor.processTestClass(testClass('broken3'))
+        processor.processTestClass(testClass('broken4'))
+        processor.endProcessing()
+
+        assertThat(testClasses, equalTo(['broken1', 'broken2', 'broken3', 'broken4']))
+    }
+
+    private void waitForProcessed(int count) {
+        long expiry = System.currentTimeMillis() + 20000
+        while (processors.collect { it.testClasses }.flatten().size() < count) {
+            assertTrue(System.currentTimeMillis() < expiry)
+            Thread.sleep(10)
+        }
+    }
+
+    private TestClassRunInfo testClass(String name) {
+        return [getTestClassName: { name }] as TestClassRunInfo
+    }
+
+    /**
+     * Starts a suite for each test class. Completes the suite immediately for 'fast' test classes.
+     */
+    private static class FakeProcessor implements TestClassProcessor {
+        final String id
+        final List<String> testClasses = Collections.synchronizedList([])
+        TestResultProcessor resultProcessor
+        boolean ended
+
+        FakeProcessor(String id) {
+            this.id = id
+        }
+
+        void startProcessing(TestResultProcessor resultProcessor) {
+            this.resultProcessor = resultProcessor
+            resultProcessor.started(new DefaultTestSuiteDescriptor(id, id), new TestStartEvent(0))
+        }
+
+        void processTestClass(TestClassRunInfo testClass) {
+            String name = testClass.testClassName
+            resultProcessor.started(new DefaultTestClassDescriptor(name, name), new TestStartEvent(0, id))
+            if (name.startsWith('fast')) {
+                resultProcessor.completed(name, new TestCompleteEvent(0))
+            }
+            testClasses << name
+        }
+
+        void endProcessing() {
+            resultProcessor.completed(id, new TestCompleteEvent(0))
+            ended = true
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package org.gradle.api.testing.execution.fork;
 
 import org.gradle.api.Action;
+import org.gradle.api.internal.tasks.testing.TestClassProcessedListener;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.tasks.util.JavaForkOptions;
 import org.gradle.api.testing.TestClassProcessor;
@@ -129,6 +130,9 @@ public class ForkingTestClassProcessorTest {
             will(returnValue(connection));
 
             one(connection).addIncoming(TestResultProcessor.class, resultProcessor);
+
+            one(connection).addIncoming(with(equalTo(TestClassProcessedListener.class)),
+                    with(notNullValue(TestClassProcessedListener.class)));
             
             one(connection).addOutgoing(TestClassProcessor.class);
             will(returnValue(worker));
@@ -21,6 +21,7 @@
 
 package org.gradle.api.testing.execution.fork
 
+import org.gradle.api.internal.tasks.testing.TestClassProcessedListener
 import org.gradle.api.internal.tasks.testing.TestResultProcessor
 import org.gradle.api.testing.TestClassProcessor
 import org.gradle.api.testing.fabric.TestClassRunInfo
@@ -43,6 +44,7 @@ public class TestWorkerTest extends MultithreadedTestCase {
     private final TestClassProcessor processor = context.mock(TestClassProcessor.class)
     private final TestClassRunInfo test = context.mock(TestClassRunInfo.class)
     private final TestResultProcessor resultProcessor = context.mock(TestResultProcessor.class)
+    private final TestClassProcessedListener processedListener = context.mock(TestClassProcessedListener.class)
     private final TestWorker worker = new TestWorker(factory)
 
     @Before
@@ -55,6 +57,9 @@ public class TestWorkerTest extends MultithreadedTestCase {
             will(returnValue(connection))
 
             ignoring(workerContext).getApplicationClassLoader()
+
+            allowing(test).getTestClassName()
+            will(returnValue('SomeTest'))
         }
     }
 
@@ -67,6 +72,9 @@ public class TestWorkerTest extends MultithreadedTestCase {
             one(connection).addOutgoing(TestResultProcessor.class)
             will(returnValue(resultProcessor))
 
+            one(connection).addOutgoing(TestClassProcessedListener.class)
+            will(returnValue(processedListener))
+
             one(connection).addIncoming(TestClassProcessor.class, worker)
             will {
                 start {
@@ -80,6 +88,7 @@ public class TestWorkerTest extends MultithreadedTestCase {
 
             one(processor).startProcessing(withParam(notNullValue()))
             one(processor).processTestClass(test)
+            one(processedListener).testClassProcessed('SomeTest')
             one(processor).endProcessing()
         }
 
@@ -89,4 +98,38 @@ public class TestWorkerTest extends MultithreadedTestCase {
             }
         }
     }
+
+    @Test
+    public void acknowledgesTestClassWhichFailsToExecute() {
+        context.checking {
+            one(factory).create(withParam(notNullValue()))
+            will(returnValue(processor))
+
+            one(connection).addOutgoing(TestResultProcessor.class)
+            will(returnValue(resultProcessor))
+
+            one(connection).addOutgoing(TestClassProcessedListener.class)
+            will(returnValue(processedListener))
+
+            one(connection).addIncoming(TestClassProcessor.class, worker)
+            will {
+                start {
+                    worker.processTestClass(test)
+                    worker.endProcessing()
+                }
+            }
+
+            ignoring(resultProcessor)
+
+            one(processor).startProcessing(withParam(notNullValue()))
+            one(processor).processTestClass(test)
+            will(throwException(new RuntimeException('broken')))
+            one(processedListener).testClassProcessed('SomeTest')
+            one(processor).endProcessing()
+        }
+
+        run {
+            worker.execute(workerContext)
+        }
+    }
 }